@@ -0,0 +1,171 @@
+package org.game.othello.rules;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.interfaces.OthelloConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the hot paths of {@link GameLogic} on fixed opening, midgame and endgame positions.
+ * The position is restored before every invocation by a setup that is not measured, so each invocation plays the
+ * same move. A setup per invocation costs JMH a timestamp on both sides, which adds a few nanoseconds to the moves.
+ * @author Oliver Scherf
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLogicBenchmark implements OthelloConstants {
+
+	/* Seed of the pseudo random plies, so the positions are the same on every run. */
+	private static final long POSITION_SEED = 20151206L;
+
+	@Param({ "opening", "midgame", "endgame" })
+	private String position;
+
+	private GameLogic gameLogic;
+	private long black;
+	private long white;
+	private int player;
+	private Coordinate move;
+	private int moveSquare;
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(GameLogicBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	/**
+	 * Plays a fixed number of pseudo random plies from the starting position and picks the move to benchmark.
+	 */
+	@Setup
+	public void setUp() {
+		int plies;
+		if (this.position.equals("opening")) {
+			plies = 4;
+		} else if (this.position.equals("midgame")) {
+			plies = 24;
+		} else {
+			plies = 48;
+		}
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		Random random = new Random(POSITION_SEED);
+		for (int ply = 0; ply < plies; ++ply) {
+			long moves = board.getLegalMoves(board.getSideToMove());
+			if (moves == 0) {
+				board.makePass();
+			} else {
+				board.makeMove(pick(moves, random));
+			}
+		}
+		if (board.getLegalMoves(board.getSideToMove()) == 0) {
+			board.makePass();
+		}
+		this.black = board.getBlack();
+		this.white = board.getWhite();
+		this.player = board.getSideToMove();
+		this.moveSquare = pickMoveThatDoesNotEndTheGame(board);
+		this.move = new Coordinate(this.moveSquare % GAMEBOARD_SIZE, this.moveSquare / GAMEBOARD_SIZE);
+		this.gameLogic = new GameLogic();
+		this.gameLogic.setOfflineFlags();
+	}
+
+	/**
+	 * A move that ends the game sets the end flags of the game instead of switching the turn, it would not measure a
+	 * regular turn.
+	 * @return the first legal square after which at least one player can still move.
+	 */
+	private static int pickMoveThatDoesNotEndTheGame(BitBoard board) {
+		long moves = board.getLegalMoves(board.getSideToMove());
+		while (moves != 0) {
+			int square = Long.numberOfTrailingZeros(moves);
+			moves &= moves - 1;
+			board.makeMove(square);
+			boolean gameGoesOn = board.getLegalMoves(PLAYER_BLACK) != 0 || board.getLegalMoves(PLAYER_WHITE) != 0;
+			board.unmakeMove();
+			if (gameGoesOn) {
+				return square;
+			}
+		}
+		throw new IllegalStateException("Every move ends the game, choose another position.");
+	}
+
+	/**
+	 * @return a pseudo random square of the moves.
+	 */
+	private static int pick(long moves, Random random) {
+		int choice = random.nextInt(Long.bitCount(moves));
+		for (int i = 0; i < choice; ++i) {
+			moves &= moves - 1;
+		}
+		return Long.numberOfTrailingZeros(moves);
+	}
+
+	/**
+	 * Sets the benchmark position and the player on turn, the moves of the last invocation are undone.
+	 */
+	@Setup(Level.Invocation)
+	public void restore() {
+		this.gameLogic.getBitBoard().setPosition(this.black, this.white);
+		this.gameLogic.setCurrentPlayer(this.player);
+	}
+
+	@Benchmark
+	public boolean handleTurnAttempt() {
+		return this.gameLogic.handleTurnAttempt(this.move);
+	}
+
+	@Benchmark
+	public long doTurn() {
+		return this.gameLogic.doTurn(this.moveSquare);
+	}
+
+	@Benchmark
+	public long doTurnCoordinate() {
+		return this.gameLogic.doTurn(this.move);
+	}
+
+	@Benchmark
+	public boolean isAnyMovePossibleForThisClient() {
+		return this.gameLogic.isAnyMovePossibleForThisClient();
+	}
+
+	@Benchmark
+	public long legalMoves() {
+		return this.gameLogic.legalMoves(this.player);
+	}
+
+	@Benchmark
+	public int getGameFieldCount() {
+		return this.gameLogic.getGameFieldCount(PLAYER_BLACK);
+	}
+
+	@Benchmark
+	public int getWinner() {
+		return this.gameLogic.getWinner();
+	}
+}
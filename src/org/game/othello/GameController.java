@@ -3,10 +3,15 @@ package org.game.othello;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.game.othello.ai.ComputerPlayer;
 import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.FindGameCommando;
+import org.game.othello.connection.ForcedResultCommando;
 import org.game.othello.connection.GameEndsCommando;
 import org.game.othello.connection.InteruptCommando;
 import org.game.othello.connection.NoTurnIsPossibleCommand;
+import org.game.othello.connection.SnapshotCommando;
+import org.game.othello.connection.SpectateCommando;
 import org.game.othello.connection.SurrenderCommando;
 import org.game.othello.connection.client.OthelloClient;
 import org.game.othello.connection.server.OthelloServer;
@@ -14,6 +19,7 @@ import org.game.othello.interfaces.Loggable;
 import org.game.othello.interfaces.OthelloConstants;
 import org.game.othello.renderer.GameBoardRenderer;
 import org.game.othello.renderer.RenderController;
+import org.game.othello.rules.GameListener;
 import org.game.othello.rules.GameLogic;
 
 import javafx.scene.input.MouseButton;
@@ -22,15 +28,19 @@ import javafx.stage.Stage;
 
 /**
  * This Class manages the infrastructure of the program.
+ * It listens to the {@link GameLogic} of the running game and renders its events.
  * @author Oliver Scherf
  */
-public class GameController implements OthelloConstants, Loggable {
+public class GameController implements GameListener, OthelloConstants, Loggable {
 
 	private static GameController singleton = new GameController();
 	private Logger logger;
 	private GameLogic gameLogic;
 	private RenderController rendererController;
 	private OthelloClient othelloClient;
+	private ComputerPlayer computerPlayer;
+	/* True, if this client only watches the online game. */
+	private boolean spectating;
 
 	/**
 	 * Main Menu will show up.
@@ -47,12 +57,38 @@ public class GameController implements OthelloConstants, Loggable {
 	 * The {@link OthelloClient} will not be initialized.
 	 */
 	public void startOfflineMultiplayer() {
+		this.stopComputerPlayer();
 		this.gameLogic = new GameLogic();
+		this.gameLogic.setGameListener(this);
 		this.gameLogic.setOfflineFlags();
 		this.rendererController.startGameScene();
 		this.log(INFO, "Offline Multiplayer mode was started.");
 	}
 
+	/**
+	 * This will start the offline mode against the computer.
+	 * The player is Black and starts, the {@link ComputerPlayer} plays White.
+	 */
+	public void startOfflineSingleplayer() {
+		this.stopComputerPlayer();
+		this.gameLogic = new GameLogic();
+		this.gameLogic.setGameListener(this);
+		this.gameLogic.setOfflineFlags();
+		this.computerPlayer = new ComputerPlayer(PLAYER_WHITE, COMPUTER_PLAYER_TIME_BUDGET_MILLIS);
+		this.rendererController.startGameScene();
+		this.log(INFO, "Offline Singleplayer mode was started.");
+	}
+
+	/**
+	 * Shuts down the computer player of a previous game.
+	 */
+	private void stopComputerPlayer() {
+		if (this.computerPlayer != null) {
+			this.computerPlayer.shutdown();
+			this.computerPlayer = null;
+		}
+	}
+
 	/**
 	 * This will start the online Multiplayer mode.
 	 * The {@link OthelloClient} will be initialized and tries to connect
@@ -60,17 +96,48 @@ public class GameController implements OthelloConstants, Loggable {
 	 * @param lobbyNumber The lobby number to join, -1 will create a new lobby. 
 	 */
 	public void startOnlineMultiplayer(int lobbyNumber) {
+		this.connectToServer(lobbyNumber);
+		this.log(INFO, "Online Multiplayermode was started.");
+	}
+
+	/**
+	 * This will start the online Multiplayer mode against an opponent the server chooses.
+	 * The game starts when the matchmaking of the server found an opponent with a similar rating.
+	 */
+	public void findOnlineGame() {
+		this.connectToServer(new FindGameCommando(MATCHMAKING_DEFAULT_RATING));
+		this.log(INFO, "Online Multiplayermode was started, looking for an opponent.");
+	}
+
+	/**
+	 * This will show the online game of a lobby, without playing it.
+	 * @param lobbyNumber The lobby number of the game.
+	 */
+	public void spectateOnlineGame(int lobbyNumber) {
+		this.connectToServer(new SpectateCommando(lobbyNumber));
+		this.log(INFO, "Watching the online game #" + lobbyNumber + ".");
+	}
+
+	/**
+	 * Initializes the {@link OthelloClient}, which connects to the server, and sends the first message.
+	 * @param firstMessage the lobby number, a {@link FindGameCommando} or a {@link SpectateCommando}.
+	 */
+	private void connectToServer(Object firstMessage) {
+		this.stopComputerPlayer();
+		this.spectating = firstMessage instanceof SpectateCommando;
 		this.gameLogic = new GameLogic();
+		this.gameLogic.setGameListener(this);
 		this.gameLogic.setOnlineFlags();
 		this.othelloClient = new OthelloClient();
 		this.rendererController.startGameScene();
 		if (this.othelloClient.getClientSocket() == null) {
 			this.rendererController.getMessageRender().printInfoMessage("Cannot connect to the server. Please return to the menu.");
 		} else {
-			this.othelloClient.sendObject(lobbyNumber);
-			this.enableChat();
+			this.othelloClient.sendObject(firstMessage);
+			if (!this.spectating) {
+				this.enableChat();
+			}
 		}
-		this.log(INFO, "Online Multiplayermode was started.");
 	}
 
 	/**
@@ -79,6 +146,10 @@ public class GameController implements OthelloConstants, Loggable {
 	 * @param mouseEvent If the primary button: normal turn attempt 
 	 */
 	public void handleGameBoardMouseAction(Coordinate indexClicked, MouseEvent mouseEvent) {
+		if (this.isComputerOnTurn()) {
+			this.log(FINE, "Its the computer's turn!");
+			return;
+		}
 		if (mouseEvent.getButton().equals(MouseButton.PRIMARY)) {
 			this.handleTurnAttempt(indexClicked);
 		}
@@ -97,7 +168,28 @@ public class GameController implements OthelloConstants, Loggable {
 			this.othelloClient.sendObject(indexClicked);
 		}
 		this.log(INFO, "The turn attempt was valid: Placed a gamecharacter on: " + indexClicked.toString());
-		this.rendererController.update();
+		if (this.isComputerOnTurn()) {
+			this.computerPlayer.requestMove(this.gameLogic);
+		}
+	}
+
+	/**
+	 * The {@link ComputerPlayer} found a move, it is placed the same way as a mouse click.
+	 * @param index The {@link Coordinate} chosen by the computer.
+	 */
+	public void handleComputerTurn(Coordinate index) {
+		if (!this.isComputerOnTurn()) {
+			return;
+		}
+		this.handleTurnAttempt(index);
+	}
+
+	/**
+	 * @return true, if the computer has to make the next move.
+	 */
+	private boolean isComputerOnTurn() {
+		return this.computerPlayer != null && !this.gameLogic.isGameFinished()
+				&& this.gameLogic.getCurrentPlayer() == this.computerPlayer.getPlayer();
 	}
 
 	/**
@@ -109,21 +201,36 @@ public class GameController implements OthelloConstants, Loggable {
 	public void handleServerTurn(Coordinate index) {
 		this.gameLogic.doTurn(index);
 		this.gameLogic.switchTurnOrder();
+		if (this.spectating) {
+			return;
+		}
 		if (!this.gameLogic.isAnyMovePossibleForThisClient()) {
 			this.othelloClient.sendObject(new NoTurnIsPossibleCommand());
 			this.gameLogic.switchTurnOrder();
 		}
-		this.rendererController.update();
 		this.log(INFO, "Server turn was made. Opponent put a gamecharacter on " + index.toString());
 	}
 
+	/**
+	 * The player on turn could not move, it is the other player's turn now.
+	 */
+	public void handleServerPass() {
+		if (this.spectating) {
+			this.gameLogic.switchTurnOrder();
+		} else {
+			this.gameLogic.setCurrentPlayer(this.gameLogic.getClientPlayer());
+		}
+		this.rendererController.update();
+	}
+
 	/**
 	 * This handles a {@link InteruptCommando}. This means, the opponent quit.
 	 * @param cmd The command received from the  {@link OthelloServer}
 	 */
 	public void handleInteruptCommando(InteruptCommando cmd) {
 		this.log(INFO, "Server Commando Interupt: Interupting the game.");
-		this.rendererController.getMessageRender().printServerMessage("The opponent left the game. You won!");
+		this.rendererController.getMessageRender().printServerMessage(this.spectating ? "A player left the game."
+				: "The opponent left the game. You won!");
 		this.disableChat();
 		this.othelloClient.closeConnection();
 		this.gameLogic.setGameEndFlags();
@@ -143,6 +250,62 @@ public class GameController implements OthelloConstants, Loggable {
 		this.rendererController.update();
 	}
 
+	/**
+	 * The server solved the end of the game, the game goes on.
+	 * @param cmd The command received from the  {@link OthelloServer}
+	 */
+	public void handleForcedResult(ForcedResultCommando cmd) {
+		this.log(INFO, "Server Commando ForcedResult: " + cmd.toString());
+		String message;
+		if (cmd.getWinner() == PLAYER_NOBODY) {
+			message = "The game is a forced draw.";
+		} else if (cmd.getWinner() == this.gameLogic.getClientPlayer()) {
+			message = "You have a forced win.";
+		} else {
+			message = "Your opponent has a forced win.";
+		}
+		this.rendererController.getMessageRender().printInfoMessage(message);
+	}
+
+	/**
+	 * The connection to the server broke during the game, the {@link OthelloClient} tries to resume it.
+	 */
+	public void connectionLost() {
+		this.log(INFO, "The connection to the server was lost, trying to resume the game.");
+		this.rendererController.getMessageRender().printServerMessage("The connection to the server was lost. Reconnecting...");
+	}
+
+	/**
+	 * The game was resumed on a new connection, the {@link SnapshotCommando} contains the board of the server.
+	 * If this client is on turn and can not move, the server gets the pass it missed.
+	 * @param snapshot The command received from the {@link OthelloServer}
+	 */
+	public void resumeOnlineGame(SnapshotCommando snapshot) {
+		if (this.spectating) {
+			this.gameLogic.watchOnlineGame(snapshot);
+			this.rendererController.update();
+			return;
+		}
+		this.log(INFO, "Server Commando Snapshot: Resuming the game.");
+		this.gameLogic.resumeOnlineGame(snapshot);
+		if (this.gameLogic.getCurrentPlayer() == this.gameLogic.getClientPlayer() && !this.gameLogic.isAnyMovePossibleForThisClient()) {
+			this.othelloClient.sendObject(new NoTurnIsPossibleCommand());
+			this.gameLogic.switchTurnOrder();
+		}
+		this.rendererController.update();
+	}
+
+	/**
+	 * The game could not be resumed in time, it is over.
+	 */
+	public void handleResumeFailed() {
+		this.log(INFO, "The game could not be resumed.");
+		this.rendererController.getMessageRender().printServerMessage("The game could not be resumed. Please return to the menu.");
+		this.disableChat();
+		this.othelloClient.closeConnection();
+		this.gameLogic.setGameEndFlags();
+	}
+
 	/**
 	 * When the user attempts to join a non existing lobby, this method is called.
 	 */
@@ -176,7 +339,8 @@ public class GameController implements OthelloConstants, Loggable {
 	public void opponentSurrendered() {
 		this.log(INFO, "The opponent surrendered.");
 		this.gameLogic.setGameEndFlags();
-		this.rendererController.getMessageRender().printInfoMessage("Game ends: You won, opponent surrndered.");
+		this.rendererController.getMessageRender().printInfoMessage(this.spectating ? "Game ends: A player surrendered."
+				: "Game ends: You won, opponent surrndered.");
 		this.othelloClient.closeConnection();
 		this.disableChat();
 	}
@@ -212,6 +376,30 @@ public class GameController implements OthelloConstants, Loggable {
 		this.log(INFO, "The game ends.");
 	}
 
+	@Override
+	public void gameOver(GameLogic game, Coordinate lastMove) {
+		if (game == this.gameLogic) {
+			this.endGame(lastMove);
+		}
+	}
+
+	/**
+	 * Redraws the board and the stats for the player on turn.
+	 */
+	@Override
+	public void turnSwitched(GameLogic game, int currentPlayer) {
+		if (game == this.gameLogic) {
+			this.rendererController.update();
+		}
+	}
+
+	@Override
+	public void infoMessage(GameLogic game, String message) {
+		if (game == this.gameLogic) {
+			this.rendererController.getMessageRender().printInfoMessage(message);
+		}
+	}
+
 	/**
 	 * Sets the visibility of the chatField to false.
 	 */
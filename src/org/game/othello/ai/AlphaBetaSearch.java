@@ -0,0 +1,296 @@
+package org.game.othello.ai;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * Finds a move with an iterative deepening alpha-beta search in negamax form.
+ * The search works on its own copy of the position and stops when the time budget is used up,
+ * the result of the last completed depth is returned. Results are kept in a {@link TranspositionTable}
+ * that can be shared with other searches, see {@link ParallelSearch}.
+ * @author Oliver Scherf
+ */
+public class AlphaBetaSearch implements OthelloConstants, Loggable {
+
+	public static final int INFINITY = 1000000;
+	/* Scores of finished games are the disc difference times this factor, above every heuristic score. */
+	public static final int FINAL_SCORE_FACTOR = 1000;
+	public static final int MAX_DEPTH = 60;
+
+	private static final long CORNERS = 0x8100000000000081L;
+	/* The clock is only read every 1024 nodes. */
+	private static final int TIME_CHECK_MASK = 1023;
+	private static final int DEFAULT_TABLE_MEGABYTES = 1;
+
+	private Logger logger;
+	private final Evaluator evaluator;
+	private final TranspositionTable table;
+	/* A shared table is aged by its owner, see ParallelSearch. */
+	private final boolean ownsTable;
+	private int firstDepth = 1;
+	private BitBoard board;
+	private long startNanos;
+	private long budgetNanos;
+	/* Set by stop() from another thread, it is only cleared by reset(). */
+	private volatile boolean stopped;
+	/* The running search ran out of time or was stopped. */
+	private boolean aborted;
+	private long nodes;
+	private int completedDepth;
+	private int bestScore;
+
+	/**
+	 * Instantiates a new AlphaBetaSearch.
+	 * @param evaluator the evaluation of the leaf nodes.
+	 */
+	public AlphaBetaSearch(Evaluator evaluator) {
+		this(evaluator, new TranspositionTable(DEFAULT_TABLE_MEGABYTES), true);
+	}
+
+	/**
+	 * Instantiates a new AlphaBetaSearch.
+	 * @param evaluator the evaluation of the leaf nodes.
+	 * @param table the transposition table, may be shared with other searches.
+	 */
+	public AlphaBetaSearch(Evaluator evaluator, TranspositionTable table) {
+		this(evaluator, table, false);
+	}
+
+	private AlphaBetaSearch(Evaluator evaluator, TranspositionTable table, boolean ownsTable) {
+		this.initializeLogging();
+		this.evaluator = evaluator;
+		this.table = table;
+		this.ownsTable = ownsTable;
+	}
+
+	/**
+	 * @param position the position to search, the side to move of the position is on turn.
+	 * @param timeBudgetMillis the time the search may use.
+	 * @return the square of the best move or {@link BitBoard#PASS} if no move is possible.
+	 */
+	public int findBestMove(BitBoard position, long timeBudgetMillis) {
+		return this.findBestMove(position, timeBudgetMillis, MAX_DEPTH);
+	}
+
+	/**
+	 * @param position the position to search, the side to move of the position is on turn.
+	 * @param timeBudgetMillis the time the search may use.
+	 * @param maxDepth the deepest iteration.
+	 * @return the square of the best move or {@link BitBoard#PASS} if no move is possible.
+	 */
+	public int findBestMove(BitBoard position, long timeBudgetMillis, int maxDepth) {
+		this.board = new BitBoard(position);
+		this.evaluator.attach(this.board);
+		this.startNanos = System.nanoTime();
+		this.budgetNanos = timeBudgetMillis * 1000000L;
+		// A stop that came before the search started is not lost.
+		this.aborted = this.stopped;
+		this.nodes = 0;
+		this.completedDepth = 0;
+		this.bestScore = 0;
+		if (this.ownsTable) {
+			this.table.newSearch();
+		}
+		long moves = this.board.getLegalMoves(this.board.getSideToMove());
+		if (moves == 0) {
+			return BitBoard.PASS;
+		}
+		int bestMove = Long.numberOfTrailingZeros(moves);
+		if (Long.bitCount(moves) == 1) {
+			return bestMove;
+		}
+		int empties = this.board.count(PLAYER_NOBODY);
+		for (int depth = Math.min(this.firstDepth, maxDepth); depth <= maxDepth; ++depth) {
+			int alpha = -INFINITY;
+			int iterationBestMove = bestMove;
+			// The best move of the previous iteration is searched first.
+			long remaining = moves & ~(1L << bestMove);
+			int square = bestMove;
+			while (true) {
+				this.board.makeMove(square);
+				int score = -this.negamax(depth - 1, -INFINITY, -alpha, false);
+				this.board.unmakeMove();
+				if (this.aborted) {
+					break;
+				}
+				if (score > alpha) {
+					alpha = score;
+					iterationBestMove = square;
+				}
+				if (remaining == 0) {
+					break;
+				}
+				square = Long.numberOfTrailingZeros(remaining);
+				remaining &= remaining - 1;
+			}
+			if (this.aborted) {
+				break;
+			}
+			bestMove = iterationBestMove;
+			this.bestScore = alpha;
+			this.completedDepth = depth;
+			this.table.store(this.board.getHash(), depth, TranspositionTable.BOUND_EXACT, alpha, bestMove);
+			if (depth >= empties) {
+				// The whole game was searched, a deeper search returns the same.
+				break;
+			}
+		}
+		this.log(FINE, "Searched " + this.nodes + " nodes to depth " + this.completedDepth + ", best move " + bestMove + " with score "
+				+ this.bestScore);
+		return bestMove;
+	}
+
+	/**
+	 * @param depth the remaining plies.
+	 * @param alpha the lower bound.
+	 * @param beta the upper bound.
+	 * @param passed true, if the previous ply was a pass.
+	 * @return the score from the view of the side to move.
+	 */
+	private int negamax(int depth, int alpha, int beta, boolean passed) {
+		if ((++this.nodes & TIME_CHECK_MASK) == 0 && (this.stopped || System.nanoTime() - this.startNanos > this.budgetNanos)) {
+			this.aborted = true;
+		}
+		if (this.aborted) {
+			return 0;
+		}
+		int side = this.board.getSideToMove();
+		long moves = this.board.getLegalMoves(side);
+		if (moves == 0) {
+			if (passed) {
+				return this.finalScore(side);
+			}
+			this.board.makePass();
+			int score = -this.negamax(depth, -beta, -alpha, true);
+			this.board.unmakeMove();
+			return score;
+		}
+		if (depth == 0) {
+			return this.evaluator.evaluate(this.board, side);
+		}
+		long hash = this.board.getHash();
+		long entry = this.table.probe(hash);
+		int hashMove = TranspositionTable.NO_MOVE;
+		if (entry != 0) {
+			hashMove = TranspositionTable.getMove(entry);
+			if (TranspositionTable.getDepth(entry) >= depth) {
+				int score = TranspositionTable.getScore(entry);
+				int bound = TranspositionTable.getBound(entry);
+				if (bound == TranspositionTable.BOUND_EXACT
+						|| (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+						|| (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+					return score;
+				}
+			}
+		}
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestMove = TranspositionTable.NO_MOVE;
+		// The move of the table first, then the corners, they are rarely a bad move.
+		long ordered = moves & CORNERS;
+		long rest = moves & ~CORNERS;
+		int square = TranspositionTable.NO_MOVE;
+		if (hashMove != TranspositionTable.NO_MOVE && (moves & (1L << hashMove)) != 0) {
+			square = hashMove;
+			ordered &= ~(1L << hashMove);
+			rest &= ~(1L << hashMove);
+		}
+		while (square != TranspositionTable.NO_MOVE || ordered != 0 || rest != 0) {
+			if (square == TranspositionTable.NO_MOVE) {
+				if (ordered == 0) {
+					ordered = rest;
+					rest = 0;
+				}
+				square = Long.numberOfTrailingZeros(ordered);
+				ordered &= ordered - 1;
+			}
+			this.board.makeMove(square);
+			int score = -this.negamax(depth - 1, -beta, -alpha, false);
+			this.board.unmakeMove();
+			if (score > best) {
+				best = score;
+				bestMove = square;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+			square = TranspositionTable.NO_MOVE;
+		}
+		if (!this.aborted) {
+			int bound = TranspositionTable.BOUND_EXACT;
+			if (best <= originalAlpha) {
+				bound = TranspositionTable.BOUND_UPPER;
+			} else if (best >= beta) {
+				bound = TranspositionTable.BOUND_LOWER;
+			}
+			this.table.store(hash, depth, bound, best, bestMove);
+		}
+		return best;
+	}
+
+	/**
+	 * @param side the side to move.
+	 * @return the score of the finished game from the view of side.
+	 */
+	private int finalScore(int side) {
+		return (this.board.count(side) - this.board.count(BitBoard.opponentOf(side))) * FINAL_SCORE_FACTOR;
+	}
+
+	/**
+	 * Stops a running search, {@link #findBestMove(BitBoard, long)} returns the result of the last completed depth.
+	 * A search that starts after the stop returns at once, until {@link #reset()} is called.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	/**
+	 * Clears a {@link #stop()}, called before the next search is handed to the thread that runs it.
+	 */
+	public void reset() {
+		this.stopped = false;
+	}
+
+	/**
+	 * Lets the iterative deepening start at a deeper iteration, used by the helper threads of a {@link ParallelSearch}.
+	 * @param firstDepth the first iteration.
+	 */
+	void setFirstDepth(int firstDepth) {
+		this.firstDepth = firstDepth;
+	}
+
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	public int getCompletedDepth() {
+		return this.completedDepth;
+	}
+
+	public int getBestScore() {
+		return this.bestScore;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.AlphaBetaSearch");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
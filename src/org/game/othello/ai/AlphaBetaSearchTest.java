@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package org.game.othello.ai;
+
+import java.util.Random;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class AlphaBetaSearchTest implements OthelloConstants {
+
+	private AlphaBetaSearch search;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		search = new AlphaBetaSearch(new MobilityEvaluator());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.AlphaBetaSearch#findBestMove(org.game.othello.rules.BitBoard, long)}.
+	 */
+	@Test
+	public void testFindBestMoveIsLegal() {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		int move = search.findBestMove(board, 100);
+		Assert.assertTrue((board.getLegalMoves(PLAYER_BLACK) & (1L << move)) != 0);
+		Assert.assertTrue(search.getCompletedDepth() > 0);
+		Assert.assertEquals(0, board.getPly());
+	}
+
+	/**
+	 * Near the end the search reaches the end of the game, the score has to be the exact minimax result.
+	 */
+	@Test
+	public void testExactScoreNearTheEnd() {
+		Random random = new Random(42);
+		for (int game = 0; game < 20; ++game) {
+			BitBoard board = new BitBoard();
+			board.setStartingPosition();
+			while (board.count(PLAYER_NOBODY) > 8 && !board.isGameOver()) {
+				long moves = board.getLegalMoves(board.getSideToMove());
+				if (moves == 0) {
+					board.makePass();
+					continue;
+				}
+				int choice = random.nextInt(Long.bitCount(moves));
+				for (int i = 0; i < choice; ++i) {
+					moves &= moves - 1;
+				}
+				board.makeMove(Long.numberOfTrailingZeros(moves));
+			}
+			BitBoard position = new BitBoard(board);
+			if (Long.bitCount(position.getLegalMoves(position.getSideToMove())) < 2) {
+				// Without a choice the search returns at once.
+				continue;
+			}
+			int move = search.findBestMove(position, 10000);
+			int expected = this.minimax(position, false);
+			Assert.assertEquals(expected * AlphaBetaSearch.FINAL_SCORE_FACTOR, search.getBestScore());
+			position.makeMove(move);
+			Assert.assertEquals(expected, -this.minimax(position, false));
+		}
+	}
+
+	/**
+	 * Plain minimax without pruning.
+	 * @return the final disc difference from the view of the side to move.
+	 */
+	private int minimax(BitBoard board, boolean passed) {
+		int side = board.getSideToMove();
+		long moves = board.getLegalMoves(side);
+		if (moves == 0) {
+			if (passed) {
+				return board.count(side) - board.count(BitBoard.opponentOf(side));
+			}
+			board.makePass();
+			int score = -this.minimax(board, true);
+			board.unmakeMove();
+			return score;
+		}
+		int best = -BitBoard.SQUARE_COUNT;
+		while (moves != 0) {
+			int square = Long.numberOfTrailingZeros(moves);
+			moves &= moves - 1;
+			board.makeMove(square);
+			best = Math.max(best, -this.minimax(board, false));
+			board.unmakeMove();
+		}
+		return best;
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.AlphaBetaSearch#findBestMove(org.game.othello.rules.BitBoard, long)}.
+	 */
+	@Test
+	public void testFindBestMoveWithoutMove() {
+		BitBoard board = new BitBoard(BitBoard.bit(0, 0), BitBoard.bit(7, 7));
+		Assert.assertEquals(BitBoard.PASS, search.findBestMove(board, 100));
+	}
+
+	/**
+	 * The search must return within the time budget and some slack.
+	 */
+	@Test
+	public void testTimeBudget() {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		long start = System.currentTimeMillis();
+		search.findBestMove(board, 200);
+		Assert.assertTrue(System.currentTimeMillis() - start < 400);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.AlphaBetaSearch#stop()}.
+	 * A stop that comes before the search starts ends the search at once, until the search is reset.
+	 */
+	@Test
+	public void testStopBeforeSearch() {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		search.stop();
+		long start = System.currentTimeMillis();
+		int move = search.findBestMove(board, 10000);
+		Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+		Assert.assertTrue((board.getLegalMoves(PLAYER_BLACK) & (1L << move)) != 0);
+		Assert.assertEquals(0, search.getCompletedDepth());
+		search.reset();
+		search.findBestMove(board, 10000, 4);
+		Assert.assertEquals(4, search.getCompletedDepth());
+	}
+}
@@ -0,0 +1,163 @@
+package org.game.othello.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.GameController;
+import org.game.othello.ao.Coordinate;
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.game.othello.rules.GameLogic;
+
+import javafx.application.Platform;
+
+/**
+ * The computer opponent of the offline game. The search runs on its own thread, the move is handed back
+ * to the JavaFX thread and applied like a mouse click through {@link GameController#handleComputerTurn(Coordinate)}.
+ * Positions of the {@link OpeningBook} in {@link #OPENING_BOOK_FILE} are answered without searching.
+ * The search uses the trained {@link PatternEvaluator} of {@link #PATTERN_WEIGHTS_FILE} if the file exists,
+ * otherwise the {@link MobilityEvaluator}.
+ * @author Oliver Scherf
+ */
+public class ComputerPlayer implements OthelloConstants, Loggable {
+
+	private Logger logger;
+	private final int player;
+	private final long timeBudgetMillis;
+	private final AlphaBetaSearch search;
+	private final OpeningBook openingBook;
+	private final ExecutorService searchThread;
+
+	/**
+	 * Instantiates a new ComputerPlayer.
+	 * @param player the color of the computer.
+	 * @param timeBudgetMillis the time the computer may think about a move.
+	 */
+	public ComputerPlayer(int player, long timeBudgetMillis) {
+		this.initializeLogging();
+		this.player = player;
+		this.timeBudgetMillis = timeBudgetMillis;
+		this.search = new AlphaBetaSearch(this.loadEvaluator(Paths.get(PATTERN_WEIGHTS_FILE)));
+		this.openingBook = this.loadOpeningBook(Paths.get(OPENING_BOOK_FILE));
+		this.searchThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ComputerPlayer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.log(INFO, "ComputerPlayer was initialized with " + timeBudgetMillis + " ms per move.");
+	}
+
+	/**
+	 * Starts searching a move for the current position of the {@link GameLogic}.
+	 * Must be called from the JavaFX thread, the position is copied before the search starts.
+	 * @param gameLogic the running game.
+	 */
+	public void requestMove(GameLogic gameLogic) {
+		final BitBoard position = new BitBoard(gameLogic.getBitBoard());
+		position.setSideToMove(this.player);
+		this.searchThread.execute(new Runnable() {
+			@Override
+			public void run() {
+				int square = BitBoard.PASS;
+				if (ComputerPlayer.this.openingBook != null) {
+					square = ComputerPlayer.this.openingBook.findMove(position);
+				}
+				boolean fromBook = square != BitBoard.PASS;
+				if (!fromBook) {
+					square = ComputerPlayer.this.search.findBestMove(position, ComputerPlayer.this.timeBudgetMillis);
+				}
+				if (square == BitBoard.PASS || ComputerPlayer.this.searchThread.isShutdown()) {
+					return;
+				}
+				final Coordinate move = new Coordinate(square % GAMEBOARD_SIZE, square / GAMEBOARD_SIZE);
+				if (fromBook) {
+					ComputerPlayer.this.log(INFO, "Computer played " + move.toSimpleString() + " from the opening book.");
+				} else {
+					ComputerPlayer.this.log(INFO, "Computer found " + move.toSimpleString() + " at depth "
+							+ ComputerPlayer.this.search.getCompletedDepth() + " after " + ComputerPlayer.this.search.getNodes() + " nodes.");
+				}
+				Platform.runLater(new Runnable() {
+					@Override
+					public void run() {
+						GameController.getSingleton().handleComputerTurn(move);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * @param file the book file.
+	 * @return the opening book or null if there is no valid book.
+	 */
+	private OpeningBook loadOpeningBook(Path file) {
+		if (!Files.isReadable(file)) {
+			this.log(INFO, "No opening book found at " + file.toAbsolutePath());
+			return null;
+		}
+		try {
+			return new OpeningBook(file);
+		} catch (IOException e) {
+			this.err("Could not load the opening book " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param file the weights file.
+	 * @return the pattern evaluator with the weights of the file or the mobility evaluator if there are no valid weights.
+	 */
+	private Evaluator loadEvaluator(Path file) {
+		if (!Files.isReadable(file)) {
+			this.log(INFO, "No pattern weights found at " + file.toAbsolutePath());
+			return new MobilityEvaluator();
+		}
+		try {
+			PatternEvaluator evaluator = PatternEvaluator.load(file);
+			this.log(INFO, "Pattern weights " + file + " were loaded.");
+			return evaluator;
+		} catch (IOException e) {
+			this.err("Could not load the pattern weights " + file, e);
+			return new MobilityEvaluator();
+		}
+	}
+
+	/**
+	 * Stops the search thread, a running search ends without a move.
+	 */
+	public void shutdown() {
+		this.search.stop();
+		this.searchThread.shutdownNow();
+	}
+
+	public int getPlayer() {
+		return this.player;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.ComputerPlayer");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
@@ -0,0 +1,25 @@
+package org.game.othello.ai;
+
+import org.game.othello.rules.BitBoard;
+
+/**
+ * A static evaluation of a position, used by the search at the leaf nodes.
+ * @author Oliver Scherf
+ */
+public interface Evaluator {
+
+	/**
+	 * @param board the position.
+	 * @param player the player from whose view the position is scored.
+	 * @return the score, positive when the position is good for the player.
+	 */
+	public int evaluate(BitBoard board, int player);
+
+	/**
+	 * Called by the search for its own copy of the position before the search starts. An evaluator that keeps
+	 * data in sync with the board can register a {@link org.game.othello.rules.BoardListener} here.
+	 * @param board the board that will be searched.
+	 */
+	public default void attach(BitBoard board) {
+	}
+}
@@ -0,0 +1,35 @@
+package org.game.othello.ai;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * Scores a position by corners and mobility, the disc count only matters once the board is nearly full.
+ * @author Oliver Scherf
+ */
+public class MobilityEvaluator implements Evaluator, OthelloConstants {
+
+	private static final long CORNERS = 0x8100000000000081L;
+	/* The squares diagonal next to a corner, they usually give the corner away. */
+	private static final long X_SQUARES = 0x0042000000004200L;
+	private static final int CORNER_WEIGHT = 25;
+	private static final int X_SQUARE_WEIGHT = 10;
+	private static final int MOBILITY_WEIGHT = 5;
+	private static final int ENDGAME_EMPTIES = 10;
+
+	@Override
+	public int evaluate(BitBoard board, int player) {
+		int opponent = BitBoard.opponentOf(player);
+		long own = board.getDiscs(player);
+		long opp = board.getDiscs(opponent);
+		int score = CORNER_WEIGHT * (Long.bitCount(own & CORNERS) - Long.bitCount(opp & CORNERS));
+		score += MOBILITY_WEIGHT * (Long.bitCount(board.getLegalMoves(player)) - Long.bitCount(board.getLegalMoves(opponent)));
+		long emptyCorners = CORNERS & ~(own | opp);
+		long dangerousSquares = X_SQUARES & (((emptyCorners << 9) | (emptyCorners >>> 9)) | ((emptyCorners << 7) | (emptyCorners >>> 7)));
+		score -= X_SQUARE_WEIGHT * (Long.bitCount(own & dangerousSquares) - Long.bitCount(opp & dangerousSquares));
+		if (board.count(PLAYER_NOBODY) <= ENDGAME_EMPTIES) {
+			score += Long.bitCount(own) - Long.bitCount(opp);
+		}
+		return score;
+	}
+}
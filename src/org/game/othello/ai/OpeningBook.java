@@ -0,0 +1,158 @@
+package org.game.othello.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * A read-only opening book, memory-mapped from a file written by {@link OpeningBookBuilder}.
+ * The eight symmetric variants of a position share one entry: the key is the smallest Zobrist hash of all variants,
+ * the move is stored for the variant with that hash. The records are sorted by key and move, a lookup is a binary
+ * search directly on the mapped file without copying or allocating.
+ * File layout, big endian: the header magic, version and record count as int plus one reserved int,
+ * followed by the records of {@link #RECORD_BYTES}: key as long, score as int, games as short and move as short.
+ * The lookups are thread-safe.
+ * @author Oliver Scherf
+ */
+public class OpeningBook implements OthelloConstants, Loggable {
+
+	public static final int MAGIC = 0x4F424B31; // "OBK1"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 16;
+	public static final int RECORD_BYTES = 16;
+
+	private static final int SCORE_OFFSET = 8;
+	private static final int GAMES_OFFSET = 12;
+	private static final int MOVE_OFFSET = 14;
+
+	private Logger logger;
+	private final ByteBuffer records;
+	private final int size;
+
+	/**
+	 * Maps the book file into memory.
+	 * @param file the book, written by {@link OpeningBookBuilder#write(Path)}.
+	 * @throws IOException if the file can not be read or is no opening book.
+	 */
+	public OpeningBook(Path file) throws IOException {
+		this.initializeLogging();
+		ByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+			throw new IOException(file + " is no opening book of version " + VERSION + ".");
+		}
+		this.size = mapped.getInt(8);
+		if (mapped.capacity() != HEADER_BYTES + (long) this.size * RECORD_BYTES) {
+			throw new IOException(file + " is truncated, expected " + this.size + " records.");
+		}
+		this.records = mapped;
+		this.log(INFO, "Opening book " + file + " was loaded with " + this.size + " records.");
+	}
+
+	/**
+	 * Looks up the best move of the book for the side to move.
+	 * @param position the position.
+	 * @return the square of the move or {@link BitBoard#PASS} if the position is not in the book.
+	 */
+	public int findMove(BitBoard position) {
+		long canonical = canonicalKey(position);
+		int symmetry = (int) (canonical & 7);
+		long key = canonical >>> 3;
+		int index = this.lowerBound(key);
+		int bestMove = BitBoard.PASS;
+		int bestScore = Integer.MIN_VALUE;
+		int bestGames = 0;
+		long legal = position.getLegalMoves(position.getSideToMove());
+		for (; index < this.size && this.getKey(index) == key; ++index) {
+			int offset = HEADER_BYTES + index * RECORD_BYTES;
+			int score = this.records.getInt(offset + SCORE_OFFSET);
+			int games = this.records.getShort(offset + GAMES_OFFSET) & 0xFFFF;
+			int move = BitBoard.inverseTransformSquare(this.records.getShort(offset + MOVE_OFFSET), symmetry);
+			// A hash collision can point to the entry of another position, its moves are not legal here.
+			if ((legal & (1L << move)) == 0) {
+				continue;
+			}
+			if (score > bestScore || (score == bestScore && games > bestGames)) {
+				bestMove = move;
+				bestScore = score;
+				bestGames = games;
+			}
+		}
+		return bestMove;
+	}
+
+	/**
+	 * @param key the key without the symmetry.
+	 * @return the first record with a key equal to or greater than the key.
+	 */
+	private int lowerBound(long key) {
+		int low = 0;
+		int high = this.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.getKey(middle) < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long getKey(int index) {
+		return this.records.getLong(HEADER_BYTES + index * RECORD_BYTES);
+	}
+
+	/**
+	 * Finds the symmetric variant of the position with the smallest hash.
+	 * @param position the position.
+	 * @return the smallest hash of 61 bits shifted left by three bits, the low three bits hold the symmetry of that variant.
+	 */
+	static long canonicalKey(BitBoard position) {
+		long black = position.getBlack();
+		long white = position.getWhite();
+		int side = position.getSideToMove();
+		long best = -1;
+		for (int symmetry = 0; symmetry < 8; ++symmetry) {
+			long hash = BitBoard.computeHash(BitBoard.transform(black, symmetry), BitBoard.transform(white, symmetry), side) >>> 3;
+			long candidate = (hash << 3) | symmetry;
+			if (Long.compareUnsigned(candidate, best) < 0) {
+				best = candidate;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the number of records.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.OpeningBook");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
@@ -0,0 +1,342 @@
+package org.game.othello.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * Builds an {@link OpeningBook} file from self-play or from game records.
+ * Self-play searches every position with a fixed depth and plays on with the best move, some moves of the first
+ * plies are chosen at random so the games spread over different openings. Self-play and imported games count the
+ * games and the results of every move of the first plies, the score is the number of wins minus the losses of the
+ * player who made the move, so the records of both sources can be added up.
+ * A game record is one line of moves like "f5d6c3d3c4", the column a - h and the row 1 - 8 of every move.
+ * Passes are not written, they are inserted whenever the player on turn has no move. Lines starting with # are ignored.
+ * Usage: java org.game.othello.ai.OpeningBookBuilder [book file] [-selfplay games plies depth] [-import file plies]
+ * @author Oliver Scherf
+ */
+public class OpeningBookBuilder implements OthelloConstants, Loggable {
+
+	/* Share of the self-play moves that are chosen at random. */
+	private static final double RANDOM_MOVE_RATE = 0.3;
+	private static final long SELF_PLAY_SEED = 20151206L;
+
+	private Logger logger;
+	/* Key without symmetry to the records of the position, by move in the orientation of the key. */
+	private final Map<Long, Map<Integer, BookRecord>> records = new HashMap<Long, Map<Integer, BookRecord>>();
+
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0] : OPENING_BOOK_FILE);
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		for (int i = 1; i < args.length; ++i) {
+			if (args[i].equals("-selfplay") && i + 3 < args.length) {
+				builder.selfPlay(Integer.parseInt(args[i + 1]), Integer.parseInt(args[i + 2]), Integer.parseInt(args[i + 3]));
+				i += 3;
+			} else if (args[i].equals("-import") && i + 2 < args.length) {
+				try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[i + 1]), StandardCharsets.UTF_8)) {
+					builder.importGames(reader, Integer.parseInt(args[i + 2]));
+				}
+				i += 2;
+			} else {
+				System.out.println("Usage: java org.game.othello.ai.OpeningBookBuilder [book file] [-selfplay games plies depth] [-import file plies]");
+				return;
+			}
+		}
+		builder.write(file);
+		System.out.println("Wrote " + builder.size() + " records to " + file);
+	}
+
+	/**
+	 * Instantiates a new, empty OpeningBookBuilder.
+	 */
+	public OpeningBookBuilder() {
+		this.initializeLogging();
+	}
+
+	/**
+	 * Adds a move to the book, the score and the games are added to an existing record of the same move.
+	 * @param position the position before the move, with the side to move.
+	 * @param move the square of the move.
+	 * @param score the score of the move from the view of the side to move.
+	 * @param games the number of games the move was played in.
+	 */
+	public void add(BitBoard position, int move, int score, int games) {
+		long canonical = OpeningBook.canonicalKey(position);
+		Long key = canonical >>> 3;
+		int storedMove = BitBoard.transformSquare(move, (int) (canonical & 7));
+		Map<Integer, BookRecord> moves = this.records.get(key);
+		if (moves == null) {
+			moves = new HashMap<Integer, BookRecord>();
+			this.records.put(key, moves);
+		}
+		BookRecord record = moves.get(storedMove);
+		if (record == null) {
+			record = new BookRecord(key, storedMove);
+			moves.put(storedMove, record);
+		}
+		record.score += score;
+		record.games += games;
+	}
+
+	/**
+	 * @param position the position.
+	 * @return true, if the book contains a move for the position.
+	 */
+	public boolean contains(BitBoard position) {
+		return this.records.containsKey(OpeningBook.canonicalKey(position) >>> 3);
+	}
+
+	/**
+	 * Plays games against itself to the end and adds the moves up to the plies with the result of the game.
+	 * @param games the number of games.
+	 * @param plies the depth of the book in plies.
+	 * @param depth the search depth for every position.
+	 */
+	public void selfPlay(int games, int plies, int depth) {
+		AlphaBetaSearch search = new AlphaBetaSearch(new MobilityEvaluator());
+		Random random = new Random(SELF_PLAY_SEED);
+		for (int game = 0; game < games; ++game) {
+			BitBoard board = new BitBoard();
+			board.setStartingPosition();
+			int[] played = new int[GAMEBOARD_SIZE * GAMEBOARD_SIZE];
+			int count = 0;
+			while (!board.isGameOver()) {
+				long moves = board.getLegalMoves(board.getSideToMove());
+				if (moves == 0) {
+					board.makePass();
+					continue;
+				}
+				int move = search.findBestMove(board, Long.MAX_VALUE / 1000000L, depth);
+				if (count < plies && random.nextDouble() < RANDOM_MOVE_RATE) {
+					int choice = random.nextInt(Long.bitCount(moves));
+					for (int i = 0; i < choice; ++i) {
+						moves &= moves - 1;
+					}
+					move = Long.numberOfTrailingZeros(moves);
+				}
+				board.makeMove(move);
+				played[count++] = move;
+			}
+			this.addGame(Arrays.copyOf(played, count), plies);
+			this.log(FINE, "Self-play game " + (game + 1) + " of " + games + ", " + this.records.size() + " positions.");
+		}
+	}
+
+	/**
+	 * Reads game records and adds the moves of the first plies with the result of the game.
+	 * @param reader the game records, one game per line.
+	 * @param plies the depth of the book in plies.
+	 * @return the number of imported games, lines with an illegal move or an unfinished game are skipped.
+	 * @throws IOException if reading fails.
+	 */
+	public int importGames(BufferedReader reader, int plies) throws IOException {
+		int imported = 0;
+		int lineNumber = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			++lineNumber;
+			line = line.trim().toLowerCase();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			int[] moves = parseGame(line);
+			if (moves == null) {
+				this.log(WARNING, "Skipped game in line " + lineNumber + ", it contains an illegal move.");
+				continue;
+			}
+			if (!isFinished(moves)) {
+				this.log(WARNING, "Skipped game in line " + lineNumber + ", it is not finished.");
+				continue;
+			}
+			this.addGame(moves, plies);
+			++imported;
+		}
+		this.log(INFO, "Imported " + imported + " games, the book has " + this.records.size() + " positions.");
+		return imported;
+	}
+
+	/**
+	 * Adds the moves of the first plies of a game, every move wins, draws or loses one game.
+	 * @param moves the legal moves of the game without the passes.
+	 * @param plies the depth of the book in plies.
+	 * @throws IllegalArgumentException if the game is not finished, it has no result.
+	 */
+	private void addGame(int[] moves, int plies) {
+		BitBoard board = replay(moves);
+		if (!isFinished(board)) {
+			throw new IllegalArgumentException("The game is not finished after " + moves.length + " moves.");
+		}
+		int result = Integer.signum(board.count(PLAYER_BLACK) - board.count(PLAYER_WHITE));
+		board = new BitBoard();
+		board.setStartingPosition();
+		for (int ply = 0; ply < moves.length && ply < plies; ++ply) {
+			if (board.getLegalMoves(board.getSideToMove()) == 0) {
+				board.makePass();
+			}
+			this.add(board, moves[ply], board.getSideToMove() == PLAYER_BLACK ? result : -result, 1);
+			board.makeMove(moves[ply]);
+		}
+	}
+
+	/**
+	 * @param moves the legal moves of a game without the passes.
+	 * @return true, if no player can move after the last move.
+	 */
+	static boolean isFinished(int[] moves) {
+		return isFinished(replay(moves));
+	}
+
+	/**
+	 * A record does not contain the passes, so {@link BitBoard#isGameOver()} does not know a game that ends before
+	 * the board is full.
+	 */
+	private static boolean isFinished(BitBoard board) {
+		return board.getLegalMoves(PLAYER_BLACK) == 0 && board.getLegalMoves(PLAYER_WHITE) == 0;
+	}
+
+	/**
+	 * @param moves the legal moves of a game without the passes.
+	 * @return the board after the last move.
+	 */
+	private static BitBoard replay(int[] moves) {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		for (int move : moves) {
+			if (board.getLegalMoves(board.getSideToMove()) == 0) {
+				board.makePass();
+			}
+			board.makeMove(move);
+		}
+		return board;
+	}
+
+	/**
+	 * Parses and replays a game record.
+	 * @param line the moves like "f5d6c3".
+	 * @return the squares of the moves or null if a move is malformed or illegal.
+	 */
+	static int[] parseGame(String line) {
+		String moves = line.replaceAll("\\s", "");
+		if (moves.length() % 2 != 0) {
+			return null;
+		}
+		int[] squares = new int[moves.length() / 2];
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		for (int i = 0; i < squares.length; ++i) {
+			int x = moves.charAt(2 * i) - 'a';
+			int y = moves.charAt(2 * i + 1) - '1';
+			if (x < 0 || x >= GAMEBOARD_SIZE || y < 0 || y >= GAMEBOARD_SIZE) {
+				return null;
+			}
+			if (board.getLegalMoves(board.getSideToMove()) == 0) {
+				board.makePass();
+			}
+			squares[i] = BitBoard.square(x, y);
+			if ((board.getLegalMoves(board.getSideToMove()) & (1L << squares[i])) == 0) {
+				return null;
+			}
+			board.makeMove(squares[i]);
+		}
+		return squares;
+	}
+
+	/**
+	 * Writes the records sorted by key and move.
+	 * @param file the book file, an existing file is replaced.
+	 * @throws IOException if writing fails.
+	 */
+	public void write(Path file) throws IOException {
+		List<BookRecord> sorted = new ArrayList<BookRecord>();
+		for (Map<Integer, BookRecord> moves : this.records.values()) {
+			sorted.addAll(moves.values());
+		}
+		Collections.sort(sorted, new Comparator<BookRecord>() {
+			@Override
+			public int compare(BookRecord a, BookRecord b) {
+				if (a.key != b.key) {
+					return Long.compare(a.key, b.key);
+				}
+				return Integer.compare(a.move, b.move);
+			}
+		});
+		ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + sorted.size() * OpeningBook.RECORD_BYTES);
+		buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(sorted.size()).putInt(0);
+		for (BookRecord record : sorted) {
+			buffer.putLong(record.key);
+			buffer.putInt((int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, record.score)));
+			buffer.putShort((short) Math.min(0xFFFF, record.games));
+			buffer.putShort((short) record.move);
+		}
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		this.log(INFO, "Wrote " + sorted.size() + " records to " + file);
+	}
+
+	/**
+	 * @return the number of records.
+	 */
+	public int size() {
+		int size = 0;
+		for (Map<Integer, BookRecord> moves : this.records.values()) {
+			size += moves.size();
+		}
+		return size;
+	}
+
+	/**
+	 * A move of a position while building the book.
+	 */
+	private static class BookRecord {
+		private final long key;
+		private final int move;
+		private long score;
+		private long games;
+
+		private BookRecord(long key, int move) {
+			this.key = key;
+			this.move = move;
+		}
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.OpeningBookBuilder");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
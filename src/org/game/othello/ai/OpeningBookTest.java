@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package org.game.othello.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class OpeningBookTest implements OthelloConstants {
+
+	private Path file;
+	private BitBoard start;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		file = Files.createTempFile("othello", ".book");
+		start = new BitBoard();
+		start.setStartingPosition();
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.OpeningBook#findMove(org.game.othello.rules.BitBoard)}.
+	 * A move stored for one position is found for all symmetric variants, transformed into their orientation.
+	 */
+	@Test
+	public void testFindMoveInSymmetricPositions() throws IOException {
+		BitBoard position = new BitBoard(start);
+		position.makeMove(BitBoard.square(5, 4));
+		position.makeMove(BitBoard.square(3, 5));
+		int move = BitBoard.square(2, 2);
+		Assert.assertTrue((position.getLegalMoves(PLAYER_BLACK) & (1L << move)) != 0);
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		builder.add(position, move, 10, 1);
+		builder.add(position, BitBoard.square(5, 3), 3, 1);
+		builder.write(file);
+
+		OpeningBook book = new OpeningBook(file);
+		Assert.assertEquals(2, book.size());
+		for (int symmetry = 0; symmetry < 8; ++symmetry) {
+			BitBoard variant = new BitBoard(BitBoard.transform(position.getBlack(), symmetry), BitBoard.transform(position.getWhite(), symmetry));
+			variant.setSideToMove(PLAYER_BLACK);
+			Assert.assertEquals(BitBoard.transformSquare(move, symmetry), book.findMove(variant));
+		}
+		Assert.assertEquals(BitBoard.PASS, book.findMove(start));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.OpeningBookBuilder#importGames(java.io.BufferedReader, int)}.
+	 * Games with an illegal move and games that are not finished are skipped.
+	 */
+	@Test
+	public void testImportGames() throws IOException {
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		String games = "# two openings\n"
+				+ "f5d6c3d3c4b3b2b1a1c2c1a2d2d1e1f3a3f4e2f1g1g5f2e3g3g2h2h1h3h4g4b4a4a5b5c5h5c6e6f6g6h6b7b6a7a6c7a8d7e7f7g7h7h8b8c8d8e8f8g8\n"
+				+ "f5f6e6f4c3b2d3c2a1a2c1b1d2d1e1e2f1f2a3b4g2e3f3g1h1h2b3c4g3c5h3d6a5a4b5a6g4h4g5h5b6c6g6h6a7b7c7d7e7f7g7a8h7c8b8e8d8g8f8h8\n"
+				+ "f5f6e6f4c3b2d3c2a1a2c1b1d2d1e1e2f1f2a3b4g2e3f3g1h1h2b3c4g3c5h3d6a5a4b5a6g4h4g5h5b6c6g6h6a7b7c7d7e7f7g7a8h7c8b8e8d8g8f8h8\n"
+				+ "# not finished, it has no result\nf5d6c3d3c4\nf5z9\n";
+		Assert.assertEquals(3, builder.importGames(new BufferedReader(new StringReader(games)), 2));
+		builder.write(file);
+		OpeningBook book = new OpeningBook(file);
+		// f5 and the three other first moves are symmetric, so all of them share one record.
+		Assert.assertEquals(BitBoard.square(5, 4), book.findMove(start));
+		BitBoard afterF5 = new BitBoard(start);
+		afterF5.makeMove(BitBoard.square(5, 4));
+		int reply = book.findMove(afterF5);
+		Assert.assertTrue(reply == BitBoard.square(3, 5) || reply == BitBoard.square(5, 5));
+		afterF5.makeMove(reply);
+		Assert.assertEquals(BitBoard.PASS, book.findMove(afterF5));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.OpeningBookBuilder#selfPlay(int, int, int)}.
+	 */
+	@Test
+	public void testSelfPlay() throws IOException {
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		builder.selfPlay(5, 6, 2);
+		builder.write(file);
+		OpeningBook book = new OpeningBook(file);
+		Assert.assertTrue(book.size() > 1);
+		int move = book.findMove(start);
+		Assert.assertTrue((start.getLegalMoves(PLAYER_BLACK) & (1L << move)) != 0);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.OpeningBook#OpeningBook(java.nio.file.Path)}.
+	 */
+	@Test(expected = IOException.class)
+	public void testNoOpeningBook() throws IOException {
+		Files.write(file, new byte[] { 1, 2, 3 });
+		new OpeningBook(file);
+	}
+}
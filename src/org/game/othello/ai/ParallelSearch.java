@@ -0,0 +1,213 @@
+package org.game.othello.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * Searches one position with several threads (Lazy SMP). Every thread runs its own {@link AlphaBetaSearch}
+ * on the same root, they only share the {@link TranspositionTable}. The helpers fill the table with results
+ * the main search can use, half of them start one iteration deeper so the threads do not search in lockstep.
+ * The move of the main search is returned.
+ * Usage: java org.game.othello.ai.ParallelSearch [max threads] [depth] to measure the time-to-depth per thread count.
+ * @author Oliver Scherf
+ */
+public class ParallelSearch implements OthelloConstants, Loggable {
+
+	private Logger logger;
+	private final AlphaBetaSearch[] searches;
+	private final TranspositionTable table;
+	private final ExecutorService helperThreads;
+	private long elapsedNanos;
+
+	public static void main(String[] args) throws InterruptedException {
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		int depth = 11;
+		if (args.length > 0) {
+			maxThreads = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			depth = Integer.parseInt(args[1]);
+		}
+		BitBoard position = createBenchmarkPosition();
+		System.out.println(String.format("%7s %5s %10s %15s %15s  %s", "threads", "depth", "seconds", "nodes", "nodes/s", "nodes per thread"));
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			TranspositionTable table = new TranspositionTable(64);
+			ParallelSearch search = new ParallelSearch(new MobilityEvaluator(), threads, table);
+			search.findBestMove(position, Long.MAX_VALUE / 1000000L, depth);
+			StringBuilder perThread = new StringBuilder();
+			for (int i = 0; i < threads; ++i) {
+				perThread.append(search.getNodes(i)).append(' ');
+			}
+			double seconds = search.getElapsedNanos() / 1e9;
+			System.out.println(String.format("%7d %5d %10.3f %,15d %,15d  %s", threads, search.getCompletedDepth(), seconds, search.getNodes(),
+					(long) (search.getNodes() / seconds), perThread.toString().trim()));
+			System.out.println(String.format("%13s hits %,d, misses %,d, collisions %,d", "table:", table.getHits(), table.getMisses(),
+					table.getCollisions()));
+			search.shutdown();
+		}
+	}
+
+	/**
+	 * @return a midgame position, the same on every run.
+	 */
+	private static BitBoard createBenchmarkPosition() {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		Random random = new Random(20151206L);
+		for (int ply = 0; ply < 20; ++ply) {
+			long moves = board.getLegalMoves(board.getSideToMove());
+			if (moves == 0) {
+				board.makePass();
+				continue;
+			}
+			int choice = random.nextInt(Long.bitCount(moves));
+			for (int i = 0; i < choice; ++i) {
+				moves &= moves - 1;
+			}
+			board.makeMove(Long.numberOfTrailingZeros(moves));
+		}
+		return new BitBoard(board);
+	}
+
+	/**
+	 * Instantiates a new ParallelSearch.
+	 * @param evaluator the evaluation of the leaf nodes, it is used by all threads at the same time.
+	 * @param threads the number of search threads including the calling thread.
+	 * @param table the shared transposition table.
+	 */
+	public ParallelSearch(Evaluator evaluator, int threads, TranspositionTable table) {
+		this.initializeLogging();
+		this.table = table;
+		this.searches = new AlphaBetaSearch[Math.max(1, threads)];
+		for (int i = 0; i < this.searches.length; ++i) {
+			this.searches[i] = new AlphaBetaSearch(evaluator, table);
+			this.searches[i].setFirstDepth(1 + i % 2);
+		}
+		this.helperThreads = Executors.newFixedThreadPool(Math.max(1, this.searches.length - 1), new ThreadFactory() {
+			private int count;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ParallelSearch-" + (++this.count));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.log(INFO, "ParallelSearch was initialized with " + this.searches.length + " threads.");
+	}
+
+	/**
+	 * Searches the position with all threads, the calling thread runs the main search.
+	 * @param position the position to search, the side to move of the position is on turn.
+	 * @param timeBudgetMillis the time the search may use.
+	 * @param maxDepth the deepest iteration.
+	 * @return the square of the best move or {@link BitBoard#PASS} if no move is possible.
+	 * @throws InterruptedException if the calling thread was interrupted while waiting for the helpers.
+	 */
+	public int findBestMove(final BitBoard position, final long timeBudgetMillis, final int maxDepth) throws InterruptedException {
+		long start = System.nanoTime();
+		this.table.newSearch();
+		List<Future<?>> helpers = new ArrayList<Future<?>>();
+		for (int i = 1; i < this.searches.length; ++i) {
+			final AlphaBetaSearch helper = this.searches[i];
+			// The helpers were stopped after the last search, a stop for this search may come before a helper starts.
+			helper.reset();
+			helpers.add(this.helperThreads.submit(new Runnable() {
+				@Override
+				public void run() {
+					helper.findBestMove(position, timeBudgetMillis, maxDepth);
+				}
+			}));
+		}
+		int bestMove = this.searches[0].findBestMove(position, timeBudgetMillis, maxDepth);
+		for (int i = 1; i < this.searches.length; ++i) {
+			this.searches[i].stop();
+		}
+		for (Future<?> helper : helpers) {
+			try {
+				helper.get();
+			} catch (ExecutionException e) {
+				this.err("A helper search failed.", e);
+			}
+		}
+		this.elapsedNanos = System.nanoTime() - start;
+		this.log(FINE, "Searched " + this.getNodes() + " nodes with " + this.searches.length + " threads to depth " + this.getCompletedDepth());
+		return bestMove;
+	}
+
+	/**
+	 * Stops the helper threads.
+	 */
+	public void shutdown() {
+		for (AlphaBetaSearch search : this.searches) {
+			search.stop();
+		}
+		this.helperThreads.shutdownNow();
+	}
+
+	/**
+	 * @return the nodes of all threads of the last search.
+	 */
+	public long getNodes() {
+		long nodes = 0;
+		for (int i = 0; i < this.searches.length; ++i) {
+			nodes += this.getNodes(i);
+		}
+		return nodes;
+	}
+
+	/**
+	 * @param thread the index of the thread, 0 is the main search.
+	 * @return the nodes of the thread in the last search.
+	 */
+	public long getNodes(int thread) {
+		return this.searches[thread].getNodes();
+	}
+
+	/**
+	 * @return the completed depth of the main search.
+	 */
+	public int getCompletedDepth() {
+		return this.searches[0].getCompletedDepth();
+	}
+
+	public int getBestScore() {
+		return this.searches[0].getBestScore();
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	public int getThreadCount() {
+		return this.searches.length;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.ParallelSearch");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ *
+ */
+package org.game.othello.ai;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class ParallelSearchTest implements OthelloConstants {
+
+	private ParallelSearch search;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		search = new ParallelSearch(new MobilityEvaluator(), 3, new TranspositionTable(16));
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		search.shutdown();
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.ParallelSearch#findBestMove(org.game.othello.rules.BitBoard, long, int)}.
+	 */
+	@Test
+	public void testFindBestMove() throws InterruptedException {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		int move = search.findBestMove(board, 10000, 6);
+		Assert.assertTrue((board.getLegalMoves(PLAYER_BLACK) & (1L << move)) != 0);
+		Assert.assertEquals(6, search.getCompletedDepth());
+		for (int i = 0; i < search.getThreadCount(); ++i) {
+			Assert.assertTrue(search.getNodes(i) > 0);
+		}
+	}
+}
@@ -0,0 +1,329 @@
+package org.game.othello.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * Scores a position by the edge, corner, line and diagonal patterns of the board. Every pattern is a fixed list of
+ * squares, the contents of these squares form a base-3 index (0 empty, 1 black, 2 white) into a weight table.
+ * The board symmetries of a pattern share one table, each game phase (10 moves) has its own set of tables.
+ * The weights estimate the final disc difference from the view of black in 1/{@link #WEIGHT_SCALE} discs.
+ * Without trained weights every pattern scores a fixed value per square, {@link PatternTrainer} fits the tables
+ * from played games.
+ * The evaluation reads the indexes from the {@link PatternIndexes} of the board if {@link #attach(BitBoard)}
+ * was called, they follow every move and undo. Otherwise the indexes are computed from the board.
+ * A PatternEvaluator is not changed by evaluating, it can be shared by several search threads.
+ * @author Oliver Scherf
+ */
+public class PatternEvaluator implements Evaluator, OthelloConstants {
+
+	public static final int PHASES = 6;
+	public static final int MOVES_PER_PHASE = 10;
+	public static final int WEIGHT_SCALE = 128;
+	public static final int FILE_MAGIC = 0x50415431; // "PAT1"
+	private static final int MAX_SCORE = AlphaBetaSearch.FINAL_SCORE_FACTOR - 1;
+
+	/* The pattern types, squares as x, y. The first square is the least significant digit of the index. */
+	private static final int[][][] PATTERN_TYPES = {
+			// edge with both X-squares
+			{ { 0, 0 }, { 1, 0 }, { 2, 0 }, { 3, 0 }, { 4, 0 }, { 5, 0 }, { 6, 0 }, { 7, 0 }, { 1, 1 }, { 6, 1 } },
+			// corner 3x3
+			{ { 0, 0 }, { 1, 0 }, { 2, 0 }, { 0, 1 }, { 1, 1 }, { 2, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 } },
+			// corner 2x5
+			{ { 0, 0 }, { 1, 0 }, { 2, 0 }, { 3, 0 }, { 4, 0 }, { 0, 1 }, { 1, 1 }, { 2, 1 }, { 3, 1 }, { 4, 1 } },
+			// second, third and fourth line
+			{ { 0, 1 }, { 1, 1 }, { 2, 1 }, { 3, 1 }, { 4, 1 }, { 5, 1 }, { 6, 1 }, { 7, 1 } },
+			{ { 0, 2 }, { 1, 2 }, { 2, 2 }, { 3, 2 }, { 4, 2 }, { 5, 2 }, { 6, 2 }, { 7, 2 } },
+			{ { 0, 3 }, { 1, 3 }, { 2, 3 }, { 3, 3 }, { 4, 3 }, { 5, 3 }, { 6, 3 }, { 7, 3 } },
+			// diagonals of 8, 7, 6, 5 and 4 squares
+			{ { 0, 0 }, { 1, 1 }, { 2, 2 }, { 3, 3 }, { 4, 4 }, { 5, 5 }, { 6, 6 }, { 7, 7 } },
+			{ { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 4 }, { 4, 5 }, { 5, 6 }, { 6, 7 } },
+			{ { 0, 2 }, { 1, 3 }, { 2, 4 }, { 3, 5 }, { 4, 6 }, { 5, 7 } },
+			{ { 0, 3 }, { 1, 4 }, { 2, 5 }, { 3, 6 }, { 4, 7 } },
+			{ { 0, 4 }, { 1, 5 }, { 2, 6 }, { 3, 7 } } };
+
+	/* Value of a game character per square in 1/WEIGHT_SCALE discs, used without trained weights. */
+	private static final int[] SQUARE_VALUES = {
+			800, -150, 100, 50, 50, 100, -150, 800,
+			-150, -300, -20, -20, -20, -20, -300, -150,
+			100, -20, 15, 5, 5, 15, -20, 100,
+			50, -20, 5, 5, 5, 5, -20, 50,
+			50, -20, 5, 5, 5, 5, -20, 50,
+			100, -20, 15, 5, 5, 15, -20, 100,
+			-150, -300, -20, -20, -20, -20, -300, -150,
+			800, -150, 100, 50, 50, 100, -150, 800 };
+
+	/* The patterns on the board: the squares, the type and the offset of the weight table of the type. */
+	static final int[][] INSTANCE_SQUARES;
+	static final int[] INSTANCE_TYPES;
+	static final int[] TYPE_OFFSETS = new int[PATTERN_TYPES.length];
+	/* Size of the weight tables of all types of one phase. */
+	public static final int TABLE_SIZE;
+	/* For every square the patterns it belongs to and its power of 3 in the index of the pattern. */
+	static final int[][] SQUARE_INSTANCES = new int[BitBoard.SQUARE_COUNT][];
+	static final int[][] SQUARE_POWERS = new int[BitBoard.SQUARE_COUNT][];
+
+	static {
+		List<int[]> squares = new ArrayList<int[]>();
+		List<Integer> types = new ArrayList<Integer>();
+		int offset = 0;
+		for (int type = 0; type < PATTERN_TYPES.length; ++type) {
+			TYPE_OFFSETS[type] = offset;
+			offset += pow3(PATTERN_TYPES[type].length);
+			Set<Long> seen = new HashSet<Long>();
+			for (int symmetry = 0; symmetry < 8; ++symmetry) {
+				int[] instance = new int[PATTERN_TYPES[type].length];
+				long mask = 0;
+				for (int i = 0; i < instance.length; ++i) {
+					instance[i] = BitBoard.transformSquare(BitBoard.square(PATTERN_TYPES[type][i][0], PATTERN_TYPES[type][i][1]), symmetry);
+					mask |= 1L << instance[i];
+				}
+				// Symmetric patterns like the main diagonal map onto themselves, they are counted once.
+				if (seen.add(mask)) {
+					squares.add(instance);
+					types.add(type);
+				}
+			}
+		}
+		TABLE_SIZE = offset;
+		INSTANCE_SQUARES = squares.toArray(new int[squares.size()][]);
+		INSTANCE_TYPES = new int[types.size()];
+		for (int i = 0; i < INSTANCE_TYPES.length; ++i) {
+			INSTANCE_TYPES[i] = types.get(i);
+		}
+		for (int square = 0; square < BitBoard.SQUARE_COUNT; ++square) {
+			List<int[]> memberships = new ArrayList<int[]>();
+			for (int instance = 0; instance < INSTANCE_SQUARES.length; ++instance) {
+				for (int i = 0; i < INSTANCE_SQUARES[instance].length; ++i) {
+					if (INSTANCE_SQUARES[instance][i] == square) {
+						memberships.add(new int[] { instance, pow3(i) });
+					}
+				}
+			}
+			SQUARE_INSTANCES[square] = new int[memberships.size()];
+			SQUARE_POWERS[square] = new int[memberships.size()];
+			for (int i = 0; i < memberships.size(); ++i) {
+				SQUARE_INSTANCES[square][i] = memberships.get(i)[0];
+				SQUARE_POWERS[square][i] = memberships.get(i)[1];
+			}
+		}
+	}
+
+	/* weights[phase][TYPE_OFFSETS[type] + index] */
+	private final short[][] weights;
+
+	/**
+	 * Instantiates a new PatternEvaluator with untrained weights, every pattern scores the values of its squares.
+	 */
+	public PatternEvaluator() {
+		this.weights = new short[PHASES][TABLE_SIZE];
+		for (int type = 0; type < PATTERN_TYPES.length; ++type) {
+			int[][] typeSquares = PATTERN_TYPES[type];
+			int size = pow3(typeSquares.length);
+			for (int index = 0; index < size; ++index) {
+				int value = 0;
+				int rest = index;
+				for (int i = 0; i < typeSquares.length; ++i, rest /= 3) {
+					int square = BitBoard.square(typeSquares[i][0], typeSquares[i][1]);
+					// A square is part of several patterns, each of them scores a share.
+					int share = SQUARE_VALUES[square] / SQUARE_INSTANCES[square].length;
+					if (rest % 3 == 1) {
+						value += share;
+					} else if (rest % 3 == 2) {
+						value -= share;
+					}
+				}
+				for (int phase = 0; phase < PHASES; ++phase) {
+					this.weights[phase][TYPE_OFFSETS[type] + index] = (short) value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Instantiates a new PatternEvaluator with the given weights.
+	 * @param weights the tables of every phase, {@link #PHASES} x {@link #TABLE_SIZE}, they are not copied.
+	 */
+	public PatternEvaluator(short[][] weights) {
+		if (weights.length != PHASES || weights[0].length != TABLE_SIZE) {
+			throw new IllegalArgumentException("The weights need " + PHASES + " tables of " + TABLE_SIZE + " entries.");
+		}
+		this.weights = weights;
+	}
+
+	/**
+	 * Reads the weights written by {@link #write(OutputStream)}.
+	 * @param file the weights file.
+	 * @return the evaluator with the weights of the file.
+	 * @throws IOException if the file can not be read or has the wrong format.
+	 */
+	public static PatternEvaluator load(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Writes the weights to a file, see {@link #write(OutputStream)}.
+	 * @param file the weights file, an existing file is replaced.
+	 * @throws IOException if writing fails.
+	 */
+	public void save(Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file)) {
+			this.write(out);
+		}
+	}
+
+	/**
+	 * Reads the weights written by {@link #write(OutputStream)}.
+	 * @param in the stream, it is not closed.
+	 * @return the evaluator with the weights of the stream.
+	 * @throws IOException if reading fails or the weights have the wrong format.
+	 */
+	public static PatternEvaluator read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != FILE_MAGIC || data.readInt() != PHASES || data.readInt() != TABLE_SIZE) {
+			throw new IOException("The weights do not fit the patterns of this version.");
+		}
+		short[][] weights = new short[PHASES][TABLE_SIZE];
+		for (short[] table : weights) {
+			for (int i = 0; i < table.length; ++i) {
+				table[i] = data.readShort();
+			}
+		}
+		return new PatternEvaluator(weights);
+	}
+
+	/**
+	 * Writes the weights, big endian: magic, phases and table size as int, followed by the tables as short.
+	 * @param out the stream, it is flushed but not closed.
+	 * @throws IOException if writing fails.
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(FILE_MAGIC);
+		data.writeInt(PHASES);
+		data.writeInt(TABLE_SIZE);
+		for (short[] table : this.weights) {
+			for (short weight : table) {
+				data.writeShort(weight);
+			}
+		}
+		data.flush();
+	}
+
+	@Override
+	public int evaluate(BitBoard board, int player) {
+		int phase = phaseOf(board);
+		short[] table = this.weights[phase];
+		int score = 0;
+		if (board.getListener() instanceof PatternIndexes) {
+			int[] indexes = ((PatternIndexes) board.getListener()).getIndexes();
+			for (int instance = 0; instance < indexes.length; ++instance) {
+				score += table[TYPE_OFFSETS[INSTANCE_TYPES[instance]] + indexes[instance]];
+			}
+		} else {
+			long black = board.getBlack();
+			long white = board.getWhite();
+			for (int instance = 0; instance < INSTANCE_SQUARES.length; ++instance) {
+				score += table[TYPE_OFFSETS[INSTANCE_TYPES[instance]] + indexOf(INSTANCE_SQUARES[instance], black, white)];
+			}
+		}
+		// In 1/8 discs and below the score of a won game, a proven win is always preferred to an estimate.
+		score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score / (WEIGHT_SCALE / 8)));
+		return player == PLAYER_BLACK ? score : -score;
+	}
+
+	/**
+	 * Keeps the pattern indexes of the board up to date, every following evaluation of the board reads them
+	 * instead of computing them.
+	 */
+	@Override
+	public void attach(BitBoard board) {
+		if (!(board.getListener() instanceof PatternIndexes)) {
+			board.setListener(new PatternIndexes(board));
+		}
+	}
+
+	/**
+	 * @param board the position.
+	 * @return the game phase, 0 for the first {@link #MOVES_PER_PHASE} moves.
+	 */
+	public static int phaseOf(BitBoard board) {
+		int moves = BitBoard.SQUARE_COUNT - 4 - board.count(PLAYER_NOBODY);
+		return Math.min(PHASES - 1, Math.max(0, moves / MOVES_PER_PHASE));
+	}
+
+	/**
+	 * @param squares the squares of a pattern.
+	 * @return the base-3 index of the pattern.
+	 */
+	static int indexOf(int[] squares, long black, long white) {
+		int index = 0;
+		for (int i = squares.length - 1; i >= 0; --i) {
+			index *= 3;
+			if ((black & (1L << squares[i])) != 0) {
+				index += 1;
+			} else if ((white & (1L << squares[i])) != 0) {
+				index += 2;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @param board the position.
+	 * @param indexes receives the index of every pattern, {@link #getInstanceCount()} entries.
+	 */
+	static void computeIndexes(BitBoard board, int[] indexes) {
+		long black = board.getBlack();
+		long white = board.getWhite();
+		for (int instance = 0; instance < INSTANCE_SQUARES.length; ++instance) {
+			indexes[instance] = indexOf(INSTANCE_SQUARES[instance], black, white);
+		}
+	}
+
+	/**
+	 * @param instance the pattern on the board.
+	 * @return the position of its weight in the table of a phase.
+	 */
+	static int tableIndexOf(int instance, int index) {
+		return TYPE_OFFSETS[INSTANCE_TYPES[instance]] + index;
+	}
+
+	/**
+	 * @return the number of patterns on the board.
+	 */
+	public static int getInstanceCount() {
+		return INSTANCE_SQUARES.length;
+	}
+
+	private static int pow3(int exponent) {
+		int result = 1;
+		for (int i = 0; i < exponent; ++i) {
+			result *= 3;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the weight tables, {@link #PHASES} x {@link #TABLE_SIZE}, not a copy.
+	 */
+	public short[][] getWeights() {
+		return this.weights;
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package org.game.othello.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class PatternEvaluatorTest implements OthelloConstants {
+
+	private Path file;
+	private BitBoard start;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		file = Files.createTempFile("othello", ".weights");
+		start = new BitBoard();
+		start.setStartingPosition();
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.PatternEvaluator#attach(org.game.othello.rules.BitBoard)}.
+	 * The indexes updated by moves and undos give the same score as indexes computed from the position.
+	 */
+	@Test
+	public void testIncrementalIndexes() {
+		PatternEvaluator evaluator = new PatternEvaluator();
+		Random random = new Random(12);
+		for (int game = 0; game < 20; ++game) {
+			BitBoard board = new BitBoard(start);
+			evaluator.attach(board);
+			while (!board.isGameOver()) {
+				long moves = board.getLegalMoves(board.getSideToMove());
+				if (moves == 0) {
+					board.makePass();
+				} else {
+					for (int choice = random.nextInt(Long.bitCount(moves)); choice > 0; --choice) {
+						moves &= moves - 1;
+					}
+					board.makeMove(Long.numberOfTrailingZeros(moves));
+				}
+				BitBoard copy = new BitBoard(board);
+				Assert.assertEquals(evaluator.evaluate(copy, PLAYER_BLACK), evaluator.evaluate(board, PLAYER_BLACK));
+				if (random.nextInt(4) == 0) {
+					board.unmakeMove();
+					Assert.assertEquals(evaluator.evaluate(new BitBoard(board), PLAYER_WHITE), evaluator.evaluate(board, PLAYER_WHITE));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.PatternEvaluator#evaluate(org.game.othello.rules.BitBoard, int)}.
+	 * The untrained weights score all symmetric variants of a position the same.
+	 */
+	@Test
+	public void testSymmetricScores() {
+		PatternEvaluator evaluator = new PatternEvaluator();
+		BitBoard board = new BitBoard(start);
+		Random random = new Random(3);
+		for (int ply = 0; ply < 30 && !board.isGameOver(); ++ply) {
+			long moves = board.getLegalMoves(board.getSideToMove());
+			if (moves == 0) {
+				board.makePass();
+				continue;
+			}
+			for (int choice = random.nextInt(Long.bitCount(moves)); choice > 0; --choice) {
+				moves &= moves - 1;
+			}
+			board.makeMove(Long.numberOfTrailingZeros(moves));
+			int score = evaluator.evaluate(board, PLAYER_BLACK);
+			for (int symmetry = 1; symmetry < 8; ++symmetry) {
+				BitBoard variant = new BitBoard(BitBoard.transform(board.getBlack(), symmetry), BitBoard.transform(board.getWhite(), symmetry));
+				Assert.assertEquals(score, evaluator.evaluate(variant, PLAYER_BLACK));
+			}
+			Assert.assertEquals(-score, evaluator.evaluate(board, PLAYER_WHITE));
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.PatternTrainer#importGames(BufferedReader)}.
+	 * A truncated record has no result, it is skipped like a record with an illegal move.
+	 */
+	@Test
+	public void testImportSkipsUnfinishedGames() throws IOException {
+		PatternTrainer trainer = new PatternTrainer();
+		String finished = "f5d6c3d3c4b3b2b1a1c2c1a2d2d1e1f3a3f4e2f1g1g5f2e3g3g2h2h1h3h4g4b4a4a5b5c5h5c6e6f6g6h6b7b6a7a6c7a8d7e7f7g7h7h8b8c8d8e8f8g8";
+		String games = finished + "\n" + finished.substring(0, 40) + "\nf5z9\n";
+		Assert.assertEquals(1, trainer.importGames(new BufferedReader(new StringReader(games))));
+		// The starting position and one position after every move.
+		Assert.assertEquals(finished.length() / 2 + 1, trainer.size());
+		try {
+			trainer.addGame(OpeningBookBuilder.parseGame(finished.substring(0, 40)));
+			Assert.fail("A game that is not finished must not be added.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertEquals(finished.length() / 2 + 1, trainer.size());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.PatternTrainer#train(int, double)}.
+	 * Training lowers the error on the games, the trained weights survive saving and loading.
+	 */
+	@Test
+	public void testTrainSaveAndLoad() throws IOException {
+		PatternTrainer trainer = new PatternTrainer();
+		trainer.selfPlay(4);
+		Assert.assertTrue(trainer.size() > 4 * 50);
+		double untrained = trainer.meanAbsoluteError(new PatternEvaluator());
+		PatternEvaluator trained = trainer.train(10, PatternTrainer.DEFAULT_LEARNING_RATE);
+		Assert.assertTrue(trainer.meanAbsoluteError(trained) < untrained);
+
+		trained.save(file);
+		PatternEvaluator loaded = PatternEvaluator.load(file);
+		for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+			Assert.assertArrayEquals(trained.getWeights()[phase], loaded.getWeights()[phase]);
+		}
+		Files.write(file, new byte[] { 1, 2, 3, 4 });
+		try {
+			PatternEvaluator.load(file);
+			Assert.fail("A file without weights must not be loaded.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package org.game.othello.ai;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.game.othello.rules.BoardListener;
+
+/**
+ * The pattern indexes of the {@link PatternEvaluator} for one board, updated with every move and undo.
+ * A placed game character adds its digit to the indexes of the patterns of its square, a flipped one changes
+ * the digit between 1 (black) and 2 (white).
+ * @author Oliver Scherf
+ */
+class PatternIndexes implements BoardListener, OthelloConstants {
+
+	private final int[] indexes = new int[PatternEvaluator.getInstanceCount()];
+
+	/**
+	 * Instantiates the indexes of the current position of the board.
+	 * @param board the board, the indexes have to be registered as its listener.
+	 */
+	PatternIndexes(BitBoard board) {
+		PatternEvaluator.computeIndexes(board, this.indexes);
+	}
+
+	@Override
+	public void movePlayed(int player, int square, long flipped) {
+		this.update(square, player == PLAYER_BLACK ? 1 : 2);
+		// Black takes white characters: digit 2 to 1, white takes black characters: digit 1 to 2.
+		this.updateFlips(flipped, player == PLAYER_BLACK ? -1 : 1);
+	}
+
+	@Override
+	public void moveUndone(int player, int square, long flipped) {
+		this.update(square, player == PLAYER_BLACK ? -1 : -2);
+		this.updateFlips(flipped, player == PLAYER_BLACK ? 1 : -1);
+	}
+
+	@Override
+	public void positionChanged(BitBoard board) {
+		PatternEvaluator.computeIndexes(board, this.indexes);
+	}
+
+	private void updateFlips(long flipped, int delta) {
+		for (; flipped != 0; flipped &= flipped - 1) {
+			this.update(Long.numberOfTrailingZeros(flipped), delta);
+		}
+	}
+
+	/**
+	 * @param square the square.
+	 * @param delta the change of the digit of the square.
+	 */
+	private void update(int square, int delta) {
+		int[] instances = PatternEvaluator.SQUARE_INSTANCES[square];
+		int[] powers = PatternEvaluator.SQUARE_POWERS[square];
+		for (int i = 0; i < instances.length; ++i) {
+			this.indexes[instances[i]] += delta * powers[i];
+		}
+	}
+
+	/**
+	 * @return the index of every pattern, not a copy.
+	 */
+	int[] getIndexes() {
+		return this.indexes;
+	}
+}
@@ -0,0 +1,303 @@
+package org.game.othello.ai;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.game.othello.rules.EndgameSolver;
+
+/**
+ * Fits the weight tables of the {@link PatternEvaluator} to the final disc difference of played games.
+ * Every position of a game is a sample, labelled with the result of the game from the view of black.
+ * The training is a stochastic gradient descent over the samples, separately for every game phase.
+ * The games come from game records (see {@link OpeningBookBuilder} for the format) or from self-play:
+ * a few random moves, a short search with the {@link MobilityEvaluator} and perfect play by the
+ * {@link EndgameSolver} for the last {@link #SELF_PLAY_SOLVE_EMPTIES} squares.
+ * Usage: java org.game.othello.ai.PatternTrainer [weights file] [-selfplay games] [-import file] [-epochs epochs]
+ * @author Oliver Scherf
+ */
+public class PatternTrainer implements OthelloConstants, Loggable {
+
+	public static final int SELF_PLAY_RANDOM_PLIES = 8;
+	public static final int SELF_PLAY_DEPTH = 2;
+	public static final int SELF_PLAY_SOLVE_EMPTIES = 14;
+	public static final int DEFAULT_EPOCHS = 20;
+	public static final double DEFAULT_LEARNING_RATE = 0.002;
+	private static final long SELF_PLAY_SEED = 20151207L;
+
+	private Logger logger;
+	/* The samples: the position and the final disc difference from the view of black. */
+	private long[] black = new long[1024];
+	private long[] white = new long[1024];
+	private byte[] labels = new byte[1024];
+	private int size;
+
+	public static void main(String[] args) throws IOException {
+		Path file = Paths.get(args.length > 0 ? args[0] : PATTERN_WEIGHTS_FILE);
+		PatternTrainer trainer = new PatternTrainer();
+		int epochs = DEFAULT_EPOCHS;
+		for (int i = 1; i < args.length; ++i) {
+			if (args[i].equals("-selfplay") && i + 1 < args.length) {
+				trainer.selfPlay(Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-import") && i + 1 < args.length) {
+				try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[++i]), StandardCharsets.UTF_8)) {
+					trainer.importGames(reader);
+				}
+			} else if (args[i].equals("-epochs") && i + 1 < args.length) {
+				epochs = Integer.parseInt(args[++i]);
+			} else {
+				System.out.println("Usage: java org.game.othello.ai.PatternTrainer [weights file] [-selfplay games] [-import file] [-epochs epochs]");
+				return;
+			}
+		}
+		PatternEvaluator evaluator = trainer.train(epochs, DEFAULT_LEARNING_RATE);
+		evaluator.save(file);
+		System.out.printf("Trained on %d positions, mean absolute error %.2f discs, wrote %s%n", trainer.size(),
+				trainer.meanAbsoluteError(evaluator), file);
+	}
+
+	/**
+	 * Instantiates a new PatternTrainer without samples.
+	 */
+	public PatternTrainer() {
+		this.initializeLogging();
+	}
+
+	/**
+	 * Replays a game and adds every position as a sample.
+	 * @param moves the squares of the moves, passes are inserted when the player on turn has no move.
+	 * @throws IllegalArgumentException if a move is illegal or the game is not finished, the disc difference of an
+	 * unfinished game is no result.
+	 */
+	public void addGame(int[] moves) {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		for (int move : moves) {
+			if (board.getLegalMoves(board.getSideToMove()) == 0) {
+				board.makePass();
+			}
+			if ((board.getLegalMoves(board.getSideToMove()) & (1L << move)) == 0) {
+				throw new IllegalArgumentException("The move " + move + " is not legal.");
+			}
+			board.makeMove(move);
+		}
+		if (board.getLegalMoves(PLAYER_BLACK) != 0 || board.getLegalMoves(PLAYER_WHITE) != 0) {
+			throw new IllegalArgumentException("The game is not finished after " + moves.length + " moves.");
+		}
+		int result = board.count(PLAYER_BLACK) - board.count(PLAYER_WHITE);
+		board = new BitBoard();
+		board.setStartingPosition();
+		this.addSample(board, result);
+		for (int move : moves) {
+			if (board.getLegalMoves(board.getSideToMove()) == 0) {
+				board.makePass();
+			}
+			board.makeMove(move);
+			this.addSample(board, result);
+		}
+	}
+
+	/**
+	 * Reads game records and adds their positions.
+	 * @param reader the game records, one game per line.
+	 * @return the number of imported games, lines with an illegal move or an unfinished game are skipped.
+	 * @throws IOException if reading fails.
+	 */
+	public int importGames(BufferedReader reader) throws IOException {
+		int imported = 0;
+		int lineNumber = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			++lineNumber;
+			line = line.trim().toLowerCase();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			int[] moves = OpeningBookBuilder.parseGame(line);
+			if (moves == null) {
+				this.log(WARNING, "Skipped game in line " + lineNumber + ", it contains an illegal move.");
+				continue;
+			}
+			if (!OpeningBookBuilder.isFinished(moves)) {
+				this.log(WARNING, "Skipped game in line " + lineNumber + ", it is not finished.");
+				continue;
+			}
+			this.addGame(moves);
+			++imported;
+		}
+		this.log(INFO, "Imported " + imported + " games, " + this.size + " positions.");
+		return imported;
+	}
+
+	/**
+	 * Plays games against itself and adds their positions.
+	 * @param games the number of games.
+	 */
+	public void selfPlay(int games) {
+		AlphaBetaSearch search = new AlphaBetaSearch(new MobilityEvaluator());
+		EndgameSolver solver = new EndgameSolver(SELF_PLAY_SOLVE_EMPTIES);
+		Random random = new Random(SELF_PLAY_SEED);
+		int[] moves = new int[BitBoard.SQUARE_COUNT];
+		for (int game = 0; game < games; ++game) {
+			BitBoard board = new BitBoard();
+			board.setStartingPosition();
+			int count = 0;
+			while (!board.isGameOver()) {
+				long legal = board.getLegalMoves(board.getSideToMove());
+				if (legal == 0) {
+					board.makePass();
+					continue;
+				}
+				int move;
+				if (count < SELF_PLAY_RANDOM_PLIES) {
+					int choice = random.nextInt(Long.bitCount(legal));
+					for (int i = 0; i < choice; ++i) {
+						legal &= legal - 1;
+					}
+					move = Long.numberOfTrailingZeros(legal);
+				} else if (solver.canSolve(board)) {
+					solver.solve(board);
+					move = solver.getBestMove();
+				} else {
+					move = search.findBestMove(board, Long.MAX_VALUE / 1000000L, SELF_PLAY_DEPTH);
+				}
+				moves[count++] = move;
+				board.makeMove(move);
+			}
+			this.addGame(Arrays.copyOf(moves, count));
+			this.log(FINE, "Self-play game " + (game + 1) + " of " + games + ", " + this.size + " positions.");
+		}
+	}
+
+	private void addSample(BitBoard board, int result) {
+		if (this.size == this.labels.length) {
+			this.black = Arrays.copyOf(this.black, 2 * this.size);
+			this.white = Arrays.copyOf(this.white, 2 * this.size);
+			this.labels = Arrays.copyOf(this.labels, 2 * this.size);
+		}
+		this.black[this.size] = board.getBlack();
+		this.white[this.size] = board.getWhite();
+		this.labels[this.size] = (byte) result;
+		++this.size;
+	}
+
+	/**
+	 * Fits the weights to the samples, starting with the untrained weights of the {@link PatternEvaluator}.
+	 * @param epochs the number of passes over the samples.
+	 * @param learningRate the step of a weight per disc of error.
+	 * @return the evaluator with the trained weights.
+	 */
+	public PatternEvaluator train(int epochs, double learningRate) {
+		short[][] initial = new PatternEvaluator().getWeights();
+		float[][] weights = new float[PatternEvaluator.PHASES][PatternEvaluator.TABLE_SIZE];
+		for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+			for (int i = 0; i < PatternEvaluator.TABLE_SIZE; ++i) {
+				weights[phase][i] = initial[phase][i] / (float) PatternEvaluator.WEIGHT_SCALE;
+			}
+		}
+		int[] features = new int[PatternEvaluator.getInstanceCount()];
+		int[] order = new int[this.size];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		Random random = new Random(SELF_PLAY_SEED);
+		BitBoard board = new BitBoard();
+		for (int epoch = 0; epoch < epochs; ++epoch) {
+			for (int i = order.length - 1; i > 0; --i) {
+				int j = random.nextInt(i + 1);
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			double squaredError = 0;
+			for (int sample : order) {
+				board.setPosition(this.black[sample], this.white[sample]);
+				float[] table = weights[PatternEvaluator.phaseOf(board)];
+				this.computeFeatures(board, features);
+				float prediction = 0;
+				for (int feature : features) {
+					prediction += table[feature];
+				}
+				float error = this.labels[sample] - prediction;
+				squaredError += error * error;
+				float step = (float) (learningRate * error);
+				for (int feature : features) {
+					table[feature] += step;
+				}
+			}
+			this.log(FINE, "Epoch " + (epoch + 1) + " of " + epochs + ", mean squared error " + squaredError / Math.max(1, this.size));
+		}
+		short[][] result = new short[PatternEvaluator.PHASES][PatternEvaluator.TABLE_SIZE];
+		for (int phase = 0; phase < PatternEvaluator.PHASES; ++phase) {
+			for (int i = 0; i < PatternEvaluator.TABLE_SIZE; ++i) {
+				long weight = Math.round(weights[phase][i] * PatternEvaluator.WEIGHT_SCALE);
+				result[phase][i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, weight));
+			}
+		}
+		return new PatternEvaluator(result);
+	}
+
+	/**
+	 * @param evaluator the evaluator.
+	 * @return the mean difference between the estimate of the evaluator and the result over all samples in discs.
+	 */
+	public double meanAbsoluteError(PatternEvaluator evaluator) {
+		BitBoard board = new BitBoard();
+		int[] features = new int[PatternEvaluator.getInstanceCount()];
+		double sum = 0;
+		for (int sample = 0; sample < this.size; ++sample) {
+			board.setPosition(this.black[sample], this.white[sample]);
+			this.computeFeatures(board, features);
+			short[] table = evaluator.getWeights()[PatternEvaluator.phaseOf(board)];
+			int estimate = 0;
+			for (int feature : features) {
+				estimate += table[feature];
+			}
+			sum += Math.abs(this.labels[sample] - estimate / (double) PatternEvaluator.WEIGHT_SCALE);
+		}
+		return sum / Math.max(1, this.size);
+	}
+
+	/**
+	 * @param features receives the position of the weight of every pattern in the table of the phase.
+	 */
+	private void computeFeatures(BitBoard board, int[] features) {
+		PatternEvaluator.computeIndexes(board, features);
+		for (int instance = 0; instance < features.length; ++instance) {
+			features[instance] = PatternEvaluator.tableIndexOf(instance, features[instance]);
+		}
+	}
+
+	/**
+	 * @return the number of samples.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.PatternTrainer");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
@@ -0,0 +1,586 @@
+package org.game.othello.ai;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.game.othello.rules.GameLogic;
+
+/**
+ * Plays games between two engines without a user interface, every game runs on its own {@link GameLogic}.
+ * The games are spread over a thread pool, one thread per core by default. Every opening is played twice
+ * with swapped colors: a few random moves of a seeded random generator, then the engines take over.
+ * The tournament reports the score and the Elo difference of the first engine, games per second and the
+ * percentiles of the time per move of every engine. The games can be written as CSV or as JSON with a summary.
+ * A game is adjudicated as soon as few enough squares are empty: {@link GameLogic#getFinalDiscDifference()} solves
+ * the rest, the engines would only spend time on a result that is already decided.
+ * An engine is written as evaluator/limit: the evaluator is mobility, pattern (untrained weights),
+ * pattern=file (weights of the file) or random, the limit a depth like 4 or a time per move like 100ms.
+ * Usage: java org.game.othello.ai.TournamentRunner [-a engine] [-b engine] [-games n] [-threads n]
+ * [-openings plies] [-adjudicate empties] [-seed seed] [-csv file] [-json file]
+ * @author Oliver Scherf
+ */
+public class TournamentRunner implements OthelloConstants, Loggable {
+
+	public static final int DEFAULT_GAMES = 100;
+	public static final int DEFAULT_OPENING_PLIES = 6;
+	public static final long DEFAULT_SEED = 20151206L;
+	/* Solving 12 empty squares takes a few milliseconds, about as long as one move of a shallow engine. */
+	public static final int DEFAULT_ADJUDICATION_EMPTIES = 12;
+	private static final double[] PERCENTILES = { 50, 90, 99, 100 };
+
+	private Logger logger;
+	private final Engine[] engines;
+	private final int games;
+	private final int threads;
+	private final int openingPlies;
+	private final int adjudicationEmpties;
+	private final long seed;
+	private GameResult[] results;
+	private long elapsedNanos;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String first = "mobility/4";
+		String second = "mobility/2";
+		int games = DEFAULT_GAMES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int openingPlies = DEFAULT_OPENING_PLIES;
+		int adjudicationEmpties = DEFAULT_ADJUDICATION_EMPTIES;
+		long seed = DEFAULT_SEED;
+		String csvFile = null;
+		String jsonFile = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-a":
+				first = args[i + 1];
+				break;
+			case "-b":
+				second = args[i + 1];
+				break;
+			case "-games":
+				games = Integer.parseInt(args[i + 1]);
+				break;
+			case "-threads":
+				threads = Integer.parseInt(args[i + 1]);
+				break;
+			case "-openings":
+				openingPlies = Integer.parseInt(args[i + 1]);
+				break;
+			case "-adjudicate":
+				adjudicationEmpties = Integer.parseInt(args[i + 1]);
+				break;
+			case "-seed":
+				seed = Long.parseLong(args[i + 1]);
+				break;
+			case "-csv":
+				csvFile = args[i + 1];
+				break;
+			case "-json":
+				jsonFile = args[i + 1];
+				break;
+			default:
+				System.out.println("Usage: java org.game.othello.ai.TournamentRunner [-a engine] [-b engine] [-games n] [-threads n]"
+						+ " [-openings plies] [-adjudicate empties] [-seed seed] [-csv file] [-json file]");
+				return;
+			}
+		}
+		// Every game has its own GameLogic, their messages would flood the console.
+		Logger.getLogger("").setLevel(WARNING);
+		TournamentRunner runner = new TournamentRunner(Engine.parse(first), Engine.parse(second), games, threads, openingPlies,
+				adjudicationEmpties, seed);
+		runner.run();
+		runner.printSummary(new PrintWriter(System.out, true));
+		if (csvFile != null) {
+			try (Writer out = Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8)) {
+				runner.writeCsv(out);
+			}
+		}
+		if (jsonFile != null) {
+			try (Writer out = Files.newBufferedWriter(Paths.get(jsonFile), StandardCharsets.UTF_8)) {
+				runner.writeJson(out);
+			}
+		}
+	}
+
+	/**
+	 * Instantiates a new TournamentRunner that adjudicates with {@link #DEFAULT_ADJUDICATION_EMPTIES} empty squares.
+	 * @param first the first engine, the scores are from its view.
+	 * @param second the second engine.
+	 * @param games the number of games, an odd number leaves the last opening with one game.
+	 * @param threads the number of games played at the same time.
+	 * @param openingPlies the random moves at the start of every opening.
+	 * @param seed the seed of the openings, the same seed gives the same openings.
+	 */
+	public TournamentRunner(Engine first, Engine second, int games, int threads, int openingPlies, long seed) {
+		this(first, second, games, threads, openingPlies, DEFAULT_ADJUDICATION_EMPTIES, seed);
+	}
+
+	/**
+	 * Instantiates a new TournamentRunner.
+	 * @param first the first engine, the scores are from its view.
+	 * @param second the second engine.
+	 * @param games the number of games, an odd number leaves the last opening with one game.
+	 * @param threads the number of games played at the same time.
+	 * @param openingPlies the random moves at the start of every opening.
+	 * @param adjudicationEmpties the empty squares from which on the rest of a game is solved, 0 to play every game
+	 * to the end. More than {@link #ENDGAME_SOLVER_MAX_EMPTIES} are not solved.
+	 * @param seed the seed of the openings, the same seed gives the same openings.
+	 */
+	public TournamentRunner(Engine first, Engine second, int games, int threads, int openingPlies, int adjudicationEmpties, long seed) {
+		this.initializeLogging();
+		this.engines = new Engine[] { first, second };
+		this.games = games;
+		this.threads = Math.max(1, threads);
+		this.openingPlies = openingPlies;
+		this.adjudicationEmpties = adjudicationEmpties;
+		this.seed = seed;
+	}
+
+	/**
+	 * Plays all games and waits for the last one.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public void run() throws InterruptedException {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "TournamentRunner-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long start = System.nanoTime();
+		try {
+			List<Future<GameResult>> futures = new ArrayList<Future<GameResult>>(this.games);
+			for (int game = 0; game < this.games; ++game) {
+				final int index = game;
+				futures.add(pool.submit(new Callable<GameResult>() {
+					@Override
+					public GameResult call() {
+						return TournamentRunner.this.playGame(index);
+					}
+				}));
+			}
+			this.results = new GameResult[this.games];
+			for (int game = 0; game < this.games; ++game) {
+				try {
+					this.results[game] = futures.get(game).get();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Game " + game + " failed.", e.getCause());
+				}
+				this.log(FINE, "Game " + (game + 1) + " of " + this.games + " finished.");
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		this.elapsedNanos = System.nanoTime() - start;
+		this.log(INFO, this.games + " games were played in " + this.elapsedNanos / 1000000L + " ms.");
+	}
+
+	/**
+	 * Plays one game, the even games give black to the first engine, the odd ones to the second. After the opening
+	 * the game is adjudicated as soon as at most the adjudication empties are left.
+	 * @param index the number of the game.
+	 * @return the result.
+	 */
+	GameResult playGame(int index) {
+		int firstColor = index % 2 == 0 ? PLAYER_BLACK : PLAYER_WHITE;
+		Random openingRandom = new Random(this.seed + index / 2);
+		Random engineRandom = new Random(this.seed ^ index);
+		AlphaBetaSearch[] searches = { this.engines[0].newSearch(), this.engines[1].newSearch() };
+		long[][] latencies = new long[2][BitBoard.SQUARE_COUNT];
+		int[] moveCounts = new int[2];
+		GameLogic game = new GameLogic();
+		game.setOfflineFlags();
+		int plies = 0;
+		boolean adjudicated = false;
+		long start = System.nanoTime();
+		while (true) {
+			int player = game.getCurrentPlayer();
+			long legal = game.legalMoves(player);
+			if (legal == 0) {
+				if (game.legalMoves(BitBoard.opponentOf(player)) == 0) {
+					break;
+				}
+				game.switchTurnOrder();
+				continue;
+			}
+			if (plies >= this.openingPlies && game.getBitBoard().count(PLAYER_NOBODY) <= this.adjudicationEmpties
+					&& game.isEndgameSolvable()) {
+				adjudicated = true;
+				break;
+			}
+			int square;
+			if (plies < this.openingPlies) {
+				square = randomMove(legal, openingRandom);
+			} else {
+				int engine = player == firstColor ? 0 : 1;
+				BitBoard position = new BitBoard(game.getBitBoard());
+				position.setSideToMove(player);
+				long moveStart = System.nanoTime();
+				square = this.engines[engine].findMove(searches[engine], position, engineRandom);
+				latencies[engine][moveCounts[engine]++] = System.nanoTime() - moveStart;
+			}
+			game.doTurn(square);
+			game.switchTurnOrder();
+			++plies;
+		}
+		int blackDiscs = game.getGameFieldCount(PLAYER_BLACK);
+		int whiteDiscs = game.getGameFieldCount(PLAYER_WHITE);
+		int discDifference = adjudicated ? game.getFinalDiscDifference() : blackDiscs - whiteDiscs;
+		return new GameResult(index, firstColor, blackDiscs, whiteDiscs, discDifference, adjudicated, plies, System.nanoTime() - start,
+				Arrays.copyOf(latencies[0], moveCounts[0]), Arrays.copyOf(latencies[1], moveCounts[1]));
+	}
+
+	/**
+	 * @param moves the legal moves.
+	 * @return one of the moves, chosen at random.
+	 */
+	static int randomMove(long moves, Random random) {
+		for (int choice = random.nextInt(Long.bitCount(moves)); choice > 0; --choice) {
+			moves &= moves - 1;
+		}
+		return Long.numberOfTrailingZeros(moves);
+	}
+
+	/**
+	 * @return the points of the first engine per game, a win counts 1 and a draw 0.5.
+	 */
+	public double getScore() {
+		double points = 0;
+		for (GameResult result : this.results) {
+			points += result.getFirstEngineScore();
+		}
+		return points / Math.max(1, this.results.length);
+	}
+
+	/**
+	 * @return the Elo difference of the first engine to the second engine.
+	 */
+	public double getEloDifference() {
+		return eloDifference(this.getScore());
+	}
+
+	/**
+	 * @return the half width of the 95% confidence interval of {@link #getEloDifference()}.
+	 */
+	public double getEloMargin() {
+		int n = this.results.length;
+		if (n < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double score = this.getScore();
+		double variance = 0;
+		for (GameResult result : this.results) {
+			double deviation = result.getFirstEngineScore() - score;
+			variance += deviation * deviation;
+		}
+		double standardError = Math.sqrt(variance / (n - 1) / n);
+		return (eloDifference(score + 1.96 * standardError) - eloDifference(score - 1.96 * standardError)) / 2;
+	}
+
+	/**
+	 * @param score the expected points per game, between 0 and 1.
+	 * @return the Elo difference that gives this expectation, limited to the score of one lost or won game in a thousand.
+	 */
+	static double eloDifference(double score) {
+		double limited = Math.max(0.001, Math.min(0.999, score));
+		return -400 * Math.log10(1 / limited - 1);
+	}
+
+	/**
+	 * @return the number of finished games per second of wall time.
+	 */
+	public double getGamesPerSecond() {
+		return this.results.length * 1e9 / Math.max(1, this.elapsedNanos);
+	}
+
+	/**
+	 * @param engine 0 for the first engine, 1 for the second.
+	 * @param percentile between 0 and 100.
+	 * @return the time per move in nanoseconds that the given share of the moves did not exceed.
+	 */
+	public long getLatencyPercentile(int engine, double percentile) {
+		int count = 0;
+		for (GameResult result : this.results) {
+			count += result.latencies[engine].length;
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long[] all = new long[count];
+		int offset = 0;
+		for (GameResult result : this.results) {
+			System.arraycopy(result.latencies[engine], 0, all, offset, result.latencies[engine].length);
+			offset += result.latencies[engine].length;
+		}
+		Arrays.sort(all);
+		int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+		return all[Math.max(0, Math.min(count - 1, rank))];
+	}
+
+	/**
+	 * Prints the results, the score and the speed in a human readable form.
+	 * @param out the writer, it is flushed but not closed.
+	 */
+	public void printSummary(PrintWriter out) {
+		int[] outcomes = this.countOutcomes();
+		out.println(String.format(Locale.ROOT, "%s vs %s: %d games, +%d =%d -%d, score %.3f, Elo %+.1f +/- %.1f", this.engines[0],
+				this.engines[1], this.results.length, outcomes[0], outcomes[1], outcomes[2], this.getScore(), this.getEloDifference(),
+				this.getEloMargin()));
+		out.println(String.format(Locale.ROOT, "%.2f games/s with %d threads", this.getGamesPerSecond(), this.threads));
+		for (int engine = 0; engine < 2; ++engine) {
+			StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-20s ms per move:", this.engines[engine]));
+			for (double percentile : PERCENTILES) {
+				line.append(String.format(Locale.ROOT, " p%.0f %.3f", percentile, this.getLatencyPercentile(engine, percentile) / 1e6));
+			}
+			out.println(line);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes one line per game: the number, the engines with black and white, the discs, the final disc difference,
+	 * the winner, whether the game was adjudicated, the plies and the duration in milliseconds. The discs of an
+	 * adjudicated game are the ones on the board when it was solved.
+	 * @param out the writer, it is flushed but not closed.
+	 * @throws IOException if writing fails.
+	 */
+	public void writeCsv(Writer out) throws IOException {
+		out.write("game,black,white,black_discs,white_discs,disc_difference,winner,adjudicated,plies,millis\n");
+		for (GameResult result : this.results) {
+			out.write(String.format(Locale.ROOT, "%d,%s,%s,%d,%d,%d,%s,%b,%d,%.3f%n", result.index, this.blackEngine(result),
+					this.whiteEngine(result), result.blackDiscs, result.whiteDiscs, result.discDifference, this.winnerName(result),
+					result.adjudicated, result.plies, result.nanos / 1e6));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the summary and the games as one JSON object.
+	 * @param out the writer, it is flushed but not closed.
+	 * @throws IOException if writing fails.
+	 */
+	public void writeJson(Writer out) throws IOException {
+		int[] outcomes = this.countOutcomes();
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"engines\": [\"").append(jsonEscape(this.engines[0])).append("\", \"").append(jsonEscape(this.engines[1])).append("\"],\n");
+		json.append(String.format(Locale.ROOT, "  \"games\": %d, \"wins\": %d, \"draws\": %d, \"losses\": %d,%n", this.results.length,
+				outcomes[0], outcomes[1], outcomes[2]));
+		json.append(String.format(Locale.ROOT, "  \"score\": %.4f, \"elo\": %.1f, \"eloMargin\": %.1f,%n", this.getScore(),
+				this.getEloDifference(), this.getEloMargin()));
+		json.append(String.format(Locale.ROOT, "  \"threads\": %d, \"gamesPerSecond\": %.3f,%n", this.threads, this.getGamesPerSecond()));
+		json.append("  \"latencyMillis\": [");
+		for (int engine = 0; engine < 2; ++engine) {
+			json.append(engine == 0 ? "{" : ", {");
+			for (int i = 0; i < PERCENTILES.length; ++i) {
+				json.append(String.format(Locale.ROOT, "%s\"p%.0f\": %.3f", i == 0 ? "" : ", ", PERCENTILES[i],
+						this.getLatencyPercentile(engine, PERCENTILES[i]) / 1e6));
+			}
+			json.append('}');
+		}
+		json.append("],\n");
+		json.append("  \"results\": [\n");
+		for (int i = 0; i < this.results.length; ++i) {
+			GameResult result = this.results[i];
+			json.append(String.format(Locale.ROOT,
+					"    {\"game\": %d, \"black\": \"%s\", \"white\": \"%s\", \"blackDiscs\": %d, \"whiteDiscs\": %d, \"discDifference\": %d, \"winner\": \"%s\", \"adjudicated\": %b, \"plies\": %d, \"millis\": %.3f}%s%n",
+					result.index, jsonEscape(this.blackEngine(result)), jsonEscape(this.whiteEngine(result)), result.blackDiscs,
+					result.whiteDiscs, result.discDifference, this.winnerName(result), result.adjudicated, result.plies, result.nanos / 1e6,
+					i + 1 < this.results.length ? "," : ""));
+		}
+		json.append("  ]\n}\n");
+		out.write(json.toString());
+		out.flush();
+	}
+
+	private static String jsonEscape(Engine engine) {
+		return engine.toString().replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * @return wins, draws and losses of the first engine.
+	 */
+	private int[] countOutcomes() {
+		int[] outcomes = new int[3];
+		for (GameResult result : this.results) {
+			double score = result.getFirstEngineScore();
+			++outcomes[score == 1 ? 0 : score == 0 ? 2 : 1];
+		}
+		return outcomes;
+	}
+
+	private Engine blackEngine(GameResult result) {
+		return this.engines[result.firstColor == PLAYER_BLACK ? 0 : 1];
+	}
+
+	private Engine whiteEngine(GameResult result) {
+		return this.engines[result.firstColor == PLAYER_BLACK ? 1 : 0];
+	}
+
+	private String winnerName(GameResult result) {
+		if (result.discDifference == 0) {
+			return "draw";
+		}
+		return result.discDifference > 0 ? "black" : "white";
+	}
+
+	/**
+	 * @return the results in the order of the games, null before {@link #run()}.
+	 */
+	GameResult[] getResults() {
+		return this.results;
+	}
+
+	/**
+	 * A configured player of the tournament. The searches are created per game, the evaluator is shared.
+	 */
+	public static class Engine {
+		private final String name;
+		private final Evaluator evaluator;
+		private final int depth;
+		private final long timeMillis;
+
+		private Engine(String name, Evaluator evaluator, int depth, long timeMillis) {
+			this.name = name;
+			this.evaluator = evaluator;
+			this.depth = depth;
+			this.timeMillis = timeMillis;
+		}
+
+		/**
+		 * @param spec evaluator/limit like mobility/4, pattern=othello.weights/100ms or random.
+		 * @return the engine.
+		 * @throws IOException if the weights of a pattern engine can not be loaded.
+		 * @throws IllegalArgumentException if the spec is malformed.
+		 */
+		public static Engine parse(String spec) throws IOException {
+			if (spec.equals("random")) {
+				return new Engine(spec, null, 0, 0);
+			}
+			int slash = spec.lastIndexOf('/');
+			if (slash < 0) {
+				throw new IllegalArgumentException("The engine " + spec + " has no depth or time per move.");
+			}
+			String evaluatorName = spec.substring(0, slash);
+			String limit = spec.substring(slash + 1);
+			Evaluator evaluator;
+			if (evaluatorName.equals("mobility")) {
+				evaluator = new MobilityEvaluator();
+			} else if (evaluatorName.equals("pattern")) {
+				evaluator = new PatternEvaluator();
+			} else if (evaluatorName.startsWith("pattern=")) {
+				evaluator = PatternEvaluator.load(Paths.get(evaluatorName.substring("pattern=".length())));
+			} else {
+				throw new IllegalArgumentException("Unknown evaluator " + evaluatorName + ", use mobility, pattern or pattern=file.");
+			}
+			if (limit.endsWith("ms")) {
+				return new Engine(spec, evaluator, AlphaBetaSearch.MAX_DEPTH, Long.parseLong(limit.substring(0, limit.length() - 2)));
+			}
+			return new Engine(spec, evaluator, Integer.parseInt(limit), Long.MAX_VALUE / 1000000L);
+		}
+
+		/**
+		 * @return a new search for one game or null for the random engine.
+		 */
+		AlphaBetaSearch newSearch() {
+			return this.evaluator == null ? null : new AlphaBetaSearch(this.evaluator);
+		}
+
+		/**
+		 * @param search the search of the game, see {@link #newSearch()}.
+		 * @param position the position with the side to move, it has a legal move.
+		 * @return the square of the move.
+		 */
+		int findMove(AlphaBetaSearch search, BitBoard position, Random random) {
+			if (search == null) {
+				return randomMove(position.getLegalMoves(position.getSideToMove()), random);
+			}
+			return search.findBestMove(position, this.timeMillis, this.depth);
+		}
+
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+
+	/**
+	 * The outcome of one game and the time per move of both engines.
+	 */
+	static class GameResult {
+		final int index;
+		final int firstColor;
+		final int blackDiscs;
+		final int whiteDiscs;
+		/* Black minus white at the end of the game, solved for an adjudicated game. */
+		final int discDifference;
+		final boolean adjudicated;
+		final int plies;
+		final long nanos;
+		/* Nanoseconds per move of the first and the second engine. */
+		final long[][] latencies;
+
+		GameResult(int index, int firstColor, int blackDiscs, int whiteDiscs, int discDifference, boolean adjudicated, int plies,
+				long nanos, long[] firstLatencies, long[] secondLatencies) {
+			this.index = index;
+			this.firstColor = firstColor;
+			this.blackDiscs = blackDiscs;
+			this.whiteDiscs = whiteDiscs;
+			this.discDifference = discDifference;
+			this.adjudicated = adjudicated;
+			this.plies = plies;
+			this.nanos = nanos;
+			this.latencies = new long[][] { firstLatencies, secondLatencies };
+		}
+
+		/**
+		 * @return 1 if the first engine won, 0.5 for a draw, 0 if it lost.
+		 */
+		double getFirstEngineScore() {
+			int difference = this.discDifference;
+			if (this.firstColor == PLAYER_WHITE) {
+				difference = -difference;
+			}
+			return difference > 0 ? 1 : difference == 0 ? 0.5 : 0;
+		}
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.TournamentRunner");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
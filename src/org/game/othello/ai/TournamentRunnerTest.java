@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package org.game.othello.ai;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class TournamentRunnerTest implements OthelloConstants {
+
+	/**
+	 * Test method for {@link org.game.othello.ai.TournamentRunner#run()}.
+	 * Every game is finished, the colors alternate and the same opening is played twice.
+	 */
+	@Test
+	public void testRun() throws IOException, InterruptedException {
+		TournamentRunner runner = new TournamentRunner(TournamentRunner.Engine.parse("mobility/2"), TournamentRunner.Engine.parse("random"), 6,
+				3, 4, 1L);
+		runner.run();
+		TournamentRunner.GameResult[] results = runner.getResults();
+		Assert.assertEquals(6, results.length);
+		for (int game = 0; game < results.length; ++game) {
+			Assert.assertEquals(game, results[game].index);
+			Assert.assertEquals(game % 2 == 0 ? PLAYER_BLACK : PLAYER_WHITE, results[game].firstColor);
+			Assert.assertTrue(results[game].blackDiscs + results[game].whiteDiscs <= 64);
+			Assert.assertTrue(results[game].latencies[0].length > 0);
+			Assert.assertTrue(results[game].adjudicated || results[game].discDifference == results[game].blackDiscs - results[game].whiteDiscs);
+		}
+		Assert.assertTrue(runner.getScore() >= 0 && runner.getScore() <= 1);
+		Assert.assertTrue(runner.getGamesPerSecond() > 0);
+		Assert.assertTrue(runner.getLatencyPercentile(0, 50) <= runner.getLatencyPercentile(0, 100));
+
+		StringWriter csv = new StringWriter();
+		runner.writeCsv(csv);
+		Assert.assertEquals(7, csv.toString().split("\n").length);
+		StringWriter json = new StringWriter();
+		runner.writeJson(json);
+		Assert.assertTrue(json.toString().contains("\"games\": 6"));
+		Assert.assertTrue(json.toString().contains("\"black\": \"mobility/2\", \"white\": \"random\""));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.TournamentRunner#playGame(int)}.
+	 * An adjudicated game ends with the empty squares left and the result of the solver, the same game played to the
+	 * end by two perfect engines would have it too.
+	 */
+	@Test
+	public void testAdjudication() throws IOException {
+		TournamentRunner.Engine random = TournamentRunner.Engine.parse("random");
+		TournamentRunner runner = new TournamentRunner(random, random, 2, 1, 4, 10, 1L);
+		for (int game = 0; game < 2; ++game) {
+			TournamentRunner.GameResult result = runner.playGame(game);
+			Assert.assertTrue(result.adjudicated);
+			int empties = 64 - result.blackDiscs - result.whiteDiscs;
+			Assert.assertTrue(empties > 0 && empties <= 10);
+			Assert.assertTrue(Math.abs(result.discDifference) <= 64);
+		}
+		TournamentRunner.GameResult played = new TournamentRunner(random, random, 2, 1, 4, 0, 1L).playGame(0);
+		Assert.assertFalse(played.adjudicated);
+		Assert.assertEquals(played.blackDiscs - played.whiteDiscs, played.discDifference);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.TournamentRunner#eloDifference(double)}.
+	 */
+	@Test
+	public void testEloDifference() {
+		Assert.assertEquals(0, TournamentRunner.eloDifference(0.5), 1e-9);
+		Assert.assertEquals(-TournamentRunner.eloDifference(0.25), TournamentRunner.eloDifference(0.75), 1e-9);
+		Assert.assertEquals(190.8, TournamentRunner.eloDifference(0.75), 0.1);
+		Assert.assertTrue(Double.isFinite(TournamentRunner.eloDifference(1)));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.TournamentRunner.Engine#parse(String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseUnknownEngine() throws IOException {
+		TournamentRunner.Engine.parse("minimax/3");
+	}
+}
@@ -0,0 +1,188 @@
+package org.game.othello.ai;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+
+/**
+ * A fixed-size hash table of search results, shared by all search threads without locking.
+ * The key is the Zobrist hash of {@link BitBoard#getHash()}. Every entry is stored as the two longs
+ * key ^ data and data. A torn write of another thread produces a key that does not match, so such an
+ * entry is simply treated as a miss.
+ * The entries are grouped in buckets of two. A new result replaces the entry of the same position,
+ * otherwise the entry of an older search or the one with the smaller depth.
+ * @author Oliver Scherf
+ */
+public class TranspositionTable implements OthelloConstants {
+
+	public static final int BOUND_EXACT = 1;
+	public static final int BOUND_LOWER = 2;
+	public static final int BOUND_UPPER = 3;
+	public static final int NO_MOVE = -1;
+
+	/* Layout of the data long: score 0-31, depth 32-39, bound 40-41, move + 1 42-48, age 49-56. */
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int MOVE_SHIFT = 42;
+	private static final int AGE_SHIFT = 49;
+	private static final int AGE_MASK = 0xFF;
+
+	/* Two longs per entry. */
+	private static final int ENTRY_BYTES = 16;
+	private static final int BUCKET_SIZE = 2;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int bucketMask;
+	private volatile int age;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+
+	/**
+	 * Instantiates a new TranspositionTable.
+	 * @param megabytes the memory of the table, the entry count is rounded down to a power of two.
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) {
+			throw new IllegalArgumentException("The table needs at least 1 MB, not " + megabytes + ".");
+		}
+		long entries = Long.highestOneBit(megabytes * 1024L * 1024L / ENTRY_BYTES);
+		int size = (int) Math.min(entries, 1 << 30);
+		this.keys = new long[size];
+		this.data = new long[size];
+		this.bucketMask = size / BUCKET_SIZE - 1;
+	}
+
+	/**
+	 * @param hash the hash of the position.
+	 * @return the data of the entry or 0 if the position is not stored.
+	 */
+	public long probe(long hash) {
+		int index = this.bucketOf(hash);
+		boolean occupied = false;
+		for (int i = index; i < index + BUCKET_SIZE; ++i) {
+			long d = this.data[i];
+			if ((this.keys[i] ^ d) == hash) {
+				this.hits.increment();
+				return d;
+			}
+			occupied |= d != 0;
+		}
+		this.misses.increment();
+		if (occupied) {
+			this.collisions.increment();
+		}
+		return 0;
+	}
+
+	/**
+	 * Stores a search result. The entry of the same position is replaced, otherwise the entry of an older search
+	 * or the one with the smaller depth.
+	 * @param hash the hash of the position.
+	 * @param depth the searched depth.
+	 * @param bound {@link #BOUND_EXACT}, {@link #BOUND_LOWER} or {@link #BOUND_UPPER}.
+	 * @param score the score of the position.
+	 * @param move the best move or {@link #NO_MOVE}.
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		int index = this.bucketOf(hash);
+		int currentAge = this.age;
+		int replace = index;
+		int replaceValue = Integer.MAX_VALUE;
+		for (int i = index; i < index + BUCKET_SIZE; ++i) {
+			long d = this.data[i];
+			if ((this.keys[i] ^ d) == hash) {
+				replace = i;
+				break;
+			}
+			// Empty entries first, entries of older searches count as if they were 256 plies shallower.
+			int value = d == 0 ? Integer.MIN_VALUE : getDepth(d) - (getAge(d) == currentAge ? 0 : 256);
+			if (value < replaceValue) {
+				replace = i;
+				replaceValue = value;
+			}
+		}
+		long d = (score & 0xFFFFFFFFL) | ((long) depth << DEPTH_SHIFT) | ((long) bound << BOUND_SHIFT) | ((long) (move + 1) << MOVE_SHIFT)
+				| ((long) currentAge << AGE_SHIFT);
+		this.data[replace] = d;
+		this.keys[replace] = hash ^ d;
+	}
+
+	/**
+	 * @return the index of the first entry of the bucket.
+	 */
+	private int bucketOf(long hash) {
+		return ((int) hash & this.bucketMask) * BUCKET_SIZE;
+	}
+
+	/**
+	 * Starts a new search, the entries of the previous searches are replaced first from now on.
+	 */
+	public void newSearch() {
+		this.age = (this.age + 1) & AGE_MASK;
+	}
+
+	/**
+	 * Removes all entries and resets the counters.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.keys.length; ++i) {
+			this.keys[i] = 0;
+			this.data[i] = 0;
+		}
+		this.hits.reset();
+		this.misses.reset();
+		this.collisions.reset();
+	}
+
+	public static int getScore(long data) {
+		return (int) data;
+	}
+
+	public static int getDepth(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	public static int getBound(long data) {
+		return (int) (data >>> BOUND_SHIFT) & 0x3;
+	}
+
+	public static int getMove(long data) {
+		return ((int) (data >>> MOVE_SHIFT) & 0x7F) - 1;
+	}
+
+	public static int getAge(long data) {
+		return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+	}
+
+	/**
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * @return the probes that found the position.
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the probes that did not find the position.
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return the misses where the bucket was occupied by other positions.
+	 */
+	public long getCollisions() {
+		return this.collisions.sum();
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package org.game.othello.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class TranspositionTableTest {
+
+	private TranspositionTable table;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		table = new TranspositionTable(1);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.TranspositionTable#TranspositionTable(int)}.
+	 */
+	@Test
+	public void testSize() {
+		Assert.assertEquals(1 << 16, table.size());
+		Assert.assertEquals(1 << 17, new TranspositionTable(3).size());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.ai.TranspositionTable#probe(long)}.
+	 */
+	@Test
+	public void testStoreAndProbe() {
+		long hash = 0x123456789ABCDEFL;
+		Assert.assertEquals(0, table.probe(hash));
+		table.store(hash, 7, TranspositionTable.BOUND_LOWER, -4200, 63);
+		long entry = table.probe(hash);
+		Assert.assertEquals(-4200, TranspositionTable.getScore(entry));
+		Assert.assertEquals(7, TranspositionTable.getDepth(entry));
+		Assert.assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(entry));
+		Assert.assertEquals(63, TranspositionTable.getMove(entry));
+		table.store(hash, 2, TranspositionTable.BOUND_EXACT, 5, TranspositionTable.NO_MOVE);
+		Assert.assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.getMove(table.probe(hash)));
+		Assert.assertEquals(2, table.getHits());
+		Assert.assertEquals(1, table.getMisses());
+	}
+
+	/**
+	 * A full bucket keeps the deeper entry, unless it is from an older search.
+	 */
+	@Test
+	public void testReplacementByDepthAndAge() {
+		long buckets = table.size() / 2;
+		long deep = 5;
+		long shallow = 5 + buckets;
+		long next = 5 + 2 * buckets;
+		table.store(deep, 10, TranspositionTable.BOUND_EXACT, 1, 0);
+		table.store(shallow, 3, TranspositionTable.BOUND_EXACT, 2, 0);
+		table.store(next, 4, TranspositionTable.BOUND_EXACT, 3, 0);
+		Assert.assertNotEquals(0, table.probe(deep));
+		Assert.assertEquals(0, table.probe(shallow));
+		Assert.assertEquals(1, table.getCollisions());
+		Assert.assertNotEquals(0, table.probe(next));
+
+		table.newSearch();
+		table.store(shallow, 1, TranspositionTable.BOUND_EXACT, 2, 0);
+		table.store(shallow + 2 * buckets, 1, TranspositionTable.BOUND_EXACT, 2, 0);
+		Assert.assertEquals(0, table.probe(deep));
+		Assert.assertEquals(0, table.probe(next));
+		Assert.assertNotEquals(0, table.probe(shallow));
+	}
+
+	/**
+	 * Threads write and read the same buckets at the same time, a probe must never return the data of another position.
+	 */
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final TranspositionTable shared = new TranspositionTable(1);
+		final AtomicBoolean corrupted = new AtomicBoolean();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; ++t) {
+			final long seed = t;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					long x = seed;
+					for (int i = 0; i < 200000; ++i) {
+						x = x * 6364136223846793005L + 1442695040888963407L;
+						// Few buckets so the threads collide, the score is derived from the hash.
+						long hash = (x & ~0x7FFFL) | (x >>> 60);
+						int score = (int) (hash >>> 40);
+						long entry = shared.probe(hash);
+						if (entry != 0 && TranspositionTable.getScore(entry) != score) {
+							corrupted.set(true);
+						}
+						shared.store(hash, i & 0x3F, TranspositionTable.BOUND_EXACT, score, i & 0x3F);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertFalse(corrupted.get());
+	}
+}
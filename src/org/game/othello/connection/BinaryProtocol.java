@@ -0,0 +1,512 @@
+package org.game.othello.connection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * The binary wire protocol between the client and the server, it replaces the Java serialization.
+ * <p>
+ * The client starts with the handshake 'O', 'T', 0, version and the server answers with the version both speak,
+ * 0 if there is none. A client that starts with the magic of an object stream (0xACED) is a legacy client.
+ * After the handshake every message is a frame: the length of the rest as a varint, a one-byte opcode and the
+ * payload. A move takes 3 bytes, the same move as a serialized {@link Coordinate} more than 100.
+ * <p>
+ * The messages are the objects of the object stream protocol, so both protocols can meet in one lobby:
+ * {@link Integer} (lobby number, zigzag varint), {@link FindGameCommando} (rating, zigzag varint),
+ * {@link InitializationCommando} (starting player as a byte and the lobby number), {@link Coordinate} and
+ * {@link GameEndsCommando} (the square y * 8 + x), {@link String} (UTF-8) and the commandos without payload.
+ * <p>
+ * Version 2 adds the heartbeat: the server sends a {@link PingCommando} every
+ * {@link OthelloConstants#HEARTBEAT_INTERVAL_MILLIS}, the client answers with a {@link PongCommando}.
+ * <p>
+ * Version 3 adds the resumption of a game: the {@link InitializationCommando} carries an 8 byte session token,
+ * a client whose connection broke sends a {@link ResumeCommando} (lobby number and token) on a new connection and
+ * gets a {@link SnapshotCommando}: the discs of Black and White as two 8 byte bitmasks, the player on turn, the
+ * color of the client and the lobby number, 20 to 24 bytes instead of the moves it missed.
+ * <p>
+ * Version 4 adds spectators: a {@link SpectateCommando} (lobby number) instead of the lobby number, the spectator
+ * gets a snapshot and then the frames of the moves, encoded once for all spectators of the lobby.
+ * <p>
+ * Version 5 adds the settings of the server: its answer to the handshake is followed by the heartbeat timeout and
+ * the grace period for the resumption in milliseconds, two 4 byte integers, so the client waits as long as the
+ * server and not as long as the defaults in {@link OthelloConstants}.
+ * <p>
+ * Version 6 adds the {@link ForcedResultCommando} (the winner as a byte), the server sends it to the players as
+ * soon as the end of the game is decided.
+ * @author Oliver Scherf
+ */
+public final class BinaryProtocol implements OthelloConstants {
+
+	public static final int VERSION = 6;
+	/* The first version with the heartbeat. */
+	public static final int VERSION_HEARTBEAT = 2;
+	/* The first version with session tokens, a client of an older version can not resume a game. */
+	public static final int VERSION_SESSION = 3;
+	/* The first version with spectators. */
+	public static final int VERSION_SPECTATE = 4;
+	/* The first version in which the server sends its settings after the handshake. */
+	public static final int VERSION_SETTINGS = 5;
+	/* The first version with the forced result of the game. */
+	public static final int VERSION_FORCED_RESULT = 6;
+	public static final int HANDSHAKE_LENGTH = 4;
+	public static final int SETTINGS_LENGTH = 8;
+	public static final int MAX_FRAME_LENGTH = 4096;
+	/* Longer chat messages are cut, 3 bytes per char in UTF-8 still fit into a frame. */
+	public static final int MAX_CHAT_LENGTH = 1000;
+
+	public static final int OP_LOBBY = 1;
+	public static final int OP_INITIALIZATION = 2;
+	public static final int OP_MOVE = 3;
+	public static final int OP_PASS = 4;
+	public static final int OP_GAME_ENDS = 5;
+	public static final int OP_SURRENDER = 6;
+	public static final int OP_INTERRUPT = 7;
+	public static final int OP_NO_LOBBY_FOUND = 8;
+	public static final int OP_CHAT = 9;
+	public static final int OP_FIND_GAME = 10;
+	public static final int OP_PING = 11;
+	public static final int OP_PONG = 12;
+	public static final int OP_RESUME = 13;
+	public static final int OP_SNAPSHOT = 14;
+	public static final int OP_SPECTATE = 15;
+	public static final int OP_FORCED_RESULT = 16;
+
+	private static final byte HANDSHAKE_MAGIC_0 = 'O';
+	private static final byte HANDSHAKE_MAGIC_1 = 'T';
+
+	private BinaryProtocol() {
+	}
+
+	/**
+	 * @param version the highest version of the client, or the version the server accepted.
+	 * @return the handshake.
+	 */
+	public static byte[] handshake(int version) {
+		return new byte[] { HANDSHAKE_MAGIC_0, HANDSHAKE_MAGIC_1, 0, (byte) version };
+	}
+
+	/**
+	 * @param firstByte the first byte a client sent.
+	 * @return true, if the client speaks this protocol, false for an object stream.
+	 */
+	public static boolean isHandshake(byte firstByte) {
+		return firstByte == HANDSHAKE_MAGIC_0;
+	}
+
+	/**
+	 * @param bytes contains the handshake.
+	 * @param offset the start of the handshake.
+	 * @return the version of the other side.
+	 * @throws StreamCorruptedException if it is no handshake.
+	 */
+	public static int parseHandshake(byte[] bytes, int offset) throws StreamCorruptedException {
+		if (bytes[offset] != HANDSHAKE_MAGIC_0 || bytes[offset + 1] != HANDSHAKE_MAGIC_1 || bytes[offset + 2] != 0) {
+			throw new StreamCorruptedException("Invalid handshake");
+		}
+		return bytes[offset + 3] & 0xFF;
+	}
+
+	/**
+	 * @param clientVersion the highest version of the client.
+	 * @return the version the server speaks with the client, 0 if there is none.
+	 */
+	public static int negotiate(int clientVersion) {
+		return clientVersion < 1 ? 0 : Math.min(clientVersion, VERSION);
+	}
+
+	/**
+	 * Reads the handshake, blocking.
+	 * @param in the stream.
+	 * @return the version of the other side.
+	 * @throws IOException if the stream ends or it is no handshake.
+	 */
+	public static int readHandshake(InputStream in) throws IOException {
+		byte[] bytes = new byte[HANDSHAKE_LENGTH];
+		readFully(in, bytes, 0, HANDSHAKE_LENGTH);
+		return parseHandshake(bytes, 0);
+	}
+
+	/**
+	 * @param heartbeatTimeoutMillis the time without a message after which the server drops a client.
+	 * @param sessionGraceMillis the time a player has to resume the game, 0 if the server does not wait.
+	 * @return the settings the server sends after its answer to the handshake.
+	 */
+	public static byte[] settings(long heartbeatTimeoutMillis, long sessionGraceMillis) {
+		ByteArrayOutputStream settings = new ByteArrayOutputStream(SETTINGS_LENGTH);
+		writeInt(settings, (int) Math.min(heartbeatTimeoutMillis, Integer.MAX_VALUE));
+		writeInt(settings, (int) Math.min(sessionGraceMillis, Integer.MAX_VALUE));
+		return settings.toByteArray();
+	}
+
+	/**
+	 * Reads one of the settings, blocking. The heartbeat timeout comes first, then the grace period.
+	 * @param in the stream.
+	 * @return the setting in milliseconds.
+	 * @throws IOException if the stream ends.
+	 */
+	public static long readSetting(InputStream in) throws IOException {
+		byte[] bytes = new byte[SETTINGS_LENGTH / 2];
+		readFully(in, bytes, 0, bytes.length);
+		long value = 0;
+		for (byte b : bytes) {
+			value = (value << 8) | (b & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * @param message one of the message types.
+	 * @return the frame of the message in the current version.
+	 * @throws IllegalArgumentException if the message type has no opcode.
+	 */
+	public static byte[] encode(Object message) {
+		return encode(message, VERSION);
+	}
+
+	/**
+	 * @param message one of the message types.
+	 * @param version the version both sides speak.
+	 * @return the frame of the message.
+	 * @throws IllegalArgumentException if the message type has no opcode.
+	 */
+	public static byte[] encode(Object message, int version) {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream(16);
+		int opcode;
+		if (message instanceof Integer) {
+			opcode = OP_LOBBY;
+			writeVarint(payload, zigzag((Integer) message));
+		} else if (message instanceof InitializationCommando) {
+			opcode = OP_INITIALIZATION;
+			payload.write(((InitializationCommando) message).getStartingPlayer() ? 1 : 0);
+			writeVarint(payload, zigzag(((InitializationCommando) message).getLobbyNumer()));
+			if (version >= VERSION_SESSION) {
+				writeLong(payload, ((InitializationCommando) message).getSessionToken());
+			}
+		} else if (message instanceof Coordinate) {
+			opcode = OP_MOVE;
+			payload.write(squareOf((Coordinate) message));
+		} else if (message instanceof NoTurnIsPossibleCommand) {
+			opcode = OP_PASS;
+		} else if (message instanceof GameEndsCommando) {
+			opcode = OP_GAME_ENDS;
+			payload.write(squareOf(((GameEndsCommando) message).getLastIndex()));
+		} else if (message instanceof SurrenderCommando) {
+			opcode = OP_SURRENDER;
+		} else if (message instanceof InteruptCommando) {
+			opcode = OP_INTERRUPT;
+		} else if (message instanceof NoLobbyFoundCommando) {
+			opcode = OP_NO_LOBBY_FOUND;
+		} else if (message instanceof FindGameCommando) {
+			opcode = OP_FIND_GAME;
+			writeVarint(payload, zigzag(((FindGameCommando) message).getRating()));
+		} else if (message instanceof PingCommando) {
+			opcode = OP_PING;
+		} else if (message instanceof PongCommando) {
+			opcode = OP_PONG;
+		} else if (message instanceof ResumeCommando) {
+			opcode = OP_RESUME;
+			writeVarint(payload, zigzag(((ResumeCommando) message).getLobbyNumber()));
+			writeLong(payload, ((ResumeCommando) message).getSessionToken());
+		} else if (message instanceof SpectateCommando) {
+			opcode = OP_SPECTATE;
+			writeVarint(payload, zigzag(((SpectateCommando) message).getLobbyNumber()));
+		} else if (message instanceof SnapshotCommando) {
+			opcode = OP_SNAPSHOT;
+			SnapshotCommando snapshot = (SnapshotCommando) message;
+			writeLong(payload, snapshot.getBlackDiscs());
+			writeLong(payload, snapshot.getWhiteDiscs());
+			payload.write(snapshot.getSideToMove());
+			payload.write(snapshot.isBlack() ? 1 : 0);
+			writeVarint(payload, zigzag(snapshot.getLobbyNumber()));
+		} else if (message instanceof ForcedResultCommando) {
+			opcode = OP_FORCED_RESULT;
+			payload.write(((ForcedResultCommando) message).getWinner());
+		} else if (message instanceof String) {
+			opcode = OP_CHAT;
+			String text = (String) message;
+			if (text.length() > MAX_CHAT_LENGTH) {
+				text = text.substring(0, MAX_CHAT_LENGTH);
+			}
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			payload.write(bytes, 0, bytes.length);
+		} else {
+			throw new IllegalArgumentException("No opcode for " + message.getClass().getName());
+		}
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.size() + 3);
+		writeVarint(frame, payload.size() + 1);
+		frame.write(opcode);
+		frame.write(payload.toByteArray(), 0, payload.size());
+		return frame.toByteArray();
+	}
+
+	/**
+	 * @param frame contains the opcode and the payload, without the length.
+	 * @param offset the position of the opcode.
+	 * @param length the length of opcode and payload.
+	 * @return the message.
+	 * @throws StreamCorruptedException if the opcode is unknown or the payload does not match it.
+	 */
+	public static Object decode(byte[] frame, int offset, int length) throws StreamCorruptedException {
+		if (length < 1) {
+			throw new StreamCorruptedException("Empty frame");
+		}
+		int opcode = frame[offset] & 0xFF;
+		int position = offset + 1;
+		int end = offset + length;
+		Object message;
+		switch (opcode) {
+		case OP_LOBBY:
+			long lobby = readCompleteVarint(frame, position, end);
+			position += varintLength(lobby);
+			message = unzigzag(lobby);
+			break;
+		case OP_INITIALIZATION:
+			checkLength(position + 1, end);
+			boolean startingPlayer = frame[position++] != 0;
+			long lobbyNumber = readCompleteVarint(frame, position, end);
+			position += varintLength(lobbyNumber);
+			// The token is only sent since version 3.
+			long sessionToken = 0;
+			if (position < end) {
+				checkLength(position + 8, end);
+				sessionToken = readLong(frame, position);
+				position += 8;
+			}
+			message = new InitializationCommando(startingPlayer, unzigzag(lobbyNumber), sessionToken);
+			break;
+		case OP_MOVE:
+			checkLength(position + 1, end);
+			message = coordinateOf(frame[position++]);
+			break;
+		case OP_PASS:
+			message = new NoTurnIsPossibleCommand();
+			break;
+		case OP_GAME_ENDS:
+			checkLength(position + 1, end);
+			message = new GameEndsCommando(coordinateOf(frame[position++]));
+			break;
+		case OP_SURRENDER:
+			message = new SurrenderCommando();
+			break;
+		case OP_INTERRUPT:
+			message = new InteruptCommando();
+			break;
+		case OP_NO_LOBBY_FOUND:
+			message = new NoLobbyFoundCommando();
+			break;
+		case OP_CHAT:
+			message = new String(frame, position, end - position, StandardCharsets.UTF_8);
+			position = end;
+			break;
+		case OP_FIND_GAME:
+			long rating = readCompleteVarint(frame, position, end);
+			position += varintLength(rating);
+			message = new FindGameCommando(unzigzag(rating));
+			break;
+		case OP_PING:
+			message = new PingCommando();
+			break;
+		case OP_PONG:
+			message = new PongCommando();
+			break;
+		case OP_RESUME:
+			long resumedLobby = readCompleteVarint(frame, position, end);
+			position += varintLength(resumedLobby);
+			checkLength(position + 8, end);
+			message = new ResumeCommando(unzigzag(resumedLobby), readLong(frame, position));
+			position += 8;
+			break;
+		case OP_SPECTATE:
+			long spectatedLobby = readCompleteVarint(frame, position, end);
+			position += varintLength(spectatedLobby);
+			message = new SpectateCommando(unzigzag(spectatedLobby));
+			break;
+		case OP_SNAPSHOT:
+			checkLength(position + 18, end);
+			long blackDiscs = readLong(frame, position);
+			long whiteDiscs = readLong(frame, position + 8);
+			int sideToMove = frame[position + 16];
+			boolean black = frame[position + 17] != 0;
+			position += 18;
+			long snapshotLobby = readCompleteVarint(frame, position, end);
+			position += varintLength(snapshotLobby);
+			if ((blackDiscs & whiteDiscs) != 0 || (sideToMove != PLAYER_BLACK && sideToMove != PLAYER_WHITE)) {
+				throw new StreamCorruptedException("Invalid snapshot");
+			}
+			message = new SnapshotCommando(unzigzag(snapshotLobby), black, blackDiscs, whiteDiscs, sideToMove);
+			break;
+		case OP_FORCED_RESULT:
+			checkLength(position + 1, end);
+			int winner = frame[position++];
+			if (winner != PLAYER_BLACK && winner != PLAYER_WHITE && winner != PLAYER_NOBODY) {
+				throw new StreamCorruptedException("Invalid winner " + winner);
+			}
+			message = new ForcedResultCommando(winner);
+			break;
+		default:
+			throw new StreamCorruptedException("Unknown opcode " + opcode);
+		}
+		if (position != end) {
+			throw new StreamCorruptedException("The frame of opcode " + opcode + " is too long");
+		}
+		return message;
+	}
+
+	/**
+	 * Writes the frame of the message, the caller flushes.
+	 * @param out the stream.
+	 * @param message one of the message types.
+	 * @throws IOException if writing fails.
+	 */
+	public static void writeMessage(OutputStream out, Object message) throws IOException {
+		out.write(encode(message));
+	}
+
+	/**
+	 * Reads the next frame, blocking.
+	 * @param in the stream.
+	 * @return the message.
+	 * @throws IOException if the stream ends or is corrupted.
+	 */
+	public static Object readMessage(InputStream in) throws IOException {
+		int length = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+			if (shift >= 14) {
+				throw new StreamCorruptedException("Invalid frame length");
+			}
+		}
+		if (length > MAX_FRAME_LENGTH) {
+			throw new StreamCorruptedException("Frame of " + length + " bytes is too long");
+		}
+		byte[] frame = new byte[length];
+		readFully(in, frame, 0, length);
+		return decode(frame, 0, length);
+	}
+
+	/**
+	 * @param bytes contains the varint.
+	 * @param position the start of the varint.
+	 * @param end the end of the readable bytes.
+	 * @return the value or -1, if the varint is incomplete.
+	 * @throws StreamCorruptedException if the varint is longer than 5 bytes.
+	 */
+	public static long readVarint(byte[] bytes, int position, int end) throws StreamCorruptedException {
+		long value = 0;
+		for (int shift = 0; position < end; shift += 7) {
+			if (shift > 28) {
+				throw new StreamCorruptedException("Invalid varint");
+			}
+			int b = bytes[position++];
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param value an unsigned value, at most 2^32 - 1.
+	 * @return the bytes of the value as a varint.
+	 */
+	public static int varintLength(long value) {
+		int length = 1;
+		while ((value >>>= 7) != 0) {
+			++length;
+		}
+		return length;
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int value) {
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			out.write(value >>> shift);
+		}
+	}
+
+	private static void writeLong(ByteArrayOutputStream out, long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (value >>> shift));
+		}
+	}
+
+	private static long readLong(byte[] bytes, int position) {
+		long value = 0;
+		for (int i = 0; i < 8; ++i) {
+			value = (value << 8) | (bytes[position + i] & 0xFF);
+		}
+		return value;
+	}
+
+	/* Small negative numbers, i.e. -1 to create a lobby, take one byte. */
+	private static long zigzag(int value) {
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	private static int unzigzag(long value) {
+		int bits = (int) value;
+		return (bits >>> 1) ^ -(bits & 1);
+	}
+
+	private static int squareOf(Coordinate c) {
+		if (c.getX() < 0 || c.getX() >= GAMEBOARD_SIZE || c.getY() < 0 || c.getY() >= GAMEBOARD_SIZE) {
+			throw new IllegalArgumentException("The coordinate is not on the board: " + c);
+		}
+		return c.getY() * GAMEBOARD_SIZE + c.getX();
+	}
+
+	private static Coordinate coordinateOf(byte square) throws StreamCorruptedException {
+		if (square < 0 || square >= GAMEBOARD_SIZE * GAMEBOARD_SIZE) {
+			throw new StreamCorruptedException("Invalid square " + square);
+		}
+		return new Coordinate(square % GAMEBOARD_SIZE, square / GAMEBOARD_SIZE);
+	}
+
+	private static long readCompleteVarint(byte[] frame, int position, int end) throws StreamCorruptedException {
+		long value = readVarint(frame, position, end);
+		if (value < 0) {
+			throw new StreamCorruptedException("The frame is too short");
+		}
+		return value;
+	}
+
+	private static void checkLength(int needed, int end) throws StreamCorruptedException {
+		if (needed > end) {
+			throw new StreamCorruptedException("The frame is too short");
+		}
+	}
+
+	private static void readFully(InputStream in, byte[] bytes, int offset, int length) throws IOException {
+		while (length > 0) {
+			int count = in.read(bytes, offset, length);
+			if (count < 0) {
+				throw new EOFException();
+			}
+			offset += count;
+			length -= count;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * 
+ */
+package org.game.othello.connection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class BinaryProtocolTest {
+
+	/**
+	 * Test method for {@link org.game.othello.connection.BinaryProtocol#encode(Object)}.
+	 * Every message type comes back as it was sent.
+	 */
+	@Test
+	public void testEncodeDecode() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Object[] messages = { -1, 0, 999, Integer.MIN_VALUE, Integer.MAX_VALUE, new InitializationCommando(true, 412),
+				new InitializationCommando(false, 100000), new Coordinate(0, 0), new Coordinate(7, 7), new Coordinate(5, 4),
+				new NoTurnIsPossibleCommand(), new GameEndsCommando(new Coordinate(3, 6)), new SurrenderCommando(),
+				new InteruptCommando(), new NoLobbyFoundCommando(), new FindGameCommando(1500), new FindGameCommando(-3),
+				new PingCommando(), new PongCommando(), new SpectateCommando(412), new ForcedResultCommando(OthelloConstants.PLAYER_WHITE),
+				new ForcedResultCommando(OthelloConstants.PLAYER_NOBODY), "Hello", "", "\u00e4\u20ac\ud83d\ude00" };
+		for (Object message : messages) {
+			BinaryProtocol.writeMessage(out, message);
+		}
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		for (Object message : messages) {
+			Object received = BinaryProtocol.readMessage(in);
+			Assert.assertEquals(message.getClass(), received.getClass());
+			if (message instanceof InitializationCommando) {
+				Assert.assertEquals(((InitializationCommando) message).getStartingPlayer(), ((InitializationCommando) received).getStartingPlayer());
+				Assert.assertEquals(((InitializationCommando) message).getLobbyNumer(), ((InitializationCommando) received).getLobbyNumer());
+			} else if (message instanceof SpectateCommando) {
+				Assert.assertEquals(((SpectateCommando) message).getLobbyNumber(), ((SpectateCommando) received).getLobbyNumber());
+			} else if (message instanceof FindGameCommando) {
+				Assert.assertEquals(((FindGameCommando) message).getRating(), ((FindGameCommando) received).getRating());
+			} else if (message instanceof ForcedResultCommando) {
+				Assert.assertEquals(((ForcedResultCommando) message).getWinner(), ((ForcedResultCommando) received).getWinner());
+			} else if (message instanceof GameEndsCommando) {
+				Assert.assertEquals(((GameEndsCommando) message).getLastIndex(), ((GameEndsCommando) received).getLastIndex());
+			} else if (message instanceof Integer || message instanceof Coordinate || message instanceof String) {
+				Assert.assertEquals(message, received);
+			}
+		}
+		Assert.assertEquals(0, in.available());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.BinaryProtocol#encode(Object)}.
+	 */
+	@Test
+	public void testFrameSize() throws IOException {
+		Assert.assertEquals(3, BinaryProtocol.encode(new Coordinate(5, 4)).length);
+		Assert.assertEquals(3, BinaryProtocol.encode(-1).length);
+		Assert.assertEquals(2, BinaryProtocol.encode(new NoTurnIsPossibleCommand()).length);
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(serialized);
+		out.writeObject(new Coordinate(5, 4));
+		out.flush();
+		Assert.assertTrue(serialized.size() > 20 * BinaryProtocol.encode(new Coordinate(5, 4)).length);
+
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2 * BinaryProtocol.MAX_CHAT_LENGTH; ++i) {
+			text.append('\u20ac');
+		}
+		byte[] frame = BinaryProtocol.encode(text.toString());
+		Assert.assertTrue(frame.length <= BinaryProtocol.MAX_FRAME_LENGTH + 2);
+		Assert.assertEquals(BinaryProtocol.MAX_CHAT_LENGTH, ((String) BinaryProtocol.readMessage(new ByteArrayInputStream(frame))).length());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.BinaryProtocol#encode(Object, int)}.
+	 * The session token is only sent to clients that can resume a game, the snapshot replaces the missed moves.
+	 */
+	@Test
+	public void testSession() throws IOException {
+		InitializationCommando init = new InitializationCommando(true, 412, 0x8123456789ABCDEFL);
+		InitializationCommando received = (InitializationCommando) BinaryProtocol.readMessage(new ByteArrayInputStream(
+				BinaryProtocol.encode(init)));
+		Assert.assertEquals(0x8123456789ABCDEFL, received.getSessionToken());
+		received = (InitializationCommando) BinaryProtocol.readMessage(new ByteArrayInputStream(
+				BinaryProtocol.encode(init, BinaryProtocol.VERSION_HEARTBEAT)));
+		Assert.assertEquals(0, received.getSessionToken());
+		Assert.assertEquals(412, received.getLobbyNumer());
+
+		ResumeCommando resume = (ResumeCommando) BinaryProtocol.readMessage(new ByteArrayInputStream(
+				BinaryProtocol.encode(new ResumeCommando(412, -7))));
+		Assert.assertEquals(412, resume.getLobbyNumber());
+		Assert.assertEquals(-7, resume.getSessionToken());
+
+		byte[] frame = BinaryProtocol.encode(new SnapshotCommando(412, false, 0x0000000810000000L, 0x0000001008000000L, 1));
+		Assert.assertTrue(frame.length <= 24);
+		SnapshotCommando snapshot = (SnapshotCommando) BinaryProtocol.readMessage(new ByteArrayInputStream(frame));
+		Assert.assertEquals(412, snapshot.getLobbyNumber());
+		Assert.assertFalse(snapshot.isBlack());
+		Assert.assertEquals(0x0000000810000000L, snapshot.getBlackDiscs());
+		Assert.assertEquals(0x0000001008000000L, snapshot.getWhiteDiscs());
+		Assert.assertEquals(1, snapshot.getSideToMove());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.BinaryProtocol#decode(byte[], int, int)}.
+	 */
+	@Test
+	public void testDecodeCorrupted() {
+		byte[][] frames = { {}, { 0 }, { 42 }, { BinaryProtocol.OP_MOVE }, { BinaryProtocol.OP_MOVE, 64 }, { BinaryProtocol.OP_MOVE, 1, 2 },
+				{ BinaryProtocol.OP_LOBBY, (byte) 0x80 }, { BinaryProtocol.OP_INITIALIZATION, 1 }, { BinaryProtocol.OP_SURRENDER, 0 },
+				{ BinaryProtocol.OP_INITIALIZATION, 1, 2, 3 }, { BinaryProtocol.OP_RESUME, 2, 1 },
+				{ BinaryProtocol.OP_FORCED_RESULT }, { BinaryProtocol.OP_FORCED_RESULT, 3 } };
+		for (byte[] frame : frames) {
+			try {
+				BinaryProtocol.decode(frame, 0, frame.length);
+				Assert.fail("Decoded a corrupted frame of " + frame.length + " bytes");
+			} catch (StreamCorruptedException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.BinaryProtocol#readMessage(java.io.InputStream)}.
+	 */
+	@Test(expected = StreamCorruptedException.class)
+	public void testReadTooLongFrame() throws IOException {
+		BinaryProtocol.readMessage(new ByteArrayInputStream(new byte[] { (byte) 0xFF, (byte) 0xFF, 0x7F }));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.BinaryProtocol#negotiate(int)}.
+	 */
+	@Test
+	public void testHandshake() throws IOException {
+		byte[] handshake = BinaryProtocol.handshake(BinaryProtocol.VERSION);
+		Assert.assertEquals(BinaryProtocol.HANDSHAKE_LENGTH, handshake.length);
+		Assert.assertTrue(BinaryProtocol.isHandshake(handshake[0]));
+		Assert.assertFalse(BinaryProtocol.isHandshake((byte) 0xAC));
+		Assert.assertEquals(BinaryProtocol.VERSION, BinaryProtocol.readHandshake(new ByteArrayInputStream(handshake)));
+		byte[] settings = BinaryProtocol.settings(45000, 0);
+		Assert.assertEquals(BinaryProtocol.SETTINGS_LENGTH, settings.length);
+		ByteArrayInputStream in = new ByteArrayInputStream(settings);
+		Assert.assertEquals(45000, BinaryProtocol.readSetting(in));
+		Assert.assertEquals(0, BinaryProtocol.readSetting(in));
+		Assert.assertEquals(BinaryProtocol.VERSION, BinaryProtocol.negotiate(BinaryProtocol.VERSION + 5));
+		Assert.assertEquals(0, BinaryProtocol.negotiate(0));
+		// A client of the first version gets no pings.
+		Assert.assertEquals(1, BinaryProtocol.negotiate(1));
+	}
+}
@@ -0,0 +1,32 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+/**
+ * Sent instead of a lobby number: the server should pair the client with an opponent of a similar rating.
+ * The client gets an {@link InitializationCommando} as soon as one is found.
+ * @author Oliver Scherf
+ */
+public class FindGameCommando implements Serializable {
+
+	private static final long serialVersionUID = 2211718946322150421L;
+
+	private int rating;
+
+	/**
+	 * @see FindGameCommando
+	 * @param rating the rating of the player.
+	 */
+	public FindGameCommando(int rating) {
+		this.rating = rating;
+	}
+
+	@Override
+	public String toString() {
+		return "Find a game, rating: " + this.rating;
+	}
+
+	public int getRating() {
+		return this.rating;
+	}
+}
@@ -0,0 +1,35 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Sent by the server to both players as soon as the rest of the game is decided under perfect play of both,
+ * see {@link org.game.othello.rules.EndgameSolver}. The game goes on, a player who makes a mistake may lose the
+ * forced result, then the new one is sent.
+ * @author Oliver Scherf
+ */
+public class ForcedResultCommando implements Serializable, OthelloConstants {
+
+	private static final long serialVersionUID = 6237794035135720958L;
+
+	private int winner;
+
+	/**
+	 * @see ForcedResultCommando
+	 * @param winner the player who wins with perfect play, {@link OthelloConstants#PLAYER_NOBODY} for a draw.
+	 */
+	public ForcedResultCommando(int winner) {
+		this.winner = winner;
+	}
+
+	@Override
+	public String toString() {
+		return this.winner == PLAYER_NOBODY ? "The game is a forced draw" : "Forced win of " + (this.winner == PLAYER_BLACK ? "Black" : "White");
+	}
+
+	public int getWinner() {
+		return this.winner;
+	}
+}
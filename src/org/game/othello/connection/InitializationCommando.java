@@ -4,6 +4,7 @@ import java.io.Serializable;
 
 /**
  * Gives the initial infomation for both players: LobbyNumber and the starting player.
+ * The session token lets the client resume the game after its connection broke, see {@link ResumeCommando}.
  * @author Oliver
  */
 public class InitializationCommando implements Serializable{
@@ -11,10 +12,17 @@ public class InitializationCommando implements Serializable{
 	private static final long serialVersionUID = 3742816512911668042L;
 	private Boolean startingPlayer;
 	private Integer lobbyNumber;
+	/* 0 if the game can not be resumed. Older clients do not have the field and ignore it. */
+	private long sessionToken;
 	
 	public InitializationCommando(Boolean startingPlayer, Integer lobbyNumer) {
+		this(startingPlayer, lobbyNumer, 0);
+	}
+
+	public InitializationCommando(Boolean startingPlayer, Integer lobbyNumer, long sessionToken) {
 		this.startingPlayer = startingPlayer;
 		this.lobbyNumber = lobbyNumer;
+		this.sessionToken = sessionToken;
 	}
 	
 	public boolean getStartingPlayer() {
@@ -24,4 +32,8 @@ public class InitializationCommando implements Serializable{
 	public int getLobbyNumer() {
 		return this.lobbyNumber;
 	}
+
+	public long getSessionToken() {
+		return this.sessionToken;
+	}
 }
@@ -0,0 +1,18 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+/**
+ * The heartbeat of the server, the client answers with a {@link PongCommando}.
+ * A connection that stays silent is dropped, i.e. a mobile client that lost the network.
+ * @author Oliver Scherf
+ */
+public class PingCommando implements Serializable {
+
+	private static final long serialVersionUID = -3305419851774165502L;
+
+	@Override
+	public String toString() {
+		return "Ping";
+	}
+}
@@ -0,0 +1,17 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+/**
+ * The answer of the client to a {@link PingCommando}, it is not forwarded to the opponent.
+ * @author Oliver Scherf
+ */
+public class PongCommando implements Serializable {
+
+	private static final long serialVersionUID = 6027113688450342958L;
+
+	@Override
+	public String toString() {
+		return "Pong";
+	}
+}
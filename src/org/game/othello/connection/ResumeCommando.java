@@ -0,0 +1,41 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+/**
+ * Sent instead of a lobby number after the connection to the server broke during a game. The session token of
+ * the {@link InitializationCommando} proves that the client is the player who left, the server answers with a
+ * {@link SnapshotCommando} of the game, or with a {@link NoLobbyFoundCommando} if the game is over.
+ * @author Oliver Scherf
+ */
+public class ResumeCommando implements Serializable {
+
+	private static final long serialVersionUID = -1408873914325069370L;
+
+	private int lobbyNumber;
+	private long sessionToken;
+
+	/**
+	 * @see ResumeCommando
+	 * @param lobbyNumber the lobby of the game.
+	 * @param sessionToken the token of the player, from the {@link InitializationCommando}.
+	 */
+	public ResumeCommando(int lobbyNumber, long sessionToken) {
+		this.lobbyNumber = lobbyNumber;
+		this.sessionToken = sessionToken;
+	}
+
+	@Override
+	public String toString() {
+		// The token is a secret, it is not logged.
+		return "Resume the game #" + this.lobbyNumber;
+	}
+
+	public int getLobbyNumber() {
+		return this.lobbyNumber;
+	}
+
+	public long getSessionToken() {
+		return this.sessionToken;
+	}
+}
@@ -0,0 +1,64 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+import org.game.othello.rules.BitBoard;
+
+/**
+ * The state of a game for a client that resumed its session: the discs of both players as bitmasks, see
+ * {@link BitBoard}, and the player on turn. The client continues from it instead of replaying the moves it missed.
+ * A spectator gets one when it starts watching and after it fell behind, see {@link SpectateCommando}.
+ * @author Oliver Scherf
+ */
+public class SnapshotCommando implements Serializable {
+
+	private static final long serialVersionUID = 4511546920316253183L;
+
+	private int lobbyNumber;
+	private boolean black;
+	private long blackDiscs;
+	private long whiteDiscs;
+	private int sideToMove;
+
+	/**
+	 * @see SnapshotCommando
+	 * @param lobbyNumber the lobby of the game.
+	 * @param black true, if the client plays Black, false for White and for a spectator.
+	 * @param blackDiscs the discs of Black.
+	 * @param whiteDiscs the discs of White.
+	 * @param sideToMove the player on turn.
+	 */
+	public SnapshotCommando(int lobbyNumber, boolean black, long blackDiscs, long whiteDiscs, int sideToMove) {
+		this.lobbyNumber = lobbyNumber;
+		this.black = black;
+		this.blackDiscs = blackDiscs;
+		this.whiteDiscs = whiteDiscs;
+		this.sideToMove = sideToMove;
+	}
+
+	@Override
+	public String toString() {
+		return "Snapshot of the game #" + this.lobbyNumber + ", " + Long.bitCount(this.blackDiscs) + " : "
+				+ Long.bitCount(this.whiteDiscs);
+	}
+
+	public int getLobbyNumber() {
+		return this.lobbyNumber;
+	}
+
+	public boolean isBlack() {
+		return this.black;
+	}
+
+	public long getBlackDiscs() {
+		return this.blackDiscs;
+	}
+
+	public long getWhiteDiscs() {
+		return this.whiteDiscs;
+	}
+
+	public int getSideToMove() {
+		return this.sideToMove;
+	}
+}
@@ -0,0 +1,33 @@
+package org.game.othello.connection;
+
+import java.io.Serializable;
+
+/**
+ * Sent instead of a lobby number: the client only watches the game of the lobby. It gets a {@link SnapshotCommando}
+ * of the board and then every move, pass and the end of the game, but no chat messages. A spectator that reads too
+ * slowly misses moves and gets a new snapshot instead.
+ * @author Oliver Scherf
+ */
+public class SpectateCommando implements Serializable {
+
+	private static final long serialVersionUID = -6329710518240447315L;
+
+	private int lobbyNumber;
+
+	/**
+	 * @see SpectateCommando
+	 * @param lobbyNumber the lobby of the game.
+	 */
+	public SpectateCommando(int lobbyNumber) {
+		this.lobbyNumber = lobbyNumber;
+	}
+
+	@Override
+	public String toString() {
+		return "Spectate the game #" + this.lobbyNumber;
+	}
+
+	public int getLobbyNumber() {
+		return this.lobbyNumber;
+	}
+}
@@ -1,7 +1,8 @@
 package org.game.othello.connection.client;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.Socket;
 import java.net.UnknownHostException;
@@ -10,11 +11,17 @@ import java.util.logging.Logger;
 
 import org.game.othello.GameController;
 import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.ForcedResultCommando;
 import org.game.othello.connection.GameEndsCommando;
 import org.game.othello.connection.InitializationCommando;
 import org.game.othello.connection.InteruptCommando;
 import org.game.othello.connection.NoLobbyFoundCommando;
 import org.game.othello.connection.NoTurnIsPossibleCommand;
+import org.game.othello.connection.PingCommando;
+import org.game.othello.connection.PongCommando;
+import org.game.othello.connection.ResumeCommando;
+import org.game.othello.connection.SnapshotCommando;
 import org.game.othello.connection.SurrenderCommando;
 import org.game.othello.connection.server.OthelloServer;
 import org.game.othello.interfaces.Loggable;
@@ -22,14 +29,26 @@ import org.game.othello.interfaces.OthelloConstants;
 
 /**
  * This Class handles the Connection to the server. 
+ * If the connection breaks during a game, i.e. after a network change, the client connects again every
+ * {@link #RECONNECT_INTERVAL_MILLIS} and resumes the game with the session token of the server.
  * @author Oliver Scherf
  */
 public class OthelloClient implements OthelloConstants, Loggable {
 
+	public static final long RECONNECT_INTERVAL_MILLIS = 2000;
+
 	private Logger logger;
-	private Socket clientSocket;
-	private ObjectOutputStream outputToServer;
+	private volatile Socket clientSocket;
+	private OutputStream outputToServer;
 	private int lobbyNumber;
+	/* From the InitializationCommando, 0 if the game can not be resumed. */
+	private volatile long sessionToken;
+	/* True while a ResumeCommando waits for its answer. */
+	private volatile boolean resuming;
+	/* Set when the game is over or the player left, the connection is not resumed then. */
+	private volatile boolean closed;
+	/* The grace period the server announced, it is the time the client tries to resume the game. */
+	private volatile long sessionGraceMillis = SESSION_GRACE_MILLIS;
 
 	/**
 	 * Instantiate a new OthelloClient.
@@ -48,15 +67,24 @@ public class OthelloClient implements OthelloConstants, Loggable {
 	}
 
 	/**
-	 * Create a socket to connect to the {@link OthelloServer} and initializes the 
-	 * Object In- and OutputStream.
+	 * Create a socket to connect to the {@link OthelloServer} and sends the handshake of the {@link BinaryProtocol},
+	 * the {@link ServerListener} reads the answer.
 	 * @throws UnknownHostException When the Host is not available.
 	 * @throws IOException when a IOException occurs.
 	 */
 	private void initialize() throws UnknownHostException, IOException {
-		this.clientSocket = new Socket(SERVER_IP, SERVER_PORT);
-		this.outputToServer = new ObjectOutputStream(this.clientSocket.getOutputStream());
-		Thread srvListener = new Thread(new ServerListener(this));
+		Socket socket = new Socket(SERVER_IP, SERVER_PORT);
+		OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+		output.write(BinaryProtocol.handshake(BinaryProtocol.VERSION));
+		output.flush();
+		// A reconnect replaces the streams, a message must not be written half to the old and half to the new one.
+		synchronized (this) {
+			this.clientSocket = socket;
+			this.outputToServer = output;
+		}
+		ServerListener listener = new ServerListener(this);
+		this.sessionGraceMillis = listener.getSessionGraceMillis();
+		Thread srvListener = new Thread(listener);
 		srvListener.setDaemon(true);
 		srvListener.start();
 		this.log(INFO, "Othello Client was initialized.");
@@ -68,7 +96,7 @@ public class OthelloClient implements OthelloConstants, Loggable {
 	public synchronized void sendObject(Object obj) {
 		if (obj != null) {
 			try {
-				this.outputToServer.writeObject(obj);
+				BinaryProtocol.writeMessage(this.outputToServer, obj);
 				this.outputToServer.flush();
 			} catch (IOException e) {
 				this.err("Error while sending message: " + obj.toString(), e);
@@ -89,12 +117,20 @@ public class OthelloClient implements OthelloConstants, Loggable {
 	 * 		  If obj is an instance of {@link NoTurnIsPossibleCommand} - see {@link NoTurnIsPossibleCommand}
 	 * 		  If obj is an instance of {@link SurrenderCommando} - see {@link SurrenderCommando}
 	 * 		  If obj is an instance of {@link NoLobbyFoundCommando} - see {@link NoLobbyFoundCommando}
+	 * 		  If obj is an instance of {@link PingCommando} - The server checks the connection, it gets a {@link PongCommando}.
+	 * 		  If obj is an instance of {@link SnapshotCommando} - The game was resumed after the connection broke, or the
+	 * 		  board of the game this client watches.
 	 */
 	public void serverObjectReceived(Object obj) {
+		if (obj instanceof PingCommando) {
+			this.sendObject(new PongCommando());
+			return;
+		}
 		this.log(INFO, "Server Object received: " + obj);
 		if (obj instanceof InitializationCommando) {
 			this.log(INFO, "InitializationCommando: " + ((InitializationCommando) obj).toString());
 			this.lobbyNumber = ((InitializationCommando) obj).getLobbyNumer();
+			this.sessionToken = ((InitializationCommando) obj).getSessionToken();
 			GameController.getSingleton().getGameLogic().startOnlineGame((InitializationCommando) obj);
 		} else if (obj instanceof Integer) {
 			this.lobbyNumber = (Integer) obj;
@@ -107,6 +143,11 @@ public class OthelloClient implements OthelloConstants, Loggable {
 		} else if (obj instanceof Coordinate) {
 			this.log(INFO, "Coordiante received: " + ((Coordinate) obj).toString());
 			GameController.getSingleton().handleServerTurn((Coordinate) obj);
+		} else if (obj instanceof SnapshotCommando) {
+			this.log(INFO, "ServerCommando received: " + ((SnapshotCommando) obj).toString());
+			this.resuming = false;
+			this.lobbyNumber = ((SnapshotCommando) obj).getLobbyNumber();
+			GameController.getSingleton().resumeOnlineGame((SnapshotCommando) obj);
 		} else if (obj instanceof InteruptCommando) {
 			this.log(INFO, "ServerCommando received: " + ((InteruptCommando) obj).toString());
 			GameController.getSingleton().handleInteruptCommando((InteruptCommando) obj);
@@ -116,21 +157,80 @@ public class OthelloClient implements OthelloConstants, Loggable {
 			this.closeConnection();
 		} else if (obj instanceof NoTurnIsPossibleCommand) {
 			this.log(INFO, "ServerCommando received: " + ((NoTurnIsPossibleCommand) obj).toString());
-			GameController.getSingleton().getGameLogic().setCurrentPlayer(GameController.getSingleton().getGameLogic().getClientPlayer());
-			GameController.getSingleton().getRenderController().update();
+			GameController.getSingleton().handleServerPass();
+		} else if (obj instanceof ForcedResultCommando) {
+			this.log(INFO, "ServerCommando received: " + ((ForcedResultCommando) obj).toString());
+			GameController.getSingleton().handleForcedResult((ForcedResultCommando) obj);
 		} else if (obj instanceof SurrenderCommando) {
 			this.log(INFO, "ServerCommando received: " + ((SurrenderCommando) obj).toString());
 			GameController.getSingleton().opponentSurrendered();
 		} else if (obj instanceof NoLobbyFoundCommando) {
 			this.log(INFO, "ServerCommando received: " + ((NoLobbyFoundCommando) obj).toString());
-			GameController.getSingleton().handleNoLobbyFound();
+			if (this.resuming) {
+				// The game ended or the grace period of the server is over.
+				GameController.getSingleton().handleResumeFailed();
+			} else {
+				GameController.getSingleton().handleNoLobbyFound();
+			}
 		} 
 	}
 
+	/**
+	 * The connection broke, called by the {@link ServerListener} of the socket. A running game is resumed on a new
+	 * connection, unless the connection was closed on purpose.
+	 * @param socket the socket of the listener.
+	 */
+	void connectionLost(Socket socket) {
+		if (this.closed || socket != this.clientSocket) {
+			return;
+		}
+		try {
+			socket.close();
+		} catch (IOException e) {
+			this.err("Error while closing the socket.", e);
+		}
+		if (this.sessionToken == 0) {
+			return;
+		}
+		GameController.getSingleton().connectionLost();
+		Thread reconnect = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				OthelloClient.this.resumeSession();
+			}
+		}, "Reconnect");
+		reconnect.setDaemon(true);
+		reconnect.start();
+	}
+
+	/**
+	 * Connects again until the grace period of the server is over and sends the {@link ResumeCommando}.
+	 */
+	private void resumeSession() {
+		long deadline = System.currentTimeMillis() + this.sessionGraceMillis;
+		while (!this.closed && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(RECONNECT_INTERVAL_MILLIS);
+				this.initialize();
+				this.resuming = true;
+				this.sendObject(new ResumeCommando(this.lobbyNumber, this.sessionToken));
+				return;
+			} catch (IOException e) {
+				this.log(INFO, "Reconnecting failed: " + e.getMessage());
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+		if (!this.closed) {
+			GameController.getSingleton().handleResumeFailed();
+		}
+	}
+
 	/**
 	 * Closes the socket to the server.
 	 */
 	public void closeConnection() {
+		this.closed = true;
 		try {
 			if (clientSocket != null) {
 				this.clientSocket.close();
@@ -1,32 +1,55 @@
 package org.game.othello.connection.client;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.game.othello.connection.BinaryProtocol;
 import org.game.othello.connection.server.OthelloServer;
 import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
 
 /**
  * This class listens for new Objects that come from the {@link OthelloServer}.
+ * Every connection gets its own listener, a lost connection is reported to the {@link OthelloClient}.
  * @author Oliver Scherf
  */
-public class ServerListener implements Loggable, Runnable {
+public class ServerListener implements Loggable, Runnable, OthelloConstants {
 
 	private Logger logger;
 	private OthelloClient othelloClient;
-	private ObjectInputStream inputFromServer;
+	private Socket socket;
+	private InputStream inputFromServer;
+	/* The settings of the server, the defaults for a server that does not send them. */
+	private long heartbeatTimeoutMillis = HEARTBEAT_TIMEOUT_MILLIS;
+	private long sessionGraceMillis = SESSION_GRACE_MILLIS;
 
 	/**
 	 * Instantiate a new ServerListener.
 	 * @param othelloClient
-	 * @throws IOException thrown when an error orrucs when instantiating the {@link ObjectInputStream}-
+	 * @throws IOException thrown when the server does not answer the handshake with a version this client speaks.
 	 */
 	public ServerListener(OthelloClient othelloClient) throws IOException {
 		this.initializeLogging();
 		this.othelloClient = othelloClient;
-		this.inputFromServer = new ObjectInputStream(this.othelloClient.getClientSocket().getInputStream());
+		this.socket = othelloClient.getClientSocket();
+		this.inputFromServer = new BufferedInputStream(this.socket.getInputStream());
+		int version = BinaryProtocol.readHandshake(this.inputFromServer);
+		if (version < 1 || version > BinaryProtocol.VERSION) {
+			throw new IOException("The server does not speak a version of the protocol this client knows: " + version);
+		}
+		if (version >= BinaryProtocol.VERSION_SETTINGS) {
+			this.heartbeatTimeoutMillis = BinaryProtocol.readSetting(this.inputFromServer);
+			this.sessionGraceMillis = BinaryProtocol.readSetting(this.inputFromServer);
+		}
+		if (version >= BinaryProtocol.VERSION_HEARTBEAT) {
+			// The server pings regularly, a longer silence means the connection is gone, i.e. after a network change.
+			this.socket.setSoTimeout((int) this.heartbeatTimeoutMillis);
+		}
 		this.log(INFO, "ServerListener was initialized.");
 	}
 
@@ -37,19 +60,27 @@ public class ServerListener implements Loggable, Runnable {
 	public void run() {
 		while (true) {
 			try {
-				Object received = this.inputFromServer.readObject();
-				if (received != null) {
-					this.othelloClient.serverObjectReceived(received);
-				} 
+				Object received = BinaryProtocol.readMessage(this.inputFromServer);
+				this.othelloClient.serverObjectReceived(received);
+			} catch (SocketTimeoutException e) {
+				this.log(INFO, "The server did not answer for " + this.heartbeatTimeoutMillis / 1000 + " seconds, closing the connection.");
+				this.othelloClient.connectionLost(this.socket);
+				break;
 			} catch (IOException e) {
 				this.log(INFO, "Server Connection lost.");
+				this.othelloClient.connectionLost(this.socket);
 				break;
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
 			}
 		}
 	}
 
+	/**
+	 * @return the time the server waits for a player to resume the game after the connection broke.
+	 */
+	public long getSessionGraceMillis() {
+		return this.sessionGraceMillis;
+	}
+
 	@Override
 	public void initializeLogging() {
 		this.logger = Logger.getLogger("Log.ServerListener");
@@ -1,33 +1,69 @@
 package org.game.othello.connection.server;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.game.othello.interfaces.Loggable;
 import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.FindGameCommando;
 import org.game.othello.connection.GameEndsCommando; 
 import org.game.othello.connection.InitializationCommando; 
 import org.game.othello.connection.NoTurnIsPossibleCommand; 
 import org.game.othello.connection.NoLobbyFoundCommando;
 import org.game.othello.connection.SurrenderCommando;
 import org.game.othello.connection.InteruptCommando;
+import org.game.othello.connection.PingCommando;
+import org.game.othello.connection.PongCommando;
+import org.game.othello.connection.ResumeCommando;
+import org.game.othello.connection.SpectateCommando;
 
 /**
+ * The connection of a client with a thread of its own. The thread reads the messages of the client, the messages
+ * to a player are written by the thread that sends them. A spectator gets a second thread that writes its queued
+ * frames, so a spectator that does not read can not block the players of the game it watches. Both threads are
+ * virtual threads if the server runs its clients on them.
  * @author Oliver Scherf
  */
 @SuppressWarnings("unused") // We need these unused imports, to avoid ClassNotFound Exception
-public class ClientConnection implements Runnable, Loggable, OthelloConstants {
+public class ClientConnection implements PlayerConnection, Runnable, Loggable, OthelloConstants {
 
 	private Logger logger;
 	private Socket socket;
 	private ObjectInputStream inputFromClient;
-	private ObjectOutputStream outputToClient;
-	private GameLobby lobby;
+	private StreamingObjectOutputStream outputToClient;
+	/* Used instead of the object streams, if the client speaks the BinaryProtocol. */
+	private InputStream binaryInputFromClient;
+	private OutputStream binaryOutputToClient;
+	/* The version of the BinaryProtocol both sides speak. */
+	private int binaryVersion;
+	/* The frames for a spectator, written by its writer thread, null for a player. */
+	private volatile BlockingQueue<byte[]> spectatorFrames;
+	private final AtomicInteger spectatorPendingBytes = new AtomicInteger();
+	/* Queued after the last frame, the writer closes the socket when it gets there. */
+	private static final byte[] CLOSE_AFTER_WRITING = new byte[0];
+	private long binaryBytesWritten;
+	/* Set by the matchmaking thread for players that look for an opponent. */
+	private volatile GameLobby lobby;
 	private OthelloServer srv;
+	private final HeartbeatMonitor.Heartbeat heartbeat;
+	/* False, if the client left or was dropped before its streams were opened. */
+	private boolean initialized;
 
 	/**
 	 * Instantiate a new Connection.
@@ -38,39 +74,125 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 		this.initializeLogging();
 		this.srv = srv;
 		this.socket = socket;
+		// A client that never sends anything is dropped by the heartbeat.
+		this.heartbeat = srv.getHeartbeatMonitor().watch(this, new Runnable() {
+			@Override
+			public void run() {
+				ClientConnection.this.heartbeatMissed();
+			}
+		});
 		try {
-			this.inputFromClient = new ObjectInputStream(this.socket.getInputStream());
-			this.outputToClient = new ObjectOutputStream(this.socket.getOutputStream());
-			this.outputToClient.flush();
+			this.socket.setKeepAlive(true);
+			// The first byte tells the protocol of the client.
+			PushbackInputStream input = new PushbackInputStream(this.socket.getInputStream(), 1);
+			int firstByte = input.read();
+			if (firstByte < 0) {
+				throw new EOFException();
+			}
+			input.unread(firstByte);
+			if (BinaryProtocol.isHandshake((byte) firstByte)) {
+				this.initializeBinaryProtocol(input);
+			} else {
+				this.inputFromClient = new ObjectInputStream(input);
+				this.outputToClient = new StreamingObjectOutputStream(this.socket.getOutputStream());
+				this.outputToClient.flush();
+				// Older clients do not answer pings and may wait silently for their opponent.
+				this.heartbeat.stop();
+			}
+			this.initialized = true;
+			this.log(INFO, "Successfully created a connection to " + this.socket.getInetAddress());
 		} catch (IOException e) {
 			this.err("Error while initializing ObjectIn- or Outputstream", e);
+			this.heartbeat.stop();
+			this.closeSocket();
+		}
+	}
+
+	/**
+	 * Answers the handshake of the client.
+	 * @param input the stream of the client, at the handshake.
+	 * @throws IOException if the handshake is invalid or can not be answered.
+	 */
+	private void initializeBinaryProtocol(InputStream input) throws IOException {
+		this.binaryInputFromClient = new BufferedInputStream(input);
+		this.binaryOutputToClient = new BufferedOutputStream(this.socket.getOutputStream());
+		int version = BinaryProtocol.readHandshake(this.binaryInputFromClient);
+		int accepted = BinaryProtocol.negotiate(version);
+		this.binaryOutputToClient.write(BinaryProtocol.handshake(accepted));
+		this.binaryBytesWritten += BinaryProtocol.HANDSHAKE_LENGTH;
+		if (accepted == 0) {
+			this.binaryOutputToClient.flush();
+			this.socket.close();
+			throw new IOException("The client speaks no supported version of the protocol: " + version);
+		}
+		if (accepted >= BinaryProtocol.VERSION_SETTINGS) {
+			this.binaryOutputToClient.write(this.srv.getProtocolSettings());
+			this.binaryBytesWritten += BinaryProtocol.SETTINGS_LENGTH;
+		}
+		this.binaryOutputToClient.flush();
+		this.binaryVersion = accepted;
+		this.heartbeat.received();
+		if (accepted >= BinaryProtocol.VERSION_HEARTBEAT) {
+			this.heartbeat.startPinging();
+			// The client answers every ping, a read that waits longer than the timeout waits for a lost client.
+			this.socket.setSoTimeout((int) this.srv.getHeartbeatTimeoutMillis());
+		} else {
+			this.heartbeat.stop();
+		}
+	}
+
+	/**
+	 * The client did not answer in time, called by the {@link HeartbeatMonitor}.
+	 */
+	private void heartbeatMissed() {
+		GameLobby lobby = this.lobby;
+		if (lobby != null && lobby.getState() != ONLINE_GAME_STATE_FINISHED) {
+			lobby.handleConnectionLost(this);
+		}
+		this.closeSocket();
+	}
+
+	/**
+	 * Pongs only feed the heartbeat.
+	 * @return the next message of the client, blocking, null for a pong.
+	 */
+	private Object readMessage() throws IOException, ClassNotFoundException {
+		Object obj;
+		if (this.binaryInputFromClient != null) {
+			obj = BinaryProtocol.readMessage(this.binaryInputFromClient);
+		} else {
+			obj = this.inputFromClient.readObject();
 		}
-		this.log(INFO, "Successfully created a connection to " + this.socket.getInetAddress());
+		this.heartbeat.received();
+		return obj instanceof PongCommando ? null : obj;
 	}
 
 	@Override
 	public void run() {
+		if (!this.initialized) {
+			this.log(WARNING, "The connection to " + this.socket.getInetAddress() + " could not be initialized, the thread terminates.");
+			return;
+		}
 		if (!this.waitForLobbyNumberAndVerify()) {
 			return;
 		}
 		while (true) {
 			try {
-				Object obj = this.inputFromClient.readObject();
-				if (obj instanceof GameEndsCommando || 
-						obj instanceof SurrenderCommando) {
-					this.log(INFO, "The game " + this.lobby.toString() + " is ending now.");
+				Object obj = this.readMessage();
+				if (obj != null) {
 					this.clientObjectReceived(obj);
-					this.lobby.endGame();
+				}
+				// The lobby decides when the game is over, i.e. after the last move or a surrender.
+				if (this.lobby != null && this.lobby.getState() == ONLINE_GAME_STATE_FINISHED) {
+					this.log(INFO, "The game " + this.lobby.toString() + " is over.");
 					break;
-				} else if (obj != null) {
-					this.clientObjectReceived(obj);
 				}
 			} catch (IOException e) {
 				this.log(WARNING, "IOException (Connection lost or game ended normally.): " + this.socket.getInetAddress() + ". Closing the game now.");
 				if (this.lobby != null && this.lobby.getState() != ONLINE_GAME_STATE_FINISHED) {
 					this.lobby.handleConnectionLost(this);
 				}
-				this.closeConnection();
+				this.closeSocket();
 				break;
 			} catch (ClassNotFoundException e) {
 				this.err("Class was not found, please make sure client and server are up to date! Closing connection now.", e);
@@ -85,13 +207,16 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 		this.log(INFO, "The Thread of the client " + this.getSocket().getInetAddress() + " terminated normally.");
 	}
 	/**
-	 * This method tries to find or create a lobby.
-	 * @return true, when the first object was an Integer.
+	 * This method tries to find or create a lobby, puts the client into the matchmaking queue, resumes its game or
+	 * lets it watch a game.
+	 * @return true, when the first object was an Integer, a FindGameCommando, a ResumeCommando or a SpectateCommando.
 	 */
 	private boolean waitForLobbyNumberAndVerify() {
 		Object obj = null;
 		try {
-			obj = this.inputFromClient.readObject();
+			do {
+				obj = this.readMessage();
+			} while (obj == null);
 		} catch (IOException e) {
 			this.err("Error while receiving first object. Closing connection now.", e);
 			this.closeConnection();
@@ -101,11 +226,20 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 			this.closeConnection();
 			return false;
 		}
-		// The first object has to be the lobby number.
+		// The first object has to be the lobby number, the request for an opponent or the resumption of a game.
 		if (obj instanceof Integer) {
 			this.srv.findAndJoinLobby((Integer) obj, this);
+		} else if (obj instanceof FindGameCommando) {
+			this.srv.findMatch((FindGameCommando) obj, this);
+		} else if (obj instanceof ResumeCommando && this.canResume()) {
+			return this.srv.resumeSession((ResumeCommando) obj, this);
+		} else if (obj instanceof SpectateCommando && this.binaryOutputToClient != null
+				&& this.binaryVersion >= BinaryProtocol.VERSION_SPECTATE) {
+			this.startSpectatorWriter();
+			return this.srv.spectate((SpectateCommando) obj, this);
 		} else {
-			this.log(ERROR, "The first object was not an Integer. Closing connection now.");
+			this.log(ERROR, "The first object was not an Integer, a FindGameCommando, a ResumeCommando or a SpectateCommando."
+					+ " Closing connection now.");
 			this.closeConnection();
 			return false;
 		}
@@ -113,17 +247,19 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 	}
 
 	/**
-	 * Forwards the Object to the opponent.
+	 * Hands the Object to the lobby, which checks it and forwards it to the opponent.
 	 * @param obj the object to be send to the opponent.
 	 * @throws InterruptedException
 	 */
 	private void clientObjectReceived(Object obj) throws InterruptedException {
 		this.log(INFO, this.socket.getInetAddress() + ": Received an Object: " + obj.toString());
+		GameLobby lobby = this.lobby;
 		if (lobby != null && lobby.getState() == ONLINE_GAME_STATE_STARTED) {
-			this.lobby.forwardObjectToOtherPlayer(obj, this);
+			lobby.receiveObject(obj, this);
 		}
 	}
 	
+	@Override
 	public void setLobby(GameLobby lobby) {
 		this.lobby = lobby;
 	}
@@ -132,10 +268,24 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 	 * Sends the obj to the client.
 	 * @param obj the object that should be send.
 	 */
-	public void sendObject(Object obj) {
+	@Override
+	public synchronized void sendObject(Object obj) {
+		if (this.spectatorFrames != null) {
+			// The snapshot and the pings of a spectator take the same way as the moves.
+			byte[] frame = BinaryProtocol.encode(obj, this.binaryVersion);
+			this.spectatorPendingBytes.addAndGet(frame.length);
+			this.spectatorFrames.add(frame);
+			return;
+		}
 		try {
-			this.outputToClient.writeObject(obj);
-			this.outputToClient.flush();
+			if (this.binaryOutputToClient != null) {
+				byte[] frame = BinaryProtocol.encode(obj, this.binaryVersion);
+				this.binaryOutputToClient.write(frame);
+				this.binaryOutputToClient.flush();
+				this.binaryBytesWritten += frame.length;
+			} else {
+				this.outputToClient.writeMessage(obj);
+			}
 			this.log(INFO, "Send " + obj.toString() + " to the client " + this.socket.getInetAddress());
 		} catch (IOException e) {
 			this.err("Error while sending object: " + obj.toString(), e);
@@ -143,9 +293,98 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 	}
 	
 	/**
-	 * Closes the socket.
+	 * Queues the frame for the writer of a spectator, a player gets it at once.
+	 */
+	@Override
+	public boolean offerFrame(byte[] frame, int maxPendingBytes) {
+		BlockingQueue<byte[]> frames = this.spectatorFrames;
+		if (frames == null) {
+			synchronized (this) {
+				try {
+					this.binaryOutputToClient.write(frame);
+					this.binaryOutputToClient.flush();
+					this.binaryBytesWritten += frame.length;
+				} catch (IOException e) {
+					this.err("Error while sending a frame", e);
+				}
+			}
+			return true;
+		}
+		if (this.spectatorPendingBytes.get() + frame.length > maxPendingBytes) {
+			return false;
+		}
+		this.spectatorPendingBytes.addAndGet(frame.length);
+		frames.add(frame);
+		return true;
+	}
+
+	/**
+	 * From now on the messages to the client are queued and written by a thread of their own.
 	 */
+	private void startSpectatorWriter() {
+		this.spectatorFrames = new LinkedBlockingQueue<byte[]>();
+		Runnable writer = new Runnable() {
+			@Override
+			public void run() {
+				ClientConnection.this.writeSpectatorFrames();
+			}
+		};
+		ExecutorService executor = this.srv.getClientExecutor();
+		if (executor != null) {
+			executor.execute(writer);
+			return;
+		}
+		Thread thread = new Thread(writer, "Spectator " + this.socket.getInetAddress());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Writes the queued frames until the socket is closed, the frames that are waiting are written at once.
+	 */
+	private void writeSpectatorFrames() {
+		BlockingQueue<byte[]> frames = this.spectatorFrames;
+		try {
+			while (!this.socket.isClosed()) {
+				byte[] frame = frames.poll(1, TimeUnit.SECONDS);
+				if (frame == null) {
+					continue;
+				}
+				// Only this thread writes to a spectator, it does not take the lock the senders of the pings wait for.
+				do {
+					if (frame == CLOSE_AFTER_WRITING) {
+						this.binaryOutputToClient.flush();
+						this.closeSocket();
+						return;
+					}
+					this.binaryOutputToClient.write(frame);
+					this.binaryBytesWritten += frame.length;
+					this.spectatorPendingBytes.addAndGet(-frame.length);
+				} while ((frame = frames.poll()) != null);
+				this.binaryOutputToClient.flush();
+			}
+		} catch (IOException e) {
+			this.log(WARNING, "Error while writing to the spectator " + this.socket.getInetAddress() + ", closing the connection.");
+			this.closeSocket();
+		} catch (InterruptedException e) {
+			this.closeSocket();
+		}
+	}
+
+	/**
+	 * Closes the socket, a spectator gets its queued frames first.
+	 */
+	@Override
 	public void closeConnection() {
+		BlockingQueue<byte[]> frames = this.spectatorFrames;
+		if (frames != null) {
+			frames.add(CLOSE_AFTER_WRITING);
+			return;
+		}
+		this.closeSocket();
+	}
+
+	private void closeSocket() {
 		try {
 			if (!this.socket.isClosed()) {
 				this.socket.close();
@@ -155,6 +394,36 @@ public class ClientConnection implements Runnable, Loggable, OthelloConstants {
 		}
 	}
 
+	@Override
+	public boolean isClosed() {
+		return this.socket.isClosed();
+	}
+
+	@Override
+	public InetAddress getInetAddress() {
+		return this.socket.getInetAddress();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return this.outputToClient != null ? this.outputToClient.getBytesWritten() : this.binaryBytesWritten;
+	}
+
+	@Override
+	public int getRetainedHandles() {
+		return this.outputToClient != null ? this.outputToClient.getRetainedHandles() : 0;
+	}
+
+	@Override
+	public boolean canResume() {
+		return this.binaryOutputToClient != null && this.binaryVersion >= BinaryProtocol.VERSION_SESSION;
+	}
+
+	@Override
+	public boolean canReceiveForcedResult() {
+		return this.binaryOutputToClient != null && this.binaryVersion >= BinaryProtocol.VERSION_FORCED_RESULT;
+	}
+
 	public Socket getSocket() {
 		return this.socket;
 	}
@@ -0,0 +1,212 @@
+package org.game.othello.connection.server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens many idle connections to an in-process {@link OthelloServer} and measures what each connection costs
+ * the server: the heap, the resident memory, the platform threads and the time until the server answers
+ * the stream header. The connections wait for the lobby number, like clients that are still in the menu.
+ * Run one mode per JVM, the resident memory of a JVM does not shrink after a run.
+ * @author Oliver Scherf
+ */
+public class ConnectionLoadTester {
+
+	public static final int DEFAULT_CONNECTIONS = 2000;
+	private static final int WARMUP_CONNECTIONS = 200;
+	private static final byte[] STREAM_HEADER = { (byte) (ObjectStreamConstants.STREAM_MAGIC >> 8),
+			(byte) ObjectStreamConstants.STREAM_MAGIC, 0, (byte) ObjectStreamConstants.STREAM_VERSION };
+
+	private final String mode;
+	private final int connections;
+	private final long[] latencies;
+	private final List<Socket> sockets = new ArrayList<Socket>();
+	private long heapBefore, heapAfter;
+	private long residentBefore, residentAfter;
+	private int threadsBefore, threadsAfter;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String mode = "thread";
+		int connections = DEFAULT_CONNECTIONS;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-mode":
+				mode = args[i + 1];
+				break;
+			case "-connections":
+				connections = Integer.parseInt(args[i + 1]);
+				break;
+			default:
+				System.out.println("Usage: java org.game.othello.connection.server.ConnectionLoadTester [-mode thread|virtual|nio]"
+						+ " [-connections n]");
+				return;
+			}
+		}
+		ConnectionLoadTester tester = new ConnectionLoadTester(mode, connections);
+		tester.run();
+		tester.printSummary();
+	}
+
+	/**
+	 * Instantiates a new ConnectionLoadTester.
+	 * @param mode thread for a platform thread per client, virtual for a virtual thread per client, nio for event loops.
+	 * @param connections the number of connections to open.
+	 */
+	public ConnectionLoadTester(String mode, int connections) {
+		if (!mode.equals("thread") && !mode.equals("virtual") && !mode.equals("nio")) {
+			throw new IllegalArgumentException("Unknown mode: " + mode);
+		}
+		this.mode = mode;
+		this.connections = connections;
+		this.latencies = new long[connections];
+	}
+
+	/**
+	 * Starts the server, opens the connections and takes the measurements.
+	 * @throws IOException if a connection fails, i.e. because of the limit of open files.
+	 * @throws InterruptedException if interrupted while waiting for the server.
+	 */
+	public void run() throws IOException, InterruptedException {
+		int eventLoops = this.mode.equals("nio") ? Runtime.getRuntime().availableProcessors() : 0;
+		OthelloServer srv = new OthelloServer(0, eventLoops, this.mode.equals("virtual"));
+		// Every connection and every disconnect is logged, that would flood the console and distort the time.
+		Logger.getLogger("Log.Server").setLevel(Level.OFF);
+		Thread srvThread = new Thread(srv);
+		srvThread.setDaemon(true);
+		srvThread.start();
+		try {
+			for (int i = 0; i < WARMUP_CONNECTIONS; ++i) {
+				this.connect(srv.getPort());
+			}
+			this.closeSockets();
+			Thread.sleep(500);
+			this.collectGarbage();
+			this.heapBefore = usedHeap();
+			this.residentBefore = residentMemory();
+			this.threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+			for (int i = 0; i < this.connections; ++i) {
+				this.latencies[i] = this.connect(srv.getPort());
+			}
+			Thread.sleep(500);
+			this.collectGarbage();
+			this.heapAfter = usedHeap();
+			this.residentAfter = residentMemory();
+			this.threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+		} finally {
+			this.closeSockets();
+			srv.close();
+		}
+		Arrays.sort(this.latencies);
+	}
+
+	/**
+	 * Opens a connection, sends the stream header and waits for the header of the server.
+	 * @param port the port of the server.
+	 * @return the time in nanoseconds.
+	 */
+	private long connect(int port) throws IOException {
+		long start = System.nanoTime();
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.sockets.add(socket);
+		socket.getOutputStream().write(STREAM_HEADER);
+		new DataInputStream(socket.getInputStream()).readFully(new byte[STREAM_HEADER.length]);
+		return System.nanoTime() - start;
+	}
+
+	private void closeSockets() throws IOException {
+		for (Socket socket : this.sockets) {
+			socket.close();
+		}
+		this.sockets.clear();
+	}
+
+	private void collectGarbage() throws InterruptedException {
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+			Thread.sleep(100);
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * The resident memory contains the stacks of the threads, which are not part of the heap.
+	 * @return the resident memory of the JVM in bytes or -1, if it is unknown (only read on Linux).
+	 */
+	private static long residentMemory() {
+		Path status = Paths.get("/proc/self/status");
+		if (!Files.isReadable(status)) {
+			return -1;
+		}
+		try {
+			for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+				if (line.startsWith("VmRSS:")) {
+					return 1024 * Long.parseLong(line.replaceAll("[^0-9]", ""));
+				}
+			}
+		} catch (IOException e) {
+			return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param percentile between 0 and 100.
+	 * @return the time until the server answered, in microseconds.
+	 */
+	public double getLatencyPercentile(int percentile) {
+		int index = Math.min(this.latencies.length - 1, (int) Math.ceil(percentile / 100.0 * this.latencies.length) - 1);
+		return this.latencies[Math.max(0, index)] / 1000.0;
+	}
+
+	/**
+	 * @return the heap each connection costs, in bytes.
+	 */
+	public long getHeapPerConnection() {
+		return (this.heapAfter - this.heapBefore) / this.connections;
+	}
+
+	/**
+	 * @return the resident memory each connection costs in bytes, -1 if unknown.
+	 */
+	public long getResidentMemoryPerConnection() {
+		return this.residentBefore < 0 ? -1 : (this.residentAfter - this.residentBefore) / this.connections;
+	}
+
+	/**
+	 * @return the platform threads that were started for the connections.
+	 */
+	public int getAddedThreads() {
+		return this.threadsAfter - this.threadsBefore;
+	}
+
+	/**
+	 * Prints the measurements, the client sockets are part of the same JVM and cost the same in every mode.
+	 */
+	public void printSummary() {
+		System.out.println(String.format("Mode %s, %d connections on Java %s", this.mode, this.connections,
+				System.getProperty("java.version")));
+		System.out.println(String.format("Heap per connection:     %8.1f KB", getHeapPerConnection() / 1024.0));
+		System.out.println(String.format("Resident per connection: %8.1f KB", getResidentMemoryPerConnection() / 1024.0));
+		System.out.println(String.format("Platform threads added:  %6d", getAddedThreads()));
+		System.out.println(String.format("Accept latency p50 %.0f us, p90 %.0f us, p99 %.0f us, max %.0f us", getLatencyPercentile(50),
+				getLatencyPercentile(90), getLatencyPercentile(99), getLatencyPercentile(100)));
+	}
+}
@@ -27,11 +27,14 @@ public class ConsoleListener implements Runnable {
 			if (cmd.equals("help")) {
 				System.out.println("Commands are:");
 				System.out.println("\thelp - printing this");
-				System.out.println("\tlistlobbies - list all existing lobbies");
+				System.out.println("\tlistlobbies - list all existing lobbies, the traffic of their players and their spectators");
 				System.out.println("\tkill <lobby number> - forces to close the connection of both players");
+				System.out.println("\tmatchmaking - players waiting for an opponent and the time to match");
 				System.out.println("\tquit - stops the server");
 			} else if (cmd.equals("listlobbies")) {
 				this.srv.listLobbies();
+			} else if (cmd.equals("matchmaking")) {
+				this.srv.printMatchmakingStats();
 			} else if (cmd.startsWith("kill")) {
 				this.srv.killLobby(cmd);
 			} else if (cmd.equals("quit")) {
@@ -0,0 +1,91 @@
+package org.game.othello.connection.server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.connection.ForcedResultCommando;
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.game.othello.rules.EndgameSolver;
+
+/**
+ * Solves the positions of the online games as soon as at most {@link #MAX_EMPTIES} squares are empty, the
+ * {@link GameLobby} tells its players the {@link ForcedResultCommando}. Only win, draw or loss is searched, which
+ * takes a few milliseconds at this depth. The solver is shared by all lobbies, so the executor has to run one
+ * task at a time. A position the game already left behind is skipped without solving it.
+ * @author Oliver Scherf
+ */
+class EndgameAnnouncer implements Loggable, OthelloConstants {
+
+	public static final int MAX_EMPTIES = 14;
+
+	private Logger logger;
+	/* Only used by the single thread of the executor. */
+	private final EndgameSolver solver = new EndgameSolver(MAX_EMPTIES);
+	private final Executor executor;
+
+	/**
+	 * Instantiates a new EndgameAnnouncer.
+	 * @param executor runs the searches, one at a time.
+	 */
+	EndgameAnnouncer(Executor executor) {
+		this.initializeLogging();
+		this.executor = executor;
+	}
+
+	/**
+	 * Solves the position in the background if few enough squares are empty.
+	 * @param lobby the game of the position.
+	 * @param position a copy of the board of the lobby, the side to move of the position is on turn.
+	 * @param ply the number of moves and passes of the game that lead to the position.
+	 */
+	void submit(final GameLobby lobby, final BitBoard position, final int ply) {
+		if (!this.solver.canSolve(position)) {
+			return;
+		}
+		try {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					EndgameAnnouncer.this.solve(lobby, position, ply);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// The server shuts down.
+		}
+	}
+
+	private void solve(GameLobby lobby, BitBoard position, int ply) {
+		if (!lobby.isCurrentPly(ply)) {
+			return;
+		}
+		try {
+			int score = this.solver.solve(position, -1, 1);
+			int side = position.getSideToMove();
+			int winner = score == 0 ? PLAYER_NOBODY : score > 0 ? side : BitBoard.opponentOf(side);
+			lobby.forcedResultSolved(winner, ply);
+		} catch (RuntimeException e) {
+			// An exception would stop the executor from solving the positions of the other lobbies.
+			this.err("Solving the game #" + lobby.getLobbyNumber() + " failed", e);
+		}
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.EndgameAnnouncer");
+		this.logger.setLevel(null);
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.game.othello.connection.InitializationCommando;
+
+/**
+ * A player that keeps what the server sends, for the tests of the lobbies, the matchmaking and the heartbeat.
+ * @author Oliver Scherf
+ */
+class FakePlayerConnection implements PlayerConnection {
+
+	final List<Object> received = new ArrayList<Object>();
+	final List<byte[]> frames = new ArrayList<byte[]>();
+	GameLobby lobby;
+	/* Set to drop every offered frame within the limit of the spectators, like a client that does not read. */
+	boolean full;
+	private boolean closed;
+
+	@Override
+	public void sendObject(Object obj) {
+		this.received.add(obj);
+	}
+
+	@Override
+	public boolean offerFrame(byte[] frame, int maxPendingBytes) {
+		if (this.full && maxPendingBytes <= SpectatorGroup.MAX_PENDING_BYTES) {
+			return false;
+		}
+		this.frames.add(frame);
+		return true;
+	}
+
+	@Override
+	public void closeConnection() {
+		this.closed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	@Override
+	public InetAddress getInetAddress() {
+		return InetAddress.getLoopbackAddress();
+	}
+
+	@Override
+	public void setLobby(GameLobby lobby) {
+		this.lobby = lobby;
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return 0;
+	}
+
+	@Override
+	public int getRetainedHandles() {
+		return 0;
+	}
+
+	@Override
+	public boolean canResume() {
+		return true;
+	}
+
+	@Override
+	public boolean canReceiveForcedResult() {
+		return true;
+	}
+
+	InitializationCommando getInitialization() {
+		return this.received.isEmpty() ? null : (InitializationCommando) this.received.get(0);
+	}
+}
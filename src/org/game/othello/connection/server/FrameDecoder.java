@@ -0,0 +1,81 @@
+package org.game.othello.connection.server;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.game.othello.connection.BinaryProtocol;
+
+/**
+ * Reads the handshake and the frames of the {@link BinaryProtocol} from bytes that arrive in arbitrary pieces.
+ * Unlike an object stream, a frame does not refer to earlier frames, so the bytes of a frame are dropped
+ * as soon as it was decoded.
+ * @author Oliver Scherf
+ */
+class FrameDecoder implements MessageDecoder {
+
+	private byte[] data = new byte[64];
+	private int length;
+	private int position;
+	private boolean handshakeRead;
+
+	@Override
+	public void feed(ByteBuffer source) throws IOException {
+		int count = source.remaining();
+		if (this.position > 0 && this.length + count > this.data.length) {
+			// Drop the decoded frames before the array grows.
+			System.arraycopy(this.data, this.position, this.data, 0, this.length - this.position);
+			this.length -= this.position;
+			this.position = 0;
+		}
+		if (this.length + count > this.data.length) {
+			if (this.length + count > 2 * BinaryProtocol.MAX_FRAME_LENGTH) {
+				throw new IOException("The client sent more than " + 2 * BinaryProtocol.MAX_FRAME_LENGTH + " bytes that were not read.");
+			}
+			this.data = Arrays.copyOf(this.data, Math.max(this.length + count, 2 * this.data.length));
+		}
+		source.get(this.data, this.length, count);
+		this.length += count;
+	}
+
+	/**
+	 * Reads the handshake, it comes before the first frame.
+	 * @return the version of the client or -1, if the handshake is incomplete.
+	 * @throws StreamCorruptedException if the client sent no handshake.
+	 */
+	int readHandshake() throws StreamCorruptedException {
+		if (this.length - this.position < BinaryProtocol.HANDSHAKE_LENGTH) {
+			return -1;
+		}
+		int version = BinaryProtocol.parseHandshake(this.data, this.position);
+		this.position += BinaryProtocol.HANDSHAKE_LENGTH;
+		this.handshakeRead = true;
+		return version;
+	}
+
+	@Override
+	public Object next() throws IOException {
+		if (!this.handshakeRead) {
+			return null;
+		}
+		long frameLength = BinaryProtocol.readVarint(this.data, this.position, this.length);
+		if (frameLength < 0) {
+			return null;
+		}
+		if (frameLength > BinaryProtocol.MAX_FRAME_LENGTH) {
+			throw new StreamCorruptedException("Frame of " + frameLength + " bytes is too long");
+		}
+		int start = this.position + BinaryProtocol.varintLength(frameLength);
+		if (start + frameLength > this.length) {
+			return null;
+		}
+		Object message = BinaryProtocol.decode(this.data, start, (int) frameLength);
+		this.position = start + (int) frameLength;
+		if (this.position == this.length) {
+			this.position = 0;
+			this.length = 0;
+		}
+		return message;
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.SurrenderCommando;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class FrameDecoderTest {
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.FrameDecoder#next()}.
+	 * The handshake and the frames are read, no matter how the bytes are split.
+	 */
+	@Test
+	public void testNextBytewise() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(BinaryProtocol.handshake(BinaryProtocol.VERSION));
+		BinaryProtocol.writeMessage(bytes, -1);
+		for (int i = 0; i < 200; ++i) {
+			BinaryProtocol.writeMessage(bytes, new Coordinate(i % 8, i / 8 % 8));
+		}
+		BinaryProtocol.writeMessage(bytes, new SurrenderCommando());
+
+		FrameDecoder decoder = new FrameDecoder();
+		int version = -1;
+		List<Object> messages = new ArrayList<Object>();
+		for (byte b : bytes.toByteArray()) {
+			decoder.feed(ByteBuffer.wrap(new byte[] { b }));
+			if (version < 0) {
+				version = decoder.readHandshake();
+			}
+			Object message;
+			while ((message = decoder.next()) != null) {
+				messages.add(message);
+			}
+		}
+		Assert.assertEquals(BinaryProtocol.VERSION, version);
+		Assert.assertEquals(202, messages.size());
+		Assert.assertEquals(-1, messages.get(0));
+		Assert.assertEquals(new Coordinate(7, 3), messages.get(32));
+		Assert.assertTrue(messages.get(201) instanceof SurrenderCommando);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.FrameDecoder#readHandshake()}.
+	 */
+	@Test(expected = StreamCorruptedException.class)
+	public void testInvalidHandshake() throws IOException {
+		FrameDecoder decoder = new FrameDecoder();
+		decoder.feed(ByteBuffer.wrap(new byte[] { 'O', 'X', 0, 1 }));
+		decoder.readHandshake();
+	}
+}
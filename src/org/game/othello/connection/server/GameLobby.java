@@ -1,39 +1,118 @@
 package org.game.othello.connection.server;
 
+import java.security.SecureRandom;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.ForcedResultCommando;
+import org.game.othello.connection.GameEndsCommando;
 import org.game.othello.connection.InitializationCommando;
 import org.game.othello.connection.InteruptCommando;
+import org.game.othello.connection.NoTurnIsPossibleCommand;
+import org.game.othello.connection.ResumeCommando;
+import org.game.othello.connection.SnapshotCommando;
+import org.game.othello.connection.SpectateCommando;
+import org.game.othello.connection.SurrenderCommando;
 import org.game.othello.interfaces.Loggable;
 import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
 
+/**
+ * A game between two clients on the server. The lobby keeps its own {@link BitBoard} of the game and checks
+ * every object of a client before it is forwarded: only the player on turn may move, only legal moves and only
+ * real passes are accepted, and the server decides when the game is over. A client that breaks the rules loses
+ * the game, its opponent receives an {@link InteruptCommando}.
+ * Player one is Black and starts, player two is White. The {@link LobbyListener} is informed when the game is over.
+ * <p>
+ * A player whose client {@link PlayerConnection#canResume() can resume} gets a session token with the
+ * {@link InitializationCommando}. If its connection breaks, the game waits for the grace period: the player may
+ * come back with a {@link ResumeCommando} on a new connection and gets a {@link SnapshotCommando} of the board,
+ * the opponent only notices the longer wait. After the grace period the opponent wins.
+ * <p>
+ * Any number of clients may watch the game with a {@link SpectateCommando}. Every move, pass and the end of the
+ * game is encoded once and queued for all of them by the {@link SpectatorGroup}, which never blocks the players.
+ * A spectator that fell behind still gets the end of the game.
+ * <p>
+ * With an {@link EndgameAnnouncer} the players get a {@link ForcedResultCommando} as soon as the end of the game
+ * is decided under perfect play, and again whenever a mistake changes it.
+ * @author Oliver Scherf
+ */
 public class GameLobby implements Loggable, OthelloConstants {
 
-	private Thread threadPlayerOne;
-	private Thread threadPlayerTwo;
-	private ClientConnection playerOne;
-	private ClientConnection playerTwo;
-	private int onlineGameState;
+	/* The verdicts of checkObject. */
+	static final int REJECT = 0;
+	static final int FORWARD = 1;
+	static final int FORWARD_AND_END = 2;
+
+	private static final SecureRandom TOKENS = new SecureRandom();
+
+	private PlayerConnection playerOne;
+	private PlayerConnection playerTwo;
+	/* 0 if the player can not resume the game. */
+	private long sessionTokenOne;
+	private long sessionTokenTwo;
+	/* The grace period of a player whose connection broke, null while the player is connected. */
+	private ScheduledFuture<?> graceOne;
+	private ScheduledFuture<?> graceTwo;
+	/* Runs the grace periods, null if the games of this lobby can not be resumed. */
+	private final ScheduledExecutorService scheduler;
+	private final long graceMillis;
+	private final SpectatorGroup spectators = new SpectatorGroup();
+	private volatile int onlineGameState;
+	/* The time of the last join or message, from System.nanoTime(). */
+	private volatile long lastActivity;
+	private LobbyListener listener;
+	/* Solves the end of the game, null if the result is not announced. */
+	private EndgameAnnouncer endgameAnnouncer;
+	/* The number of moves and passes played, a solved position is only announced while it is on the board. */
+	private volatile int plies;
+	/* The last announced winner, -1 before the first announcement. */
+	private int forcedWinner = -1;
 	private int lobbyNumber;
+	private final BitBoard board = new BitBoard();
 	private Logger logger;
 	
 	/**
-	 * Instantiates a new GameLobby.
+	 * Instantiates a new GameLobby, its game ends as soon as a connection breaks.
 	 * @param lobbyNumber the lobby number.
 	 */
 	public GameLobby(int lobbyNumber) {
+		this(lobbyNumber, null, 0);
+	}
+
+	/**
+	 * Instantiates a new GameLobby.
+	 * @param lobbyNumber the lobby number.
+	 * @param scheduler runs the grace periods, null if the game can not be resumed.
+	 * @param graceMillis the time a player has to resume the game after the connection broke.
+	 */
+	public GameLobby(int lobbyNumber, ScheduledExecutorService scheduler, long graceMillis) {
 		this.initializeLogging();
 		this.lobbyNumber = lobbyNumber;
+		this.scheduler = scheduler;
+		this.graceMillis = graceMillis;
 		this.onlineGameState = ONLINE_GAME_STATE_NOT_STARTED;
+		this.lastActivity = System.nanoTime();
+		this.board.setStartingPosition();
+		this.board.setSideToMove(PLAYER_BLACK);
 		this.log(INFO, "Created a new lobby #" + this.lobbyNumber);
 	}
 
 	/**
 	 * Add a new ClientConnection to this lobby. If both players are present, the game will start.
 	 * @param con the new ClientConnection
+	 * @return false, if the lobby is full or over.
 	 */
-	public void newClientConnection(ClientConnection con) {
+	public synchronized boolean newClientConnection(PlayerConnection con) {
+		if (this.onlineGameState != ONLINE_GAME_STATE_NOT_STARTED) {
+			return false;
+		}
+		this.lastActivity = System.nanoTime();
 		if (this.playerOne == null) {
 			this.playerOne = con;
 			this.playerOne.sendObject(this.lobbyNumber);
@@ -44,40 +123,243 @@ public class GameLobby implements Loggable, OthelloConstants {
 			this.onlineGameState = ONLINE_GAME_STATE_STARTED;
 			this.startGame();
 		}
+		return true;
 	}
 	
 	/**
-	 * Closes the connection of both players.
+	 * Starts a game between two players that were paired by the {@link MatchmakingQueue}.
+	 * @param black the player who starts.
+	 * @param white the other player.
+	 * @return false, if a client joined the lobby by its number first.
 	 */
-	public void endGame() {
-		this.playerOne.closeConnection();
-		this.playerTwo.closeConnection();
+	public synchronized boolean startMatch(PlayerConnection black, PlayerConnection white) {
+		if (this.onlineGameState != ONLINE_GAME_STATE_NOT_STARTED || this.playerOne != null) {
+			return false;
+		}
+		this.playerOne = black;
+		this.playerTwo = white;
+		this.lastActivity = System.nanoTime();
+		this.onlineGameState = ONLINE_GAME_STATE_STARTED;
+		this.startGame();
+		return true;
+	}
+
+	/**
+	 * Closes the connection of both players, a lobby that waits for the second player only has the first one.
+	 */
+	public synchronized void endGame() {
+		if (this.onlineGameState == ONLINE_GAME_STATE_FINISHED) {
+			return;
+		}
+		this.cancelGracePeriods();
+		this.spectators.closeAll();
+		if (this.playerOne != null) {
+			this.playerOne.closeConnection();
+		}
+		if (this.playerTwo != null) {
+			this.playerTwo.closeConnection();
+		}
 		this.playerOne = null;
 		this.playerTwo = null;
 		this.onlineGameState = ONLINE_GAME_STATE_FINISHED;
 		this.log(INFO, "#" + this.lobbyNumber + " is over.");
+		this.notifyFinished();
+	}
+
+	private void notifyFinished() {
+		if (this.listener != null) {
+			this.listener.lobbyFinished(this);
+		}
+	}
+
+	/**
+	 * @param listener is informed when the game is over.
+	 */
+	void setLobbyListener(LobbyListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param endgameAnnouncer solves the end of the game, null to not announce the result.
+	 */
+	void setEndgameAnnouncer(EndgameAnnouncer endgameAnnouncer) {
+		this.endgameAnnouncer = endgameAnnouncer;
 	}
 
 	/**
 	 * Starts the game, and send initial information to both players.
 	 */
 	private void startGame() {
-		playerOne.sendObject(new InitializationCommando(ONLINE_GAME_I_START, this.lobbyNumber));
-		playerTwo.sendObject(new InitializationCommando(ONLINE_GAME_OPPONENT_START, this.lobbyNumber));
+		this.sessionTokenOne = this.newSessionToken(this.playerOne);
+		this.sessionTokenTwo = this.newSessionToken(this.playerTwo);
+		playerOne.sendObject(new InitializationCommando(ONLINE_GAME_I_START, this.lobbyNumber, this.sessionTokenOne));
+		playerTwo.sendObject(new InitializationCommando(ONLINE_GAME_OPPONENT_START, this.lobbyNumber, this.sessionTokenTwo));
 		this.log(INFO, "#" + this.lobbyNumber + " is starting right now!");
 	}
 
 	/**
-	 * Forwards the received object to the opponent.
-	 * @param obj 
-	 * @param source The client where the obj comes from (usally this)
+	 * @param con the player.
+	 * @return a random token, 0 if the player can not resume the game.
 	 */
-	public void forwardObjectToOtherPlayer(Object obj, ClientConnection source) {
-		if (this.playerOne.equals(source)) {
-			this.playerTwo.sendObject(obj);
+	private long newSessionToken(PlayerConnection con) {
+		if (this.scheduler == null || !con.canResume()) {
+			return 0;
+		}
+		long token;
+		do {
+			token = TOKENS.nextLong();
+		} while (token == 0);
+		return token;
+	}
+
+	/**
+	 * Checks an object of a client against the game of the server and forwards it to the opponent if it is valid.
+	 * A move that ends the game is forwarded as {@link GameEndsCommando} and the lobby is closed, so is a surrender.
+	 * An invalid object ends the game, the opponent wins.
+	 * @param obj the object received from the client.
+	 * @param source The client where the obj comes from.
+	 */
+	public synchronized void receiveObject(Object obj, PlayerConnection source) {
+		if (this.onlineGameState != ONLINE_GAME_STATE_STARTED) {
+			return;
+		}
+		// A connection that was replaced by a resumed one may still deliver a message.
+		if (!source.equals(this.playerOne) && !source.equals(this.playerTwo)) {
+			return;
+		}
+		this.lastActivity = System.nanoTime();
+		int player = source.equals(this.playerOne) ? PLAYER_BLACK : PLAYER_WHITE;
+		PlayerConnection opponent = player == PLAYER_BLACK ? this.playerTwo : this.playerOne;
+		// The board of the server goes on, an opponent that is away gets the position with the snapshot.
+		boolean opponentAway = (player == PLAYER_BLACK ? this.graceTwo : this.graceOne) != null;
+		// A stale spectator needs the board before the move, if the move ends the game.
+		byte[] snapshot = this.spectators.hasStale() ? this.encodeSnapshot() : null;
+		switch (this.checkObject(obj, player)) {
+		case FORWARD:
+			if (!opponentAway) {
+				opponent.sendObject(obj);
+			}
+			// Chat messages stay between the players.
+			if (!(obj instanceof String)) {
+				this.broadcast(obj);
+				if (this.endgameAnnouncer != null) {
+					this.endgameAnnouncer.submit(this, new BitBoard(this.board), this.plies);
+				}
+			}
+			break;
+		case FORWARD_AND_END:
+			Object last = obj instanceof Coordinate ? new GameEndsCommando((Coordinate) obj) : obj;
+			if (!opponentAway) {
+				opponent.sendObject(last);
+			}
+			this.spectators.finish(BinaryProtocol.encode(last), snapshot);
+			this.log(INFO, "#" + this.lobbyNumber + " ends with Black " + this.board.count(PLAYER_BLACK) + " : White "
+					+ this.board.count(PLAYER_WHITE) + ".");
+			this.endGame();
+			break;
+		default:
+			this.log(WARNING, "#" + this.lobbyNumber + ": Rejected " + obj + " of " + (player == PLAYER_BLACK ? "Black" : "White")
+					+ ", the opponent wins.");
+			if (!opponentAway) {
+				opponent.sendObject(new InteruptCommando());
+			}
+			this.spectators.finish(BinaryProtocol.encode(new InteruptCommando()), snapshot);
+			this.endGame();
+			break;
+		}
+	}
+
+	/**
+	 * Sends the message to all spectators, it is encoded only once.
+	 * @param obj a move, pass or the end of the game.
+	 */
+	private void broadcast(Object obj) {
+		if (this.spectators.size() == 0) {
+			return;
+		}
+		this.spectators.broadcast(BinaryProtocol.encode(obj), this.spectators.hasStale() ? this.encodeSnapshot() : null);
+	}
+
+	/**
+	 * @return the frame of the board for a spectator.
+	 */
+	private byte[] encodeSnapshot() {
+		return BinaryProtocol.encode(new SnapshotCommando(this.lobbyNumber, false, this.board.getBlack(), this.board.getWhite(),
+				this.board.getSideToMove()));
+	}
+
+	/**
+	 * Adds a client that watches the game, it gets a {@link SnapshotCommando} of the board and then every move.
+	 * @param con the spectator, it speaks the {@link BinaryProtocol}.
+	 * @return false, if the game is over.
+	 */
+	public synchronized boolean addSpectator(PlayerConnection con) {
+		if (this.onlineGameState == ONLINE_GAME_STATE_FINISHED) {
+			return false;
+		}
+		con.setLobby(this);
+		this.spectators.add(con, this.encodeSnapshot());
+		this.log(INFO, "#" + this.lobbyNumber + ": " + con.getInetAddress() + " is watching, " + this.spectators.size()
+				+ " spectators.");
+		return true;
+	}
+
+	/**
+	 * @return the number of clients that watch the game.
+	 */
+	synchronized int getSpectatorCount() {
+		return this.spectators.size();
+	}
+
+	/**
+	 * Checks an object against the game and plays the move or pass it contains.
+	 * @param obj the object received from the client.
+	 * @param player the color of the client.
+	 * @return {@link #FORWARD} for a valid move, pass or chat message, {@link #FORWARD_AND_END} if the game is over
+	 * after it or the player surrendered, {@link #REJECT} if it breaks the rules.
+	 */
+	int checkObject(Object obj, int player) {
+		if (obj instanceof String) {
+			return FORWARD;
+		}
+		if (obj instanceof SurrenderCommando) {
+			return FORWARD_AND_END;
+		}
+		if (this.board.getSideToMove() != player) {
+			return REJECT;
+		}
+		long legalMoves = this.board.getLegalMoves(player);
+		if (obj instanceof NoTurnIsPossibleCommand) {
+			if (legalMoves != 0) {
+				return REJECT;
+			}
+			this.board.setSideToMove(BitBoard.opponentOf(player));
+			++this.plies;
+			return FORWARD;
+		}
+		Coordinate move;
+		if (obj instanceof Coordinate) {
+			move = (Coordinate) obj;
+		} else if (obj instanceof GameEndsCommando) {
+			move = ((GameEndsCommando) obj).getLastIndex();
 		} else {
-			this.playerOne.sendObject(obj);
+			return REJECT;
 		}
+		if (move == null || move.getX() < 0 || move.getX() >= GAMEBOARD_SIZE || move.getY() < 0 || move.getY() >= GAMEBOARD_SIZE) {
+			return REJECT;
+		}
+		int square = BitBoard.square(move.getX(), move.getY());
+		if ((legalMoves & (1L << square)) == 0) {
+			return REJECT;
+		}
+		this.board.doMove(player, square);
+		this.board.setSideToMove(BitBoard.opponentOf(player));
+		++this.plies;
+		boolean gameOver = this.board.getLegalMoves(PLAYER_BLACK) == 0 && this.board.getLegalMoves(PLAYER_WHITE) == 0;
+		if (obj instanceof GameEndsCommando && !gameOver) {
+			return REJECT;
+		}
+		return gameOver ? FORWARD_AND_END : FORWARD;
 	}
 
 	public int getState() {
@@ -85,39 +367,181 @@ public class GameLobby implements Loggable, OthelloConstants {
 	}
 
 	/**
-	 * If a player quit unexpected, this method will inform the other player.
+	 * @return the time of the last join or message, from {@link System#nanoTime()}.
+	 */
+	long getLastActivity() {
+		return this.lastActivity;
+	}
+
+	/**
+	 * If a player quit unexpected, this method will inform the other player. A player who can resume the game gets
+	 * the grace period first.
 	 * @param lostConClient the client who lost connection
 	 */
-	public void handleConnectionLost(ClientConnection lostConClient) {
+	public synchronized void handleConnectionLost(PlayerConnection lostConClient) {
 		if (this.onlineGameState == ONLINE_GAME_STATE_FINISHED) {
 			return;
 		}
+		if (lostConClient != null && this.spectators.remove(lostConClient)) {
+			return;
+		}
+		if (lostConClient != null && !lostConClient.equals(this.playerOne) && !lostConClient.equals(this.playerTwo)) {
+			// The connection was replaced by a resumed one.
+			return;
+		}
+		final boolean black = lostConClient != null && lostConClient.equals(this.playerOne);
+		if (this.onlineGameState == ONLINE_GAME_STATE_STARTED && lostConClient != null
+				&& (black ? this.sessionTokenOne : this.sessionTokenTwo) != 0) {
+			if ((black ? this.graceOne : this.graceTwo) == null) {
+				ScheduledFuture<?> grace = this.scheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						GameLobby.this.gracePeriodExpired(black);
+					}
+				}, this.graceMillis, TimeUnit.MILLISECONDS);
+				if (black) {
+					this.graceOne = grace;
+				} else {
+					this.graceTwo = grace;
+				}
+				this.log(INFO, "#" + this.lobbyNumber + ": " + (black ? "Black" : "White") + " lost the connection, waiting "
+						+ TimeUnit.MILLISECONDS.toSeconds(this.graceMillis) + " s for the player to resume the game.");
+			}
+			return;
+		}
+		this.abort(black);
+	}
+
+	/**
+	 * The player did not come back in time.
+	 * @param black true for Black, false for White.
+	 */
+	private synchronized void gracePeriodExpired(boolean black) {
+		if (this.onlineGameState != ONLINE_GAME_STATE_STARTED || (black ? this.graceOne : this.graceTwo) == null) {
+			return;
+		}
+		this.log(INFO, "#" + this.lobbyNumber + ": " + (black ? "Black" : "White") + " did not resume the game, the opponent wins.");
+		this.abort(black);
+	}
+
+	/**
+	 * Ends the game because a player is gone, the opponent wins.
+	 * @param black true, if Black is gone, false for White.
+	 */
+	private void abort(boolean black) {
 		this.onlineGameState = ONLINE_GAME_STATE_FINISHED;
+		this.cancelGracePeriods();
+		this.spectators.finish(BinaryProtocol.encode(new InteruptCommando()), this.spectators.hasStale() ? this.encodeSnapshot() : null);
+		PlayerConnection gone = black ? this.playerOne : this.playerTwo;
+		PlayerConnection opponent = black ? this.playerTwo : this.playerOne;
 		try {
-			if (lostConClient != null 
-					&& this.playerOne != null 
-					&& lostConClient.equals(playerOne)
-					&& !playerOne.getSocket().isClosed()) {
-				playerTwo.sendObject(new InteruptCommando());
-				playerOne.closeConnection();
-				playerTwo.closeConnection();
-				if (threadPlayerOne != null) {
-					threadPlayerOne.interrupt();
-				}
-			} else if (lostConClient != null 
-					&& this.playerTwo != null 
-					&& lostConClient.equals(playerTwo)
-					&& !playerTwo.getSocket().isClosed()) {
-				playerOne.sendObject(new InteruptCommando());
-				if (threadPlayerTwo != null) {
-					threadPlayerTwo.interrupt();
-				}
+			if (opponent != null && !opponent.isClosed()) {
+				opponent.sendObject(new InteruptCommando());
+				opponent.closeConnection();
+			}
+			if (gone != null) {
+				gone.closeConnection();
 			}
 			this.log(INFO, "Closed connection from both players in the game " + this.toString());
 		} catch (Exception e)  {
 			// Nothing needed here, the game is over anyway.
 		}
-		
+		this.notifyFinished();
+	}
+
+	private void cancelGracePeriods() {
+		if (this.graceOne != null) {
+			this.graceOne.cancel(false);
+			this.graceOne = null;
+		}
+		if (this.graceTwo != null) {
+			this.graceTwo.cancel(false);
+			this.graceTwo = null;
+		}
+	}
+
+	/**
+	 * Continues the game of a player on a new connection. The old connection is closed if it is still open,
+	 * the player gets a {@link SnapshotCommando} of the board.
+	 * @param sessionToken the token of the {@link InitializationCommando}.
+	 * @param con the new connection.
+	 * @return false, if the token does not belong to a player of this lobby or the game is over.
+	 */
+	public synchronized boolean resume(long sessionToken, PlayerConnection con) {
+		if (this.onlineGameState != ONLINE_GAME_STATE_STARTED || sessionToken == 0) {
+			return false;
+		}
+		boolean black;
+		if (sessionToken == this.sessionTokenOne) {
+			black = true;
+		} else if (sessionToken == this.sessionTokenTwo) {
+			black = false;
+		} else {
+			return false;
+		}
+		PlayerConnection old = black ? this.playerOne : this.playerTwo;
+		if (!old.equals(con)) {
+			// The server may not have noticed yet that the old connection is broken.
+			old.setLobby(null);
+			old.closeConnection();
+		}
+		ScheduledFuture<?> grace = black ? this.graceOne : this.graceTwo;
+		if (grace != null) {
+			grace.cancel(false);
+		}
+		if (black) {
+			this.playerOne = con;
+			this.graceOne = null;
+		} else {
+			this.playerTwo = con;
+			this.graceTwo = null;
+		}
+		con.setLobby(this);
+		this.lastActivity = System.nanoTime();
+		con.sendObject(new SnapshotCommando(this.lobbyNumber, black, this.board.getBlack(), this.board.getWhite(),
+				this.board.getSideToMove()));
+		if (this.forcedWinner >= 0 && con.canReceiveForcedResult()) {
+			con.sendObject(new ForcedResultCommando(this.forcedWinner));
+		}
+		this.log(INFO, "#" + this.lobbyNumber + ": " + (black ? "Black" : "White") + " resumed the game.");
+		return true;
+	}
+
+	/**
+	 * @param ply the number of moves and passes that lead to a position.
+	 * @return true, if the position is still on the board.
+	 */
+	boolean isCurrentPly(int ply) {
+		return this.plies == ply;
+	}
+
+	/**
+	 * Tells both players the result of the {@link EndgameAnnouncer}, unless the game went on in the meantime or
+	 * the result did not change. A player who is away or whose client does not know the command gets nothing.
+	 * @param winner the player who wins with perfect play, {@link OthelloConstants#PLAYER_NOBODY} for a draw.
+	 * @param ply the number of moves and passes that lead to the solved position.
+	 */
+	synchronized void forcedResultSolved(int winner, int ply) {
+		if (this.onlineGameState != ONLINE_GAME_STATE_STARTED || this.plies != ply || this.forcedWinner == winner) {
+			return;
+		}
+		this.forcedWinner = winner;
+		ForcedResultCommando result = new ForcedResultCommando(winner);
+		if (this.graceOne == null && this.playerOne.canReceiveForcedResult()) {
+			this.playerOne.sendObject(result);
+		}
+		if (this.graceTwo == null && this.playerTwo.canReceiveForcedResult()) {
+			this.playerTwo.sendObject(result);
+		}
+		this.log(INFO, "#" + this.lobbyNumber + ": " + result + ".");
+	}
+
+	/**
+	 * @param black true for Black, false for White.
+	 * @return true, if the connection of the player broke and the lobby waits for the player to resume.
+	 */
+	synchronized boolean isAway(boolean black) {
+		return (black ? this.graceOne : this.graceTwo) != null;
 	}
 	
 	@Override
@@ -128,13 +552,13 @@ public class GameLobby implements Loggable, OthelloConstants {
 		}
 		rc += "between ";
 		if (playerOne != null) {
-			rc += playerOne.getSocket().getInetAddress();
+			rc += playerOne.getInetAddress();
 		} else {
 			rc += "yet not connected";
 		}
 		rc += " and ";
 		if (playerTwo != null) {
-			rc += playerTwo.getSocket().getInetAddress();
+			rc += playerTwo.getInetAddress();
 		} else {
 			rc += "yet not connected";
 		}
@@ -146,6 +570,32 @@ public class GameLobby implements Loggable, OthelloConstants {
 		return rc;
 	}
 
+	/**
+	 * @return the bytes written to each player and the handles their streams retain.
+	 */
+	public synchronized String getTrafficInfo() {
+		String info = "Black: " + trafficInfoOf(this.playerOne) + ", White: " + trafficInfoOf(this.playerTwo);
+		if (this.spectators.size() > 0) {
+			info += ", " + this.spectators.size() + " spectators, " + this.spectators.getBroadcasts() + " frames broadcast, "
+					+ this.spectators.getDroppedFrames() + " dropped, " + this.spectators.getResyncs() + " resyncs";
+		}
+		return info;
+	}
+
+	private static String trafficInfoOf(PlayerConnection con) {
+		if (con == null) {
+			return "not connected";
+		}
+		return con.getBytesWritten() + " bytes written, " + con.getRetainedHandles() + " retained handles";
+	}
+
+	/**
+	 * @return the game as the server sees it.
+	 */
+	BitBoard getBoard() {
+		return this.board;
+	}
+
 	public int getLobbyNumber() {
 		return lobbyNumber;
 	}
@@ -3,7 +3,23 @@
  */
 package org.game.othello.connection.server;
 
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.ForcedResultCommando;
+import org.game.othello.connection.GameEndsCommando;
+import org.game.othello.connection.InteruptCommando;
+import org.game.othello.connection.NoTurnIsPossibleCommand;
+import org.game.othello.connection.SnapshotCommando;
+import org.game.othello.connection.SurrenderCommando;
 import org.game.othello.interfaces.OthelloConstants;
+import org.game.othello.rules.BitBoard;
+import org.game.othello.rules.EndgameSolver;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,4 +48,221 @@ public class GameLobbyTest implements OthelloConstants {
 		Assert.assertEquals(300, this.gl.getLobbyNumber());
 		Assert.assertEquals(ONLINE_GAME_STATE_NOT_STARTED, this.gl.getState());
 	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#checkObject(Object, int)}.
+	 * Only legal moves of the player on turn are forwarded, chat messages always.
+	 */
+	@Test
+	public void testCheckMoves() {
+		Assert.assertEquals(GameLobby.FORWARD, this.gl.checkObject("Hello", PLAYER_WHITE));
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new Coordinate(5, 4), PLAYER_WHITE));
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new Coordinate(0, 0), PLAYER_BLACK));
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new Coordinate(8, 4), PLAYER_BLACK));
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new NoTurnIsPossibleCommand(), PLAYER_BLACK));
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(Integer.valueOf(5), PLAYER_BLACK));
+		Assert.assertEquals(GameLobby.FORWARD, this.gl.checkObject(new Coordinate(5, 4), PLAYER_BLACK));
+		Assert.assertEquals(PLAYER_BLACK, this.gl.getBoard().getOwner(BitBoard.square(4, 4)));
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new Coordinate(5, 3), PLAYER_BLACK));
+		// The game is not over, a GameEndsCommando with a legal move is a fake.
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new GameEndsCommando(new Coordinate(5, 5)), PLAYER_WHITE));
+		Assert.assertEquals(GameLobby.FORWARD_AND_END, this.gl.checkObject(new SurrenderCommando(), PLAYER_WHITE));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#checkObject(Object, int)}.
+	 * A pass is only accepted without a legal move, the server detects the end of the game.
+	 */
+	@Test
+	public void testCheckPassAndGameEnd() {
+		// White owns one game character and can not move, Black takes it and no one can move anymore.
+		long white = BitBoard.bit(0, 6);
+		this.gl.getBoard().setPosition(~(white | BitBoard.bit(0, 7) | BitBoard.bit(7, 7)), white);
+		this.gl.getBoard().setSideToMove(PLAYER_WHITE);
+		Assert.assertEquals(GameLobby.REJECT, this.gl.checkObject(new NoTurnIsPossibleCommand(), PLAYER_BLACK));
+		Assert.assertEquals(GameLobby.FORWARD, this.gl.checkObject(new NoTurnIsPossibleCommand(), PLAYER_WHITE));
+		Assert.assertEquals(GameLobby.FORWARD_AND_END, this.gl.checkObject(new Coordinate(0, 7), PLAYER_BLACK));
+		Assert.assertEquals(0, this.gl.getBoard().count(PLAYER_WHITE));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#resume(long, PlayerConnection)}.
+	 * A player who lost the connection comes back with the token and gets the board, the moves in between included.
+	 */
+	@Test
+	public void testResume() throws InterruptedException {
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		try {
+			GameLobby lobby = new GameLobby(300, scheduler, 200);
+			FakePlayerConnection black = new FakePlayerConnection();
+			FakePlayerConnection white = new FakePlayerConnection();
+			Assert.assertTrue(lobby.startMatch(black, white));
+			long token = white.getInitialization().getSessionToken();
+			Assert.assertTrue(token != 0);
+			Assert.assertTrue(token != black.getInitialization().getSessionToken());
+
+			lobby.handleConnectionLost(white);
+			Assert.assertTrue(lobby.isAway(false));
+			Assert.assertEquals(ONLINE_GAME_STATE_STARTED, lobby.getState());
+			lobby.receiveObject(new Coordinate(5, 4), black);
+			Assert.assertEquals(1, white.received.size());
+
+			Assert.assertFalse(lobby.resume(token + 1, new FakePlayerConnection()));
+			FakePlayerConnection resumed = new FakePlayerConnection();
+			Assert.assertTrue(lobby.resume(token, resumed));
+			Assert.assertFalse(lobby.isAway(false));
+			Assert.assertSame(lobby, resumed.lobby);
+			Assert.assertTrue(white.isClosed());
+			SnapshotCommando snapshot = (SnapshotCommando) resumed.received.get(0);
+			Assert.assertFalse(snapshot.isBlack());
+			Assert.assertEquals(PLAYER_WHITE, snapshot.getSideToMove());
+			Assert.assertEquals(lobby.getBoard().getBlack(), snapshot.getBlackDiscs());
+			Assert.assertEquals(lobby.getBoard().getWhite(), snapshot.getWhiteDiscs());
+
+			// The replaced connection is ignored, the new one plays on.
+			lobby.receiveObject(new Coordinate(5, 5), white);
+			Assert.assertEquals(1, black.received.size());
+			lobby.receiveObject(new Coordinate(5, 5), resumed);
+			Assert.assertEquals(new Coordinate(5, 5), black.received.get(1));
+			Thread.sleep(400);
+			Assert.assertEquals(ONLINE_GAME_STATE_STARTED, lobby.getState());
+
+			// Without a resumption the opponent wins after the grace period.
+			lobby.handleConnectionLost(resumed);
+			for (int i = 0; i < 100 && lobby.getState() != ONLINE_GAME_STATE_FINISHED; ++i) {
+				Thread.sleep(50);
+			}
+			Assert.assertEquals(ONLINE_GAME_STATE_FINISHED, lobby.getState());
+			Assert.assertTrue(black.received.get(black.received.size() - 1) instanceof InteruptCommando);
+			Assert.assertFalse(lobby.resume(token, new FakePlayerConnection()));
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#handleConnectionLost(PlayerConnection)}.
+	 * Without a scheduler the game ends at once.
+	 */
+	@Test
+	public void testConnectionLostWithoutResumption() {
+		FakePlayerConnection black = new FakePlayerConnection();
+		FakePlayerConnection white = new FakePlayerConnection();
+		Assert.assertTrue(this.gl.startMatch(black, white));
+		Assert.assertEquals(0, white.getInitialization().getSessionToken());
+		this.gl.handleConnectionLost(black);
+		Assert.assertEquals(ONLINE_GAME_STATE_FINISHED, this.gl.getState());
+		Assert.assertTrue(white.received.get(1) instanceof InteruptCommando);
+		Assert.assertTrue(white.isClosed());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#addSpectator(PlayerConnection)}.
+	 * The spectators get the board and every move, encoded once, but no chat messages.
+	 */
+	@Test
+	public void testSpectators() throws Exception {
+		FakePlayerConnection black = new FakePlayerConnection();
+		FakePlayerConnection white = new FakePlayerConnection();
+		FakePlayerConnection early = new FakePlayerConnection();
+		Assert.assertTrue(this.gl.addSpectator(early));
+		Assert.assertTrue(this.gl.startMatch(black, white));
+		this.gl.receiveObject(new Coordinate(5, 4), black);
+		FakePlayerConnection late = new FakePlayerConnection();
+		Assert.assertTrue(this.gl.addSpectator(late));
+		Assert.assertSame(this.gl, late.lobby);
+		Assert.assertEquals(2, this.gl.getSpectatorCount());
+
+		SnapshotCommando snapshot = (SnapshotCommando) decode(late.frames.get(0));
+		Assert.assertEquals(this.gl.getBoard().getBlack(), snapshot.getBlackDiscs());
+		Assert.assertEquals(PLAYER_WHITE, snapshot.getSideToMove());
+		Assert.assertEquals(new Coordinate(5, 4), decode(early.frames.get(1)));
+
+		this.gl.receiveObject("Hello", white);
+		this.gl.receiveObject(new Coordinate(5, 5), white);
+		Assert.assertEquals(3, early.frames.size());
+		Assert.assertSame(early.frames.get(2), late.frames.get(1));
+		Assert.assertEquals(new Coordinate(5, 5), decode(late.frames.get(1)));
+
+		// A spectator that left does not end the game.
+		this.gl.handleConnectionLost(early);
+		Assert.assertEquals(ONLINE_GAME_STATE_STARTED, this.gl.getState());
+		Assert.assertEquals(1, this.gl.getSpectatorCount());
+		this.gl.receiveObject(new SurrenderCommando(), black);
+		Assert.assertTrue(decode(late.frames.get(2)) instanceof SurrenderCommando);
+		Assert.assertTrue(late.isClosed());
+		Assert.assertFalse(this.gl.addSpectator(new FakePlayerConnection()));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#forcedResultSolved(int, int)}.
+	 * From {@link EndgameAnnouncer#MAX_EMPTIES} empty squares on both players get the forced result whenever it
+	 * changes.
+	 */
+	@Test
+	public void testForcedResult() {
+		this.gl.setEndgameAnnouncer(new EndgameAnnouncer(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}));
+		FakePlayerConnection black = new FakePlayerConnection();
+		FakePlayerConnection white = new FakePlayerConnection();
+		Assert.assertTrue(this.gl.startMatch(black, white));
+		EndgameSolver solver = new EndgameSolver(EndgameAnnouncer.MAX_EMPTIES);
+		Random random = new Random(20151206L);
+		int announced = 0;
+		while (this.gl.getState() == ONLINE_GAME_STATE_STARTED) {
+			BitBoard board = this.gl.getBoard();
+			int player = board.getSideToMove();
+			FakePlayerConnection source = player == PLAYER_BLACK ? black : white;
+			long moves = board.getLegalMoves(player);
+			if (moves == 0) {
+				this.gl.receiveObject(new NoTurnIsPossibleCommand(), source);
+			} else {
+				for (int choice = random.nextInt(Long.bitCount(moves)); choice > 0; --choice) {
+					moves &= moves - 1;
+				}
+				int square = Long.numberOfTrailingZeros(moves);
+				this.gl.receiveObject(new Coordinate(square % GAMEBOARD_SIZE, square / GAMEBOARD_SIZE), source);
+			}
+			if (this.gl.getState() != ONLINE_GAME_STATE_STARTED || !solver.canSolve(board)) {
+				Assert.assertEquals(announced, countForcedResults(black));
+				continue;
+			}
+			int score = solver.solve(new BitBoard(board), -1, 1);
+			int winner = score == 0 ? PLAYER_NOBODY : score > 0 ? board.getSideToMove() : BitBoard.opponentOf(board.getSideToMove());
+			Assert.assertEquals(winner, lastForcedResult(black).getWinner());
+			Assert.assertEquals(winner, lastForcedResult(white).getWinner());
+			// Only a changed result is sent again.
+			Assert.assertTrue(countForcedResults(black) - announced <= 1);
+			announced = countForcedResults(black);
+		}
+		Assert.assertTrue(announced > 0);
+	}
+
+	private static int countForcedResults(FakePlayerConnection con) {
+		int count = 0;
+		for (Object obj : con.received) {
+			if (obj instanceof ForcedResultCommando) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	private static ForcedResultCommando lastForcedResult(FakePlayerConnection con) {
+		for (int i = con.received.size() - 1; i >= 0; --i) {
+			if (con.received.get(i) instanceof ForcedResultCommando) {
+				return (ForcedResultCommando) con.received.get(i);
+			}
+		}
+		Assert.fail("No forced result was sent.");
+		return null;
+	}
+
+	private static Object decode(byte[] frame) throws Exception {
+		return BinaryProtocol.readMessage(new ByteArrayInputStream(frame));
+	}
 }
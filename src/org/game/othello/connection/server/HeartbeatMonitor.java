@@ -0,0 +1,219 @@
+package org.game.othello.connection.server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.PingCommando;
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Finds the connections that went silent, i.e. half-open connections of mobile clients that lost the network.
+ * Every connection gets a {@link Heartbeat} on a shared {@link TimerWheel}, which checks it once per interval:
+ * a connection that did not receive anything for the timeout is dropped, the lobby is informed by the callback of
+ * the connection. Clients of the {@link BinaryProtocol} since version {@link BinaryProtocol#VERSION_HEARTBEAT}
+ * get a {@link PingCommando} on every check and answer it, older clients are only watched until they sent their
+ * first message, afterwards they may be silent as long as they like.
+ * The wheel is advanced by the scheduler of the server every {@link #TICK_MILLIS}. A ping may block on a client
+ * that does not read and a timeout informs the lobby, so both run on the executor for the callbacks and not on the
+ * thread of the wheel, which the scheduler shares with the matchmaking and the grace periods. A connection gets no
+ * new ping while its last one is still being sent.
+ * @author Oliver Scherf
+ */
+class HeartbeatMonitor implements Runnable, Loggable, OthelloConstants {
+
+	public static final long TICK_MILLIS = 100;
+	/* A round of the wheel takes 51.2 seconds, longer than the default timeout. */
+	private static final int WHEEL_SLOTS = 512;
+
+	private Logger logger;
+	private final TimerWheel wheel;
+	private final Executor callbacks;
+	private final long intervalMillis;
+	private final long timeoutNanos;
+	/* The time of the current advance, for the heartbeats that run in it. */
+	private long now;
+	private final AtomicInteger watched = new AtomicInteger();
+	private final AtomicLong evicted = new AtomicLong();
+
+	/**
+	 * The heartbeat of a connection.
+	 */
+	class Heartbeat implements Runnable {
+
+		private final PlayerConnection con;
+		private final Runnable onTimeout;
+		private volatile long lastReceived;
+		private volatile boolean pinging;
+		private volatile boolean stopped;
+		private final AtomicBoolean pingPending = new AtomicBoolean();
+		private final Runnable ping = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Heartbeat.this.con.sendObject(new PingCommando());
+				} finally {
+					Heartbeat.this.pingPending.set(false);
+				}
+			}
+		};
+
+		private Heartbeat(PlayerConnection con, Runnable onTimeout, long now) {
+			this.con = con;
+			this.onTimeout = onTimeout;
+			this.lastReceived = now;
+		}
+
+		/**
+		 * The connection received a message, called by the connection.
+		 */
+		void received() {
+			this.received(System.nanoTime());
+		}
+
+		/**
+		 * @param now the time of the message, from {@link System#nanoTime()}.
+		 */
+		void received(long now) {
+			this.lastReceived = now;
+		}
+
+		/**
+		 * The client answers pings, it is pinged from the next check on.
+		 */
+		void startPinging() {
+			this.pinging = true;
+		}
+
+		/**
+		 * The client does not know the heartbeat, it is not watched anymore.
+		 */
+		void stop() {
+			this.stopped = true;
+		}
+
+		/**
+		 * The check, on the thread of the wheel.
+		 */
+		@Override
+		public void run() {
+			if (this.stopped || this.con.isClosed()) {
+				HeartbeatMonitor.this.watched.decrementAndGet();
+				return;
+			}
+			long now = HeartbeatMonitor.this.now;
+			if (now - this.lastReceived >= HeartbeatMonitor.this.timeoutNanos) {
+				HeartbeatMonitor.this.watched.decrementAndGet();
+				HeartbeatMonitor.this.evicted.incrementAndGet();
+				HeartbeatMonitor.this.log(INFO, "The client " + this.con.getInetAddress() + " did not answer for "
+						+ TimeUnit.NANOSECONDS.toSeconds(now - this.lastReceived) + " s, dropping the connection.");
+				HeartbeatMonitor.this.callbacks.execute(this.onTimeout);
+				return;
+			}
+			if (this.pinging && this.pingPending.compareAndSet(false, true)) {
+				HeartbeatMonitor.this.callbacks.execute(this.ping);
+			}
+			HeartbeatMonitor.this.wheel.schedule(this, HeartbeatMonitor.this.intervalMillis, now);
+		}
+	}
+
+	/**
+	 * Instantiates a new HeartbeatMonitor.
+	 * @param intervalMillis the time between two checks and pings of a connection.
+	 * @param timeoutMillis the time without a message after which a connection is dropped.
+	 * @param callbacks sends the pings and runs the timeouts.
+	 */
+	HeartbeatMonitor(long intervalMillis, long timeoutMillis, Executor callbacks) {
+		this(intervalMillis, timeoutMillis, callbacks, System.nanoTime());
+	}
+
+	/**
+	 * @param now the start of the wheel, from {@link System#nanoTime()}.
+	 */
+	HeartbeatMonitor(long intervalMillis, long timeoutMillis, Executor callbacks, long now) {
+		this.initializeLogging();
+		this.wheel = new TimerWheel(TICK_MILLIS, WHEEL_SLOTS, now);
+		this.callbacks = callbacks;
+		this.intervalMillis = intervalMillis;
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		this.now = now;
+	}
+
+	/**
+	 * Starts to watch a connection, it may be called from any thread.
+	 * @param con the connection.
+	 * @param onTimeout drops the connection and informs its lobby, it runs on the executor for the callbacks.
+	 * @return the heartbeat, the connection reports every message to it.
+	 */
+	Heartbeat watch(PlayerConnection con, Runnable onTimeout) {
+		return this.watch(con, onTimeout, System.nanoTime());
+	}
+
+	/**
+	 * @param now the current time, from {@link System#nanoTime()}.
+	 */
+	Heartbeat watch(PlayerConnection con, Runnable onTimeout, long now) {
+		Heartbeat heartbeat = new Heartbeat(con, onTimeout, now);
+		this.watched.incrementAndGet();
+		this.wheel.schedule(heartbeat, this.intervalMillis, now);
+		return heartbeat;
+	}
+
+	/**
+	 * Checks the heartbeats that are due, called by the scheduler.
+	 */
+	@Override
+	public void run() {
+		try {
+			this.advance(System.nanoTime());
+		} catch (RuntimeException e) {
+			// An exception would stop the scheduler from running further checks.
+			this.err("The check of the heartbeats failed", e);
+		}
+	}
+
+	/**
+	 * @param now the current time, from {@link System#nanoTime()}.
+	 * @return the number of heartbeats that were checked.
+	 */
+	int advance(long now) {
+		this.now = now;
+		return this.wheel.advance(now);
+	}
+
+	/**
+	 * @return the connections that are watched.
+	 */
+	int getWatched() {
+		return this.watched.get();
+	}
+
+	/**
+	 * @return the connections that were dropped because they went silent.
+	 */
+	long getEvicted() {
+		return this.evicted.get();
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.HeartbeatMonitor");
+		this.logger.setLevel(null);
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.game.othello.connection.PingCommando;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class HeartbeatMonitorTest {
+
+	private static final long INTERVAL_MILLIS = 1000;
+	private static final long TIMEOUT_MILLIS = 3000;
+
+	private long start;
+	private HeartbeatMonitor monitor;
+	private AtomicInteger timeouts;
+	private Runnable onTimeout;
+	/* The callbacks run at once, unless the test holds them back as a busy executor would. */
+	private boolean holdCallbacks;
+	private List<Runnable> heldCallbacks;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.start = System.nanoTime();
+		this.heldCallbacks = new ArrayList<Runnable>();
+		this.monitor = new HeartbeatMonitor(INTERVAL_MILLIS, TIMEOUT_MILLIS, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				if (HeartbeatMonitorTest.this.holdCallbacks) {
+					HeartbeatMonitorTest.this.heldCallbacks.add(command);
+				} else {
+					command.run();
+				}
+			}
+		}, this.start);
+		this.timeouts = new AtomicInteger();
+		this.onTimeout = new Runnable() {
+			@Override
+			public void run() {
+				HeartbeatMonitorTest.this.timeouts.incrementAndGet();
+			}
+		};
+	}
+
+	private long at(long millis) {
+		return this.start + TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.HeartbeatMonitor#advance(long)}.
+	 * A client that answers is pinged every interval and kept, one that went silent is dropped after the timeout.
+	 */
+	@Test
+	public void testPingAndTimeout() {
+		FakePlayerConnection player = new FakePlayerConnection();
+		HeartbeatMonitor.Heartbeat heartbeat = this.monitor.watch(player, this.onTimeout, this.start);
+		heartbeat.startPinging();
+		Assert.assertEquals(1, this.monitor.getWatched());
+		this.monitor.advance(at(INTERVAL_MILLIS / 2));
+		Assert.assertTrue(player.received.isEmpty());
+		for (long millis = INTERVAL_MILLIS; millis < 5 * INTERVAL_MILLIS; millis += INTERVAL_MILLIS) {
+			this.monitor.advance(at(millis + HeartbeatMonitor.TICK_MILLIS));
+			heartbeat.received(at(millis + 2 * HeartbeatMonitor.TICK_MILLIS));
+		}
+		Assert.assertEquals(4, player.received.size());
+		Assert.assertTrue(player.received.get(0) instanceof PingCommando);
+		Assert.assertEquals(0, this.timeouts.get());
+
+		for (long millis = 5 * INTERVAL_MILLIS; millis <= 10 * INTERVAL_MILLIS; millis += INTERVAL_MILLIS) {
+			this.monitor.advance(at(millis + HeartbeatMonitor.TICK_MILLIS));
+		}
+		Assert.assertEquals(1, this.timeouts.get());
+		Assert.assertEquals(0, this.monitor.getWatched());
+		Assert.assertEquals(1, this.monitor.getEvicted());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.HeartbeatMonitor#advance(long)}.
+	 * A client that never sends anything is dropped, also without pings.
+	 */
+	@Test
+	public void testSilentClient() {
+		FakePlayerConnection player = new FakePlayerConnection();
+		this.monitor.watch(player, this.onTimeout, this.start);
+		this.monitor.advance(at(TIMEOUT_MILLIS - HeartbeatMonitor.TICK_MILLIS));
+		Assert.assertEquals(0, this.timeouts.get());
+		this.monitor.advance(at(TIMEOUT_MILLIS + INTERVAL_MILLIS));
+		Assert.assertEquals(1, this.timeouts.get());
+		Assert.assertTrue(player.received.isEmpty());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.HeartbeatMonitor.Heartbeat#stop()}.
+	 * Stopped heartbeats and closed connections leave the wheel without a timeout.
+	 */
+	@Test
+	public void testStopAndClose() {
+		FakePlayerConnection legacy = new FakePlayerConnection();
+		FakePlayerConnection closed = new FakePlayerConnection();
+		this.monitor.watch(legacy, this.onTimeout, this.start).stop();
+		this.monitor.watch(closed, this.onTimeout, this.start);
+		closed.closeConnection();
+		Assert.assertEquals(2, this.monitor.getWatched());
+		this.monitor.advance(at(10 * TIMEOUT_MILLIS));
+		Assert.assertEquals(0, this.monitor.getWatched());
+		Assert.assertEquals(0, this.timeouts.get());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.HeartbeatMonitor#advance(long)}.
+	 * The wheel only hands the pings and the timeout to the executor, a client whose last ping is still being sent
+	 * gets no further one.
+	 */
+	@Test
+	public void testCallbacksOffTheWheel() {
+		this.holdCallbacks = true;
+		FakePlayerConnection player = new FakePlayerConnection();
+		HeartbeatMonitor.Heartbeat heartbeat = this.monitor.watch(player, this.onTimeout, this.start);
+		heartbeat.startPinging();
+		this.monitor.advance(at(INTERVAL_MILLIS + HeartbeatMonitor.TICK_MILLIS));
+		heartbeat.received(at(INTERVAL_MILLIS + HeartbeatMonitor.TICK_MILLIS));
+		this.monitor.advance(at(2 * INTERVAL_MILLIS + HeartbeatMonitor.TICK_MILLIS));
+		Assert.assertTrue(player.received.isEmpty());
+		Assert.assertEquals(1, this.heldCallbacks.size());
+		this.heldCallbacks.remove(0).run();
+		Assert.assertEquals(1, player.received.size());
+
+		this.monitor.advance(at(10 * TIMEOUT_MILLIS));
+		Assert.assertEquals(0, this.timeouts.get());
+		Assert.assertEquals(1, this.monitor.getEvicted());
+		Assert.assertEquals(1, this.heldCallbacks.size());
+		this.heldCallbacks.remove(0).run();
+		Assert.assertEquals(1, this.timeouts.get());
+	}
+}
@@ -0,0 +1,15 @@
+package org.game.othello.connection.server;
+
+/**
+ * Is informed when a {@link GameLobby} is over, so the lobby can be removed as soon as it ends. The listener is
+ * called on the thread that ends the game, while it holds the lock of the lobby.
+ * @author Oliver Scherf
+ */
+interface LobbyListener {
+
+	/**
+	 * The game of the lobby is over, it was finished, surrendered, interrupted or timed out.
+	 * @param lobby the lobby.
+	 */
+	public void lobbyFinished(GameLobby lobby);
+}
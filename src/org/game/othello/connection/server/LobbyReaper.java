@@ -0,0 +1,100 @@
+package org.game.othello.connection.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Ends the lobbies nobody uses anymore. Finished lobbies are removed by the {@link LobbyRegistry} when they end,
+ * the reaper catches the ones that never end by themselves: a lobby that waits for the second player longer than
+ * {@link #WAITING_TIMEOUT_MILLIS} and a started game without a message for {@link #STARTED_TIMEOUT_MILLIS}.
+ * It runs on a scheduler every {@link #SWEEP_INTERVAL_MILLIS}, independent of new connections.
+ * @author Oliver Scherf
+ */
+class LobbyReaper implements Runnable, Loggable, OthelloConstants {
+
+	public static final long SWEEP_INTERVAL_MILLIS = 30 * 1000;
+	public static final long WAITING_TIMEOUT_MILLIS = 15 * 60 * 1000;
+	public static final long STARTED_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
+	private Logger logger;
+	private final LobbyRegistry lobbies;
+	private final long waitingTimeoutNanos;
+	private final long startedTimeoutNanos;
+
+	/**
+	 * Instantiates a new LobbyReaper with the default timeouts.
+	 * @param lobbies the lobbies of the server.
+	 */
+	LobbyReaper(LobbyRegistry lobbies) {
+		this(lobbies, WAITING_TIMEOUT_MILLIS, STARTED_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Instantiates a new LobbyReaper.
+	 * @param lobbies the lobbies of the server.
+	 * @param waitingTimeoutMillis how long a lobby may wait for the second player.
+	 * @param startedTimeoutMillis how long a started game may go without a message.
+	 */
+	LobbyReaper(LobbyRegistry lobbies, long waitingTimeoutMillis, long startedTimeoutMillis) {
+		this.initializeLogging();
+		this.lobbies = lobbies;
+		this.waitingTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitingTimeoutMillis);
+		this.startedTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(startedTimeoutMillis);
+	}
+
+	/**
+	 * Runs a sweep, called by the scheduler.
+	 */
+	@Override
+	public void run() {
+		try {
+			this.sweep(System.nanoTime());
+		} catch (RuntimeException e) {
+			// An exception would stop the scheduler from running further sweeps.
+			this.err("The sweep of the lobbies failed", e);
+		}
+	}
+
+	/**
+	 * Ends the lobbies that timed out, the registry removes them then.
+	 * @param now the time of the sweep, from {@link System#nanoTime()}.
+	 * @return the number of lobbies that were ended.
+	 */
+	int sweep(long now) {
+		int ended = 0;
+		for (GameLobby lobby : this.lobbies.getLobbies()) {
+			int state = lobby.getState();
+			long idle = now - lobby.getLastActivity();
+			if (state == ONLINE_GAME_STATE_NOT_STARTED && idle > this.waitingTimeoutNanos) {
+				this.log(INFO, "Nobody joined the lobby " + lobby.toString() + ", closing it now.");
+				lobby.endGame();
+				++ended;
+			} else if (state == ONLINE_GAME_STATE_STARTED && idle > this.startedTimeoutNanos) {
+				this.log(INFO, "The game " + lobby.toString() + " is idle, closing it now.");
+				lobby.endGame();
+				++ended;
+			}
+		}
+		return ended;
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.LobbyReaper");
+		this.logger.setLevel(null);
+	}
+}
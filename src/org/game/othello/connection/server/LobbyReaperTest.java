@@ -0,0 +1,101 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.util.concurrent.TimeUnit;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.SurrenderCommando;
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class LobbyReaperTest implements OthelloConstants {
+
+	private static final long WAITING_TIMEOUT_MILLIS = 1000;
+	private static final long STARTED_TIMEOUT_MILLIS = 5000;
+
+	private LobbyRegistry lobbies;
+	private LobbyReaper reaper;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.lobbies = new LobbyRegistry();
+		this.reaper = new LobbyReaper(this.lobbies, WAITING_TIMEOUT_MILLIS, STARTED_TIMEOUT_MILLIS);
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.LobbyRegistry#lobbyFinished(GameLobby)}.
+	 * A lobby is removed as soon as its game is over, without a sweep.
+	 */
+	@Test
+	public void testFinishedLobbyIsRemoved() {
+		GameLobby surrendered = this.lobbies.create();
+		FakePlayerConnection black = new FakePlayerConnection();
+		surrendered.newClientConnection(black);
+		surrendered.newClientConnection(new FakePlayerConnection());
+		surrendered.receiveObject(new SurrenderCommando(), black);
+		Assert.assertEquals(ONLINE_GAME_STATE_FINISHED, surrendered.getState());
+		Assert.assertNull(this.lobbies.get(surrendered.getLobbyNumber()));
+
+		GameLobby lost = this.lobbies.create();
+		FakePlayerConnection host = new FakePlayerConnection();
+		lost.newClientConnection(host);
+		lost.handleConnectionLost(host);
+		Assert.assertNull(this.lobbies.get(lost.getLobbyNumber()));
+		Assert.assertEquals(0, this.lobbies.size());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.LobbyReaper#sweep(long)}.
+	 * A lobby that nobody joins is closed after the timeout.
+	 */
+	@Test
+	public void testWaitingTimeout() {
+		GameLobby lobby = this.lobbies.create();
+		FakePlayerConnection host = new FakePlayerConnection();
+		lobby.newClientConnection(host);
+		long start = lobby.getLastActivity();
+		Assert.assertEquals(0, this.reaper.sweep(start + millis(WAITING_TIMEOUT_MILLIS / 2)));
+		Assert.assertSame(lobby, this.lobbies.get(lobby.getLobbyNumber()));
+		Assert.assertEquals(1, this.reaper.sweep(start + millis(2 * WAITING_TIMEOUT_MILLIS)));
+		Assert.assertTrue(host.isClosed());
+		Assert.assertEquals(ONLINE_GAME_STATE_FINISHED, lobby.getState());
+		Assert.assertEquals(0, this.lobbies.size());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.LobbyReaper#sweep(long)}.
+	 * A started game is only closed when nobody sent anything for the timeout, every message extends it.
+	 */
+	@Test
+	public void testStartedTimeout() {
+		GameLobby lobby = this.lobbies.create();
+		FakePlayerConnection black = new FakePlayerConnection();
+		FakePlayerConnection white = new FakePlayerConnection();
+		lobby.newClientConnection(black);
+		lobby.newClientConnection(white);
+		Assert.assertEquals(0, this.reaper.sweep(lobby.getLastActivity() + millis(2 * WAITING_TIMEOUT_MILLIS)));
+		lobby.receiveObject(new Coordinate(5, 4), black);
+		long lastMove = lobby.getLastActivity();
+		Assert.assertEquals(0, this.reaper.sweep(lastMove + millis(STARTED_TIMEOUT_MILLIS / 2)));
+		Assert.assertEquals(ONLINE_GAME_STATE_STARTED, lobby.getState());
+		Assert.assertEquals(1, this.reaper.sweep(lastMove + millis(2 * STARTED_TIMEOUT_MILLIS)));
+		Assert.assertTrue(black.isClosed());
+		Assert.assertTrue(white.isClosed());
+		Assert.assertEquals(0, this.lobbies.size());
+	}
+}
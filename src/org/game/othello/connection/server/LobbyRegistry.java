@@ -0,0 +1,136 @@
+package org.game.othello.connection.server;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * The open lobbies of the server by their number. Looking up, adding and removing a lobby do not scan the others.
+ * The numbers come from a bitmap of the numbers in use: a free number is searched from a random start, so the
+ * numbers are hard to guess, and the search skips 64 numbers in use at once. Three digit numbers are handed out
+ * as long as there are some left, then numbers up to {@link OthelloConstants#LOBBY_NUMBER_MAX}.
+ * A lobby is removed as soon as its game is over, its number is free again then.
+ * @author Oliver Scherf
+ */
+class LobbyRegistry implements LobbyListener, OthelloConstants {
+
+	/* The first number of the range that is used when the three digit numbers are used up. */
+	private static final int LARGE_LOBBY_NUMBER_MIN = 1000;
+
+	private final ConcurrentHashMap<Integer, GameLobby> lobbies = new ConcurrentHashMap<Integer, GameLobby>();
+	/* Guarded by this. */
+	private final BitSet numbersInUse = new BitSet(LOBBY_NUMBER_MAX + 1);
+	private final Random random = new Random();
+	/* Passed to the lobbies for the grace periods of players that lost the connection. */
+	private final ScheduledExecutorService scheduler;
+	private final long sessionGraceMillis;
+	/* Passed to the lobbies to announce the forced results, null if they are not announced. */
+	private final EndgameAnnouncer endgameAnnouncer;
+
+	/**
+	 * Instantiates a new LobbyRegistry, the games of its lobbies can not be resumed.
+	 */
+	LobbyRegistry() {
+		this(null, 0, null);
+	}
+
+	/**
+	 * Instantiates a new LobbyRegistry.
+	 * @param scheduler runs the grace periods of the lobbies, null if the games can not be resumed.
+	 * @param sessionGraceMillis the time a player has to resume the game after the connection broke.
+	 * @param endgameAnnouncer tells the players of the lobbies the forced result, null to not announce it.
+	 */
+	LobbyRegistry(ScheduledExecutorService scheduler, long sessionGraceMillis, EndgameAnnouncer endgameAnnouncer) {
+		this.scheduler = scheduler;
+		this.sessionGraceMillis = sessionGraceMillis;
+		this.endgameAnnouncer = endgameAnnouncer;
+	}
+
+	/**
+	 * Creates a lobby with a free number.
+	 * @return the new lobby or null, if all numbers are in use.
+	 */
+	GameLobby create() {
+		int number = this.allocateNumber();
+		if (number < 0) {
+			return null;
+		}
+		GameLobby lobby = new GameLobby(number, this.scheduler, this.sessionGraceMillis);
+		lobby.setLobbyListener(this);
+		lobby.setEndgameAnnouncer(this.endgameAnnouncer);
+		this.lobbies.put(number, lobby);
+		return lobby;
+	}
+
+	private synchronized int allocateNumber() {
+		int number = this.allocateNumber(LOBBY_NUMBER_MIN, LARGE_LOBBY_NUMBER_MIN);
+		if (number < 0) {
+			number = this.allocateNumber(LARGE_LOBBY_NUMBER_MIN, LOBBY_NUMBER_MAX + 1);
+		}
+		if (number >= 0) {
+			this.numbersInUse.set(number);
+		}
+		return number;
+	}
+
+	/**
+	 * @param from the first number of the range.
+	 * @param to the end of the range, exclusive.
+	 * @return a free number of the range or -1.
+	 */
+	private int allocateNumber(int from, int to) {
+		int start = from + this.random.nextInt(to - from);
+		int number = this.numbersInUse.nextClearBit(start);
+		if (number < to) {
+			return number;
+		}
+		number = this.numbersInUse.nextClearBit(from);
+		return number < start ? number : -1;
+	}
+
+	/**
+	 * @param number the lobby number.
+	 * @return the lobby or null, if there is no lobby with that number.
+	 */
+	GameLobby get(int number) {
+		return this.lobbies.get(number);
+	}
+
+	/**
+	 * Removes the lobby, its number can be handed out again.
+	 * @param lobby the lobby.
+	 * @return false, if the lobby was already removed.
+	 */
+	boolean remove(GameLobby lobby) {
+		if (!this.lobbies.remove(lobby.getLobbyNumber(), lobby)) {
+			return false;
+		}
+		synchronized (this) {
+			this.numbersInUse.clear(lobby.getLobbyNumber());
+		}
+		return true;
+	}
+
+	@Override
+	public void lobbyFinished(GameLobby lobby) {
+		this.remove(lobby);
+	}
+
+	/**
+	 * @return a live view of the lobbies, it can be iterated while lobbies are added and removed.
+	 */
+	Collection<GameLobby> getLobbies() {
+		return this.lobbies.values();
+	}
+
+	/**
+	 * @return the number of lobbies.
+	 */
+	int size() {
+		return this.lobbies.size();
+	}
+}
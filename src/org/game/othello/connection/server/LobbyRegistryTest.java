@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class LobbyRegistryTest implements OthelloConstants {
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.LobbyRegistry#create()}.
+	 * The three digit numbers are handed out first, each only once.
+	 */
+	@Test
+	public void testCreate() {
+		LobbyRegistry registry = new LobbyRegistry();
+		BitSet numbers = new BitSet();
+		for (int i = 0; i < 900; ++i) {
+			GameLobby lobby = registry.create();
+			int number = lobby.getLobbyNumber();
+			Assert.assertTrue(number >= LOBBY_NUMBER_MIN && number <= 999);
+			Assert.assertFalse(numbers.get(number));
+			numbers.set(number);
+			Assert.assertSame(lobby, registry.get(number));
+		}
+		GameLobby lobby = registry.create();
+		Assert.assertTrue(lobby.getLobbyNumber() >= 1000 && lobby.getLobbyNumber() <= LOBBY_NUMBER_MAX);
+		Assert.assertEquals(901, registry.size());
+
+		GameLobby removed = registry.get(500);
+		Assert.assertTrue(registry.remove(removed));
+		Assert.assertFalse(registry.remove(removed));
+		Assert.assertNull(registry.get(500));
+		Assert.assertEquals(500, registry.create().getLobbyNumber());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.LobbyRegistry#create()}.
+	 * Lobbies created at the same time get different numbers.
+	 */
+	@Test
+	public void testCreateConcurrently() throws InterruptedException {
+		final LobbyRegistry registry = new LobbyRegistry();
+		final AtomicInteger failed = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < 5000; ++i) {
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					GameLobby lobby = registry.create();
+					if (lobby == null || registry.get(lobby.getLobbyNumber()) != lobby) {
+						failed.incrementAndGet();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		Assert.assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+		Assert.assertEquals(0, failed.get());
+		Assert.assertEquals(5000, registry.size());
+	}
+}
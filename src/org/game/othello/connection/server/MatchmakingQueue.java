@@ -0,0 +1,252 @@
+package org.game.othello.connection.server;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.connection.FindGameCommando;
+import org.game.othello.connection.NoLobbyFoundCommando;
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Pairs the players that sent a {@link FindGameCommando}. The connections only add themselves to a lock-free
+ * queue, the pairing happens in passes on a scheduler, every {@link #PASS_INTERVAL_MILLIS}. A pass sorts the
+ * new players into buckets of {@link #RATING_BUCKET_WIDTH} rating points, pairs the players of each bucket in
+ * the order they came and tries the one left over with the next bucket. How far apart two players may be grows
+ * with the time they wait, by one bucket every {@link #WIDEN_INTERVAL_MILLIS}, so nobody waits forever.
+ * @author Oliver Scherf
+ */
+class MatchmakingQueue implements Runnable, Loggable, OthelloConstants {
+
+	public static final int RATING_BUCKET_WIDTH = 100;
+	public static final long PASS_INTERVAL_MILLIS = 50;
+	public static final long WIDEN_INTERVAL_MILLIS = 200;
+	/* The time to match of the last matched players, for the percentiles. */
+	private static final int LATENCY_SAMPLES = 1 << 14;
+
+	private Logger logger;
+	private final LobbyRegistry lobbies;
+	private final Queue<Waiting> arrivals = new ConcurrentLinkedQueue<Waiting>();
+	/* Only used by the pass. */
+	private final TreeMap<Integer, ArrayDeque<Waiting>> buckets = new TreeMap<Integer, ArrayDeque<Waiting>>();
+	private final AtomicInteger depth = new AtomicInteger();
+	private final AtomicLong matches = new AtomicLong();
+	/* Guarded by themselves. */
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private long latencyCount;
+
+	/**
+	 * A player in the queue.
+	 */
+	private static class Waiting {
+
+		private final PlayerConnection con;
+		private final int bucket;
+		private final long since;
+
+		Waiting(PlayerConnection con, int rating, long since) {
+			this.con = con;
+			this.bucket = Math.floorDiv(rating, RATING_BUCKET_WIDTH);
+			this.since = since;
+		}
+
+		/**
+		 * @param now the time of the pass.
+		 * @return how many buckets the player is willing to go up or down.
+		 */
+		int reach(long now) {
+			return (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(now - this.since) / WIDEN_INTERVAL_MILLIS);
+		}
+	}
+
+	/**
+	 * Instantiates a new MatchmakingQueue.
+	 * @param lobbies the lobbies of the server, the matched players get a new one.
+	 */
+	MatchmakingQueue(LobbyRegistry lobbies) {
+		this.initializeLogging();
+		this.lobbies = lobbies;
+	}
+
+	/**
+	 * Adds the player to the queue, it may be called from any thread.
+	 * @param con the player.
+	 * @param rating the rating of the player.
+	 */
+	void enqueue(PlayerConnection con, int rating) {
+		this.enqueue(con, rating, System.nanoTime());
+	}
+
+	/**
+	 * @param now the time the player started waiting, from {@link System#nanoTime()}.
+	 */
+	void enqueue(PlayerConnection con, int rating, long now) {
+		this.depth.incrementAndGet();
+		this.arrivals.add(new Waiting(con, rating, now));
+	}
+
+	/**
+	 * Runs a pass, called by the scheduler.
+	 */
+	@Override
+	public void run() {
+		try {
+			this.runPass(System.nanoTime());
+		} catch (RuntimeException e) {
+			// An exception would stop the scheduler from running further passes.
+			this.err("The matchmaking pass failed", e);
+		}
+	}
+
+	/**
+	 * Pairs as many players as possible.
+	 * @param now the time of the pass, from {@link System#nanoTime()}.
+	 * @return the number of games that were started.
+	 */
+	int runPass(long now) {
+		Waiting arrival;
+		while ((arrival = this.arrivals.poll()) != null) {
+			ArrayDeque<Waiting> bucket = this.buckets.get(arrival.bucket);
+			if (bucket == null) {
+				bucket = new ArrayDeque<Waiting>();
+				this.buckets.put(arrival.bucket, bucket);
+			}
+			bucket.add(arrival);
+		}
+		int games = 0;
+		// The previous bucket, at most one player is left in it.
+		ArrayDeque<Waiting> leftOver = null;
+		Iterator<Map.Entry<Integer, ArrayDeque<Waiting>>> it = this.buckets.entrySet().iterator();
+		while (it.hasNext()) {
+			ArrayDeque<Waiting> bucket = it.next().getValue();
+			this.removeClosed(bucket);
+			if (leftOver != null && !leftOver.isEmpty() && !bucket.isEmpty()) {
+				Waiting lower = leftOver.peekFirst();
+				Waiting upper = bucket.peekFirst();
+				if (upper.bucket - lower.bucket <= Math.max(lower.reach(now), upper.reach(now))) {
+					this.startGame(leftOver.pollFirst(), bucket.pollFirst(), now);
+					++games;
+				}
+			}
+			while (bucket.size() >= 2) {
+				this.startGame(bucket.pollFirst(), bucket.pollFirst(), now);
+				++games;
+			}
+			leftOver = bucket;
+		}
+		it = this.buckets.entrySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().getValue().isEmpty()) {
+				it.remove();
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Drops the players that disconnected while they were waiting.
+	 */
+	private void removeClosed(ArrayDeque<Waiting> bucket) {
+		Iterator<Waiting> it = bucket.iterator();
+		while (it.hasNext()) {
+			if (it.next().con.isClosed()) {
+				it.remove();
+				this.depth.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Creates the lobby, the player who waited longer starts.
+	 */
+	private void startGame(Waiting first, Waiting second, long now) {
+		if (second.since < first.since) {
+			Waiting longer = second;
+			second = first;
+			first = longer;
+		}
+		this.depth.addAndGet(-2);
+		GameLobby lobby = this.lobbies.create();
+		// The lobby is set first, the first move of Black may come right after the InitializationCommando.
+		// A client may join a new lobby by guessing its number before the game starts, then the next one is tried.
+		while (lobby != null) {
+			first.con.setLobby(lobby);
+			second.con.setLobby(lobby);
+			if (lobby.startMatch(first.con, second.con)) {
+				break;
+			}
+			lobby = this.lobbies.create();
+		}
+		if (lobby == null) {
+			this.log(WARNING, "All lobby numbers are in use, the matched players are sent away.");
+			for (Waiting player : new Waiting[] { first, second }) {
+				player.con.setLobby(null);
+				player.con.sendObject(new NoLobbyFoundCommando());
+				player.con.closeConnection();
+			}
+			return;
+		}
+		this.matches.incrementAndGet();
+		synchronized (this.latencies) {
+			this.latencies[(int) (this.latencyCount++ % LATENCY_SAMPLES)] = now - first.since;
+			this.latencies[(int) (this.latencyCount++ % LATENCY_SAMPLES)] = now - second.since;
+		}
+	}
+
+	/**
+	 * @return the players waiting for an opponent.
+	 */
+	int getQueueDepth() {
+		return this.depth.get();
+	}
+
+	/**
+	 * @return the games started so far.
+	 */
+	long getMatches() {
+		return this.matches.get();
+	}
+
+	/**
+	 * @param percentile between 0 and 100.
+	 * @return the time to match in milliseconds of the last matched players, 0 if none was matched yet.
+	 */
+	double getLatencyPercentile(int percentile) {
+		long[] sorted;
+		synchronized (this.latencies) {
+			sorted = Arrays.copyOf(this.latencies, (int) Math.min(this.latencyCount, LATENCY_SAMPLES));
+		}
+		if (sorted.length == 0) {
+			return 0;
+		}
+		Arrays.sort(sorted);
+		int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.MatchmakingQueue");
+		this.logger.setLevel(null);
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class MatchmakingQueueTest implements OthelloConstants {
+
+	private static final long PASS_NANOS = TimeUnit.MILLISECONDS.toNanos(MatchmakingQueue.PASS_INTERVAL_MILLIS);
+
+	private LobbyRegistry lobbies;
+	private MatchmakingQueue queue;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.lobbies = new LobbyRegistry();
+		this.queue = new MatchmakingQueue(this.lobbies);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.MatchmakingQueue#runPass(long)}.
+	 * Two players of the same bucket get a game on the next pass, the one who came first starts.
+	 */
+	@Test
+	public void testSameBucket() {
+		FakePlayerConnection first = new FakePlayerConnection();
+		FakePlayerConnection second = new FakePlayerConnection();
+		FakePlayerConnection third = new FakePlayerConnection();
+		this.queue.enqueue(first, 1510, 0);
+		this.queue.enqueue(second, 1590, 1);
+		this.queue.enqueue(third, 1550, 2);
+		Assert.assertEquals(3, this.queue.getQueueDepth());
+		Assert.assertEquals(1, this.queue.runPass(PASS_NANOS));
+		Assert.assertEquals(1, this.queue.getQueueDepth());
+		Assert.assertTrue(first.getInitialization().getStartingPlayer());
+		Assert.assertFalse(second.getInitialization().getStartingPlayer());
+		Assert.assertNull(third.getInitialization());
+		Assert.assertSame(first.lobby, second.lobby);
+		Assert.assertSame(first.lobby, this.lobbies.get(first.getInitialization().getLobbyNumer()));
+		Assert.assertEquals(ONLINE_GAME_STATE_STARTED, first.lobby.getState());
+		Assert.assertEquals(1, this.queue.getMatches());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.MatchmakingQueue#runPass(long)}.
+	 * Players far apart are only paired after they waited long enough.
+	 */
+	@Test
+	public void testWidening() {
+		FakePlayerConnection low = new FakePlayerConnection();
+		FakePlayerConnection high = new FakePlayerConnection();
+		this.queue.enqueue(low, 1000, 0);
+		this.queue.enqueue(high, 1450, 0);
+		long waited = 3 * TimeUnit.MILLISECONDS.toNanos(MatchmakingQueue.WIDEN_INTERVAL_MILLIS);
+		Assert.assertEquals(0, this.queue.runPass(PASS_NANOS));
+		Assert.assertEquals(0, this.queue.runPass(waited));
+		Assert.assertEquals(2, this.queue.getQueueDepth());
+		Assert.assertEquals(1, this.queue.runPass(waited + 2 * TimeUnit.MILLISECONDS.toNanos(MatchmakingQueue.WIDEN_INTERVAL_MILLIS)));
+		Assert.assertNotNull(low.getInitialization());
+		Assert.assertNotNull(high.getInitialization());
+		Assert.assertEquals(0, this.queue.getQueueDepth());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.MatchmakingQueue#runPass(long)}.
+	 * A player who left the queue is not paired.
+	 */
+	@Test
+	public void testClosedPlayer() {
+		FakePlayerConnection gone = new FakePlayerConnection();
+		FakePlayerConnection first = new FakePlayerConnection();
+		FakePlayerConnection second = new FakePlayerConnection();
+		this.queue.enqueue(gone, 1500, 0);
+		Assert.assertEquals(0, this.queue.runPass(PASS_NANOS));
+		gone.closeConnection();
+		this.queue.enqueue(first, 1500, PASS_NANOS);
+		Assert.assertEquals(0, this.queue.runPass(2 * PASS_NANOS));
+		Assert.assertEquals(1, this.queue.getQueueDepth());
+		this.queue.enqueue(second, 1500, 2 * PASS_NANOS);
+		Assert.assertEquals(1, this.queue.runPass(3 * PASS_NANOS));
+		Assert.assertTrue(gone.received.isEmpty());
+		Assert.assertTrue(first.getInitialization().getStartingPlayer());
+		Assert.assertEquals(0, this.queue.getQueueDepth());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.GameLobby#startMatch(PlayerConnection, PlayerConnection)}.
+	 * The number of a new lobby is known before the matched game starts, a client that joined by the number keeps it.
+	 */
+	@Test
+	public void testStartMatchInJoinedLobby() {
+		GameLobby lobby = this.lobbies.create();
+		FakePlayerConnection guesser = new FakePlayerConnection();
+		Assert.assertTrue(lobby.newClientConnection(guesser));
+		Assert.assertFalse(lobby.startMatch(new FakePlayerConnection(), new FakePlayerConnection()));
+		Assert.assertEquals(ONLINE_GAME_STATE_NOT_STARTED, lobby.getState());
+		Assert.assertEquals(1, guesser.received.size());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.MatchmakingQueue#runPass(long)}.
+	 * 20000 players with normally distributed ratings arrive over 20 seconds, 99 percent of them get a game within a second.
+	 */
+	@Test
+	public void testTimeToMatch() {
+		Random random = new Random(42);
+		int players = 20000;
+		long arrivalNanos = TimeUnit.SECONDS.toNanos(20) / players;
+		long now = 0;
+		int arrived = 0;
+		while (arrived < players) {
+			long passEnd = now + PASS_NANOS;
+			for (; arrived < players && arrived * arrivalNanos < passEnd; ++arrived) {
+				this.queue.enqueue(new FakePlayerConnection(), (int) Math.round(1500 + 300 * random.nextGaussian()), arrived * arrivalNanos);
+			}
+			now = passEnd;
+			this.queue.runPass(now);
+		}
+		for (int i = 0; i < 100 && this.queue.getQueueDepth() > 1; ++i) {
+			now += PASS_NANOS;
+			this.queue.runPass(now);
+		}
+		Assert.assertTrue(this.queue.getQueueDepth() <= 1);
+		Assert.assertEquals(players / 2, this.queue.getMatches());
+		double p99 = this.queue.getLatencyPercentile(99);
+		Assert.assertTrue(p99 < 1000);
+		Assert.assertTrue(this.queue.getLatencyPercentile(50) <= p99);
+	}
+}
@@ -0,0 +1,25 @@
+package org.game.othello.connection.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the bytes of a client, as they arrive, into messages. One per protocol, see {@link NioConnection}.
+ * @author Oliver Scherf
+ */
+interface MessageDecoder {
+
+	/**
+	 * Appends received bytes.
+	 * @param source the bytes between position and limit, they are consumed.
+	 * @throws IOException if the client sent too much without a complete message.
+	 */
+	public void feed(ByteBuffer source) throws IOException;
+
+	/**
+	 * @return the next complete message or null if more bytes are needed.
+	 * @throws IOException if the stream is corrupted.
+	 * @throws ClassNotFoundException if the class of an object is unknown.
+	 */
+	public Object next() throws IOException, ClassNotFoundException;
+}
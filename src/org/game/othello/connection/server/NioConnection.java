@@ -0,0 +1,422 @@
+package org.game.othello.connection.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.FindGameCommando;
+import org.game.othello.connection.PongCommando;
+import org.game.othello.connection.ResumeCommando;
+import org.game.othello.connection.SpectateCommando;
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * The connection of a client on a {@link NioEventLoop}, the non-blocking counterpart of {@link ClientConnection}.
+ * It speaks the same protocols: the first byte tells whether the client writes a Java object stream or the
+ * {@link BinaryProtocol}. The first message is the lobby number, a {@link FindGameCommando}, a
+ * {@link ResumeCommando} or a {@link SpectateCommando}, every further message is handed to the
+ * {@link GameLobby}. Reading and writing happen on the event loop of the connection, {@link #sendObject(Object)}
+ * can be called from any thread, it encodes the message and queues the bytes. A client that does not read more
+ * than {@link #MAX_PENDING_BYTES} is disconnected, so is a client that went silent, see {@link HeartbeatMonitor}.
+ * @author Oliver Scherf
+ */
+class NioConnection implements PlayerConnection, Loggable, OthelloConstants {
+
+	public static final int MAX_PENDING_BYTES = 1 << 20;
+	/* Reads per readiness event, so one busy client can not starve the others of the loop. */
+	private static final int MAX_READS_PER_EVENT = 16;
+
+	private Logger logger;
+	private final SocketChannel channel;
+	private final NioEventLoop loop;
+	private final OthelloServer srv;
+	private final InetAddress address;
+	private SelectionKey key;
+	/* Chosen by the first byte of the client. */
+	private MessageDecoder decoder;
+	private volatile boolean binary;
+	/* The version of the BinaryProtocol both sides speak. */
+	private volatile int binaryVersion;
+	private boolean handshakePending;
+	/* Only for clients that write an object stream. */
+	private volatile StreamingObjectOutputStream outputToClient;
+	private final ByteArrayOutputStream outputBytes = new ByteArrayOutputStream(256);
+	private final Queue<ByteBuffer> pending = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicLong pendingBytes = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private volatile boolean closeRequested;
+	private volatile GameLobby lobby;
+	private boolean joined;
+	private final HeartbeatMonitor.Heartbeat heartbeat;
+
+	private final Runnable connectionLostTask = new Runnable() {
+		@Override
+		public void run() {
+			NioConnection.this.connectionLost();
+		}
+	};
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			NioConnection.this.flushScheduled.set(false);
+			NioConnection.this.flush();
+		}
+	};
+
+	/**
+	 * Instantiates a new NioConnection, it is registered by the loop.
+	 * @param channel the accepted, non-blocking channel.
+	 * @param loop the event loop that serves the channel.
+	 * @param srv the server that manages the lobbies.
+	 */
+	NioConnection(SocketChannel channel, NioEventLoop loop, OthelloServer srv) {
+		this.initializeLogging();
+		this.channel = channel;
+		this.loop = loop;
+		this.srv = srv;
+		this.address = channel.socket().getInetAddress();
+		// A client that never sends anything is dropped by the heartbeat, the loop closes the channel.
+		this.heartbeat = srv.getHeartbeatMonitor().watch(this, new Runnable() {
+			@Override
+			public void run() {
+				NioConnection.this.loop.execute(NioConnection.this.connectionLostTask);
+			}
+		});
+		this.log(INFO, "Successfully created a connection to " + this.address);
+	}
+
+	/**
+	 * @param key the registration of the channel at the selector of the loop.
+	 */
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Reads the available bytes and handles every complete object, called by the loop.
+	 * @param buffer the read buffer of the loop, it is empty before and after.
+	 */
+	void handleRead(ByteBuffer buffer) {
+		try {
+			for (int reads = 0; reads < MAX_READS_PER_EVENT; ++reads) {
+				int count = this.channel.read(buffer);
+				if (count < 0) {
+					this.connectionLost();
+					return;
+				}
+				if (count == 0) {
+					break;
+				}
+				buffer.flip();
+				if (this.decoder == null) {
+					this.detectProtocol(buffer.get(buffer.position()));
+				}
+				this.decoder.feed(buffer);
+				buffer.clear();
+				this.decodeMessages();
+				if (this.closeRequested) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			this.log(WARNING, "IOException (Connection lost or corrupted stream): " + this.address + ". Closing the game now.");
+			buffer.clear();
+			this.connectionLost();
+		} catch (ClassNotFoundException e) {
+			this.err("Class was not found, please make sure client and server are up to date! Closing connection now.", e);
+			buffer.clear();
+			this.closeNow();
+		}
+	}
+
+	/**
+	 * The handshake of the binary protocol starts with a letter, an object stream with its magic.
+	 * @param firstByte the first byte of the client.
+	 * @throws IOException if the stream header can not be written.
+	 */
+	private void detectProtocol(byte firstByte) throws IOException {
+		if (BinaryProtocol.isHandshake(firstByte)) {
+			this.decoder = new FrameDecoder();
+			this.binary = true;
+			this.handshakePending = true;
+		} else {
+			this.decoder = new ObjectStreamDecoder();
+			// Older clients do not answer pings and may wait silently for their opponent.
+			this.heartbeat.stop();
+			// The client reads the stream header before it reads any object.
+			this.outputToClient = new StreamingObjectOutputStream(this.outputBytes);
+			this.outputToClient.flush();
+			this.enqueue(this.outputBytes.toByteArray());
+			this.outputBytes.reset();
+		}
+	}
+
+	/**
+	 * Answers the handshake, then hands every complete message on.
+	 */
+	private void decodeMessages() throws IOException, ClassNotFoundException {
+		if (this.handshakePending) {
+			int version = ((FrameDecoder) this.decoder).readHandshake();
+			if (version < 0) {
+				return;
+			}
+			this.handshakePending = false;
+			int accepted = BinaryProtocol.negotiate(version);
+			this.enqueue(BinaryProtocol.handshake(accepted));
+			if (accepted == 0) {
+				this.log(WARNING, "The client " + this.address + " speaks no supported version of the protocol: " + version);
+				this.closeConnection();
+				return;
+			}
+			if (accepted >= BinaryProtocol.VERSION_SETTINGS) {
+				this.enqueue(this.srv.getProtocolSettings());
+			}
+			this.binaryVersion = accepted;
+			this.heartbeat.received();
+			if (accepted >= BinaryProtocol.VERSION_HEARTBEAT) {
+				this.heartbeat.startPinging();
+			} else {
+				this.heartbeat.stop();
+			}
+		}
+		Object obj;
+		while (!this.closeRequested && (obj = this.decoder.next()) != null) {
+			this.objectReceived(obj);
+		}
+	}
+
+	/**
+	 * The first object has to be the lobby number, a {@link FindGameCommando}, a {@link ResumeCommando} or a
+	 * {@link SpectateCommando}, every further object goes to the lobby.
+	 * Pongs only feed the heartbeat.
+	 * @param obj the object received from the client.
+	 */
+	private void objectReceived(Object obj) {
+		this.heartbeat.received();
+		if (obj instanceof PongCommando) {
+			return;
+		}
+		this.log(INFO, this.address + ": Received an Object: " + obj.toString());
+		if (!this.joined) {
+			if (obj instanceof Integer) {
+				this.joined = true;
+				this.srv.findAndJoinLobby((Integer) obj, this);
+			} else if (obj instanceof FindGameCommando) {
+				this.joined = true;
+				this.srv.findMatch((FindGameCommando) obj, this);
+			} else if (obj instanceof ResumeCommando && this.canResume()) {
+				this.joined = true;
+				this.srv.resumeSession((ResumeCommando) obj, this);
+			} else if (obj instanceof SpectateCommando && this.binary && this.binaryVersion >= BinaryProtocol.VERSION_SPECTATE) {
+				this.joined = true;
+				this.srv.spectate((SpectateCommando) obj, this);
+			} else {
+				this.log(ERROR, "The first object was not an Integer, a FindGameCommando, a ResumeCommando or a SpectateCommando."
+						+ " Closing connection now.");
+				this.closeNow();
+			}
+			return;
+		}
+		GameLobby lobby = this.lobby;
+		if (lobby != null && lobby.getState() == ONLINE_GAME_STATE_STARTED) {
+			lobby.receiveObject(obj, this);
+		}
+		if (lobby != null && lobby.getState() == ONLINE_GAME_STATE_FINISHED) {
+			this.log(INFO, "The game " + lobby.toString() + " is over.");
+			this.closeConnection();
+		}
+	}
+
+	/**
+	 * The client closed the connection or it broke, the lobby informs the opponent.
+	 */
+	private void connectionLost() {
+		GameLobby lobby = this.lobby;
+		if (lobby != null && lobby.getState() != ONLINE_GAME_STATE_FINISHED) {
+			lobby.handleConnectionLost(this);
+		}
+		this.closeNow();
+	}
+
+	@Override
+	public void sendObject(Object obj) {
+		if (this.closeRequested) {
+			return;
+		}
+		byte[] bytes;
+		if (this.binary) {
+			bytes = BinaryProtocol.encode(obj, this.binaryVersion);
+		} else {
+			synchronized (this) {
+				try {
+					this.outputToClient.writeMessage(obj);
+				} catch (IOException e) {
+					this.err("Error while sending object: " + obj.toString(), e);
+					return;
+				}
+				bytes = this.outputBytes.toByteArray();
+				this.outputBytes.reset();
+			}
+		}
+		this.enqueue(bytes);
+		this.log(INFO, "Send " + obj.toString() + " to the client " + this.address);
+	}
+
+	/**
+	 * The frame is queued as it is, all spectators of a lobby share its bytes.
+	 */
+	@Override
+	public boolean offerFrame(byte[] frame, int maxPendingBytes) {
+		if (this.closeRequested) {
+			return true;
+		}
+		if (this.pendingBytes.get() + frame.length > maxPendingBytes) {
+			return false;
+		}
+		this.enqueue(frame);
+		return true;
+	}
+
+	/**
+	 * Queues the bytes and makes sure the loop writes them.
+	 * @param bytes the encoded messages.
+	 */
+	private void enqueue(byte[] bytes) {
+		if (this.pendingBytes.addAndGet(bytes.length) > MAX_PENDING_BYTES) {
+			if (!this.closeRequested) {
+				this.log(WARNING, "The client " + this.address + " does not read, closing the connection.");
+				// The sender may hold the lock of the lobby, the loop closes the channel and tells the lobby like after a read error.
+				this.closeRequested = true;
+				this.loop.execute(this.connectionLostTask);
+			}
+			return;
+		}
+		this.pending.add(ByteBuffer.wrap(bytes));
+		this.scheduleFlush();
+	}
+
+	private void scheduleFlush() {
+		if (this.flushScheduled.compareAndSet(false, true)) {
+			this.loop.execute(this.flushTask);
+		}
+	}
+
+	/**
+	 * Writes the queued bytes until the socket buffer is full, the rest is written when the channel is writable again.
+	 * Called on the loop.
+	 */
+	void flush() {
+		if (!this.channel.isOpen()) {
+			return;
+		}
+		try {
+			ByteBuffer bytes;
+			while ((bytes = this.pending.peek()) != null) {
+				int written = this.channel.write(bytes);
+				this.pendingBytes.addAndGet(-written);
+				this.bytesWritten.addAndGet(written);
+				if (bytes.hasRemaining()) {
+					this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				this.pending.poll();
+			}
+			if (this.key != null && this.key.isValid()) {
+				this.key.interestOps(SelectionKey.OP_READ);
+			}
+			if (this.closeRequested) {
+				this.closeNow();
+			}
+		} catch (IOException e) {
+			this.log(WARNING, "Error while writing to " + this.address + ", closing the connection.");
+			this.connectionLost();
+		}
+	}
+
+	/**
+	 * Closes the connection after the queued objects were written.
+	 */
+	@Override
+	public void closeConnection() {
+		this.closeRequested = true;
+		this.loop.execute(this.flushTask);
+	}
+
+	/**
+	 * Closes the channel at once, queued objects are dropped.
+	 */
+	private void closeNow() {
+		this.closeRequested = true;
+		this.pending.clear();
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			this.err("Error while closing channel", e);
+		}
+	}
+
+	@Override
+	public boolean isClosed() {
+		return this.closeRequested || !this.channel.isOpen();
+	}
+
+	@Override
+	public InetAddress getInetAddress() {
+		return this.address;
+	}
+
+	@Override
+	public void setLobby(GameLobby lobby) {
+		this.lobby = lobby;
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+
+	@Override
+	public int getRetainedHandles() {
+		StreamingObjectOutputStream out = this.outputToClient;
+		return out != null ? out.getRetainedHandles() : 0;
+	}
+
+	@Override
+	public boolean canResume() {
+		return this.binary && this.binaryVersion >= BinaryProtocol.VERSION_SESSION;
+	}
+
+	@Override
+	public boolean canReceiveForcedResult() {
+		return this.binary && this.binaryVersion >= BinaryProtocol.VERSION_FORCED_RESULT;
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.NioConnection");
+		this.logger.setLevel(null);
+	}
+}
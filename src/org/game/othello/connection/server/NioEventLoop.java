@@ -0,0 +1,169 @@
+package org.game.othello.connection.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * One selector thread that serves many {@link NioConnection}s. Every connection belongs to exactly one loop,
+ * so its reads, writes and closing never race. Other threads hand work to the loop with {@link #execute(Runnable)}.
+ * @author Oliver Scherf
+ */
+class NioEventLoop implements Runnable, Loggable, OthelloConstants {
+
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private Logger logger;
+	private final Selector selector;
+	private final OthelloServer srv;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	/* Shared by all connections of the loop, the decoders copy what they need. */
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+	private volatile Thread thread;
+	private volatile boolean running = true;
+
+	/**
+	 * Instantiates a new NioEventLoop.
+	 * @param srv the server that manages the lobbies.
+	 * @throws IOException if the selector can not be opened.
+	 */
+	NioEventLoop(OthelloServer srv) throws IOException {
+		this.initializeLogging();
+		this.srv = srv;
+		this.selector = Selector.open();
+	}
+
+	/**
+	 * Runs the task on the loop, soon after the current select returns.
+	 * @param task the task, it must not block.
+	 */
+	void execute(Runnable task) {
+		this.tasks.add(task);
+		if (Thread.currentThread() != this.thread) {
+			this.selector.wakeup();
+		}
+	}
+
+	/**
+	 * Hands an accepted channel to the loop, it may be called from any thread.
+	 * @param channel the accepted channel.
+	 */
+	void register(final SocketChannel channel) {
+		this.execute(new Runnable() {
+			@Override
+			public void run() {
+				NioEventLoop.this.registerNow(channel);
+			}
+		});
+	}
+
+	private void registerNow(SocketChannel channel) {
+		try {
+			channel.configureBlocking(false);
+			NioConnection con = new NioConnection(channel, this, this.srv);
+			con.setKey(channel.register(this.selector, SelectionKey.OP_READ, con));
+		} catch (ClosedChannelException e) {
+			this.log(WARNING, "The client closed the connection before it was registered.");
+		} catch (IOException e) {
+			this.err("Error while registering a new client", e);
+			try {
+				channel.close();
+			} catch (IOException e1) {
+				this.err("Error while closing channel", e1);
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		this.thread = Thread.currentThread();
+		while (this.running) {
+			try {
+				// Tasks added by the loop itself do not wake the selector up.
+				if (this.tasks.isEmpty()) {
+					this.selector.select();
+				} else {
+					this.selector.selectNow();
+				}
+			} catch (IOException e) {
+				this.err("Error while selecting, stopping the event loop", e);
+				break;
+			}
+			this.runTasks();
+			Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				NioConnection con = (NioConnection) key.attachment();
+				if (key.isValid() && key.isWritable()) {
+					con.flush();
+				}
+				if (key.isValid() && key.isReadable()) {
+					con.handleRead(this.readBuffer);
+				}
+			}
+		}
+		this.closeAll();
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = this.tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				this.err("A task of the event loop failed", e);
+			}
+		}
+	}
+
+	private void closeAll() {
+		for (SelectionKey key : this.selector.keys()) {
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				this.err("Error while closing channel", e);
+			}
+		}
+		try {
+			this.selector.close();
+		} catch (IOException e) {
+			this.err("Error while closing the selector", e);
+		}
+	}
+
+	/**
+	 * Stops the loop and closes all of its connections.
+	 */
+	void shutdown() {
+		this.running = false;
+		this.selector.wakeup();
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.NioEventLoop");
+		this.logger.setLevel(null);
+	}
+}
@@ -0,0 +1,105 @@
+package org.game.othello.connection.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Accepts clients and spreads them over a fixed number of {@link NioEventLoop}s, instead of one thread per client.
+ * The clients see no difference to the blocking server.
+ * @author Oliver Scherf
+ */
+class NioServer implements Runnable, Loggable, OthelloConstants {
+
+	private Logger logger;
+	private final OthelloServer srv;
+	private final ServerSocketChannel welcomeChannel;
+	private final NioEventLoop[] loops;
+	private int nextLoop;
+
+	/**
+	 * Binds the port and starts the event loops.
+	 * @param srv the server that manages the lobbies.
+	 * @param port the port, 0 for any free port.
+	 * @param loopCount the number of event loop threads.
+	 * @throws IOException if the port can not be bound.
+	 */
+	NioServer(OthelloServer srv, int port, int loopCount) throws IOException {
+		this.initializeLogging();
+		this.srv = srv;
+		this.welcomeChannel = ServerSocketChannel.open();
+		this.welcomeChannel.bind(new InetSocketAddress(port), 1024);
+		this.loops = new NioEventLoop[loopCount];
+		for (int i = 0; i < loopCount; ++i) {
+			this.loops[i] = new NioEventLoop(srv);
+			Thread thread = new Thread(this.loops[i], "NioEventLoop-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		this.log(INFO, "Started " + loopCount + " event loops");
+	}
+
+	@Override
+	public void run() {
+		while (this.welcomeChannel.isOpen()) {
+			SocketChannel newPlayer;
+			try {
+				newPlayer = this.welcomeChannel.accept();
+				newPlayer.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				newPlayer.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+			} catch (IOException e) {
+				if (this.welcomeChannel.isOpen()) {
+					this.err("Error while accepting a client", e);
+				}
+				continue;
+			}
+			this.log(INFO, "A new client connected: " + newPlayer.socket().getInetAddress());
+			this.loops[this.nextLoop].register(newPlayer);
+			this.nextLoop = (this.nextLoop + 1) % this.loops.length;
+		}
+	}
+
+	/**
+	 * @return the port the server listens on.
+	 */
+	int getPort() {
+		return this.welcomeChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Stops accepting clients and closes all connections.
+	 */
+	void close() {
+		try {
+			this.welcomeChannel.close();
+		} catch (IOException e) {
+			this.err("Error while closing the server channel", e);
+		}
+		for (NioEventLoop loop : this.loops) {
+			loop.shutdown();
+		}
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Server.NioServer");
+		this.logger.setLevel(null);
+	}
+}
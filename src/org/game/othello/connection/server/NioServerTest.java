@@ -0,0 +1,386 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.FindGameCommando;
+import org.game.othello.connection.InitializationCommando;
+import org.game.othello.connection.InteruptCommando;
+import org.game.othello.connection.NoLobbyFoundCommando;
+import org.game.othello.connection.PingCommando;
+import org.game.othello.connection.PongCommando;
+import org.game.othello.connection.ResumeCommando;
+import org.game.othello.connection.SnapshotCommando;
+import org.game.othello.connection.SpectateCommando;
+import org.game.othello.connection.SurrenderCommando;
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class NioServerTest implements OthelloConstants {
+
+	private static OthelloServer srv;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		srv = new OthelloServer(0, 2);
+		Thread srvThread = new Thread(srv);
+		srvThread.setDaemon(true);
+		srvThread.start();
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		srv.close();
+	}
+
+	/**
+	 * A client as the OthelloClient connects: the stream header is written first, then the server's header is read.
+	 */
+	private static class TestClient {
+
+		private final Socket socket;
+		private final ObjectOutputStream out;
+		private final ObjectInputStream in;
+
+		TestClient() throws IOException {
+			this.socket = new Socket("localhost", srv.getPort());
+			this.socket.setSoTimeout(5000);
+			this.out = new ObjectOutputStream(this.socket.getOutputStream());
+			this.out.flush();
+			this.in = new ObjectInputStream(this.socket.getInputStream());
+		}
+
+		void send(Object obj) throws IOException {
+			this.out.writeObject(obj);
+			this.out.flush();
+		}
+
+		Object receive() throws IOException, ClassNotFoundException {
+			return this.in.readObject();
+		}
+	}
+
+	/**
+	 * A client of the binary protocol.
+	 */
+	private static class BinaryTestClient {
+
+		private final Socket socket;
+		private final InputStream in;
+		private final long heartbeatTimeoutMillis;
+		private final long sessionGraceMillis;
+
+		BinaryTestClient() throws IOException {
+			this(srv.getPort());
+		}
+
+		BinaryTestClient(int port) throws IOException {
+			this.socket = new Socket("localhost", port);
+			this.socket.setSoTimeout(5000);
+			this.socket.getOutputStream().write(BinaryProtocol.handshake(BinaryProtocol.VERSION));
+			this.in = new BufferedInputStream(this.socket.getInputStream());
+			Assert.assertEquals(BinaryProtocol.VERSION, BinaryProtocol.readHandshake(this.in));
+			this.heartbeatTimeoutMillis = BinaryProtocol.readSetting(this.in);
+			this.sessionGraceMillis = BinaryProtocol.readSetting(this.in);
+		}
+
+		void send(Object obj) throws IOException {
+			this.socket.getOutputStream().write(BinaryProtocol.encode(obj));
+		}
+
+		Object receive() throws IOException {
+			return BinaryProtocol.readMessage(this.in);
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.NioConnection#handleRead(java.nio.ByteBuffer)}.
+	 * A client of the binary protocol plays against one that writes an object stream.
+	 */
+	@Test
+	public void testBinaryAgainstObjectStream() throws IOException, ClassNotFoundException {
+		BinaryTestClient black = new BinaryTestClient();
+		black.send(-1);
+		int lobbyNumber = (Integer) black.receive();
+		TestClient white = new TestClient();
+		white.send(lobbyNumber);
+		InitializationCommando init = (InitializationCommando) black.receive();
+		Assert.assertTrue(init.getStartingPlayer());
+		Assert.assertEquals(lobbyNumber, init.getLobbyNumer());
+		Assert.assertTrue(white.receive() instanceof InitializationCommando);
+
+		black.send(new Coordinate(5, 4));
+		Assert.assertEquals(new Coordinate(5, 4), white.receive());
+		white.send(new Coordinate(5, 5));
+		Assert.assertEquals(new Coordinate(5, 5), black.receive());
+		black.send("Hello");
+		Assert.assertEquals("Hello", white.receive());
+		white.send(new SurrenderCommando());
+		Assert.assertTrue(black.receive() instanceof SurrenderCommando);
+		Assert.assertEquals(-1, black.in.read());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.NioConnection#handleRead(java.nio.ByteBuffer)}.
+	 * Two clients play over the event loops, a legal move is forwarded, an illegal one ends the game.
+	 */
+	@Test
+	public void testGame() throws IOException, ClassNotFoundException {
+		TestClient black = new TestClient();
+		black.send(-1);
+		int lobbyNumber = (Integer) black.receive();
+		TestClient white = new TestClient();
+		white.send(lobbyNumber);
+		Assert.assertTrue(black.receive() instanceof InitializationCommando);
+		Assert.assertTrue(white.receive() instanceof InitializationCommando);
+
+		black.send(new Coordinate(5, 4));
+		Coordinate move = (Coordinate) white.receive();
+		Assert.assertEquals(5, move.getX());
+		Assert.assertEquals(4, move.getY());
+
+		white.send(new Coordinate(0, 0));
+		Assert.assertTrue(black.receive() instanceof InteruptCommando);
+		Assert.assertEquals(-1, white.in.read());
+		Assert.assertEquals(-1, black.in.read());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.OthelloServer#findMatch(FindGameCommando, PlayerConnection)}.
+	 * Two clients that look for an opponent are put into the same game.
+	 */
+	@Test
+	public void testFindGame() throws IOException, ClassNotFoundException {
+		BinaryTestClient binary = new BinaryTestClient();
+		binary.send(new FindGameCommando(1500));
+		TestClient objectStream = new TestClient();
+		objectStream.send(new FindGameCommando(1520));
+		InitializationCommando init = (InitializationCommando) binary.receive();
+		InitializationCommando opponentInit = (InitializationCommando) objectStream.receive();
+		Assert.assertEquals(init.getLobbyNumer(), opponentInit.getLobbyNumer());
+		Assert.assertTrue(init.getStartingPlayer() != opponentInit.getStartingPlayer());
+
+		if (init.getStartingPlayer()) {
+			binary.send(new Coordinate(5, 4));
+			Assert.assertEquals(new Coordinate(5, 4), objectStream.receive());
+		} else {
+			objectStream.send(new Coordinate(5, 4));
+			Assert.assertEquals(new Coordinate(5, 4), binary.receive());
+		}
+		objectStream.send(new SurrenderCommando());
+		Assert.assertTrue(binary.receive() instanceof SurrenderCommando);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.HeartbeatMonitor#run()}.
+	 * A client that stops answering the pings is dropped, on the event loops and with a thread per client.
+	 * It does not resume the game within the grace period, so the opponent wins.
+	 */
+	@Test
+	public void testHeartbeat() throws IOException, InterruptedException {
+		for (int eventLoops : new int[] { 1, 0 }) {
+			OthelloServer heartbeatSrv = new OthelloServer(0, eventLoops, false, 200, 600, 300);
+			Thread srvThread = new Thread(heartbeatSrv);
+			srvThread.setDaemon(true);
+			srvThread.start();
+			try {
+				BinaryTestClient black = new BinaryTestClient(heartbeatSrv.getPort());
+				// The client learns the settings of the server, not the defaults.
+				Assert.assertEquals(600, black.heartbeatTimeoutMillis);
+				Assert.assertEquals(300, black.sessionGraceMillis);
+				black.send(-1);
+				int lobbyNumber = (Integer) black.receive();
+				// The opponent joins and never answers, like a client that lost the network.
+				BinaryTestClient silent = new BinaryTestClient(heartbeatSrv.getPort());
+				silent.send(lobbyNumber);
+				Assert.assertTrue(black.receive() instanceof InitializationCommando);
+				Object received;
+				int pings = 0;
+				while ((received = black.receive()) instanceof PingCommando) {
+					black.send(new PongCommando());
+					++pings;
+				}
+				Assert.assertTrue(pings > 0);
+				Assert.assertTrue(received.toString(), received instanceof InteruptCommando);
+				if (eventLoops > 0) {
+					// With a thread per client the read timeout of the silent client may come first.
+					Assert.assertEquals(1, heartbeatSrv.getHeartbeatMonitor().getEvicted());
+				}
+				silent.socket.close();
+			} finally {
+				heartbeatSrv.close();
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.ClientConnection#run()}.
+	 * With a thread per client, a client that is dropped before it sent its first byte and a client that leaves at once
+	 * end their threads without an exception, the server goes on with the next client.
+	 */
+	@Test
+	public void testClientLeavesBeforeInitialization() throws IOException, InterruptedException {
+		final AtomicReference<Throwable> uncaught = new AtomicReference<Throwable>();
+		Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				// Only the threads of the clients count, the console listener of a server may fail without a console.
+				for (StackTraceElement element : e.getStackTrace()) {
+					if (element.getClassName().equals(ClientConnection.class.getName())) {
+						uncaught.set(e);
+					}
+				}
+			}
+		});
+		OthelloServer blockingSrv = new OthelloServer(0, 0, false, 200, 500);
+		Thread srvThread = new Thread(blockingSrv);
+		srvThread.setDaemon(true);
+		srvThread.start();
+		try {
+			new Socket("localhost", blockingSrv.getPort()).close();
+			Socket silent = new Socket("localhost", blockingSrv.getPort());
+			silent.setSoTimeout(5000);
+			// The heartbeat closes the socket while the server waits for the first byte.
+			Assert.assertEquals(-1, silent.getInputStream().read());
+			silent.close();
+			BinaryTestClient client = new BinaryTestClient(blockingSrv.getPort());
+			client.send(-1);
+			Assert.assertTrue(client.receive() instanceof Integer);
+			client.socket.close();
+			Thread.sleep(200);
+			Assert.assertNull(String.valueOf(uncaught.get()), uncaught.get());
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(previous);
+			blockingSrv.close();
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.OthelloServer#OthelloServer(int, int, boolean, long, long)}.
+	 * The clients wait as long as the timeout for a ping, the pings have to come more often.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testHeartbeatIntervalNotShorterThanTimeout() {
+		new OthelloServer(0, 0, false, 40000, 40000);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.OthelloServer#resumeSession(ResumeCommando, PlayerConnection)}.
+	 * A client reconnects after its connection broke and plays on, a wrong token is refused.
+	 */
+	@Test
+	public void testResume() throws IOException {
+		BinaryTestClient black = new BinaryTestClient();
+		black.send(-1);
+		int lobbyNumber = (Integer) black.receive();
+		BinaryTestClient white = new BinaryTestClient();
+		white.send(lobbyNumber);
+		Assert.assertTrue(black.receive() instanceof InitializationCommando);
+		InitializationCommando init = (InitializationCommando) white.receive();
+		black.send(new Coordinate(5, 4));
+		Assert.assertEquals(new Coordinate(5, 4), white.receive());
+		white.socket.close();
+
+		BinaryTestClient impostor = new BinaryTestClient();
+		impostor.send(new ResumeCommando(lobbyNumber, init.getSessionToken() + 1));
+		Assert.assertTrue(impostor.receive() instanceof NoLobbyFoundCommando);
+
+		BinaryTestClient resumed = new BinaryTestClient();
+		resumed.send(new ResumeCommando(lobbyNumber, init.getSessionToken()));
+		SnapshotCommando snapshot = (SnapshotCommando) resumed.receive();
+		Assert.assertFalse(snapshot.isBlack());
+		Assert.assertEquals(PLAYER_WHITE, snapshot.getSideToMove());
+		Assert.assertEquals(4, Long.bitCount(snapshot.getBlackDiscs()));
+		Assert.assertEquals(1, Long.bitCount(snapshot.getWhiteDiscs()));
+		resumed.send(new Coordinate(5, 5));
+		Assert.assertEquals(new Coordinate(5, 5), black.receive());
+		black.send(new SurrenderCommando());
+		Assert.assertTrue(resumed.receive() instanceof SurrenderCommando);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.OthelloServer#spectate(SpectateCommando, PlayerConnection)}.
+	 * Spectators watch a game on the event loops and with a thread per client, the connection ends with the game.
+	 */
+	@Test
+	public void testSpectate() throws IOException {
+		for (int eventLoops : new int[] { 1, 0 }) {
+			OthelloServer spectateSrv = new OthelloServer(0, eventLoops);
+			Thread srvThread = new Thread(spectateSrv);
+			srvThread.setDaemon(true);
+			srvThread.start();
+			try {
+				BinaryTestClient black = new BinaryTestClient(spectateSrv.getPort());
+				black.send(-1);
+				int lobbyNumber = (Integer) black.receive();
+				BinaryTestClient white = new BinaryTestClient(spectateSrv.getPort());
+				white.send(lobbyNumber);
+				Assert.assertTrue(black.receive() instanceof InitializationCommando);
+				Assert.assertTrue(white.receive() instanceof InitializationCommando);
+				black.send(new Coordinate(5, 4));
+				Assert.assertEquals(new Coordinate(5, 4), white.receive());
+
+				BinaryTestClient[] spectators = new BinaryTestClient[3];
+				for (int i = 0; i < spectators.length; ++i) {
+					spectators[i] = new BinaryTestClient(spectateSrv.getPort());
+					spectators[i].send(new SpectateCommando(lobbyNumber));
+					SnapshotCommando snapshot = (SnapshotCommando) spectators[i].receive();
+					Assert.assertEquals(4, Long.bitCount(snapshot.getBlackDiscs()));
+					Assert.assertEquals(PLAYER_WHITE, snapshot.getSideToMove());
+				}
+				white.send("Hello");
+				Assert.assertEquals("Hello", black.receive());
+				white.send(new Coordinate(5, 5));
+				Assert.assertEquals(new Coordinate(5, 5), black.receive());
+				black.send(new SurrenderCommando());
+				Assert.assertTrue(white.receive() instanceof SurrenderCommando);
+				for (BinaryTestClient spectator : spectators) {
+					Assert.assertEquals(new Coordinate(5, 5), spectator.receive());
+					Assert.assertTrue(spectator.receive() instanceof SurrenderCommando);
+					Assert.assertEquals(-1, spectator.in.read());
+				}
+
+				BinaryTestClient tooLate = new BinaryTestClient(spectateSrv.getPort());
+				tooLate.send(new SpectateCommando(lobbyNumber));
+				Assert.assertTrue(tooLate.receive() instanceof NoLobbyFoundCommando);
+			} finally {
+				spectateSrv.close();
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.OthelloServer#findAndJoinLobby(int, PlayerConnection)}.
+	 */
+	@Test
+	public void testUnknownLobby() throws IOException, ClassNotFoundException {
+		TestClient client = new TestClient();
+		client.send(1);
+		Assert.assertTrue(client.receive() instanceof NoLobbyFoundCommando);
+		Assert.assertEquals(-1, client.in.read());
+	}
+}
@@ -0,0 +1,142 @@
+package org.game.othello.connection.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads the objects of a client's {@link java.io.ObjectOutputStream} from bytes that arrive in arbitrary pieces,
+ * without blocking. The bytes are kept because later objects refer back to the class descriptions and objects
+ * written before. If an object is incomplete, the {@link ObjectInputStream} is dropped, and after the next bytes a
+ * new one reads the kept bytes again and skips the objects already returned. Objects that arrive in one piece,
+ * which is the usual case, are read only once.
+ * A reset of the stream clears all back references, the bytes before it are dropped then.
+ * @author Oliver Scherf
+ */
+class ObjectStreamDecoder implements MessageDecoder {
+
+	/* The stream header, magic and version. */
+	private static final int HEADER_BYTES = 4;
+	public static final int MAX_KEPT_BYTES = 1 << 20;
+
+	private byte[] data = new byte[256];
+	private int length;
+	/* The next byte the ObjectInputStream reads. */
+	private int position;
+	/* The objects returned since the header or the last reset. */
+	private int delivered;
+	private ObjectInputStream in;
+
+	/**
+	 * Appends received bytes.
+	 * @param source the bytes between position and limit, they are consumed.
+	 * @throws IOException if the client sent more than {@link #MAX_KEPT_BYTES} without a reset.
+	 */
+	@Override
+	public void feed(ByteBuffer source) throws IOException {
+		int count = source.remaining();
+		if (this.length + count > MAX_KEPT_BYTES) {
+			throw new IOException("The client sent more than " + MAX_KEPT_BYTES + " bytes without a reset.");
+		}
+		if (this.length + count > this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(this.length + count, 2 * this.data.length));
+		}
+		source.get(this.data, this.length, count);
+		this.length += count;
+	}
+
+	/**
+	 * @return the next complete object or null if more bytes are needed.
+	 * @throws IOException if the stream is corrupted.
+	 * @throws ClassNotFoundException if the class of an object is unknown.
+	 */
+	@Override
+	public Object next() throws IOException, ClassNotFoundException {
+		if (this.in == null) {
+			if (this.length < HEADER_BYTES) {
+				return null;
+			}
+			this.position = 0;
+			try {
+				this.in = new ObjectInputStream(new KeptBytes());
+				for (int i = 0; i < this.delivered; ++i) {
+					this.in.readObject();
+				}
+			} catch (EOFException e) {
+				this.in = null;
+				return null;
+			}
+		}
+		if (this.position == this.length) {
+			return null;
+		}
+		if (this.data[this.position] == ObjectStreamConstants.TC_RESET) {
+			this.dropBeforeReset();
+		}
+		try {
+			Object obj = this.in.readObject();
+			++this.delivered;
+			return obj;
+		} catch (EOFException e) {
+			// The object is incomplete, it is read again when more bytes arrived.
+			this.in = null;
+			return null;
+		}
+	}
+
+	/**
+	 * Keeps the header and the bytes from the reset on, the objects before the reset can not be referenced anymore.
+	 */
+	private void dropBeforeReset() {
+		int kept = this.length - this.position;
+		System.arraycopy(this.data, this.position, this.data, HEADER_BYTES, kept);
+		this.length = HEADER_BYTES + kept;
+		this.position = HEADER_BYTES;
+		this.delivered = 0;
+	}
+
+	/**
+	 * @return the number of bytes kept for back references.
+	 */
+	int getKeptBytes() {
+		return this.length;
+	}
+
+	/**
+	 * The kept bytes from the current position, the end of the received bytes is the end of the stream.
+	 */
+	private class KeptBytes extends InputStream {
+
+		@Override
+		public int read() {
+			if (ObjectStreamDecoder.this.position == ObjectStreamDecoder.this.length) {
+				return -1;
+			}
+			return ObjectStreamDecoder.this.data[ObjectStreamDecoder.this.position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			int available = ObjectStreamDecoder.this.length - ObjectStreamDecoder.this.position;
+			if (len == 0) {
+				return 0;
+			}
+			if (available == 0) {
+				return -1;
+			}
+			int count = Math.min(len, available);
+			System.arraycopy(ObjectStreamDecoder.this.data, ObjectStreamDecoder.this.position, b, off, count);
+			ObjectStreamDecoder.this.position += count;
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return ObjectStreamDecoder.this.length - ObjectStreamDecoder.this.position;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.connection.NoTurnIsPossibleCommand;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class ObjectStreamDecoderTest {
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.ObjectStreamDecoder#next()}.
+	 * The objects are returned once and in order, no matter how the bytes are split.
+	 */
+	@Test
+	public void testNextBytewise() throws IOException, ClassNotFoundException {
+		Coordinate move = new Coordinate(5, 4);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(-1);
+		out.writeObject(move);
+		out.writeObject(new NoTurnIsPossibleCommand());
+		out.writeObject(move);
+		out.writeObject("Hello");
+		out.flush();
+		byte[] data = bytes.toByteArray();
+
+		ObjectStreamDecoder decoder = new ObjectStreamDecoder();
+		List<Object> objects = new ArrayList<Object>();
+		for (byte b : data) {
+			decoder.feed(ByteBuffer.wrap(new byte[] { b }));
+			Object obj;
+			while ((obj = decoder.next()) != null) {
+				objects.add(obj);
+			}
+		}
+		Assert.assertEquals(5, objects.size());
+		Assert.assertEquals(-1, objects.get(0));
+		Assert.assertEquals(5, ((Coordinate) objects.get(1)).getX());
+		Assert.assertTrue(objects.get(2) instanceof NoTurnIsPossibleCommand);
+		Assert.assertEquals(4, ((Coordinate) objects.get(3)).getY());
+		Assert.assertEquals("Hello", objects.get(4));
+		Assert.assertNull(decoder.next());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.ObjectStreamDecoder#next()}.
+	 * The bytes before a reset are dropped.
+	 */
+	@Test
+	public void testNextAfterReset() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		ObjectStreamDecoder decoder = new ObjectStreamDecoder();
+		for (int i = 0; i < 100; ++i) {
+			out.writeObject(new Coordinate(i % 8, i / 8 % 8));
+			out.reset();
+			out.flush();
+			decoder.feed(ByteBuffer.wrap(bytes.toByteArray()));
+			bytes.reset();
+			Coordinate c = (Coordinate) decoder.next();
+			Assert.assertEquals(i % 8, c.getX());
+			Assert.assertEquals(i / 8 % 8, c.getY());
+			Assert.assertNull(decoder.next());
+		}
+		// The header and the last reset are kept.
+		Assert.assertEquals(5, decoder.getKeptBytes());
+	}
+}
@@ -3,14 +3,19 @@ package org.game.othello.connection.server;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.FindGameCommando;
 import org.game.othello.connection.NoLobbyFoundCommando;
+import org.game.othello.connection.ResumeCommando;
+import org.game.othello.connection.SpectateCommando;
 import org.game.othello.interfaces.Loggable;
 import org.game.othello.interfaces.OthelloConstants;
 import org.game.othello.utils.LoggingManager;
@@ -22,34 +27,193 @@ import org.game.othello.utils.LoggingManager;
 public class OthelloServer implements Runnable, Loggable, OthelloConstants {
 
 	private Logger logger;
+	private final int port;
+	private final int eventLoops;
+	private final boolean virtualThreads;
 	private ServerSocket welcomeSocket;
-	private Vector<GameLobby> onlineLobbyList = new Vector<GameLobby>();
+	private NioServer nioServer;
+	/* Runs the ClientConnections on virtual threads, null for one platform thread per client. */
+	private ExecutorService clientExecutor;
+	/* Runs the matchmaking passes, the heartbeats, the grace periods of the lobbies and the sweeps of the lobby reaper. */
+	private final ScheduledExecutorService scheduler;
+	private final LobbyRegistry lobbies;
+	private final MatchmakingQueue matchmaking;
+	private final LobbyReaper lobbyReaper;
+	private final long heartbeatTimeoutMillis;
+	private final long sessionGraceMillis;
+	private final HeartbeatMonitor heartbeats;
+	/* Sends the pings and drops the silent clients, a write that blocks does not hold up the scheduler. */
+	private final ExecutorService heartbeatCallbacks;
+	/* Solves the ends of the online games, one at a time. */
+	private final ExecutorService endgameSolver;
 
+	/**
+	 * Starts the server, with -nio [loops] the clients are served by a few event loops instead of one thread each,
+	 * with -virtual every client gets a virtual thread (Java 21). -heartbeat interval timeout sets the seconds
+	 * between two pings and after which a silent client is dropped, the interval has to be shorter than the timeout.
+	 * -grace seconds the time a player has to resume the game after the connection broke. Clients of the
+	 * {@link BinaryProtocol} since version {@link BinaryProtocol#VERSION_SETTINGS} get both times with the handshake.
+	 * @param argv the arguments.
+	 */
 	public static void main(String argv[]) throws Exception {
-		new Thread(new OthelloServer()).start();
+		int eventLoops = 0;
+		boolean virtualThreads = false;
+		long heartbeatInterval = HEARTBEAT_INTERVAL_MILLIS;
+		long heartbeatTimeout = HEARTBEAT_TIMEOUT_MILLIS;
+		long sessionGrace = SESSION_GRACE_MILLIS;
+		for (int i = 0; i < argv.length; ++i) {
+			if (argv[i].equals("-nio")) {
+				eventLoops = Runtime.getRuntime().availableProcessors();
+				if (i + 1 < argv.length && !argv[i + 1].startsWith("-")) {
+					eventLoops = Integer.parseInt(argv[++i]);
+				}
+			} else if (argv[i].equals("-virtual")) {
+				virtualThreads = true;
+			} else if (argv[i].equals("-heartbeat") && i + 2 < argv.length) {
+				heartbeatInterval = 1000 * Long.parseLong(argv[++i]);
+				heartbeatTimeout = 1000 * Long.parseLong(argv[++i]);
+			} else if (argv[i].equals("-grace") && i + 1 < argv.length) {
+				sessionGrace = 1000 * Long.parseLong(argv[++i]);
+			}
+		}
+		new Thread(new OthelloServer(SERVER_PORT, eventLoops, virtualThreads, heartbeatInterval, heartbeatTimeout,
+				sessionGrace)).start();
 	}
 
 	/**
-	 * Instantiates a new Othello Client.
+	 * Instantiates a new Othello Server, with one thread per client.
 	 */
 	public OthelloServer() {
+		this(SERVER_PORT, 0);
+	}
+
+	/**
+	 * Instantiates a new Othello Server.
+	 * @param port the port to listen on, 0 for any free port.
+	 * @param eventLoops the number of NIO event loops, 0 for one thread per client.
+	 */
+	public OthelloServer(int port, int eventLoops) {
+		this(port, eventLoops, false);
+	}
+
+	/**
+	 * Instantiates a new Othello Server.
+	 * @param port the port to listen on, 0 for any free port.
+	 * @param eventLoops the number of NIO event loops, 0 for one thread per client.
+	 * @param virtualThreads true to run the thread of each client on a virtual thread, ignored with event loops.
+	 */
+	public OthelloServer(int port, int eventLoops, boolean virtualThreads) {
+		this(port, eventLoops, virtualThreads, HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Instantiates a new Othello Server.
+	 * @param port the port to listen on, 0 for any free port.
+	 * @param eventLoops the number of NIO event loops, 0 for one thread per client.
+	 * @param virtualThreads true to run the thread of each client on a virtual thread, ignored with event loops.
+	 * @param heartbeatIntervalMillis the time between two pings to a client.
+	 * @param heartbeatTimeoutMillis the time without a message after which a client is dropped.
+	 */
+	public OthelloServer(int port, int eventLoops, boolean virtualThreads, long heartbeatIntervalMillis, long heartbeatTimeoutMillis) {
+		this(port, eventLoops, virtualThreads, heartbeatIntervalMillis, heartbeatTimeoutMillis, SESSION_GRACE_MILLIS);
+	}
+
+	/**
+	 * Instantiates a new Othello Server.
+	 * @param port the port to listen on, 0 for any free port.
+	 * @param eventLoops the number of NIO event loops, 0 for one thread per client.
+	 * @param virtualThreads true to run the thread of each client on a virtual thread, ignored with event loops.
+	 * @param heartbeatIntervalMillis the time between two pings to a client.
+	 * @param heartbeatTimeoutMillis the time without a message after which a client is dropped.
+	 * @param sessionGraceMillis the time a player has to resume the game after the connection broke, 0 to end the
+	 * game at once.
+	 * @throws IllegalArgumentException if the interval is not shorter than the timeout.
+	 */
+	public OthelloServer(int port, int eventLoops, boolean virtualThreads, long heartbeatIntervalMillis, long heartbeatTimeoutMillis,
+			long sessionGraceMillis) {
+		if (heartbeatIntervalMillis >= heartbeatTimeoutMillis) {
+			throw new IllegalArgumentException("The heartbeat interval " + heartbeatIntervalMillis
+					+ " ms has to be shorter than the timeout " + heartbeatTimeoutMillis + " ms.");
+		}
+		this.port = port;
+		this.eventLoops = eventLoops;
+		this.virtualThreads = virtualThreads;
+		this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+		this.sessionGraceMillis = sessionGraceMillis;
+		this.heartbeatCallbacks = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.heartbeats = new HeartbeatMonitor(heartbeatIntervalMillis, heartbeatTimeoutMillis, this.heartbeatCallbacks);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.endgameSolver = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Endgame");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		EndgameAnnouncer endgameAnnouncer = new EndgameAnnouncer(this.endgameSolver);
+		this.lobbies = sessionGraceMillis > 0 ? new LobbyRegistry(this.scheduler, sessionGraceMillis, endgameAnnouncer)
+				: new LobbyRegistry(null, 0, endgameAnnouncer);
+		this.matchmaking = new MatchmakingQueue(this.lobbies);
+		this.lobbyReaper = new LobbyReaper(this.lobbies);
 		this.initialize();
 	}
 	
 	@Override
 	public void run() {
-		while (true) {
-			Socket newPlayer = null;
+		if (this.nioServer != null) {
+			this.nioServer.run();
+			return;
+		}
+		while (!this.welcomeSocket.isClosed()) {
+			final Socket newPlayer;
 			try {
 				newPlayer = this.welcomeSocket.accept();
 				this.log(INFO, "A new client connected: " + newPlayer.getInetAddress());
 			} catch (IOException e) {
-				this.err("Error while socket.accept()", e);
+				if (!this.welcomeSocket.isClosed()) {
+					this.err("Error while socket.accept()", e);
+				}
+				continue;
+			}
+			// The streams are opened on the thread of the client, a slow client does not hold up the others.
+			Runnable client = new Runnable() {
+				@Override
+				public void run() {
+					new ClientConnection(newPlayer, OthelloServer.this).run();
+				}
+			};
+			if (this.clientExecutor != null) {
+				this.clientExecutor.execute(client);
+			} else {
+				new Thread(client).start();
 			}
-			this.removeOldGames();
-			ClientConnection con = new ClientConnection(newPlayer, this);
-			Thread client = new Thread(con);
-			client.start();
+		}
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() exists since Java 21, the server is built for Java 8.
+	 * @return the executor or null, if the JVM has no virtual threads.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
 		}
 	}
 
@@ -60,14 +224,95 @@ public class OthelloServer implements Runnable, Loggable, OthelloConstants {
 		new LoggingManager();
 		this.initializeLogging();
 		try {
-			this.welcomeSocket = new ServerSocket(SERVER_PORT);
+			if (this.eventLoops > 0) {
+				this.nioServer = new NioServer(this, this.port, this.eventLoops);
+			} else {
+				this.welcomeSocket = new ServerSocket(this.port);
+				if (this.virtualThreads) {
+					this.clientExecutor = newVirtualThreadExecutor();
+					if (this.clientExecutor == null) {
+						this.log(WARNING, "Virtual threads need Java 21, every client gets a platform thread instead.");
+					}
+				}
+			}
 		} catch (IOException e) {
-			this.err("Error while creating the socket. Is the Port: " + SERVER_PORT + " already is use? Exiting programm now", e);
+			this.err("Error while creating the socket. Is the Port: " + this.port + " already is use? Exiting programm now", e);
 			System.exit(0);
 		}
+		this.scheduler.scheduleWithFixedDelay(this.matchmaking, MatchmakingQueue.PASS_INTERVAL_MILLIS,
+				MatchmakingQueue.PASS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		this.scheduler.scheduleAtFixedRate(this.heartbeats, HeartbeatMonitor.TICK_MILLIS, HeartbeatMonitor.TICK_MILLIS,
+				TimeUnit.MILLISECONDS);
+		this.scheduler.scheduleWithFixedDelay(this.lobbyReaper, LobbyReaper.SWEEP_INTERVAL_MILLIS,
+				LobbyReaper.SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
 		Thread consoleListener = new Thread(new ConsoleListener(this));
+		consoleListener.setDaemon(true);
 		consoleListener.start();
-		this.log(INFO, "The Othello Server was started! Listening on port: " + SERVER_PORT);
+		this.log(INFO, "The Othello Server was started! Listening on port: " + this.getPort());
+	}
+
+	/**
+	 * @return the port the server listens on.
+	 */
+	public int getPort() {
+		return this.nioServer != null ? this.nioServer.getPort() : this.welcomeSocket.getLocalPort();
+	}
+
+	/**
+	 * @return the heartbeats of the connections.
+	 */
+	HeartbeatMonitor getHeartbeatMonitor() {
+		return this.heartbeats;
+	}
+
+	/**
+	 * @return the executor of the virtual threads of the clients, null if every client gets a platform thread.
+	 */
+	ExecutorService getClientExecutor() {
+		return this.clientExecutor;
+	}
+
+	/**
+	 * @return the time without a message after which a client is dropped.
+	 */
+	long getHeartbeatTimeoutMillis() {
+		return this.heartbeatTimeoutMillis;
+	}
+
+	/**
+	 * @return the time a player has to resume the game after the connection broke, 0 if the game ends at once.
+	 */
+	long getSessionGraceMillis() {
+		return this.sessionGraceMillis;
+	}
+
+	/**
+	 * @return the settings that follow the answer to the handshake, the client waits as long as the server.
+	 */
+	byte[] getProtocolSettings() {
+		return BinaryProtocol.settings(this.heartbeatTimeoutMillis, this.sessionGraceMillis);
+	}
+
+	/**
+	 * Stops accepting clients. The NIO server closes all of its connections, the threads of the blocking server end
+	 * with their games.
+	 */
+	void close() {
+		this.scheduler.shutdownNow();
+		this.heartbeatCallbacks.shutdown();
+		this.endgameSolver.shutdownNow();
+		if (this.nioServer != null) {
+			this.nioServer.close();
+			return;
+		}
+		try {
+			this.welcomeSocket.close();
+		} catch (IOException e) {
+			this.err("Error while closing the socket", e);
+		}
+		if (this.clientExecutor != null) {
+			this.clientExecutor.shutdown();
+		}
 	}
 	
 	/**
@@ -76,87 +321,103 @@ public class OthelloServer implements Runnable, Loggable, OthelloConstants {
 	 * @param newPlayer
 	 * @return true, when either a lobby was created, or a existing lobby was found
 	 */
-	public boolean findAndJoinLobby(int lobbyNumber, ClientConnection newPlayer) {
+	public boolean findAndJoinLobby(int lobbyNumber, PlayerConnection newPlayer) {
 		this.log(INFO, "The lobby number is: " + lobbyNumber);
 		if (lobbyNumber == -1) {
-			lobbyNumber = this.generateNewLobbyNumber();
-			GameLobby gameLobby = new GameLobby(lobbyNumber);
+			GameLobby gameLobby = this.lobbies.create();
+			if (gameLobby == null) {
+				this.log(WARNING, "All lobby numbers are in use. Sending a NoLobbyFoundCommando to the client and close the connection.");
+				newPlayer.sendObject(new NoLobbyFoundCommando());
+				newPlayer.closeConnection();
+				return false;
+			}
 			newPlayer.setLobby(gameLobby);
-			this.onlineLobbyList.add(gameLobby);
 			gameLobby.newClientConnection(newPlayer);
 			this.log(INFO, "Added a new GameLobby: " + gameLobby.toString());
 		} else {
-			boolean lobbyFound = false;
 			this.log(INFO,"Now looking for the lobby: #" + lobbyNumber);
-			for (GameLobby othelloOnlineGame : onlineLobbyList) {
-				if (othelloOnlineGame.getState() == ONLINE_GAME_STATE_NOT_STARTED && othelloOnlineGame.getLobbyNumber() == lobbyNumber) {
-					othelloOnlineGame.newClientConnection(newPlayer);
-					newPlayer.setLobby(othelloOnlineGame);
-					lobbyFound = true;
-					this.log(INFO, "Found and joined the lobby #" + lobbyNumber);
-					break;
-				}
-			}
-			if (!lobbyFound) {
+			GameLobby othelloOnlineGame = this.lobbies.get(lobbyNumber);
+			// Two clients may try to join the same lobby, the lobby lets only the first one in.
+			if (othelloOnlineGame == null || !othelloOnlineGame.newClientConnection(newPlayer)) {
 				this.log(INFO, "Did not find the lobbynumber #" + lobbyNumber + ". Sending a NoLobbyFoundCommando to the client "
 						+ " and close the connection.");
 				newPlayer.sendObject(new NoLobbyFoundCommando());
 				newPlayer.closeConnection();
 				return false;
 			}
+			newPlayer.setLobby(othelloOnlineGame);
+			this.log(INFO, "Found and joined the lobby #" + lobbyNumber);
 		}
 		return true;
 	}
 
 	/**
-	 * Generates a lobby number, that is not already in use.
-	 * @return An Integer between 100-999.
+	 * Puts the player into the matchmaking queue, the player gets the InitializationCommando when an opponent was found.
+	 * @param request the request of the player.
+	 * @param newPlayer the connection of the player.
 	 */
-	private int generateNewLobbyNumber() {
-		int max = 999;
-		int min = 100;
-		boolean newNumberFound = false;
-		int number = -1;
-		while (!newNumberFound) {
-			newNumberFound = true;
-			number = new Random().nextInt(max - min + 1) + min;
-			synchronized (this.onlineLobbyList) {
-				for (GameLobby gameLobby : this.onlineLobbyList) {
-					if (gameLobby.getLobbyNumber() == number) {
-						newNumberFound = false;
-						break;
-					}
-				}
-			}
-		}
-		return number;
+	public void findMatch(FindGameCommando request, PlayerConnection newPlayer) {
+		this.log(INFO, "Looking for an opponent with the rating " + request.getRating() + " for " + newPlayer.getInetAddress());
+		this.matchmaking.enqueue(newPlayer, request.getRating());
 	}
 
 	/**
-	 * Clean up the memory, by removing finished games.
+	 * Continues the game of a player whose connection broke, the player gets a NoLobbyFoundCommando if the game
+	 * is over or the token is wrong.
+	 * @param request the lobby and the session token of the player.
+	 * @param newPlayer the new connection of the player.
+	 * @return true, if the game was resumed.
 	 */
-	private void removeOldGames() {
-		List<GameLobby> gamesToRemove = new ArrayList<GameLobby>();
-		for (GameLobby othelloOnlineGame : this.onlineLobbyList) {
-			if (othelloOnlineGame.getState() == ONLINE_GAME_STATE_FINISHED) {
-				gamesToRemove.add(othelloOnlineGame);
-			}
+	public boolean resumeSession(ResumeCommando request, PlayerConnection newPlayer) {
+		GameLobby lobby = this.lobbies.get(request.getLobbyNumber());
+		if (lobby == null || !lobby.resume(request.getSessionToken(), newPlayer)) {
+			this.log(INFO, "Could not resume the game #" + request.getLobbyNumber() + " for " + newPlayer.getInetAddress()
+					+ ". Sending a NoLobbyFoundCommando to the client and close the connection.");
+			newPlayer.sendObject(new NoLobbyFoundCommando());
+			newPlayer.closeConnection();
+			return false;
 		}
-		for (GameLobby gameToRemove : gamesToRemove) {
-			this.log(INFO, "Removed the game " + gamesToRemove.toString());
-			this.onlineLobbyList.remove(gameToRemove);
-			gamesToRemove = null;
+		return true;
+	}
+
+	/**
+	 * Lets the client watch the game of a lobby, it gets a NoLobbyFoundCommando if there is no such game.
+	 * @param request the lobby the client wants to watch.
+	 * @param spectator the connection of the client.
+	 * @return true, if the client watches the game.
+	 */
+	public boolean spectate(SpectateCommando request, PlayerConnection spectator) {
+		GameLobby lobby = this.lobbies.get(request.getLobbyNumber());
+		if (lobby == null || !lobby.addSpectator(spectator)) {
+			this.log(INFO, "Did not find the lobbynumber #" + request.getLobbyNumber() + " to watch. Sending a NoLobbyFoundCommando"
+					+ " to the client and close the connection.");
+			spectator.sendObject(new NoLobbyFoundCommando());
+			spectator.closeConnection();
+			return false;
 		}
+		return true;
 	}
-	
+
+	/**
+	 * Print the state of the matchmaking queue.
+	 */
+	public void printMatchmakingStats() {
+		System.out.println("Players waiting: " + this.matchmaking.getQueueDepth() + ", games started: "
+				+ this.matchmaking.getMatches());
+		System.out.println(String.format("Time to match: p50 %.0f ms, p99 %.0f ms, max %.0f ms",
+				this.matchmaking.getLatencyPercentile(50), this.matchmaking.getLatencyPercentile(99),
+				this.matchmaking.getLatencyPercentile(100)));
+	}
+
 	/**
 	 * Print all existing lobbies.
 	 */
 	public void listLobbies() {
 		int i = 1;
-		if (!this.onlineLobbyList.isEmpty()) {
-			for (GameLobby othelloOnlineGame : this.onlineLobbyList) {
+		if (this.lobbies.size() > 0) {
+			for (GameLobby othelloOnlineGame : this.lobbies.getLobbies()) {
 				System.out.println(i++ + ". " +  othelloOnlineGame.toString());
+				System.out.println("\t" + othelloOnlineGame.getTrafficInfo());
 			}
 		} else {
 			System.out.println("There are no lobbies at the moment.");
@@ -168,33 +429,24 @@ public class OthelloServer implements Runnable, Loggable, OthelloConstants {
 	 * @param cmd kill command
 	 */
 	public void killLobby(String cmd) {
-		if (cmd.length() == 8) {
-			int lobbyToKill = -1;
-			try {
-				lobbyToKill = Integer.valueOf(cmd.substring(5));
-			} catch (NumberFormatException e) {
-				System.out.println("The syntax was not right, please type help to get more informations.");
-			}
-			boolean foundLobby = false;
-			for (GameLobby gameLobby : this.onlineLobbyList) {
-				if (gameLobby.getLobbyNumber() == lobbyToKill) {
-					if (gameLobby.getState() != ONLINE_GAME_STATE_FINISHED){
-						gameLobby.endGame();
-					} else {
-						System.out.println("The game was already finished.");
-						this.removeOldGames();
-					}
-					foundLobby = true;
-					System.out.println("Successfully killed " + gameLobby.toString());
-					break;
-				}
-			}
-			if (!foundLobby) {
-				System.out.println("Found no lobby with that number.");
-			}
-		} else {
+		int lobbyToKill;
+		try {
+			lobbyToKill = Integer.parseInt(cmd.substring("kill".length()).trim());
+		} catch (NumberFormatException e) {
 			System.out.println("The syntax was not right, please type help to get more informations.");
+			return;
+		}
+		GameLobby gameLobby = this.lobbies.get(lobbyToKill);
+		if (gameLobby == null) {
+			System.out.println("Found no lobby with that number.");
+			return;
+		}
+		if (gameLobby.getState() != ONLINE_GAME_STATE_FINISHED){
+			gameLobby.endGame();
+		} else {
+			System.out.println("The game was already finished.");
 		}
+		System.out.println("Successfully killed " + gameLobby.toString());
 	}
 
 	@Override
@@ -0,0 +1,67 @@
+package org.game.othello.connection.server;
+
+import java.net.InetAddress;
+
+/**
+ * The connection of a client to the server, as the {@link GameLobby} sees it. It is implemented by the
+ * thread per client {@link ClientConnection} and by the event loop based {@link NioConnection}.
+ * @author Oliver Scherf
+ */
+public interface PlayerConnection {
+
+	/**
+	 * Sends the obj to the client.
+	 * @param obj the object that should be send.
+	 */
+	public void sendObject(Object obj);
+
+	/**
+	 * Queues a frame of the {@link org.game.othello.connection.BinaryProtocol} without blocking, for the
+	 * broadcast to the spectators of a game.
+	 * @param frame the encoded message, it is shared by all spectators and must not be changed.
+	 * @param maxPendingBytes the bytes that may wait to be written to the client, the frame included.
+	 * @return false, if the frame was dropped because the client does not read fast enough.
+	 */
+	public boolean offerFrame(byte[] frame, int maxPendingBytes);
+
+	/**
+	 * Closes the connection, objects that were sent before are still delivered.
+	 */
+	public void closeConnection();
+
+	/**
+	 * @return true, if the connection was closed by either side.
+	 */
+	public boolean isClosed();
+
+	/**
+	 * @return the address of the client.
+	 */
+	public InetAddress getInetAddress();
+
+	/**
+	 * @param lobby the lobby the client joined.
+	 */
+	public void setLobby(GameLobby lobby);
+
+	/**
+	 * @return the bytes sent to the client so far.
+	 */
+	public long getBytesWritten();
+
+	/**
+	 * @return the objects the stream to the client keeps a handle to, 0 for the binary protocol.
+	 */
+	public int getRetainedHandles();
+
+	/**
+	 * @return true, if the client can resume its game with a {@link org.game.othello.connection.ResumeCommando}
+	 * after the connection broke.
+	 */
+	public boolean canResume();
+
+	/**
+	 * @return true, if the client knows the {@link org.game.othello.connection.ForcedResultCommando}.
+	 */
+	public boolean canReceiveForcedResult();
+}
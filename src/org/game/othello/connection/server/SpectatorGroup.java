@@ -0,0 +1,174 @@
+package org.game.othello.connection.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.game.othello.connection.BinaryProtocol;
+import org.game.othello.connection.SnapshotCommando;
+
+/**
+ * The spectators of a {@link GameLobby}. A move is encoded once by the lobby and the same frame is queued for every
+ * spectator with {@link PlayerConnection#offerFrame(byte[], int)}, which never blocks. A spectator with more than
+ * {@link #MAX_PENDING_BYTES} waiting to be written misses the frame and is stale from then on: it gets a
+ * {@link SnapshotCommando} of the board instead of the next move that fits into its queue. So a slow spectator can
+ * not hold up the players or the other spectators, and it catches up with one frame instead of the missed moves.
+ * The end of the game reaches every spectator, it is queued beyond the limit.
+ * The group is guarded by the lock of its lobby.
+ * @author Oliver Scherf
+ */
+class SpectatorGroup {
+
+	/* A whole game takes less than 250 bytes, a spectator that is this far behind does not read. */
+	public static final int MAX_PENDING_BYTES = 2048;
+
+	private final LinkedHashMap<PlayerConnection, Spectator> spectators = new LinkedHashMap<PlayerConnection, Spectator>();
+	private int stale;
+	private long broadcasts;
+	private long droppedFrames;
+	private long resyncs;
+
+	/**
+	 * A spectator and whether it missed a frame.
+	 */
+	private static class Spectator {
+
+		private final PlayerConnection con;
+		private boolean stale;
+
+		Spectator(PlayerConnection con) {
+			this.con = con;
+		}
+	}
+
+	/**
+	 * Adds the spectator, it gets the snapshot first.
+	 * @param con the spectator.
+	 * @param snapshot the frame of the {@link SnapshotCommando} of the board.
+	 */
+	void add(PlayerConnection con, byte[] snapshot) {
+		Spectator spectator = new Spectator(con);
+		this.spectators.put(con, spectator);
+		if (!con.offerFrame(snapshot, MAX_PENDING_BYTES)) {
+			this.markStale(spectator);
+		}
+	}
+
+	/**
+	 * @param con the connection.
+	 * @return false, if the connection is no spectator of the group.
+	 */
+	boolean remove(PlayerConnection con) {
+		Spectator spectator = this.spectators.remove(con);
+		if (spectator == null) {
+			return false;
+		}
+		if (spectator.stale) {
+			--this.stale;
+		}
+		return true;
+	}
+
+	/**
+	 * Queues the frame for every spectator, a stale spectator gets the snapshot instead. Spectators that left are
+	 * removed.
+	 * @param frame the frame of the move, from {@link BinaryProtocol#encode(Object)}.
+	 * @param snapshot the frame of the board after the move, only needed if {@link #hasStale()}.
+	 */
+	void broadcast(byte[] frame, byte[] snapshot) {
+		++this.broadcasts;
+		Iterator<Spectator> it = this.spectators.values().iterator();
+		while (it.hasNext()) {
+			Spectator spectator = it.next();
+			if (spectator.con.isClosed()) {
+				if (spectator.stale) {
+					--this.stale;
+				}
+				it.remove();
+			} else if (spectator.stale) {
+				// The snapshot already contains the move.
+				if (snapshot != null && spectator.con.offerFrame(snapshot, MAX_PENDING_BYTES)) {
+					spectator.stale = false;
+					--this.stale;
+					++this.resyncs;
+				} else {
+					++this.droppedFrames;
+				}
+			} else if (!spectator.con.offerFrame(frame, MAX_PENDING_BYTES)) {
+				this.markStale(spectator);
+			}
+		}
+	}
+
+	private void markStale(Spectator spectator) {
+		spectator.stale = true;
+		++this.stale;
+		++this.droppedFrames;
+	}
+
+	/**
+	 * @return true, if a spectator missed a frame and waits for a snapshot.
+	 */
+	boolean hasStale() {
+		return this.stale > 0;
+	}
+
+	/**
+	 * Queues the last frame of the game for every spectator, regardless of its pending bytes, and closes the
+	 * connections after their queued frames. A stale spectator gets the snapshot first.
+	 * @param frame the frame of the end of the game, from {@link BinaryProtocol#encode(Object)}.
+	 * @param snapshot the frame of the board before the end of the game, only needed if {@link #hasStale()}.
+	 */
+	void finish(byte[] frame, byte[] snapshot) {
+		++this.broadcasts;
+		for (Spectator spectator : this.spectators.values()) {
+			if (spectator.con.isClosed()) {
+				continue;
+			}
+			if (spectator.stale) {
+				spectator.con.offerFrame(snapshot, Integer.MAX_VALUE);
+				++this.resyncs;
+			}
+			spectator.con.offerFrame(frame, Integer.MAX_VALUE);
+		}
+		this.closeAll();
+	}
+
+	/**
+	 * Closes the connection of every spectator after its queued frames, the game is over.
+	 */
+	void closeAll() {
+		for (Spectator spectator : this.spectators.values()) {
+			spectator.con.closeConnection();
+		}
+		this.spectators.clear();
+		this.stale = 0;
+	}
+
+	/**
+	 * @return the number of spectators.
+	 */
+	int size() {
+		return this.spectators.size();
+	}
+
+	/**
+	 * @return the frames that were encoded once and queued for all spectators.
+	 */
+	long getBroadcasts() {
+		return this.broadcasts;
+	}
+
+	/**
+	 * @return the frames spectators missed because they read too slowly.
+	 */
+	long getDroppedFrames() {
+		return this.droppedFrames;
+	}
+
+	/**
+	 * @return the snapshots sent to spectators that fell behind.
+	 */
+	long getResyncs() {
+		return this.resyncs;
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class SpectatorGroupTest {
+
+	private static final byte[] SNAPSHOT = { 1 };
+	private SpectatorGroup group;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.group = new SpectatorGroup();
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.SpectatorGroup#broadcast(byte[], byte[])}.
+	 * Every spectator gets the same frame, the snapshot comes first.
+	 */
+	@Test
+	public void testBroadcast() {
+		FakePlayerConnection first = new FakePlayerConnection();
+		FakePlayerConnection second = new FakePlayerConnection();
+		this.group.add(first, SNAPSHOT);
+		this.group.add(second, SNAPSHOT);
+		byte[] frame = { 2 };
+		this.group.broadcast(frame, null);
+		Assert.assertEquals(2, this.group.size());
+		Assert.assertSame(SNAPSHOT, first.frames.get(0));
+		Assert.assertSame(frame, first.frames.get(1));
+		Assert.assertSame(frame, second.frames.get(1));
+		Assert.assertEquals(1, this.group.getBroadcasts());
+		Assert.assertFalse(this.group.hasStale());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.SpectatorGroup#broadcast(byte[], byte[])}.
+	 * A spectator that does not read misses frames and gets a snapshot instead when it reads again, the others
+	 * are not affected.
+	 */
+	@Test
+	public void testDropAndResync() {
+		FakePlayerConnection fast = new FakePlayerConnection();
+		FakePlayerConnection slow = new FakePlayerConnection();
+		this.group.add(fast, SNAPSHOT);
+		this.group.add(slow, SNAPSHOT);
+		slow.full = true;
+		this.group.broadcast(new byte[] { 2 }, null);
+		Assert.assertTrue(this.group.hasStale());
+		this.group.broadcast(new byte[] { 3 }, new byte[] { 4 });
+		Assert.assertEquals(2, this.group.getDroppedFrames());
+		Assert.assertEquals(1, slow.frames.size());
+
+		slow.full = false;
+		this.group.broadcast(new byte[] { 5 }, new byte[] { 6 });
+		Assert.assertFalse(this.group.hasStale());
+		Assert.assertEquals(1, this.group.getResyncs());
+		Assert.assertEquals(6, slow.frames.get(1)[0]);
+		this.group.broadcast(new byte[] { 7 }, null);
+		Assert.assertEquals(7, slow.frames.get(2)[0]);
+		Assert.assertEquals(5, fast.frames.size());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.SpectatorGroup#finish(byte[], byte[])}.
+	 * A stale spectator gets the board and the end of the game, both are closed afterwards.
+	 */
+	@Test
+	public void testFinish() {
+		FakePlayerConnection fast = new FakePlayerConnection();
+		FakePlayerConnection slow = new FakePlayerConnection();
+		this.group.add(fast, SNAPSHOT);
+		this.group.add(slow, SNAPSHOT);
+		slow.full = true;
+		this.group.broadcast(new byte[] { 2 }, null);
+		Assert.assertTrue(this.group.hasStale());
+		this.group.finish(new byte[] { 3 }, new byte[] { 4 });
+		Assert.assertEquals(0, this.group.size());
+		Assert.assertFalse(this.group.hasStale());
+		Assert.assertEquals(3, fast.frames.get(2)[0]);
+		Assert.assertEquals(3, slow.frames.size());
+		Assert.assertEquals(4, slow.frames.get(1)[0]);
+		Assert.assertEquals(3, slow.frames.get(2)[0]);
+		Assert.assertTrue(fast.isClosed());
+		Assert.assertTrue(slow.isClosed());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.SpectatorGroup#remove(PlayerConnection)}.
+	 * Spectators that left are removed, with the next broadcast at the latest.
+	 */
+	@Test
+	public void testRemove() {
+		FakePlayerConnection left = new FakePlayerConnection();
+		FakePlayerConnection closed = new FakePlayerConnection();
+		this.group.add(left, SNAPSHOT);
+		this.group.add(closed, SNAPSHOT);
+		Assert.assertTrue(this.group.remove(left));
+		Assert.assertFalse(this.group.remove(left));
+		closed.closeConnection();
+		this.group.broadcast(new byte[] { 2 }, null);
+		Assert.assertEquals(0, this.group.size());
+		Assert.assertEquals(1, closed.frames.size());
+	}
+}
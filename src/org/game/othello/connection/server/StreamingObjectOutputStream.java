@@ -0,0 +1,100 @@
+package org.game.othello.connection.server;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * The object stream to a legacy client. An {@link ObjectOutputStream} keeps a handle to every object it wrote, so
+ * it can refer back to it, for as long as the stream lives. Chat messages and moves would pile up for the whole
+ * connection, so the stream is reset every {@link #RESET_INTERVAL} messages. Writing unshared would not help,
+ * the handle table grows by one entry per object either way.
+ * @author Oliver Scherf
+ */
+class StreamingObjectOutputStream extends ObjectOutputStream {
+
+	/* A reset costs one byte and the class descriptions are written again after it. */
+	public static final int RESET_INTERVAL = 16;
+
+	private final CountingOutputStream counter;
+	private int messagesSinceReset;
+	private int retainedHandles;
+
+	/**
+	 * Instantiates a new StreamingObjectOutputStream and writes the stream header.
+	 * @param out the stream to the client.
+	 * @throws IOException if the header can not be written.
+	 */
+	StreamingObjectOutputStream(OutputStream out) throws IOException {
+		this(new CountingOutputStream(out));
+	}
+
+	private StreamingObjectOutputStream(CountingOutputStream counter) throws IOException {
+		super(counter);
+		this.counter = counter;
+		// replaceObject is called once for every object that gets a handle.
+		this.enableReplaceObject(true);
+	}
+
+	/**
+	 * Writes and flushes the message, the stream is reset after every {@link #RESET_INTERVAL} messages.
+	 * @param message the message.
+	 * @throws IOException if writing fails.
+	 */
+	void writeMessage(Object message) throws IOException {
+		this.writeObject(message);
+		if (++this.messagesSinceReset >= RESET_INTERVAL) {
+			this.reset();
+		}
+		this.flush();
+	}
+
+	@Override
+	public void reset() throws IOException {
+		super.reset();
+		this.messagesSinceReset = 0;
+		this.retainedHandles = 0;
+	}
+
+	@Override
+	protected Object replaceObject(Object obj) {
+		++this.retainedHandles;
+		return obj;
+	}
+
+	/**
+	 * @return the objects the stream keeps a handle to, class descriptions excluded.
+	 */
+	int getRetainedHandles() {
+		return this.retainedHandles;
+	}
+
+	/**
+	 * @return the bytes written, including the header.
+	 */
+	long getBytesWritten() {
+		return this.counter.count;
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			++this.count;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+	}
+}
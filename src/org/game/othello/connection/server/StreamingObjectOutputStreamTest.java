@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import org.game.othello.ao.Coordinate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class StreamingObjectOutputStreamTest {
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.StreamingObjectOutputStream#writeMessage(Object)}.
+	 * The handles stay bounded, the client still reads every message.
+	 */
+	@Test
+	public void testWriteMessage() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StreamingObjectOutputStream out = new StreamingObjectOutputStream(bytes);
+		int maxHandles = 0;
+		for (int i = 0; i < 1000; ++i) {
+			out.writeMessage(i % 2 == 0 ? "Chat message " + i : new Coordinate(i % 8, i / 8 % 8));
+			maxHandles = Math.max(maxHandles, out.getRetainedHandles());
+		}
+		Assert.assertTrue(maxHandles > 0);
+		Assert.assertTrue(maxHandles < StreamingObjectOutputStream.RESET_INTERVAL);
+		Assert.assertEquals(bytes.size(), out.getBytesWritten());
+
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (int i = 0; i < 1000; ++i) {
+			Object message = in.readObject();
+			if (i % 2 == 0) {
+				Assert.assertEquals("Chat message " + i, message);
+			} else {
+				Assert.assertEquals(new Coordinate(i % 8, i / 8 % 8), message);
+			}
+		}
+	}
+}
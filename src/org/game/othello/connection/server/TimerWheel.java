@@ -0,0 +1,126 @@
+package org.game.othello.connection.server;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timer wheel, one timer for all connections instead of one per connection. The wheel has a slot per
+ * tick and wraps around, a task is put into the slot of the tick it is due at and counts the rounds it still has
+ * to wait. Scheduling and cancelling take constant time, {@link #advance(long)} only looks at the slots of the
+ * ticks that passed. A task runs up to one tick late, never early.
+ * <p>
+ * {@link #schedule(Runnable, long, long)} and {@link Timeout#cancel()} can be called from any thread, the tasks
+ * run on the thread that calls advance, which has to be the same thread every time.
+ * @author Oliver Scherf
+ */
+class TimerWheel {
+
+	private final long tickNanos;
+	private final ArrayDeque<Timeout>[] slots;
+	private final int mask;
+	private final long start;
+	/* The next tick to process, only used by the advancing thread. */
+	private long tick;
+	private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * A scheduled task.
+	 */
+	static final class Timeout {
+
+		private final Runnable task;
+		private final long deadline;
+		private long rounds;
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * The task will not run, it is dropped from the wheel when its slot comes up.
+		 */
+		void cancel() {
+			this.cancelled = true;
+		}
+	}
+
+	/**
+	 * Instantiates a new TimerWheel.
+	 * @param tickMillis the length of a tick.
+	 * @param slots the number of slots, a power of two. Tasks further away than a round wait in their slot.
+	 * @param now the start of the first tick, from {@link System#nanoTime()}.
+	 */
+	@SuppressWarnings("unchecked")
+	TimerWheel(long tickMillis, int slots, long now) {
+		if (Integer.bitCount(slots) != 1) {
+			throw new IllegalArgumentException("The number of slots has to be a power of two: " + slots);
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.slots = (ArrayDeque<Timeout>[]) new ArrayDeque<?>[slots];
+		for (int i = 0; i < slots; ++i) {
+			this.slots[i] = new ArrayDeque<Timeout>();
+		}
+		this.mask = slots - 1;
+		this.start = now;
+	}
+
+	/**
+	 * @param task runs on the thread that advances the wheel, it should not block.
+	 * @param delayMillis the delay of the task.
+	 * @param now the current time, from {@link System#nanoTime()}.
+	 * @return the handle to cancel the task.
+	 */
+	Timeout schedule(Runnable task, long delayMillis, long now) {
+		Timeout timeout = new Timeout(task, now + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+		this.pending.incrementAndGet();
+		this.scheduled.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Runs the tasks that are due.
+	 * @param now the current time, from {@link System#nanoTime()}.
+	 * @return the number of tasks that ran.
+	 */
+	int advance(long now) {
+		Timeout timeout;
+		while ((timeout = this.scheduled.poll()) != null) {
+			// The task is due at the first tick that starts after its deadline.
+			long dueTick = Math.max(this.tick, (timeout.deadline - this.start + this.tickNanos - 1) / this.tickNanos);
+			timeout.rounds = (dueTick - this.tick) / this.slots.length;
+			this.slots[(int) (dueTick & this.mask)].add(timeout);
+		}
+		int ran = 0;
+		long lastTick = (now - this.start) / this.tickNanos;
+		for (; this.tick <= lastTick; ++this.tick) {
+			ArrayDeque<Timeout> slot = this.slots[(int) (this.tick & this.mask)];
+			for (int i = slot.size(); i > 0; --i) {
+				timeout = slot.poll();
+				if (timeout.cancelled) {
+					this.pending.decrementAndGet();
+				} else if (timeout.rounds > 0) {
+					--timeout.rounds;
+					slot.add(timeout);
+				} else {
+					this.pending.decrementAndGet();
+					timeout.task.run();
+					++ran;
+				}
+			}
+		}
+		return ran;
+	}
+
+	/**
+	 * @return the tasks that did not run yet, including cancelled ones that were not dropped yet.
+	 */
+	int getPending() {
+		return this.pending.get();
+	}
+}
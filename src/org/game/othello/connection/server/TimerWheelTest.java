@@ -0,0 +1,116 @@
+/**
+ * 
+ */
+package org.game.othello.connection.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ *
+ */
+public class TimerWheelTest {
+
+	private static final long TICK_MILLIS = 100;
+	private static final int SLOTS = 8;
+
+	private TimerWheel wheel;
+	private List<String> ran;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.wheel = new TimerWheel(TICK_MILLIS, SLOTS, 0);
+		this.ran = new ArrayList<String>();
+	}
+
+	private Runnable task(final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				TimerWheelTest.this.ran.add(name);
+			}
+		};
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.TimerWheel#advance(long)}.
+	 * A task runs at the first tick after its deadline, not before.
+	 */
+	@Test
+	public void testDeadline() {
+		this.wheel.schedule(this.task("a"), 250, 0);
+		this.wheel.schedule(this.task("b"), 100, millis(30));
+		Assert.assertEquals(0, this.wheel.advance(millis(120)));
+		Assert.assertEquals(1, this.wheel.advance(millis(210)));
+		Assert.assertEquals("b", this.ran.get(0));
+		Assert.assertEquals(0, this.wheel.advance(millis(299)));
+		Assert.assertEquals(1, this.wheel.advance(millis(300)));
+		Assert.assertEquals("a", this.ran.get(1));
+		Assert.assertEquals(0, this.wheel.getPending());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.TimerWheel#advance(long)}.
+	 * A task further away than a round of the wheel waits the rounds in its slot.
+	 */
+	@Test
+	public void testRounds() {
+		long round = SLOTS * TICK_MILLIS;
+		this.wheel.schedule(this.task("far"), 2 * round + TICK_MILLIS, 0);
+		this.wheel.schedule(this.task("near"), TICK_MILLIS, 0);
+		for (long now = 0; now < millis(2 * round); now += millis(TICK_MILLIS)) {
+			this.wheel.advance(now);
+		}
+		Assert.assertEquals(1, this.ran.size());
+		Assert.assertEquals(1, this.wheel.getPending());
+		Assert.assertEquals(1, this.wheel.advance(millis(2 * round + TICK_MILLIS)));
+		Assert.assertEquals("far", this.ran.get(1));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.TimerWheel.Timeout#cancel()}.
+	 */
+	@Test
+	public void testCancel() {
+		TimerWheel.Timeout timeout = this.wheel.schedule(this.task("cancelled"), TICK_MILLIS, 0);
+		this.wheel.schedule(this.task("kept"), TICK_MILLIS, 0);
+		timeout.cancel();
+		Assert.assertEquals(1, this.wheel.advance(millis(5 * TICK_MILLIS)));
+		Assert.assertEquals("kept", this.ran.get(0));
+		Assert.assertEquals(0, this.wheel.getPending());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.connection.server.TimerWheel#advance(long)}.
+	 * A late advance runs every task that is due, a task scheduled by a task runs in a later advance.
+	 */
+	@Test
+	public void testLateAdvance() {
+		for (int i = 0; i < 100; ++i) {
+			this.wheel.schedule(this.task("t" + i), i * 37 % 1000, 0);
+		}
+		this.wheel.schedule(new Runnable() {
+			@Override
+			public void run() {
+				TimerWheelTest.this.wheel.schedule(TimerWheelTest.this.task("again"), TICK_MILLIS, millis(500));
+			}
+		}, 500, 0);
+		Assert.assertEquals(101, this.wheel.advance(millis(1000)));
+		Assert.assertEquals(1, this.wheel.getPending());
+		Assert.assertEquals(1, this.wheel.advance(millis(1100)));
+		Assert.assertEquals("again", this.ran.get(100));
+	}
+}
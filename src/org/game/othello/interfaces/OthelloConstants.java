@@ -13,9 +13,27 @@ public interface OthelloConstants {
 	public static final int PLAYER_WHITE = 1;
 	public static final int PLAYER_BLACK = 2;
 
+	/* Computer player */
+	public static final long COMPUTER_PLAYER_TIME_BUDGET_MILLIS = 1000;
+	public static final String OPENING_BOOK_FILE = "othello.book";
+	public static final String PATTERN_WEIGHTS_FILE = "othello.weights";
+
+	/* Endgame solver */
+	public static final int ENDGAME_SOLVER_MAX_EMPTIES = 20;
+
 	/* Socket */
 	public static final String SERVER_IP = "oliverscherf.de";
 	public static final int SERVER_PORT = 8555;
+	/* Lobby numbers up to 999 are handed out first, older clients only accept three digits. */
+	public static final int LOBBY_NUMBER_MIN = 100;
+	public static final int LOBBY_NUMBER_MAX = 999999;
+	/* The client has no rating of its own yet, every player enters the matchmaking with this one. */
+	public static final int MATCHMAKING_DEFAULT_RATING = 1500;
+	/* The server pings every interval, a side that did not hear from the other for the timeout drops the connection. */
+	public static final long HEARTBEAT_INTERVAL_MILLIS = 10 * 1000;
+	public static final long HEARTBEAT_TIMEOUT_MILLIS = 30 * 1000;
+	/* A player whose connection broke may resume the game within this time, then the opponent wins. */
+	public static final long SESSION_GRACE_MILLIS = 60 * 1000;
 	
 	/* OthelloClient */
 	public static final Boolean ONLINE_GAME_I_START = Boolean.TRUE;
@@ -82,19 +82,25 @@ public class RenderController implements OthelloConstants, Loggable {
 
 
 	/**
-	 * Adds 3 Buttons to the menu.
+	 * Adds the Buttons to the menu.
 	 */
 	private void initiazeMenuButtons() {
 		Button startOfflineBtn = new Button("Offline Game");
+		Button startComputerBtn = new Button("Offline Game: vs Computer");
 		Button startCreateLobbyBtn = new Button("Online Game: Create Lobby");
 		Button startJoinLobbyBtn = new Button("Online Game: Join Lobby");
+		Button startFindGameBtn = new Button("Online Game: Find Opponent");
+		Button startWatchLobbyBtn = new Button("Online Game: Watch Lobby");
 		Button helpBtn = new Button("Help");
 		Button quitBtn = new Button("Quit");
 		int width = 200;
 		int height = 30;
 		startOfflineBtn.setPrefSize(width, height);
+		startComputerBtn.setPrefSize(width, height);
 		startCreateLobbyBtn.setPrefSize(width, height);
 		startJoinLobbyBtn.setPrefSize(width, height);
+		startFindGameBtn.setPrefSize(width, height);
+		startWatchLobbyBtn.setPrefSize(width, height);
 		helpBtn.setPrefSize(width, height);
 		quitBtn.setPrefSize(width, height);
 		startOfflineBtn.setOnAction(new EventHandler<ActionEvent>() {
@@ -103,6 +109,12 @@ public class RenderController implements OthelloConstants, Loggable {
 				GameController.getSingleton().startOfflineMultiplayer();
 			}
 		});
+		startComputerBtn.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				GameController.getSingleton().startOfflineSingleplayer();
+			}
+		});
 		startCreateLobbyBtn.setOnAction(new EventHandler<ActionEvent>() {
 			@Override
 			public void handle(ActionEvent event) {
@@ -112,24 +124,27 @@ public class RenderController implements OthelloConstants, Loggable {
 		startJoinLobbyBtn.setOnAction(new EventHandler<ActionEvent>() {
 			@Override
 			public void handle(ActionEvent event) {
-				TextInputDialog dialog = new TextInputDialog("");
-				dialog.setTitle("Enter lobby number");
-				dialog.setHeaderText("Please enter the number of the lobby you want to join.");
-				dialog.setContentText("Lobby Number:");
-				Optional<String> result = dialog.showAndWait();
-				if (result.isPresent()){
-					if (RenderController.this.validateLobbyNumber(result.get())) {
-						GameController.getSingleton().startOnlineMultiplayer(Integer.valueOf(result.get()));
-					} else {
-						Alert error = new Alert(AlertType.INFORMATION);
-						error.setTitle("Incorrect lobby number.");
-						error.setHeaderText("Please verify there is an active lobby with that number.");
-						error.setContentText("The lobby number was incorrect, make sure the lobby exists.\nYou can also create a new lobby.");
-						error.showAndWait();
-					}
+				Integer lobbyNumber = RenderController.this.askForLobbyNumber("Please enter the number of the lobby you want to join.");
+				if (lobbyNumber != null) {
+					GameController.getSingleton().startOnlineMultiplayer(lobbyNumber);
+				}
+			}
+		});
+		startWatchLobbyBtn.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				Integer lobbyNumber = RenderController.this.askForLobbyNumber("Please enter the number of the lobby you want to watch.");
+				if (lobbyNumber != null) {
+					GameController.getSingleton().spectateOnlineGame(lobbyNumber);
 				}
 			}
 		});
+		startFindGameBtn.setOnAction(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				GameController.getSingleton().findOnlineGame();
+			}
+		});
 		quitBtn.setOnAction(new EventHandler<ActionEvent>() {
 			@Override
 			public void handle(ActionEvent event) {
@@ -147,7 +162,8 @@ public class RenderController implements OthelloConstants, Loggable {
 				helpAlert.setContentText("You can either start the game in offline - or online multiplayer mode. For online multiplayer mode you need to"
 						+ "create or join a lobby. When you create a lobby, tell your opponent your lobby number. You find the lobby number "
 						+ "on the right side when you're on the game screen. He just needs to write the number into the small textfield below"
-						+ "the \"Online Game: Join Lobby\""
+						+ "the \"Online Game: Join Lobby\". With \"Online Game: Find Opponent\" the server chooses an opponent for you. "
+						+ "With \"Online Game: Watch Lobby\" you can watch the game of a lobby."
 						+ "\n\nIf you don't know the rules of Othello, see here: https://en.wikipedia.org/wiki/Reversi#Rules");
 				helpAlert.showAndWait();
 			}
@@ -156,7 +172,8 @@ public class RenderController implements OthelloConstants, Loggable {
 		buttonsBox.setSpacing(4.0);
 		buttonsBox.setAlignment(Pos.CENTER);
 		this.othelloMenuPane.setAlignment(Pos.CENTER);
-		buttonsBox.getChildren().addAll(startOfflineBtn, startCreateLobbyBtn, startJoinLobbyBtn, helpBtn, quitBtn);
+		buttonsBox.getChildren().addAll(startOfflineBtn, startComputerBtn, startCreateLobbyBtn, startJoinLobbyBtn, startFindGameBtn,
+				startWatchLobbyBtn, helpBtn, quitBtn);
 		this.othelloMenuPane.add(buttonsBox, 0, 1);
 		this.log(FINE, "Initialized the Menu buttons.");
 	}
@@ -169,12 +186,38 @@ public class RenderController implements OthelloConstants, Loggable {
 	}
 	
 	/**
-	 * A lobby number is always between the range 100-999.
+	 * Asks the user for a lobby number, an invalid number is reported.
+	 * @param header the question.
+	 * @return the lobby number or null, if the dialog was canceled or the number is invalid.
+	 */
+	private Integer askForLobbyNumber(String header) {
+		TextInputDialog dialog = new TextInputDialog("");
+		dialog.setTitle("Enter lobby number");
+		dialog.setHeaderText(header);
+		dialog.setContentText("Lobby Number:");
+		Optional<String> result = dialog.showAndWait();
+		if (!result.isPresent()) {
+			return null;
+		}
+		if (!this.validateLobbyNumber(result.get())) {
+			Alert error = new Alert(AlertType.INFORMATION);
+			error.setTitle("Incorrect lobby number.");
+			error.setHeaderText("Please verify there is an active lobby with that number.");
+			error.setContentText("The lobby number was incorrect, make sure the lobby exists.\nYou can also create a new lobby.");
+			error.showAndWait();
+			return null;
+		}
+		return Integer.valueOf(result.get());
+	}
+
+	/**
+	 * A lobby number is always between the range LOBBY_NUMBER_MIN-LOBBY_NUMBER_MAX.
 	 * @param text from the lobby Textfield
-	 * @return true, if the number is between 100 and 999.
+	 * @return true, if the number is between LOBBY_NUMBER_MIN and LOBBY_NUMBER_MAX.
 	 */
 	private boolean validateLobbyNumber(String text) {
-		return text.length() == 3 && text.matches("[0-9]*") && Integer.valueOf(text).intValue() > 99;
+		return text.length() >= 3 && text.length() <= 6 && text.matches("[0-9]*") && Integer.valueOf(text).intValue() >= LOBBY_NUMBER_MIN
+				&& Integer.valueOf(text).intValue() <= LOBBY_NUMBER_MAX;
 	}
 
 	/**
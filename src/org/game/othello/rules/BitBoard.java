@@ -0,0 +1,675 @@
+package org.game.othello.rules;
+
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Holds a position as two bitboards, one for the black and one for the white game characters.
+ * The square with the coordinate (x, y) is stored in the bit y * {@link #GAMEBOARD_SIZE} + x.
+ * The Zobrist hash of the game characters and the side to move is updated with every change of the position.
+ * @author Oliver Scherf
+ */
+public class BitBoard implements OthelloConstants {
+
+	/* All columns except the first and the last one. */
+	private static final long INNER_COLUMNS = 0x7E7E7E7E7E7E7E7EL;
+
+	public static final int SQUARE_COUNT = GAMEBOARD_SIZE * GAMEBOARD_SIZE;
+	public static final int DIRECTION_COUNT = 8;
+	/* A game has at most 60 moves, every move can be followed by at most one pass. */
+	public static final int MAX_PLY = 128;
+	public static final int PASS = -1;
+
+	/* Zobrist keys, fixed so a hash stays the same between runs. */
+	private static final long[] BLACK_KEYS = new long[SQUARE_COUNT];
+	private static final long[] WHITE_KEYS = new long[SQUARE_COUNT];
+	/* BLACK_KEYS ^ WHITE_KEYS, a flipped game character changes both. */
+	private static final long[] FLIP_KEYS = new long[SQUARE_COUNT];
+	private static final long WHITE_TO_MOVE_KEY;
+
+	static {
+		long seed = 0x4F7468656C6C6F4CL;
+		for (int square = 0; square < SQUARE_COUNT; ++square) {
+			BLACK_KEYS[square] = splitMix(seed += 0x9E3779B97F4A7C15L);
+			WHITE_KEYS[square] = splitMix(seed += 0x9E3779B97F4A7C15L);
+			FLIP_KEYS[square] = BLACK_KEYS[square] ^ WHITE_KEYS[square];
+		}
+		WHITE_TO_MOVE_KEY = splitMix(seed + 0x9E3779B97F4A7C15L);
+	}
+
+	private long black;
+	private long white;
+	private int sideToMove = PLAYER_BLACK;
+	private int passes;
+	private long hash;
+	private BoardListener listener;
+
+	/* Undo stack of makeMove / makePass, preallocated so searching does not allocate. */
+	private final long[] undoFlips = new long[MAX_PLY];
+	private final int[] undoSquares = new int[MAX_PLY];
+	private final int[] undoSideToMove = new int[MAX_PLY];
+	private final int[] undoPasses = new int[MAX_PLY];
+	private final long[] undoHashes = new long[MAX_PLY];
+	private int ply;
+
+	/**
+	 * Instantiates an empty BitBoard.
+	 */
+	public BitBoard() {
+	}
+
+	/**
+	 * Instantiates a BitBoard with the given game characters.
+	 * @param black the squares owned by black.
+	 * @param white the squares owned by white.
+	 */
+	public BitBoard(long black, long white) {
+		this.black = black;
+		this.white = white;
+		this.hash = computeHash(black, white, this.sideToMove);
+	}
+
+	/**
+	 * Instantiates a copy of the position, including the side to move and the pass state.
+	 * The undo stack and the listener are not copied.
+	 * @param other the BitBoard to copy.
+	 */
+	public BitBoard(BitBoard other) {
+		this.black = other.black;
+		this.white = other.white;
+		this.sideToMove = other.sideToMove;
+		this.passes = other.passes;
+		this.hash = other.hash;
+	}
+
+	/**
+	 * This will set the first game characters on the board.
+	 */
+	public void setStartingPosition() {
+		this.black = bit(3, 4) | bit(4, 3);
+		this.white = bit(3, 3) | bit(4, 4);
+		this.hash = computeHash(this.black, this.white, this.sideToMove);
+		this.firePositionChanged();
+	}
+
+	/**
+	 * Replaces the game characters on the board. The undo stack is cleared.
+	 * @param black the squares owned by black.
+	 * @param white the squares owned by white.
+	 */
+	public void setPosition(long black, long white) {
+		this.black = black;
+		this.white = white;
+		this.passes = 0;
+		this.ply = 0;
+		this.hash = computeHash(black, white, this.sideToMove);
+		this.firePositionChanged();
+	}
+
+	/**
+	 * @param square the square index.
+	 * @return the owner of the square: Black, White or Nobody.
+	 */
+	public int getOwner(int square) {
+		long b = 1L << square;
+		if ((this.black & b) != 0) {
+			return PLAYER_BLACK;
+		} else if ((this.white & b) != 0) {
+			return PLAYER_WHITE;
+		}
+		return PLAYER_NOBODY;
+	}
+
+	/**
+	 * Overwrites the owner of a single square.
+	 * @param square the square index.
+	 * @param player the new owner.
+	 */
+	public void setOwner(int square, int player) {
+		long b = 1L << square;
+		long oldBlack = this.black;
+		long oldWhite = this.white;
+		this.black &= ~b;
+		this.white &= ~b;
+		if (player == PLAYER_BLACK) {
+			this.black |= b;
+		} else if (player == PLAYER_WHITE) {
+			this.white |= b;
+		}
+		this.updateHash(oldBlack ^ this.black, oldWhite ^ this.white);
+		this.firePositionChanged();
+	}
+
+	/**
+	 * @param player Black, White or Nobody.
+	 * @return the squares owned by the player, for Nobody the empty squares.
+	 */
+	public long getDiscs(int player) {
+		if (player == PLAYER_BLACK) {
+			return this.black;
+		} else if (player == PLAYER_WHITE) {
+			return this.white;
+		}
+		return ~(this.black | this.white);
+	}
+
+	/**
+	 * Counts the field that a player is owning.
+	 * @param player Black, White or Nobody.
+	 * @return the gamefield count.
+	 */
+	public int count(int player) {
+		return Long.bitCount(this.getDiscs(player));
+	}
+
+	/**
+	 * Calculates the game characters that would be flipped if player placed a game character on the square.
+	 * @param player the player who places the game character.
+	 * @param square the square index.
+	 * @return the flipped squares, 0 if the square is occupied or no game character would be flipped.
+	 */
+	public long getFlips(int player, int square) {
+		long move = 1L << square;
+		if (((this.black | this.white) & move) != 0) {
+			return 0;
+		}
+		return flips(this.getDiscs(player), this.getDiscs(opponentOf(player)), move);
+	}
+
+	/**
+	 * Generates all legal moves of a player in one pass over the eight directions.
+	 * @param player Black or White.
+	 * @return the squares where the player can place a game character.
+	 */
+	public long getLegalMoves(int player) {
+		return legalMoves(this.getDiscs(player), this.getDiscs(opponentOf(player)));
+	}
+
+	/**
+	 * Floods from the own game characters over adjacent opponent lines, a square behind such a line is a legal move if it is empty.
+	 * The directions are written out, a line of opponent game characters is at most six squares long.
+	 * For the directions with a horizontal part the opponent squares are limited to the inner columns, so a line can not wrap.
+	 * @param own the squares of the player on turn.
+	 * @param opp the squares of the opponent.
+	 * @return the legal moves.
+	 */
+	static long legalMoves(long own, long opp) {
+		long empty = ~(own | opp);
+		long inner = opp & INNER_COLUMNS;
+		long moves = 0;
+		long line;
+		// right and left
+		line = inner & (own << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		moves |= line << 1;
+		line = inner & (own >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		moves |= line >>> 1;
+		// down and up
+		line = opp & (own << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		moves |= line << 8;
+		line = opp & (own >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		moves |= line >>> 8;
+		// right down and left up
+		line = inner & (own << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		moves |= line << 9;
+		line = inner & (own >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		moves |= line >>> 9;
+		// left down and right up
+		line = inner & (own << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		moves |= line << 7;
+		line = inner & (own >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		moves |= line >>> 7;
+		return moves & empty;
+	}
+
+	/**
+	 * Places the game character on the board and flips the enclosed game characters of the opponent.
+	 * The square is set even if no game character is flipped.
+	 * @param player the player who places the game character.
+	 * @param square the square index.
+	 * @return the flipped squares.
+	 */
+	public long doMove(int player, int square) {
+		long move = 1L << square;
+		long own = this.getDiscs(player);
+		long opp = this.getDiscs(opponentOf(player));
+		long flipped = flips(own & ~move, opp & ~move, move);
+		own = (own | move | flipped);
+		opp = opp & ~(move | flipped);
+		long oldBlack = this.black;
+		long oldWhite = this.white;
+		if (player == PLAYER_BLACK) {
+			this.black = own;
+			this.white = opp;
+		} else {
+			this.white = own;
+			this.black = opp;
+		}
+		this.updateHash(oldBlack ^ this.black, oldWhite ^ this.white);
+		if (this.listener != null) {
+			this.listener.movePlayed(player, square, flipped);
+		}
+		return flipped;
+	}
+
+	/**
+	 * Places a game character for the side to move, records the move on the undo stack and hands the turn
+	 * to the opponent.
+	 * @param square the square index of a legal move.
+	 * @return the flipped squares.
+	 */
+	public long makeMove(int square) {
+		this.push(square);
+		long flipped = this.doMove(this.sideToMove, square);
+		this.undoFlips[this.ply - 1] = flipped;
+		this.sideToMove = opponentOf(this.sideToMove);
+		this.hash ^= WHITE_TO_MOVE_KEY;
+		this.passes = 0;
+		return flipped;
+	}
+
+	/**
+	 * The side to move passes, because no move is possible.
+	 */
+	public void makePass() {
+		this.push(PASS);
+		this.undoFlips[this.ply - 1] = 0;
+		this.sideToMove = opponentOf(this.sideToMove);
+		this.hash ^= WHITE_TO_MOVE_KEY;
+		++this.passes;
+	}
+
+	/**
+	 * Reverts the last {@link #makeMove(int)} or {@link #makePass()}.
+	 */
+	public void unmakeMove() {
+		if (this.ply == 0) {
+			throw new IllegalStateException("There is no move to undo.");
+		}
+		--this.ply;
+		this.sideToMove = this.undoSideToMove[this.ply];
+		this.passes = this.undoPasses[this.ply];
+		this.hash = this.undoHashes[this.ply];
+		int square = this.undoSquares[this.ply];
+		if (square == PASS) {
+			return;
+		}
+		long flipped = this.undoFlips[this.ply];
+		long move = 1L << square;
+		if (this.sideToMove == PLAYER_BLACK) {
+			this.black &= ~(move | flipped);
+			this.white |= flipped;
+		} else {
+			this.white &= ~(move | flipped);
+			this.black |= flipped;
+		}
+		if (this.listener != null) {
+			this.listener.moveUndone(this.sideToMove, square, flipped);
+		}
+	}
+
+	/**
+	 * Saves the state that is needed to revert the next move.
+	 * @param square the square index or {@link #PASS}.
+	 */
+	private void push(int square) {
+		if (this.ply == MAX_PLY) {
+			throw new IllegalStateException("The undo stack is full.");
+		}
+		this.undoSquares[this.ply] = square;
+		this.undoSideToMove[this.ply] = this.sideToMove;
+		this.undoPasses[this.ply] = this.passes;
+		this.undoHashes[this.ply] = this.hash;
+		++this.ply;
+	}
+
+	private void firePositionChanged() {
+		if (this.listener != null) {
+			this.listener.positionChanged(this);
+		}
+	}
+
+	/**
+	 * Applies the changed squares to the hash. A square that changed in both bitboards is a flipped game character.
+	 * @param blackChanged the squares that changed in the black bitboard.
+	 * @param whiteChanged the squares that changed in the white bitboard.
+	 */
+	private void updateHash(long blackChanged, long whiteChanged) {
+		long flipped = blackChanged & whiteChanged;
+		blackChanged &= ~flipped;
+		whiteChanged &= ~flipped;
+		long h = this.hash;
+		for (; flipped != 0; flipped &= flipped - 1) {
+			h ^= FLIP_KEYS[Long.numberOfTrailingZeros(flipped)];
+		}
+		for (; blackChanged != 0; blackChanged &= blackChanged - 1) {
+			h ^= BLACK_KEYS[Long.numberOfTrailingZeros(blackChanged)];
+		}
+		for (; whiteChanged != 0; whiteChanged &= whiteChanged - 1) {
+			h ^= WHITE_KEYS[Long.numberOfTrailingZeros(whiteChanged)];
+		}
+		this.hash = h;
+	}
+
+	/**
+	 * Calculates the Zobrist hash from scratch, {@link #getHash()} returns the same value for the position.
+	 * @param black the squares owned by black.
+	 * @param white the squares owned by white.
+	 * @param sideToMove the player on turn.
+	 * @return the 64 bit hash.
+	 */
+	public static long computeHash(long black, long white, int sideToMove) {
+		long h = sideToMove == PLAYER_WHITE ? WHITE_TO_MOVE_KEY : 0;
+		for (; black != 0; black &= black - 1) {
+			h ^= BLACK_KEYS[Long.numberOfTrailingZeros(black)];
+		}
+		for (; white != 0; white &= white - 1) {
+			h ^= WHITE_KEYS[Long.numberOfTrailingZeros(white)];
+		}
+		return h;
+	}
+
+	/**
+	 * SplitMix64, fills the key tables.
+	 */
+	private static long splitMix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return true, when both players passed in a row or the board is full.
+	 */
+	public boolean isGameOver() {
+		return this.passes >= 2 || ~(this.black | this.white) == 0;
+	}
+
+	/**
+	 * Collects the opponent game characters that are enclosed between the move and an own game character,
+	 * the eight directions are written out like in {@link #legalMoves(long, long)}.
+	 * @param own the squares of the player on turn.
+	 * @param opp the squares of the opponent.
+	 * @param move a single bit, the square of the new game character.
+	 * @return the flipped squares.
+	 */
+	static long flips(long own, long opp, long move) {
+		long inner = opp & INNER_COLUMNS;
+		long flipped = 0;
+		long line;
+		line = inner & (move << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		line |= inner & (line << 1);
+		if ((own & (line << 1)) != 0) {
+			flipped |= line;
+		}
+		line = inner & (move >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		line |= inner & (line >>> 1);
+		if ((own & (line >>> 1)) != 0) {
+			flipped |= line;
+		}
+		line = opp & (move << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		line |= opp & (line << 8);
+		if ((own & (line << 8)) != 0) {
+			flipped |= line;
+		}
+		line = opp & (move >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		line |= opp & (line >>> 8);
+		if ((own & (line >>> 8)) != 0) {
+			flipped |= line;
+		}
+		line = inner & (move << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		line |= inner & (line << 9);
+		if ((own & (line << 9)) != 0) {
+			flipped |= line;
+		}
+		line = inner & (move >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		line |= inner & (line >>> 9);
+		if ((own & (line >>> 9)) != 0) {
+			flipped |= line;
+		}
+		line = inner & (move << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		line |= inner & (line << 7);
+		if ((own & (line << 7)) != 0) {
+			flipped |= line;
+		}
+		line = inner & (move >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		line |= inner & (line >>> 7);
+		if ((own & (line >>> 7)) != 0) {
+			flipped |= line;
+		}
+		return flipped;
+	}
+
+	/**
+	 * Applies one of the eight symmetries of the board. Bit 2 of the symmetry swaps x and y, then bit 0 mirrors x
+	 * and bit 1 mirrors y. 0 is the identity.
+	 * @param b the bitboard.
+	 * @param symmetry 0 - 7.
+	 * @return the transformed bitboard.
+	 */
+	public static long transform(long b, int symmetry) {
+		if ((symmetry & 4) != 0) {
+			long t = 0x0F0F0F0F00000000L & (b ^ (b << 28));
+			b ^= t ^ (t >>> 28);
+			t = 0x3333000033330000L & (b ^ (b << 14));
+			b ^= t ^ (t >>> 14);
+			t = 0x5500550055005500L & (b ^ (b << 7));
+			b ^= t ^ (t >>> 7);
+		}
+		if ((symmetry & 1) != 0) {
+			b = ((b >>> 1) & 0x5555555555555555L) | ((b & 0x5555555555555555L) << 1);
+			b = ((b >>> 2) & 0x3333333333333333L) | ((b & 0x3333333333333333L) << 2);
+			b = ((b >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((b & 0x0F0F0F0F0F0F0F0FL) << 4);
+		}
+		if ((symmetry & 2) != 0) {
+			b = Long.reverseBytes(b);
+		}
+		return b;
+	}
+
+	/**
+	 * @param square the square index.
+	 * @param symmetry 0 - 7, see {@link #transform(long, int)}.
+	 * @return the square index after the symmetry.
+	 */
+	public static int transformSquare(int square, int symmetry) {
+		int x = square % GAMEBOARD_SIZE;
+		int y = square / GAMEBOARD_SIZE;
+		if ((symmetry & 4) != 0) {
+			int t = x;
+			x = y;
+			y = t;
+		}
+		if ((symmetry & 1) != 0) {
+			x = GAMEBOARD_SIZE - 1 - x;
+		}
+		if ((symmetry & 2) != 0) {
+			y = GAMEBOARD_SIZE - 1 - y;
+		}
+		return square(x, y);
+	}
+
+	/**
+	 * Reverts {@link #transformSquare(int, int)}.
+	 * @param square the transformed square index.
+	 * @param symmetry 0 - 7, see {@link #transform(long, int)}.
+	 * @return the original square index.
+	 */
+	public static int inverseTransformSquare(int square, int symmetry) {
+		int x = square % GAMEBOARD_SIZE;
+		int y = square / GAMEBOARD_SIZE;
+		if ((symmetry & 2) != 0) {
+			y = GAMEBOARD_SIZE - 1 - y;
+		}
+		if ((symmetry & 1) != 0) {
+			x = GAMEBOARD_SIZE - 1 - x;
+		}
+		if ((symmetry & 4) != 0) {
+			int t = x;
+			x = y;
+			y = t;
+		}
+		return square(x, y);
+	}
+
+	/**
+	 * @param player
+	 * @return the opponent of the player, Black for Nobody.
+	 */
+	public static int opponentOf(int player) {
+		if (player == PLAYER_BLACK) {
+			return PLAYER_WHITE;
+		} else {
+			return PLAYER_BLACK;
+		}
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return the square index of the coordinate.
+	 */
+	public static int square(int x, int y) {
+		return y * GAMEBOARD_SIZE + x;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return the bit of the coordinate.
+	 */
+	public static long bit(int x, int y) {
+		return 1L << square(x, y);
+	}
+
+	public int getSideToMove() {
+		return this.sideToMove;
+	}
+
+	public void setSideToMove(int sideToMove) {
+		if ((this.sideToMove == PLAYER_WHITE) != (sideToMove == PLAYER_WHITE)) {
+			this.hash ^= WHITE_TO_MOVE_KEY;
+		}
+		this.sideToMove = sideToMove;
+	}
+
+	public int getPasses() {
+		return this.passes;
+	}
+
+	/**
+	 * @return the number of moves and passes on the undo stack.
+	 */
+	public int getPly() {
+		return this.ply;
+	}
+
+	public BoardListener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * @param listener is informed about every change of the board, null removes the listener.
+	 */
+	public void setListener(BoardListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return the Zobrist hash of the game characters and the side to move.
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+	public long getBlack() {
+		return this.black;
+	}
+
+	public long getWhite() {
+		return this.white;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof BitBoard) {
+			return ((BitBoard) obj).black == this.black && ((BitBoard) obj).white == this.white;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(this.black * 31 + this.white);
+	}
+}
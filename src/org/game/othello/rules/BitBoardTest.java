@@ -0,0 +1,169 @@
+/**
+ * 
+ */
+package org.game.othello.rules;
+
+import java.util.Random;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Oliver Scherf
+ */
+public class BitBoardTest implements OthelloConstants {
+
+	private BitBoard board;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		board = new BitBoard();
+		board.setStartingPosition();
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#setStartingPosition()}.
+	 */
+	@Test
+	public void testSetStartingPosition() {
+		Assert.assertEquals(PLAYER_WHITE, board.getOwner(BitBoard.square(3, 3)));
+		Assert.assertEquals(PLAYER_WHITE, board.getOwner(BitBoard.square(4, 4)));
+		Assert.assertEquals(PLAYER_BLACK, board.getOwner(BitBoard.square(3, 4)));
+		Assert.assertEquals(PLAYER_BLACK, board.getOwner(BitBoard.square(4, 3)));
+		Assert.assertEquals(2, board.count(PLAYER_BLACK));
+		Assert.assertEquals(2, board.count(PLAYER_WHITE));
+		Assert.assertEquals(60, board.count(PLAYER_NOBODY));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#getFlips(int, int)}.
+	 */
+	@Test
+	public void testGetFlips() {
+		Assert.assertEquals(BitBoard.bit(4, 4), board.getFlips(PLAYER_BLACK, BitBoard.square(4, 5)));
+		Assert.assertEquals(BitBoard.bit(3, 3), board.getFlips(PLAYER_BLACK, BitBoard.square(3, 2)));
+		Assert.assertEquals(0, board.getFlips(PLAYER_BLACK, BitBoard.square(3, 5)));
+		Assert.assertEquals(0, board.getFlips(PLAYER_BLACK, BitBoard.square(3, 3)));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#doMove(int, int)}.
+	 */
+	@Test
+	public void testDoMove() {
+		Assert.assertEquals(BitBoard.bit(4, 4), board.doMove(PLAYER_BLACK, BitBoard.square(4, 5)));
+		Assert.assertEquals(4, board.count(PLAYER_BLACK));
+		Assert.assertEquals(1, board.count(PLAYER_WHITE));
+		Assert.assertEquals(BitBoard.bit(4, 4), board.doMove(PLAYER_WHITE, BitBoard.square(5, 5)));
+		Assert.assertEquals(PLAYER_WHITE, board.getOwner(BitBoard.square(4, 4)));
+	}
+
+	/**
+	 * A line of game characters must not continue on the next row.
+	 */
+	@Test
+	public void testNoWrapAroundTheEdge() {
+		BitBoard edge = new BitBoard(BitBoard.bit(1, 1), BitBoard.bit(7, 0) | BitBoard.bit(0, 1));
+		Assert.assertEquals(0, edge.getFlips(PLAYER_BLACK, BitBoard.square(6, 0)));
+		Assert.assertEquals(BitBoard.bit(0, 1), new BitBoard(BitBoard.bit(0, 2), BitBoard.bit(0, 1)).getFlips(PLAYER_BLACK, BitBoard.square(0, 0)));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#getLegalMoves(int)}.
+	 */
+	@Test
+	public void testGetLegalMoves() {
+		long expectedBlack = BitBoard.bit(3, 2) | BitBoard.bit(2, 3) | BitBoard.bit(5, 4) | BitBoard.bit(4, 5);
+		long expectedWhite = BitBoard.bit(4, 2) | BitBoard.bit(5, 3) | BitBoard.bit(2, 4) | BitBoard.bit(3, 5);
+		Assert.assertEquals(expectedBlack, board.getLegalMoves(PLAYER_BLACK));
+		Assert.assertEquals(expectedWhite, board.getLegalMoves(PLAYER_WHITE));
+		for (int square = 0; square < BitBoard.SQUARE_COUNT; ++square) {
+			boolean legal = (board.getLegalMoves(PLAYER_BLACK) & (1L << square)) != 0;
+			Assert.assertEquals(legal, board.getFlips(PLAYER_BLACK, square) != 0);
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#unmakeMove()}.
+	 */
+	@Test
+	public void testMakeAndUnmakeMove() {
+		BitBoard start = new BitBoard(board.getBlack(), board.getWhite());
+		Assert.assertEquals(BitBoard.bit(4, 4), board.makeMove(BitBoard.square(4, 5)));
+		Assert.assertEquals(PLAYER_WHITE, board.getSideToMove());
+		board.makeMove(BitBoard.square(5, 5));
+		board.makePass();
+		Assert.assertEquals(1, board.getPasses());
+		Assert.assertEquals(3, board.getPly());
+		board.unmakeMove();
+		Assert.assertEquals(0, board.getPasses());
+		Assert.assertEquals(PLAYER_BLACK, board.getSideToMove());
+		board.unmakeMove();
+		board.unmakeMove();
+		Assert.assertEquals(start, board);
+		Assert.assertEquals(PLAYER_BLACK, board.getSideToMove());
+		Assert.assertEquals(0, board.getPly());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#getHash()}.
+	 * The incremental hash must match the hash calculated from scratch after every move and undo.
+	 */
+	@Test
+	public void testHashIsIncremental() {
+		long startHash = board.getHash();
+		Assert.assertEquals(BitBoard.computeHash(board.getBlack(), board.getWhite(), PLAYER_BLACK), startHash);
+		Random random = new Random(7);
+		long[] hashes = new long[BitBoard.MAX_PLY];
+		while (!board.isGameOver()) {
+			hashes[board.getPly()] = board.getHash();
+			long moves = board.getLegalMoves(board.getSideToMove());
+			if (moves == 0) {
+				board.makePass();
+			} else {
+				int choice = random.nextInt(Long.bitCount(moves));
+				for (int i = 0; i < choice; ++i) {
+					moves &= moves - 1;
+				}
+				board.makeMove(Long.numberOfTrailingZeros(moves));
+			}
+			Assert.assertEquals(BitBoard.computeHash(board.getBlack(), board.getWhite(), board.getSideToMove()), board.getHash());
+			Assert.assertEquals(board.getHash(), new BitBoard(board).getHash());
+		}
+		while (board.getPly() > 0) {
+			board.unmakeMove();
+			Assert.assertEquals(hashes[board.getPly()], board.getHash());
+		}
+		Assert.assertEquals(startHash, board.getHash());
+		board.setSideToMove(PLAYER_WHITE);
+		Assert.assertNotEquals(startHash, board.getHash());
+		board.setOwner(BitBoard.square(0, 0), PLAYER_WHITE);
+		Assert.assertEquals(BitBoard.computeHash(board.getBlack(), board.getWhite(), PLAYER_WHITE), board.getHash());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.BitBoard#transform(long, int)}.
+	 */
+	@Test
+	public void testTransform() {
+		for (int symmetry = 0; symmetry < 8; ++symmetry) {
+			for (int square = 0; square < BitBoard.SQUARE_COUNT; ++square) {
+				int transformed = BitBoard.transformSquare(square, symmetry);
+				Assert.assertEquals(1L << transformed, BitBoard.transform(1L << square, symmetry));
+				Assert.assertEquals(square, BitBoard.inverseTransformSquare(transformed, symmetry));
+			}
+			// The rules do not change under a symmetry.
+			long black = BitBoard.transform(board.getBlack(), symmetry);
+			long white = BitBoard.transform(board.getWhite(), symmetry);
+			Assert.assertEquals(BitBoard.transform(board.getLegalMoves(PLAYER_BLACK), symmetry), new BitBoard(black, white).getLegalMoves(PLAYER_BLACK));
+		}
+		Assert.assertEquals(BitBoard.square(7, 0), BitBoard.transformSquare(0, 1));
+		Assert.assertEquals(BitBoard.square(0, 7), BitBoard.transformSquare(0, 2));
+		Assert.assertEquals(BitBoard.square(2, 1), BitBoard.transformSquare(BitBoard.square(1, 2), 4));
+	}
+}
@@ -0,0 +1,31 @@
+package org.game.othello.rules;
+
+/**
+ * Is informed about every change of a {@link BitBoard}, so a listener can keep its own data in sync
+ * instead of reading the whole board again, i.e. the pattern indexes of an evaluation.
+ * @author Oliver Scherf
+ */
+public interface BoardListener {
+
+	/**
+	 * A game character was placed, through {@link BitBoard#doMove(int, int)} or {@link BitBoard#makeMove(int)}.
+	 * @param player the player who placed the game character.
+	 * @param square the square index of the new game character.
+	 * @param flipped the game characters that now belong to the player.
+	 */
+	public void movePlayed(int player, int square, long flipped);
+
+	/**
+	 * A move was taken back through {@link BitBoard#unmakeMove()}.
+	 * @param player the player who had made the move.
+	 * @param square the square index, it is empty again.
+	 * @param flipped the game characters that belong to the opponent again.
+	 */
+	public void moveUndone(int player, int square, long flipped);
+
+	/**
+	 * The board was changed in another way, i.e. {@link BitBoard#setPosition(long, long)}.
+	 * @param board the changed board.
+	 */
+	public void positionChanged(BitBoard board);
+}
@@ -0,0 +1,454 @@
+package org.game.othello.rules;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Computes the exact final disc difference of a position with few empty squares, assuming perfect play of both players.
+ * The search is a plain alpha-beta over the two bitboards. Moves are ordered by the fewest replies of the opponent
+ * (fastest first) and by parity: a move into a quadrant with an odd number of empty squares is searched first.
+ * The last four empty squares are searched without move generation, the last one is scored directly.
+ * The score counts the game characters only, like {@link GameLogic#getWinner()}.
+ * An EndgameSolver is not thread-safe, every thread needs its own.
+ * Usage: java org.game.othello.rules.EndgameSolver [empties] [positions] to measure the time to solve.
+ * @author Oliver Scherf
+ */
+public class EndgameSolver implements OthelloConstants, Loggable {
+
+	/* The four quadrants of the board. */
+	private static final long[] QUADRANTS = { 0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L };
+	/* With more empty squares than this the moves are sorted by the mobility of the opponent. */
+	private static final int FASTEST_FIRST_EMPTIES = 5;
+	/* With fewer empty squares than this the move generation is skipped. */
+	private static final int SMALL_EMPTIES = 4;
+	private static final int PARITY_WEIGHT = 2;
+	private static final int MOBILITY_WEIGHT = 4;
+	private static final int CORNER_WEIGHT = 3;
+	private static final long CORNERS = 0x8100000000000081L;
+	/* More than the largest possible disc difference. */
+	private static final int INFINITY = BitBoard.SQUARE_COUNT + 1;
+	/* Positions with at least this many empty squares are kept in the hash table. */
+	private static final int HASH_EMPTIES = 10;
+	/* 2^16 entries of three longs, 1.5 MB. */
+	private static final int TABLE_MASK = (1 << 16) - 1;
+	private static final int HASH_MOVE_WEIGHT = 1 << 20;
+	/* An Othello position has at most 33 legal moves. */
+	private static final int MAX_MOVES = 36;
+
+	private Logger logger;
+	private final int maxEmpties;
+	/* Move lists per remaining empty squares, preallocated so solving does not allocate. */
+	private final int[][] moveLists = new int[BitBoard.SQUARE_COUNT + 1][MAX_MOVES];
+	private final long[][] flipLists = new long[BitBoard.SQUARE_COUNT + 1][MAX_MOVES];
+	private final int[][] keyLists = new int[BitBoard.SQUARE_COUNT + 1][MAX_MOVES];
+	/* Bounds of searched positions: the two bitboards as key, lower bound, upper bound and best move as data. */
+	private final long[] tableOwn = new long[TABLE_MASK + 1];
+	private final long[] tableOpp = new long[TABLE_MASK + 1];
+	private final long[] tableData = new long[TABLE_MASK + 1];
+	private long nodes;
+	private int bestMove = BitBoard.PASS;
+
+	public static void main(String[] args) {
+		int empties = ENDGAME_SOLVER_MAX_EMPTIES;
+		int positions = 10;
+		if (args.length > 0) {
+			empties = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			positions = Integer.parseInt(args[1]);
+		}
+		EndgameSolver solver = new EndgameSolver(empties);
+		Random random = new Random(20151206L);
+		long totalNodes = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < positions; ++i) {
+			BitBoard position = randomPosition(random, empties);
+			long start = System.nanoTime();
+			int score = solver.solve(position);
+			long nanos = Math.max(1, System.nanoTime() - start);
+			totalNodes += solver.getNodes();
+			totalNanos += nanos;
+			System.out.println(String.format("%2d empties: score %+3d  %,15d nodes  %10.3f s", position.count(PLAYER_NOBODY), score,
+					solver.getNodes(), nanos / 1e9));
+		}
+		System.out.println(String.format("total: %,d nodes  %.3f s  %,d nodes/s", totalNodes, totalNanos / 1e9,
+				(long) (totalNodes * 1e9 / Math.max(1, totalNanos))));
+	}
+
+	/**
+	 * Plays random moves from the starting position until the position has the given number of empty squares
+	 * and the side to move has a move.
+	 */
+	private static BitBoard randomPosition(Random random, int empties) {
+		while (true) {
+			BitBoard board = new BitBoard();
+			board.setStartingPosition();
+			while (!board.isGameOver() && board.count(PLAYER_NOBODY) > empties) {
+				long moves = board.getLegalMoves(board.getSideToMove());
+				if (moves == 0) {
+					board.makePass();
+					continue;
+				}
+				int choice = random.nextInt(Long.bitCount(moves));
+				for (int i = 0; i < choice; ++i) {
+					moves &= moves - 1;
+				}
+				board.makeMove(Long.numberOfTrailingZeros(moves));
+			}
+			if (board.count(PLAYER_NOBODY) == empties && board.getLegalMoves(board.getSideToMove()) != 0) {
+				return new BitBoard(board);
+			}
+		}
+	}
+
+	/**
+	 * Instantiates a new EndgameSolver for positions with at most {@link #ENDGAME_SOLVER_MAX_EMPTIES} empty squares.
+	 */
+	public EndgameSolver() {
+		this(ENDGAME_SOLVER_MAX_EMPTIES);
+	}
+
+	/**
+	 * Instantiates a new EndgameSolver.
+	 * @param maxEmpties the most empty squares a position may have, the time to solve grows about threefold per square.
+	 */
+	public EndgameSolver(int maxEmpties) {
+		this.initializeLogging();
+		this.maxEmpties = maxEmpties;
+	}
+
+	/**
+	 * @param position the position.
+	 * @return true, if the position has few enough empty squares to be solved.
+	 */
+	public boolean canSolve(BitBoard position) {
+		return position.count(PLAYER_NOBODY) <= this.maxEmpties;
+	}
+
+	/**
+	 * Computes the exact final disc difference.
+	 * @param position the position, the side to move of the position is on turn.
+	 * @return the own minus the opponent game characters at the end of the game, from the view of the side to move.
+	 */
+	public int solve(BitBoard position) {
+		// Null window searches are a lot faster than a full window, the score is narrowed down by bisection.
+		// The hash table keeps the bounds of the previous searches.
+		int lower = -BitBoard.SQUARE_COUNT;
+		int upper = BitBoard.SQUARE_COUNT;
+		int bestMove = BitBoard.PASS;
+		long totalNodes = 0;
+		while (lower < upper) {
+			int test = (lower + upper + 1) >> 1;
+			int score = this.solve(position, test - 1, test);
+			totalNodes += this.nodes;
+			if (score >= test) {
+				lower = score;
+				bestMove = this.bestMove;
+			} else {
+				upper = score;
+			}
+		}
+		this.nodes = totalNodes;
+		if (bestMove != BitBoard.PASS) {
+			// Without a fail high every move loses with all game characters, the last search left its move.
+			this.bestMove = bestMove;
+		}
+		return lower;
+	}
+
+	/**
+	 * Computes the final disc difference within a window. A result at or below alpha is an upper bound, a result
+	 * at or above beta is a lower bound. The window -1, 1 only decides win, draw or loss, which is a lot faster.
+	 * @param position the position, the side to move of the position is on turn.
+	 * @param alpha the lower bound of the window.
+	 * @param beta the upper bound of the window.
+	 * @return the own minus the opponent game characters at the end of the game, from the view of the side to move.
+	 * @throws IllegalArgumentException if the position has more empty squares than the solver was created for.
+	 */
+	public int solve(BitBoard position, int alpha, int beta) {
+		int empties = position.count(PLAYER_NOBODY);
+		if (empties > this.maxEmpties) {
+			throw new IllegalArgumentException("The position has " + empties + " empty squares, the solver only solves " + this.maxEmpties
+					+ ".");
+		}
+		int side = position.getSideToMove();
+		long own = position.getDiscs(side);
+		long opp = position.getDiscs(BitBoard.opponentOf(side));
+		this.nodes = 1;
+		this.bestMove = BitBoard.PASS;
+		long moves = BitBoard.legalMoves(own, opp);
+		int best;
+		if (moves == 0) {
+			best = -this.search(opp, own, -beta, -alpha, true);
+		} else {
+			best = -INFINITY;
+			int count = this.orderMoves(own, opp, moves, empties, BitBoard.PASS);
+			for (int i = 0; i < count; ++i) {
+				int square = this.moveLists[empties][i];
+				long changed = this.flipLists[empties][i];
+				int score = -this.search(opp & ~changed, own | changed | (1L << square), -beta, -Math.max(alpha, best), false);
+				if (score > best) {
+					best = score;
+					this.bestMove = square;
+					if (best >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		if (this.logger.isLoggable(FINE)) {
+			this.log(FINE, "Solved " + empties + " empty squares with " + this.nodes + " nodes, score " + best + ", best move " + this.bestMove);
+		}
+		return best;
+	}
+
+	/**
+	 * @param own the squares of the player on turn.
+	 * @param opp the squares of the opponent.
+	 * @param alpha the lower bound.
+	 * @param beta the upper bound.
+	 * @param passed true, if the previous ply was a pass.
+	 * @return the final disc difference from the view of the player on turn.
+	 */
+	private int search(long own, long opp, int alpha, int beta, boolean passed) {
+		++this.nodes;
+		long empty = ~(own | opp);
+		int empties = Long.bitCount(empty);
+		if (empties <= SMALL_EMPTIES) {
+			return this.searchSmall(own, opp, empty, alpha, beta, passed);
+		}
+		long moves = BitBoard.legalMoves(own, opp);
+		if (moves == 0) {
+			if (passed) {
+				return difference(own, opp);
+			}
+			return -this.search(opp, own, -beta, -alpha, true);
+		}
+		int index = -1;
+		int hashMove = BitBoard.PASS;
+		if (empties >= HASH_EMPTIES) {
+			index = tableIndex(own, opp);
+			if (this.tableOwn[index] == own && this.tableOpp[index] == opp) {
+				long entry = this.tableData[index];
+				int lower = (int) (entry & 0xFF) - INFINITY;
+				int upper = (int) ((entry >>> 8) & 0xFF) - INFINITY;
+				if (lower >= beta) {
+					return lower;
+				}
+				if (upper <= alpha) {
+					return upper;
+				}
+				alpha = Math.max(alpha, lower);
+				beta = Math.min(beta, upper);
+				if (alpha >= beta) {
+					return alpha;
+				}
+				hashMove = (int) (entry >>> 16) - 1;
+			}
+		}
+		int count = this.orderMoves(own, opp, moves, empties, hashMove);
+		int[] squares = this.moveLists[empties];
+		long[] flips = this.flipLists[empties];
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestSquare = BitBoard.PASS;
+		for (int i = 0; i < count; ++i) {
+			long changed = flips[i];
+			long nextOwn = opp & ~changed;
+			long nextOpp = own | changed | (1L << squares[i]);
+			int score;
+			if (i == 0) {
+				score = -this.search(nextOwn, nextOpp, -beta, -alpha, false);
+			} else {
+				// The first move is usually the best, the others only have to be proven worse with a null window.
+				score = -this.search(nextOwn, nextOpp, -alpha - 1, -alpha, false);
+				if (score > alpha && score < beta) {
+					score = -this.search(nextOwn, nextOpp, -beta, -score, false);
+				}
+			}
+			if (score > best) {
+				best = score;
+				bestSquare = squares[i];
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		if (index >= 0) {
+			int lower = best > originalAlpha ? best : -INFINITY;
+			int upper = best < beta ? best : INFINITY;
+			this.tableOwn[index] = own;
+			this.tableOpp[index] = opp;
+			this.tableData[index] = (lower + INFINITY) | ((long) (upper + INFINITY) << 8) | ((long) (bestSquare + 1) << 16);
+		}
+		return best;
+	}
+
+	/**
+	 * @return the index of the position in the hash table.
+	 */
+	private static int tableIndex(long own, long opp) {
+		long h = own * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opp * 0xC2B2AE3D27D4EB4FL, 29);
+		return (int) (h ^ (h >>> 32)) & TABLE_MASK;
+	}
+
+	/**
+	 * Searches the last empty squares directly, a square without flips is no move.
+	 * The squares in quadrants with an odd number of empty squares are tried first.
+	 * @param empty the empty squares, at most {@link #SMALL_EMPTIES}.
+	 * @return the final disc difference from the view of the player on turn.
+	 */
+	private int searchSmall(long own, long opp, long empty, int alpha, int beta, boolean passed) {
+		if (empty == 0) {
+			return difference(own, opp);
+		}
+		if ((empty & (empty - 1)) == 0) {
+			return lastSquare(own, opp, empty);
+		}
+		long odd = oddQuadrants(empty) & empty;
+		int best = -INFINITY;
+		for (int pass = 0; pass < 2; ++pass) {
+			for (long group = pass == 0 ? odd : empty & ~odd; group != 0; group &= group - 1) {
+				long move = group & -group;
+				long flipped = BitBoard.flips(own, opp, move);
+				if (flipped == 0) {
+					continue;
+				}
+				++this.nodes;
+				int score = -this.searchSmall(opp & ~flipped, own | flipped | move, empty & ~move, -beta, -alpha, false);
+				if (score > best) {
+					best = score;
+					if (score > alpha) {
+						alpha = score;
+						if (alpha >= beta) {
+							return best;
+						}
+					}
+				}
+			}
+		}
+		if (best == -INFINITY) {
+			if (passed) {
+				return difference(own, opp);
+			}
+			return -this.searchSmall(opp, own, empty, -beta, -alpha, true);
+		}
+		return best;
+	}
+
+	/**
+	 * Scores the game with a single empty square: the player on turn plays it, otherwise the opponent, otherwise it stays empty.
+	 * @param move the last empty square as a single bit.
+	 * @return the final disc difference from the view of the player on turn.
+	 */
+	private static int lastSquare(long own, long opp, long move) {
+		int difference = difference(own, opp);
+		int flipped = Long.bitCount(BitBoard.flips(own, opp, move));
+		if (flipped != 0) {
+			return difference + 2 * flipped + 1;
+		}
+		flipped = Long.bitCount(BitBoard.flips(opp, own, move));
+		if (flipped != 0) {
+			return difference - 2 * flipped - 1;
+		}
+		return difference;
+	}
+
+	/**
+	 * Fills the move list of the empty square count, sorted by the move of the hash table, parity, the mobility
+	 * of the opponent and corners.
+	 * @return the number of moves.
+	 */
+	private int orderMoves(long own, long opp, long moves, int empties, int hashMove) {
+		int[] squares = this.moveLists[empties];
+		long[] flips = this.flipLists[empties];
+		int[] keys = this.keyLists[empties];
+		long odd = oddQuadrants(~(own | opp));
+		boolean fastestFirst = empties > FASTEST_FIRST_EMPTIES;
+		int count = 0;
+		for (; moves != 0; moves &= moves - 1) {
+			int square = Long.numberOfTrailingZeros(moves);
+			long move = 1L << square;
+			long flipped = BitBoard.flips(own, opp, move);
+			int key = square == hashMove ? HASH_MOVE_WEIGHT : 0;
+			if ((move & odd) != 0) {
+				key += PARITY_WEIGHT;
+			}
+			if (fastestFirst) {
+				key -= MOBILITY_WEIGHT * Long.bitCount(BitBoard.legalMoves(opp & ~flipped, own | flipped | move));
+				if ((move & CORNERS) != 0) {
+					key += CORNER_WEIGHT;
+				}
+			}
+			// Insertion sort, the lists are short.
+			int i = count++;
+			while (i > 0 && keys[i - 1] < key) {
+				squares[i] = squares[i - 1];
+				flips[i] = flips[i - 1];
+				keys[i] = keys[i - 1];
+				--i;
+			}
+			squares[i] = square;
+			flips[i] = flipped;
+			keys[i] = key;
+		}
+		return count;
+	}
+
+	/**
+	 * @param empty the empty squares.
+	 * @return the squares of all quadrants with an odd number of empty squares.
+	 */
+	private static long oddQuadrants(long empty) {
+		long odd = 0;
+		for (long quadrant : QUADRANTS) {
+			if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+				odd |= quadrant;
+			}
+		}
+		return odd;
+	}
+
+	private static int difference(long own, long opp) {
+		return Long.bitCount(own) - Long.bitCount(opp);
+	}
+
+	/**
+	 * @return the best move of the last {@link #solve(BitBoard)} or {@link BitBoard#PASS}. With a window it is only
+	 *         the best move if the score lies within the window.
+	 */
+	public int getBestMove() {
+		return this.bestMove;
+	}
+
+	public long getNodes() {
+		return this.nodes;
+	}
+
+	public int getMaxEmpties() {
+		return this.maxEmpties;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.EndgameSolver");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
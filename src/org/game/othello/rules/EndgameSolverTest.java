@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package org.game.othello.rules;
+
+import java.util.Random;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the solver against plain minimax on random endgames.
+ * @author Oliver Scherf
+ */
+public class EndgameSolverTest implements OthelloConstants {
+
+	private EndgameSolver solver;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		solver = new EndgameSolver(12);
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.EndgameSolver#solve(BitBoard)}.
+	 * Covers the last empty squares, passes and finished games.
+	 */
+	@Test
+	public void testSolveMatchesMinimax() {
+		Random random = new Random(11);
+		for (int game = 0; game < 40; ++game) {
+			BitBoard position = this.randomEndgame(random, 1 + game % 9);
+			int expected = this.minimax(position, false);
+			Assert.assertEquals(Integer.signum(expected), Integer.signum(solver.solve(position, -1, 1)));
+			Assert.assertEquals(expected, solver.solve(position));
+			int move = solver.getBestMove();
+			if (position.getLegalMoves(position.getSideToMove()) == 0) {
+				Assert.assertEquals(BitBoard.PASS, move);
+			} else {
+				position.makeMove(move);
+				Assert.assertEquals(expected, -this.minimax(position, false));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.EndgameSolver#solve(BitBoard, int, int)}.
+	 */
+	@Test
+	public void testSolveWithWindow() {
+		Random random = new Random(5);
+		for (int game = 0; game < 10; ++game) {
+			BitBoard position = this.randomEndgame(random, 10);
+			int exact = solver.solve(position);
+			int alpha = exact + 2;
+			Assert.assertTrue(solver.solve(position, alpha, alpha + 1) <= alpha);
+			int beta = exact - 2;
+			Assert.assertTrue(solver.solve(position, beta - 1, beta) >= beta);
+		}
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.EndgameSolver#solve(BitBoard)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyEmptySquares() {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		solver.solve(board);
+	}
+
+	/**
+	 * Plays random moves until the number of empty squares is reached or the game ends.
+	 */
+	private BitBoard randomEndgame(Random random, int empties) {
+		BitBoard board = new BitBoard();
+		board.setStartingPosition();
+		while (board.count(PLAYER_NOBODY) > empties && !board.isGameOver()) {
+			long moves = board.getLegalMoves(board.getSideToMove());
+			if (moves == 0) {
+				board.makePass();
+				continue;
+			}
+			int choice = random.nextInt(Long.bitCount(moves));
+			for (int i = 0; i < choice; ++i) {
+				moves &= moves - 1;
+			}
+			board.makeMove(Long.numberOfTrailingZeros(moves));
+		}
+		return new BitBoard(board);
+	}
+
+	/**
+	 * Plain minimax without pruning.
+	 * @return the final disc difference from the view of the side to move.
+	 */
+	private int minimax(BitBoard board, boolean passed) {
+		int side = board.getSideToMove();
+		long moves = board.getLegalMoves(side);
+		if (moves == 0) {
+			if (passed || board.isGameOver()) {
+				return board.count(side) - board.count(BitBoard.opponentOf(side));
+			}
+			board.makePass();
+			int score = -this.minimax(board, true);
+			board.unmakeMove();
+			return score;
+		}
+		int best = -BitBoard.SQUARE_COUNT;
+		while (moves != 0) {
+			int square = Long.numberOfTrailingZeros(moves);
+			moves &= moves - 1;
+			board.makeMove(square);
+			best = Math.max(best, -this.minimax(board, false));
+			board.unmakeMove();
+		}
+		return best;
+	}
+}
@@ -0,0 +1,52 @@
+package org.game.othello.rules;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.game.othello.ao.Coordinate;
+import org.game.othello.ao.Gamefield;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Read-only view of a {@link BitBoard} in the shape of the former gameboard vector, indexed by [x][y].
+ * Every access creates a fresh {@link Gamefield}, so changing it has no effect on the board.
+ * @author Oliver Scherf
+ */
+class GameBoardView extends AbstractList<List<Gamefield>> implements OthelloConstants {
+
+	private final BitBoard board;
+
+	/**
+	 * Instantiates a new GameBoardView.
+	 * @param board the board to be viewed.
+	 */
+	GameBoardView(BitBoard board) {
+		this.board = board;
+	}
+
+	@Override
+	public List<Gamefield> get(final int x) {
+		if (x < 0 || x >= GAMEBOARD_SIZE) {
+			throw new IndexOutOfBoundsException("Column: " + x);
+		}
+		return new AbstractList<Gamefield>() {
+			@Override
+			public Gamefield get(int y) {
+				if (y < 0 || y >= GAMEBOARD_SIZE) {
+					throw new IndexOutOfBoundsException("Row: " + y);
+				}
+				return new Gamefield(GameBoardView.this.board.getOwner(BitBoard.square(x, y)), new Coordinate(x, y));
+			}
+
+			@Override
+			public int size() {
+				return GAMEBOARD_SIZE;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return GAMEBOARD_SIZE;
+	}
+}
@@ -0,0 +1,33 @@
+package org.game.othello.rules;
+
+import org.game.othello.ao.Coordinate;
+
+/**
+ * Is informed about the events of a {@link GameLogic}, i.e. to render them or to send them to the opponent.
+ * A GameLogic without a listener runs headless. The listener is called on the thread that changes the game,
+ * one listener can serve several games.
+ * @author Oliver Scherf
+ */
+public interface GameListener {
+
+	/**
+	 * The last move finished the game, neither player can move anymore.
+	 * @param game the finished game.
+	 * @param lastMove the move that finished the game.
+	 */
+	public void gameOver(GameLogic game, Coordinate lastMove);
+
+	/**
+	 * The turn went to the other player, after a move or because the player on turn had to pass.
+	 * @param game the game.
+	 * @param currentPlayer the player who is on turn now.
+	 */
+	public void turnSwitched(GameLogic game, int currentPlayer);
+
+	/**
+	 * The game has a message for the user, i.e. the color of the player at the start of an online game.
+	 * @param game the game.
+	 * @param message the message.
+	 */
+	public void infoMessage(GameLogic game, String message);
+}
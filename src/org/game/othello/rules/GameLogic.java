@@ -1,23 +1,28 @@
 package org.game.othello.rules;
 
-import java.util.Vector;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.game.othello.GameController;
 import org.game.othello.ao.Coordinate;
 import org.game.othello.ao.Gamefield;
 import org.game.othello.connection.InitializationCommando;
+import org.game.othello.connection.SnapshotCommando;
 import org.game.othello.interfaces.Loggable;
 import org.game.othello.interfaces.OthelloConstants;
 
 /**
  * This class handles the whole ruleset of othello. 
+ * Game over, turn switches and messages are reported to the {@link GameListener}, without a listener the game
+ * runs headless. Every GameLogic is independent, different games can run on different threads.
  * @author Oliver Scherf
  */
 public class GameLogic implements OthelloConstants, Loggable {
 	private Logger logger;
-	private Vector<Vector<Gamefield>> gameBoard;
+	private BitBoard board;
+	private GameBoardView gameBoardView;
+	private EndgameSolver endgameSolver;
+	private GameListener listener;
 	private int currentPlayer;
 	private int clientPlayer;
 	private boolean offlineMode;
@@ -28,25 +33,18 @@ public class GameLogic implements OthelloConstants, Loggable {
 	 */
 	public GameLogic() {
 		this.initializeLogging();
-		this.gameBoard = this.createGameBoardVector();
-		for (int x = 0; x < GAMEBOARD_SIZE; ++x) {
-			for (int y = 0; y < GAMEBOARD_SIZE; ++y) {
-				this.gameBoard.get(x).add(new Gamefield(PLAYER_NOBODY, new Coordinate(x, y)));
-			}
-		}
+		this.board = new BitBoard();
+		this.gameBoardView = new GameBoardView(this.board);
 		this.createStartingGameBoard();
 		//this.debugCreateInstantGameOverGameField();
-		this.log(INFO, "Gamefield was initialized.");
+		this.log(FINE, "Gamefield was initialized.");
 	}
 
 	/**
 	 * This will set the first game characters on the board.
 	 */
 	private void createStartingGameBoard() {
-		this.gameBoard.get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		this.gameBoard.get(4).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
-		this.gameBoard.get(3).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(3, 4)));
-		this.gameBoard.get(4).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(4, 3)));
+		this.board.setStartingPosition();
 	}
 
 	/**
@@ -54,14 +52,14 @@ public class GameLogic implements OthelloConstants, Loggable {
 	 */
 	@SuppressWarnings("unused")
 	private void debugCreateInstantGameOverGameField() {
-		this.gameBoard.get(2).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		this.gameBoard.get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		this.gameBoard.get(4).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(4, 4)));
+		this.board.setOwner(BitBoard.square(2, 3), PLAYER_WHITE);
+		this.board.setOwner(BitBoard.square(3, 3), PLAYER_WHITE);
+		this.board.setOwner(BitBoard.square(4, 3), PLAYER_BLACK);
 
-		this.gameBoard.get(2).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		this.gameBoard.get(3).set(5, new Gamefield(PLAYER_BLACK, new Coordinate(3, 3)));
-		this.gameBoard.get(4).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
-		this.gameBoard.get(5).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
+		this.board.setOwner(BitBoard.square(2, 5), PLAYER_WHITE);
+		this.board.setOwner(BitBoard.square(3, 5), PLAYER_BLACK);
+		this.board.setOwner(BitBoard.square(4, 5), PLAYER_WHITE);
+		this.board.setOwner(BitBoard.square(5, 5), PLAYER_WHITE);
 	}
 
 	/**
@@ -82,19 +80,6 @@ public class GameLogic implements OthelloConstants, Loggable {
 		this.clientPlayer = PLAYER_NOBODY;
 	}
 
-	/**
-	 * Creates the gameFields vector.
-	 * @return the gameboardsvector 
-	 */
-	private Vector<Vector<Gamefield>> createGameBoardVector() {
-		Vector<Vector<Gamefield>> newGameboard = new Vector<Vector<Gamefield>>(GAMEBOARD_SIZE);
-		for (int i = 0; i < GAMEBOARD_SIZE; i++) {
-			newGameboard.add(new Vector<Gamefield>());
-		}
-		this.log(FINER, "Created Gamefields Vector");
-		return newGameboard;
-	}
-
 	/**
 	 * Handles and validates a turn attempt.
 	 * @param index the index where a new game character should placed on.  
@@ -109,7 +94,9 @@ public class GameLogic implements OthelloConstants, Loggable {
 			this.doTurn(index);
 			if (this.isGameOver(index)) {
 				this.setGameEndFlags();
-				GameController.getSingleton().endGame(index);
+				if (this.listener != null) {
+					this.listener.gameOver(this, index);
+				}
 				// We need to return false here, because otherwise, the GameController will send the Coordinate twice to
 				// the server.
 				return false;
@@ -156,309 +143,116 @@ public class GameLogic implements OthelloConstants, Loggable {
 		this.log(INFO, "Online Multiplayer game starts.");
 		if (this.clientPlayer == currentPlayer) {
 			this.log(INFO, "Starting player is this client.");
-			GameController.getSingleton().getRenderController().getMessageRender().printInfoMessage("You are player Black. You start.");
+			this.fireInfoMessage("You are player Black. You start.");
 		} else {
 			this.log(INFO, "Starting player is the opponent.");
-			GameController.getSingleton().getRenderController().getMessageRender().printInfoMessage("You are player White. Opponent start.");
+			this.fireInfoMessage("You are player White. Opponent start.");
 		}
-		GameController.getSingleton().getRenderController().update();
+		this.fireTurnSwitched();
 	}
 
 	/**
-	 * Checks if there is any move possible for a specific player.
-	 * @param playerToCheck
-	 * @return if a move is possible, or not
+	 * Continues an online game after the connection to the server was resumed. The board of the server replaces
+	 * this one, it contains the moves of the opponent this client missed.
+	 * @param snapshot The {@link SnapshotCommando} that comes from the server.
 	 */
-	private boolean isAnyMovePossibleFor(int playerToCheck) {
-		int oldPlayer = this.currentPlayer;
-
-		boolean isAnyMovePossible = false;
-		this.currentPlayer = playerToCheck;
-		for (Vector<Gamefield> vector : this.gameBoard) {
-			for (Gamefield gameField : vector) {
-				if (isAnyMovePossible) {
-					break;
-				}
-				if (this.validateTurn(gameField.getIndex())) {
-					isAnyMovePossible = true;
-					break;
-				}
-			}
-		}
-		this.currentPlayer = oldPlayer;
-		this.log(FINE, "No move possible for: " + this.getCurrentPlayerAsString());
-		return isAnyMovePossible;
+	public void resumeOnlineGame(SnapshotCommando snapshot) {
+		this.setSnapshot(snapshot, snapshot.isBlack() ? PLAYER_BLACK : PLAYER_WHITE);
+		this.log(INFO, "Online Multiplayer game was resumed.");
+		this.fireInfoMessage("The game was resumed. " + (this.clientPlayer == this.currentPlayer ? "It is your turn." : "Opponent's turn."));
+		this.fireTurnSwitched();
 	}
 
-	public boolean isAnyMovePossibleForThisClient() {
-		return this.isAnyMovePossibleFor(this.clientPlayer);
-	}
-	
 	/**
-	 * @param c The coordinate where a game character should be placed.
-	 * @return If a turn is possible on this coordinate.
+	 * This client watches an online game, it does not play. The server sends a snapshot when the client starts
+	 * watching and when it fell behind.
+	 * @param snapshot The {@link SnapshotCommando} that comes from the server.
 	 */
-	private boolean validateTurn(Coordinate c) {
-		if (this.gameState == ONLINE_GAME_STATE_FINISHED) {
-			return false;
+	public void watchOnlineGame(SnapshotCommando snapshot) {
+		boolean started = this.gameState == ONLINE_GAME_STATE_STARTED;
+		this.setSnapshot(snapshot, PLAYER_NOBODY);
+		if (!started) {
+			this.log(INFO, "Watching the online game #" + snapshot.getLobbyNumber() + ".");
+			this.fireInfoMessage("You are watching the game #" + snapshot.getLobbyNumber() + ".");
 		}
-		if (clientPlayer == PLAYER_NOBODY && currentPlayer == PLAYER_NOBODY) {
-			this.log(FINE, "Nobody is on turn!");
-			return false;
-		}
-		if (!this.gameBoard.get(c.getX()).get(c.getY()).isEmpty()) {
-			this.log(FINEST, "The index was empty.");
-			return false;
-		}
-
-		if (!this.isHorizontalConnected(c) && !this.isVerticalConnected(c) && !this.isDiagonalConnected(c)) {
-			this.log(FINER, "The index was not empty, but no turn was possible due the gamerules.");
-			return false;
-		}
-		return true;
-
-	}
-
-	/**
-	 * Checks if there is a diagonal connection to another game character with the same color.
-	 * @param c
-	 * @return if there is a diagonal connection between two game characters.
-	 */
-	private boolean isDiagonalConnected(Coordinate c) {
-		return this.getDiagonalUpToLeftDownConnectedIndex(c) != null || this.getDiagonalUpToRightDownConnectedIndex(c) != null
-				|| this.getDiagonalDownToLeftUpConnectedIndex(c) != null || this.getDiagonalDownToRightUpConnectedIndex(c) != null;
-	}
-
-	/**
-	 * Checks if there is a horizontal connection to another game character with the same color.
-	 * @param c
-	 * @return if there is a horizontal connection between two game characters.
-	 */
-	private boolean isHorizontalConnected(Coordinate c) {
-		return this.getLeftConnectedIndex(c) != null || this.getRightConnectedIndex(c) != null;
+		this.fireTurnSwitched();
 	}
 
-	/**
-	 * Checks if there is a vertical connection to another game character with the same color.
-	 * @param c
-	 * @return if there is a vertical connection between two game characters.
-	 */
-	private boolean isVerticalConnected(Coordinate c) {
-		return this.getUpConnectedIndex(c) != null || this.getDownConnectedIndex(c) != null;
+	private void setSnapshot(SnapshotCommando snapshot, int clientPlayer) {
+		this.gameState = ONLINE_GAME_STATE_STARTED;
+		this.board.setSideToMove(snapshot.getSideToMove());
+		this.board.setPosition(snapshot.getBlackDiscs(), snapshot.getWhiteDiscs());
+		this.currentPlayer = snapshot.getSideToMove();
+		this.clientPlayer = clientPlayer;
 	}
 
 	/**
-	 * Checks if there is a connection above the coordinate.
-	 * @param c
-	 * @return the coordinate where the connectingg index is.
-	 */
-	private Coordinate getUpConnectedIndex(Coordinate c) {
-		if (!(c.getY() - 1 >= 0)) {
-			return null;
-		}
-		// if the field above is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX()).get(c.getY() - 1).isEmpty() 
-				|| this.gameBoard.get(c.getX()).get(c.getY() - 1).getOwner() != this.getOpponentPlayer())
-			return null;
-
-		for (int y = c.getY() - 2; y >= 0; --y) {
-			if (this.gameBoard.get(c.getX()).get(y).getOwner() == this.currentPlayer) {
-				return new Coordinate(c.getX(), y);
-			}
-			if (this.gameBoard.get(c.getX()).get(y).isEmpty()) {
-				return null;
-			}
-		}
-		return null;
-	}
-	
-	/**
-	 * Checks if there is a connection under the coordinate.
-	 * @param c
-	 * @return the coordinate where the connecting index is.
+	 * Checks if there is any move possible for a specific player.
+	 * @param playerToCheck
+	 * @return if a move is possible, or not
 	 */
-	private Coordinate getDownConnectedIndex(Coordinate c) {
-
-		if (!(c.getY() + 1 < GAMEBOARD_SIZE)) {
-			return null;
+	private boolean isAnyMovePossibleFor(int playerToCheck) {
+		if (this.gameState == ONLINE_GAME_STATE_FINISHED || playerToCheck == PLAYER_NOBODY) {
+			return false;
 		}
-		// if the field below is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX()).get(c.getY() + 1).isEmpty() || this.gameBoard.get(c.getX()).get(c.getY() + 1).getOwner() != this.getOpponentPlayer())
-			return null;
-
-		for (int y = c.getY() + 2; y < GAMEBOARD_SIZE; ++y) {
-			if (this.gameBoard.get(c.getX()).get(y).getOwner() == this.currentPlayer) {
-				return new Coordinate(c.getX(), y);
-			}
-			if (this.gameBoard.get(c.getX()).get(y).isEmpty()) {
-				return null;
-			}
+		if (this.board.getLegalMoves(playerToCheck) == 0) {
+			this.log(FINE, "No move possible for: " + (playerToCheck == PLAYER_BLACK ? "Black" : "White"));
+			return false;
 		}
-		return null;
+		return true;
 	}
 
 	/**
-	 * Checks if there is a connection to the left of the coordinate.
-	 * @param c
-	 * @return the coordinate where the connecting index is.
+	 * Generates every legal move of a player in one pass. The player on turn is not changed.
+	 * @param player Black or White.
+	 * @return a bitmask of the legal squares, the bit of (x, y) is y * {@link #GAMEBOARD_SIZE} + x.
 	 */
-	private Coordinate getLeftConnectedIndex(Coordinate c) {
-		if (!(c.getX() - 1 >= 0)) {
-			return null;
+	public long legalMoves(int player) {
+		if (player == PLAYER_NOBODY) {
+			return 0;
 		}
-		// if the field to the left is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX() - 1).get(c.getY()).getOwner() != this.getOpponentPlayer() || this.gameBoard.get(c.getX() - 1).get(c.getY()).isEmpty())
-			return null;
-
-		for (int x = c.getX() - 2; x >= 0; --x) {
-			if (this.gameBoard.get(x).get(c.getY()).getOwner() == this.currentPlayer) {
-				return new Coordinate(x, c.getY());
-			}
-			if (this.gameBoard.get(x).get(c.getY()).isEmpty()) {
-				return null;
-			}
-		}
-		return null;
+		return this.board.getLegalMoves(player);
 	}
-	
-	/**
-	 * Checks if there is a connection to the right of the coordinate.
-	 * @param c
-	 * @return the coordinate where the connecting index is.
-	 */
-	private Coordinate getRightConnectedIndex(Coordinate c) {
-		if (!(c.getX() + 1 < GAMEBOARD_SIZE)) {
-			return null;
-		}
-		// if the field to the right is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX() + 1).get(c.getY()).getOwner() != this.getOpponentPlayer() || this.gameBoard.get(c.getX() + 1).get(c.getY()).isEmpty())
-			return null;
 
-		for (int x = c.getX() + 2; x < GAMEBOARD_SIZE; ++x) {
-			if (this.gameBoard.get(x).get(c.getY()).getOwner() == this.currentPlayer) {
-				return new Coordinate(x, c.getY());
-			}
-			if (this.gameBoard.get(x).get(c.getY()).isEmpty()) {
-				return null;
-			}
-		}
-		return null;
+	public boolean isAnyMovePossibleForThisClient() {
+		return this.isAnyMovePossibleFor(this.clientPlayer);
 	}
-
+	
 	/**
-	 * Checks if there is a connection to the direction diagonal right down.
-	 * @param c
-	 * @return the coordinate where the connecting index is.
+	 * @param c The coordinate where a game character should be placed.
+	 * @return If a turn is possible on this coordinate.
 	 */
-	private Coordinate getDiagonalUpToRightDownConnectedIndex(Coordinate c) {
-		if (!(c.getX() + 1 < GAMEBOARD_SIZE) || !(c.getY() + 1 < GAMEBOARD_SIZE)) {
-			return null;
+	private boolean validateTurn(Coordinate c) {
+		if (this.gameState == ONLINE_GAME_STATE_FINISHED) {
+			return false;
 		}
-		// if the field to the right/down is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX() + 1).get(c.getY() + 1).getOwner() != getOpponentPlayer() || this.gameBoard.get(c.getX() + 1).get(c.getY() + 1).isEmpty())
-			return null;
-
-		int x = c.getX() + 2;
-		int y = c.getY() + 2;
-
-		while (x < GAMEBOARD_SIZE && y < GAMEBOARD_SIZE) {
-			if (this.gameBoard.get(x).get(y).getOwner() == this.currentPlayer) {
-				return new Coordinate(x, y);
-			}
-			if (this.gameBoard.get(x).get(y).isEmpty()) {
-				return null;
-			}
-			++x;
-			++y;
+		if (clientPlayer == PLAYER_NOBODY && currentPlayer == PLAYER_NOBODY) {
+			this.log(FINE, "Nobody is on turn!");
+			return false;
 		}
-		return null;
-	}
-
-	/**
-	 * Checks if there is a connection to the direction diagonal left down.
-	 * @param c
-	 * @return the coordinate where the connecting index is.
-	 */
-	private Coordinate getDiagonalUpToLeftDownConnectedIndex(Coordinate c) {
-		if (!(c.getX() - 1 >= 0) || !(c.getY() + 1 < GAMEBOARD_SIZE)) {
-			return null;
+		if (this.currentPlayer == PLAYER_NOBODY || !this.isOnGameBoard(c)) {
+			return false;
 		}
-		// if the field to the left/down is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX() - 1).get(c.getY() + 1).getOwner() != getOpponentPlayer() || this.gameBoard.get(c.getX() - 1).get(c.getY() + 1).isEmpty())
-			return null;
-
-		int x = c.getX() - 2;
-		int y = c.getY() + 2;
-
-		while (x >= 0 && y < GAMEBOARD_SIZE) {
-			if (this.gameBoard.get(x).get(y).getOwner() == this.currentPlayer) {
-				return new Coordinate(x, y);
-			}
-			if (this.gameBoard.get(x).get(y).isEmpty()) {
-				return null;
-			}
-			--x;
-			++y;
+		int square = BitBoard.square(c.getX(), c.getY());
+		if (this.board.getOwner(square) != PLAYER_NOBODY) {
+			this.log(FINEST, "The index was not empty.");
+			return false;
 		}
-		return null;
-	}
 
-	/**
-	 * Checks if there is a connection to the direction diagonal left up.
-	 * @param c
-	 * @return the coordinate where the connecting index is.
-	 */
-	private Coordinate getDiagonalDownToLeftUpConnectedIndex(Coordinate c) {
-		if (!(c.getX() - 1 >= 0) || !(c.getY() - 1 >= 0)) {
-			return null;
+		if (this.board.getFlips(this.currentPlayer, square) == 0) {
+			this.log(FINER, "The index was empty, but no turn was possible due the gamerules.");
+			return false;
 		}
-		// if the field to the left/up is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX() - 1).get(c.getY() - 1).getOwner() != getOpponentPlayer() || this.gameBoard.get(c.getX() - 1).get(c.getY() - 1).isEmpty())
-			return null;
-
-		int x = c.getX() - 2;
-		int y = c.getY() - 2;
+		return true;
 
-		while (x >= 0 && y >= 0) {
-			if (this.gameBoard.get(x).get(y).getOwner() == this.currentPlayer) {
-				return new Coordinate(x, y);
-			}
-			if (this.gameBoard.get(x).get(y).isEmpty()) {
-				return null;
-			}
-			--x;
-			--y;
-		}
-		return null;
 	}
 
 	/**
-	 * Checks if there is a connection to the direction diagonal right down.
 	 * @param c
-	 * @return the coordinate where the connecting index is.
+	 * @return true, if the coordinate lies within the gameboard.
 	 */
-	private Coordinate getDiagonalDownToRightUpConnectedIndex(Coordinate c) {
-		if (!(c.getX() + 1 < GAMEBOARD_SIZE) || !(c.getY() - 1 >= 0)) {
-			return null;
-		}
-		// if the field to the left/up is empty or NOT the opponent, there is no connection.
-		if (this.gameBoard.get(c.getX() + 1).get(c.getY() - 1).getOwner() != getOpponentPlayer() || this.gameBoard.get(c.getX() + 1).get(c.getY() - 1).isEmpty())
-			return null;
-
-		int x = c.getX() + 2;
-		int y = c.getY() - 2;
-
-		while (x < GAMEBOARD_SIZE && y >= 0) {
-			if (this.gameBoard.get(x).get(y).getOwner() == this.currentPlayer) {
-				return new Coordinate(x, y);
-			}
-			if (this.gameBoard.get(x).get(y).isEmpty()) {
-				return null;
-			}
-			++x;
-			--y;
-		}
-		return null;
+	private boolean isOnGameBoard(Coordinate c) {
+		return c.getX() >= 0 && c.getX() < GAMEBOARD_SIZE && c.getY() >= 0 && c.getY() < GAMEBOARD_SIZE;
 	}
 
 	/**
@@ -469,117 +263,74 @@ public class GameLogic implements OthelloConstants, Loggable {
 			this.currentPlayer = Gamefield.PLAYER_WHITE;
 		else if (currentPlayer == Gamefield.PLAYER_WHITE)
 			this.currentPlayer = Gamefield.PLAYER_BLACK;
+		this.fireTurnSwitched();
+	}
+
+	private void fireTurnSwitched() {
+		if (this.listener != null) {
+			this.listener.turnSwitched(this, this.currentPlayer);
+		}
+	}
+
+	private void fireInfoMessage(String message) {
+		if (this.listener != null) {
+			this.listener.infoMessage(this, message);
+		}
 	}
 
 	/**
 	 * Places the gamecharacter on the board.
 	 * @param c
+	 * @return the flipped game characters as bitmask, see {@link #doTurn(int)}.
 	 */
-	public void doTurn(Coordinate c) {
-		this.gameBoard.get(c.getX()).get(c.getY()).setOwner(currentPlayer);
-		if (this.getRightConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater to the right, filled from " + c.toSimpleString() + "to " + this.getRightConnectedIndex(c).toSimpleString() + " with "
-					+ this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsHorizontal(c, this.getRightConnectedIndex(c));
-		}
-		if (this.getLeftConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater to the left, filled from " + c.toSimpleString() + "to " + this.getLeftConnectedIndex(c).toSimpleString() + " with "
-					+ this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsHorizontal(this.getLeftConnectedIndex(c), c);
-		}
-		if (this.getUpConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater to the up, filled from " + c.toSimpleString() + " to " + this.getUpConnectedIndex(c).toSimpleString() + " with "
-					+ this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsVertical(this.getUpConnectedIndex(c), c);
-		}
-		if (this.getDownConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater to the down, filled from " + c.toSimpleString() + " to " + this.getDownConnectedIndex(c).toSimpleString() + " with "
-					+ this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsVertical(c, this.getDownConnectedIndex(c));
-		}
-		if (this.getDiagonalUpToRightDownConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater from up to right down, filled from " + c.toSimpleString() + " to "
-					+ this.getDiagonalUpToRightDownConnectedIndex(c).toSimpleString() + " with " + this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsDiagonalDown(c, this.getDiagonalUpToRightDownConnectedIndex(c));
-		}
-		if (this.getDiagonalUpToLeftDownConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater from up to left down, filled from " + c.toSimpleString() + " to "
-					+ this.getDiagonalUpToLeftDownConnectedIndex(c).toSimpleString() + " with " + this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsDiagonalUp(this.getDiagonalUpToLeftDownConnectedIndex(c), c);
-		}
-		if (this.getDiagonalDownToRightUpConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater from down to right up, filled from " + c.toSimpleString() + " to "
-					+ this.getDiagonalDownToRightUpConnectedIndex(c).toSimpleString() + " with " + this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsDiagonalUp(c, this.getDiagonalDownToRightUpConnectedIndex(c));
-		}
-		if (this.getDiagonalDownToLeftUpConnectedIndex(c) != null) {
-			this.log(FINE, "Found a connected Gamecharater from down to left up, filled from " + c.toSimpleString() + " to "
-					+ this.getDiagonalDownToLeftUpConnectedIndex(c).toSimpleString() + " with " + this.getCurrentPlayerAsString() + " characters.");
-			this.connectGameFieldsDiagonalDown(this.getDiagonalDownToLeftUpConnectedIndex(c), c);
-		}
+	public long doTurn(Coordinate c) {
+		return this.doTurn(BitBoard.square(c.getX(), c.getY()));
 	}
 
 	/**
-	 * Changes the gameboard and connects the game characters from right up to left down. 
-	 * 							   \
-	 * 								\
-	 * 								 \
-	 * @param firstIndex
-	 * @param lastIndex		
+	 * Places the gamecharacter of the current player on the board without allocating any objects.
+	 * Every flipped game character is computed once and returned, so the caller can use the mask for undo, 
+	 * animations or network deltas.
+	 * @param square the square index, y * {@link #GAMEBOARD_SIZE} + x.
+	 * @return the flipped game characters as bitmask.
 	 */
-	private void connectGameFieldsDiagonalDown(Coordinate firstIndex, Coordinate lastIndex) {
-		int x = firstIndex.getX();
-		int y = firstIndex.getY();
-		int endX = lastIndex.getX();
-		int endY = lastIndex.getY();
-
-		while (x <= endX && y <= endY) {
-			this.gameBoard.get(x).get(y).setOwner(this.currentPlayer);
-			++x;
-			++y;
+	public long doTurn(int square) {
+		long flipped = this.board.doMove(this.currentPlayer, square);
+		if (this.logger.isLoggable(FINE)) {
+			this.log(FINE, "Placed a Gamecharacter on [" + (square % GAMEBOARD_SIZE) + "][" + (square / GAMEBOARD_SIZE) + "], flipped "
+					+ Long.bitCount(flipped) + " characters to " + this.getCurrentPlayerAsString() + ".");
 		}
+		return flipped;
 	}
 
 	/**
-	 * Changes the gameboard and connects the game characters from right down to left up.    
-	 * 								  /
-	 * 								 /
-	 * 								/
-	 * @param firstIndex	
-	 * @param lastIndex		
+	 * Makes a move for the current player that can be reverted with {@link #unmakeMove()}. 
+	 * The move is not validated, use {@link #legalMoves(int)} to find legal squares.
+	 * @param square the square index, y * {@link #GAMEBOARD_SIZE} + x.
+	 * @return the flipped game characters as bitmask.
 	 */
-	private void connectGameFieldsDiagonalUp(Coordinate firstIndex, Coordinate lastIndex) {
-		int x = firstIndex.getX();
-		int y = firstIndex.getY();
-		int endX = lastIndex.getX();
-		int endY = lastIndex.getY();
-
-		while (x <= endX && y >= endY) {
-			this.gameBoard.get(x).get(y).setOwner(this.currentPlayer);
-			++x;
-			--y;
-		}
+	public long makeMove(int square) {
+		this.board.setSideToMove(this.currentPlayer);
+		long flipped = this.board.makeMove(square);
+		this.currentPlayer = this.board.getSideToMove();
+		return flipped;
 	}
 
 	/**
-	 * Changes the gameboard and connects the game characters vertical.
-	 * @param firstIndex
-	 * @param lastIndex
+	 * The current player passes, can be reverted with {@link #unmakeMove()}.
 	 */
-	private void connectGameFieldsVertical(Coordinate firstIndex, Coordinate lastIndex) {
-		for (int y = firstIndex.getY(); y <= lastIndex.getY(); ++y) {
-			this.gameBoard.get(firstIndex.getX()).get(y).setOwner(this.currentPlayer);
-		}
+	public void makePass() {
+		this.board.setSideToMove(this.currentPlayer);
+		this.board.makePass();
+		this.currentPlayer = this.board.getSideToMove();
 	}
 
 	/**
-	 * Changes the gameboard and connects the game characters horizontal.
-	 * @param firstIndex
-	 * @param lastIndex
+	 * Reverts the last {@link #makeMove(int)} or {@link #makePass()} including the player on turn.
 	 */
-	private void connectGameFieldsHorizontal(Coordinate leftIndex, Coordinate rightIndex) {
-		for (int x = leftIndex.getX(); x <= rightIndex.getX(); ++x)
-			this.gameBoard.get(x).get(leftIndex.getY()).setOwner(this.currentPlayer);
+	public void unmakeMove() {
+		this.board.unmakeMove();
+		this.currentPlayer = this.board.getSideToMove();
 	}
 
 	/**
@@ -588,15 +339,7 @@ public class GameLogic implements OthelloConstants, Loggable {
 	 * @return the gamefield count.
 	 */
 	public int getGameFieldCount(int player) {
-		int counter = 0;
-		for (Vector<Gamefield> vector : this.gameBoard) {
-			for (Gamefield gameField : vector) {
-				if (gameField.getOwner() == player) {
-					++counter;
-				}
-			}
-		}
-		return counter;
+		return this.board.count(player);
 	}
 
 	/**
@@ -604,7 +347,7 @@ public class GameLogic implements OthelloConstants, Loggable {
 	 * @return Returns the owner of a specific gamefield.
 	 */
 	public int getOwner(Coordinate c) {
-		return this.gameBoard.get(c.getX()).get(c.getY()).getOwner();
+		return this.board.getOwner(BitBoard.square(c.getX(), c.getY()));
 	}
 
 	/**
@@ -647,21 +390,70 @@ public class GameLogic implements OthelloConstants, Loggable {
 	 * @return Black, White or Nobody.
 	 */
 	public int getWinner() {
-		if (this.getGameFieldCount(PLAYER_BLACK) == this.getGameFieldCount(PLAYER_WHITE)) {
+		int black = this.board.count(PLAYER_BLACK);
+		int white = this.board.count(PLAYER_WHITE);
+		if (black == white) {
 			return PLAYER_NOBODY;
-		} else if (this.getGameFieldCount(PLAYER_BLACK) > this.getGameFieldCount(PLAYER_WHITE)) {
+		} else if (black > white) {
 			return PLAYER_BLACK;
 		} else {
 			return PLAYER_WHITE;
 		}
 	}
 
+	/**
+	 * @return true, if few enough squares are empty to solve the rest of the game with {@link #getFinalDiscDifference()}.
+	 */
+	public boolean isEndgameSolvable() {
+		return this.board.count(PLAYER_NOBODY) <= ENDGAME_SOLVER_MAX_EMPTIES;
+	}
+
+	/**
+	 * Solves the rest of the game with perfect play of both players. Unlike {@link #getWinner()} this works before
+	 * the game is finished.
+	 * @return the black minus the white game characters at the end of the game.
+	 * @throws IllegalStateException if too many squares are empty, see {@link #isEndgameSolvable()}.
+	 */
+	public int getFinalDiscDifference() {
+		if (this.gameState == ONLINE_GAME_STATE_FINISHED || this.currentPlayer == PLAYER_NOBODY) {
+			return this.board.count(PLAYER_BLACK) - this.board.count(PLAYER_WHITE);
+		}
+		if (!this.isEndgameSolvable()) {
+			throw new IllegalStateException("The game can not be solved with " + this.board.count(PLAYER_NOBODY) + " empty squares.");
+		}
+		if (this.endgameSolver == null) {
+			this.endgameSolver = new EndgameSolver();
+		}
+		BitBoard position = new BitBoard(this.board);
+		position.setSideToMove(this.currentPlayer);
+		int score = this.endgameSolver.solve(position);
+		return this.currentPlayer == PLAYER_BLACK ? score : -score;
+	}
+
 	public int getCurrentPlayer() {
 		return this.currentPlayer;
 	}
 
-	public Vector<Vector<Gamefield>> getGameBoard() {
-		return gameBoard;
+	/**
+	 * @return a read-only view of the gameboard, indexed by [x][y].
+	 */
+	public List<List<Gamefield>> getGameBoard() {
+		return this.gameBoardView;
+	}
+
+	public GameListener getGameListener() {
+		return this.listener;
+	}
+
+	/**
+	 * @param listener is informed about the events of this game, null to run headless.
+	 */
+	public void setGameListener(GameListener listener) {
+		this.listener = listener;
+	}
+
+	public BitBoard getBitBoard() {
+		return this.board;
 	}
 
 	public int getClientPlayer() {
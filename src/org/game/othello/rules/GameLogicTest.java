@@ -3,10 +3,14 @@
  */
 package org.game.othello.rules;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Vector;
 
 import org.game.othello.ao.Coordinate;
 import org.game.othello.ao.Gamefield;
+import org.game.othello.connection.InitializationCommando;
 import org.game.othello.interfaces.OthelloConstants;
 import org.junit.Assert;
 import org.junit.Before;
@@ -56,6 +60,14 @@ public class GameLogicTest implements OthelloConstants {
 		Assert.assertEquals(beginningGameBoard, gl.getGameBoard());
 	}
 
+	/**
+	 * Test method for {@link org.game.othello.rules.GameLogic#getGameBoard()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetGameBoardIsReadOnly() {
+		gl.getGameBoard().get(0).set(0, new Gamefield(PLAYER_BLACK, new Coordinate(0, 0)));
+	}
+
 	/**
 	 * Test method for {@link org.game.othello.rules.GameLogic#setOfflineFlags()}.
 	 */
@@ -109,14 +121,14 @@ public class GameLogicTest implements OthelloConstants {
 		gl.doTurn(new Coordinate(4, 5));
 		gl.switchTurnOrder();
 		gl.doTurn(new Coordinate(3, 5));
-		GameLogic expectedGl = new GameLogic();
-		expectedGl.getGameBoard().get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		expectedGl.getGameBoard().get(3).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(3, 4)));
-		expectedGl.getGameBoard().get(3).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(3, 5)));
-		expectedGl.getGameBoard().get(4).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(4, 3)));
-		expectedGl.getGameBoard().get(4).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(4, 4)));
-		expectedGl.getGameBoard().get(4).set(5, new Gamefield(PLAYER_BLACK, new Coordinate(4, 5)));
-		Assert.assertEquals(expectedGl.getGameBoard(), gl.getGameBoard());
+		Vector<Vector<Gamefield>> expectedGameBoard = this.copyGameBoard(new GameLogic());
+		expectedGameBoard.get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
+		expectedGameBoard.get(3).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(3, 4)));
+		expectedGameBoard.get(3).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(3, 5)));
+		expectedGameBoard.get(4).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(4, 3)));
+		expectedGameBoard.get(4).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(4, 4)));
+		expectedGameBoard.get(4).set(5, new Gamefield(PLAYER_BLACK, new Coordinate(4, 5)));
+		Assert.assertEquals(expectedGameBoard, gl.getGameBoard());
 	}
 	
 	/**
@@ -129,14 +141,14 @@ public class GameLogicTest implements OthelloConstants {
 		gl.doTurn(new Coordinate(5, 4));
 		gl.switchTurnOrder();
 		gl.doTurn(new Coordinate(5, 3));
-		GameLogic expectedGl = new GameLogic();
-		expectedGl.getGameBoard().get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		expectedGl.getGameBoard().get(3).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(3, 4)));
-		expectedGl.getGameBoard().get(4).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(4, 3)));
-		expectedGl.getGameBoard().get(4).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(4, 4)));
-		expectedGl.getGameBoard().get(5).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(5, 3)));
-		expectedGl.getGameBoard().get(5).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(5, 4)));
-		Assert.assertEquals(expectedGl.getGameBoard(), gl.getGameBoard());
+		Vector<Vector<Gamefield>> expectedGameBoard = this.copyGameBoard(new GameLogic());
+		expectedGameBoard.get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
+		expectedGameBoard.get(3).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(3, 4)));
+		expectedGameBoard.get(4).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(4, 3)));
+		expectedGameBoard.get(4).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(4, 4)));
+		expectedGameBoard.get(5).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(5, 3)));
+		expectedGameBoard.get(5).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(5, 4)));
+		Assert.assertEquals(expectedGameBoard, gl.getGameBoard());
 	}
 	
 	/**
@@ -153,21 +165,21 @@ public class GameLogicTest implements OthelloConstants {
 		gl.doTurn(new Coordinate(4, 5));
 		gl.switchTurnOrder();
 		gl.doTurn(new Coordinate(5, 5));
-		GameLogic expectedGl = new GameLogic();
-		expectedGl.getGameBoard().get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
-		expectedGl.getGameBoard().get(3).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(3, 4)));
-		expectedGl.getGameBoard().get(4).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(4, 3)));
-		expectedGl.getGameBoard().get(4).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
-		expectedGl.getGameBoard().get(4).set(5, new Gamefield(PLAYER_BLACK, new Coordinate(4, 5)));
-		expectedGl.getGameBoard().get(5).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(5, 5)));
-		Assert.assertEquals(expectedGl.getGameBoard(), gl.getGameBoard());
+		Vector<Vector<Gamefield>> expectedGameBoard = this.copyGameBoard(new GameLogic());
+		expectedGameBoard.get(3).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(3, 3)));
+		expectedGameBoard.get(3).set(4, new Gamefield(PLAYER_BLACK, new Coordinate(3, 4)));
+		expectedGameBoard.get(4).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(4, 3)));
+		expectedGameBoard.get(4).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
+		expectedGameBoard.get(4).set(5, new Gamefield(PLAYER_BLACK, new Coordinate(4, 5)));
+		expectedGameBoard.get(5).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(5, 5)));
+		Assert.assertEquals(expectedGameBoard, gl.getGameBoard());
 		gl.switchTurnOrder();
 		gl.doTurn(new Coordinate(3, 2));
 		gl.switchTurnOrder();
 		gl.doTurn(new Coordinate(2, 2));
-		expectedGl.getGameBoard().get(2).set(2, new Gamefield(PLAYER_WHITE, new Coordinate(2, 2)));
-		expectedGl.getGameBoard().get(3).set(2, new Gamefield(PLAYER_BLACK, new Coordinate(3, 2)));
-		Assert.assertEquals(expectedGl.getGameBoard(), gl.getGameBoard());
+		expectedGameBoard.get(2).set(2, new Gamefield(PLAYER_WHITE, new Coordinate(2, 2)));
+		expectedGameBoard.get(3).set(2, new Gamefield(PLAYER_BLACK, new Coordinate(3, 2)));
+		Assert.assertEquals(expectedGameBoard, gl.getGameBoard());
 	}
 	
 	/**
@@ -188,16 +200,57 @@ public class GameLogicTest implements OthelloConstants {
 		gl.doTurn(new Coordinate(5, 1));
 		gl.switchTurnOrder();
 		gl.doTurn(new Coordinate(2, 5));
-		GameLogic expectedGl = new GameLogic();
-		expectedGl.getGameBoard().get(2).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(2, 5)));
-		expectedGl.getGameBoard().get(3).set(2, new Gamefield(PLAYER_BLACK, new Coordinate(3, 2)));
-		expectedGl.getGameBoard().get(3).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(3, 3)));
-		expectedGl.getGameBoard().get(3).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(3, 4)));
-		expectedGl.getGameBoard().get(4).set(2, new Gamefield(PLAYER_BLACK, new Coordinate(4, 2)));
-		expectedGl.getGameBoard().get(4).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(4, 3)));
-		expectedGl.getGameBoard().get(4).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
-		expectedGl.getGameBoard().get(5).set(1, new Gamefield(PLAYER_BLACK, new Coordinate(5, 1)));
-		Assert.assertEquals(expectedGl.getGameBoard(), gl.getGameBoard());
+		Vector<Vector<Gamefield>> expectedGameBoard = this.copyGameBoard(new GameLogic());
+		expectedGameBoard.get(2).set(5, new Gamefield(PLAYER_WHITE, new Coordinate(2, 5)));
+		expectedGameBoard.get(3).set(2, new Gamefield(PLAYER_BLACK, new Coordinate(3, 2)));
+		expectedGameBoard.get(3).set(3, new Gamefield(PLAYER_BLACK, new Coordinate(3, 3)));
+		expectedGameBoard.get(3).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(3, 4)));
+		expectedGameBoard.get(4).set(2, new Gamefield(PLAYER_BLACK, new Coordinate(4, 2)));
+		expectedGameBoard.get(4).set(3, new Gamefield(PLAYER_WHITE, new Coordinate(4, 3)));
+		expectedGameBoard.get(4).set(4, new Gamefield(PLAYER_WHITE, new Coordinate(4, 4)));
+		expectedGameBoard.get(5).set(1, new Gamefield(PLAYER_BLACK, new Coordinate(5, 1)));
+		Assert.assertEquals(expectedGameBoard, gl.getGameBoard());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.GameLogic#legalMoves(int)}.
+	 */
+	@Test
+	public void testLegalMoves() {
+		gl.setOfflineFlags();
+		Assert.assertEquals(4, Long.bitCount(gl.legalMoves(PLAYER_WHITE)));
+		Assert.assertEquals(PLAYER_BLACK, gl.getCurrentPlayer());
+		Assert.assertTrue((gl.legalMoves(PLAYER_BLACK) & BitBoard.bit(4, 5)) != 0);
+		Assert.assertEquals(0, gl.legalMoves(PLAYER_NOBODY));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.GameLogic#doTurn(int)}.
+	 */
+	@Test
+	public void testDoTurnReturnsFlipMask() {
+		gl.setOfflineFlags();
+		Assert.assertEquals(BitBoard.bit(4, 4), gl.doTurn(BitBoard.square(4, 5)));
+		gl.switchTurnOrder();
+		Assert.assertEquals(BitBoard.bit(4, 4), gl.doTurn(new Coordinate(5, 5)));
+		Assert.assertEquals(PLAYER_WHITE, gl.getOwner(new Coordinate(4, 4)));
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.GameLogic#unmakeMove()}.
+	 */
+	@Test
+	public void testMakeAndUnmakeMove() {
+		gl.setOfflineFlags();
+		Vector<Vector<Gamefield>> startGameBoard = this.copyGameBoard(gl);
+		gl.makeMove(BitBoard.square(4, 5));
+		Assert.assertEquals(PLAYER_WHITE, gl.getCurrentPlayer());
+		gl.makeMove(BitBoard.square(5, 5));
+		Assert.assertEquals(PLAYER_BLACK, gl.getCurrentPlayer());
+		gl.unmakeMove();
+		gl.unmakeMove();
+		Assert.assertEquals(PLAYER_BLACK, gl.getCurrentPlayer());
+		Assert.assertEquals(startGameBoard, gl.getGameBoard());
 	}
 
 	/**
@@ -253,4 +306,78 @@ public class GameLogicTest implements OthelloConstants {
 		Assert.assertEquals(PLAYER_WHITE, gl.getWinner());
 		
 	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.GameLogic#getFinalDiscDifference()}.
+	 */
+	@Test
+	public void testGetFinalDiscDifference() {
+		gl.setOfflineFlags();
+		Assert.assertFalse(gl.isEndgameSolvable());
+		// Black owns everything except one white game character and two empty squares, black takes the last white one.
+		long white = BitBoard.bit(0, 6);
+		long black = ~(white | BitBoard.bit(0, 7) | BitBoard.bit(1, 7));
+		gl.getBitBoard().setPosition(black, white);
+		Assert.assertTrue(gl.isEndgameSolvable());
+		Assert.assertEquals(63, gl.getFinalDiscDifference());
+		Assert.assertEquals(PLAYER_BLACK, gl.getCurrentPlayer());
+		Assert.assertEquals(black, gl.getBitBoard().getBlack());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.GameLogic#setGameListener(GameListener)}.
+	 * A game without user interface reports its turns, messages and the end to the listener.
+	 */
+	@Test
+	public void testGameListener() {
+		final List<String> events = new ArrayList<String>();
+		gl.setGameListener(new GameListener() {
+			@Override
+			public void gameOver(GameLogic game, Coordinate lastMove) {
+				Assert.assertSame(gl, game);
+				events.add("gameOver " + lastMove.getX() + "," + lastMove.getY());
+			}
+
+			@Override
+			public void turnSwitched(GameLogic game, int currentPlayer) {
+				Assert.assertSame(gl, game);
+				events.add("turnSwitched " + currentPlayer);
+			}
+
+			@Override
+			public void infoMessage(GameLogic game, String message) {
+				Assert.assertSame(gl, game);
+				events.add("infoMessage " + message);
+			}
+		});
+		gl.setOnlineFlags();
+		gl.startOnlineGame(new InitializationCommando(ONLINE_GAME_I_START, 1));
+		Assert.assertEquals(Arrays.asList("infoMessage You are player Black. You start.", "turnSwitched " + PLAYER_BLACK), events);
+		events.clear();
+
+		gl.setOfflineFlags();
+		Assert.assertTrue(gl.handleTurnAttempt(new Coordinate(2, 3)));
+		Assert.assertEquals(Arrays.asList("turnSwitched " + PLAYER_WHITE), events);
+		events.clear();
+
+		// Black takes the last white game character, no one can move anymore.
+		long white = BitBoard.bit(0, 6);
+		gl.getBitBoard().setPosition(~(white | BitBoard.bit(0, 7) | BitBoard.bit(1, 7)), white);
+		gl.setCurrentPlayer(PLAYER_BLACK);
+		Assert.assertFalse(gl.handleTurnAttempt(new Coordinate(0, 7)));
+		Assert.assertEquals(Arrays.asList("gameOver 0,7"), events);
+		Assert.assertTrue(gl.isGameFinished());
+	}
+
+	/**
+	 * @param gameLogic
+	 * @return a modifiable copy of the gameboard.
+	 */
+	private Vector<Vector<Gamefield>> copyGameBoard(GameLogic gameLogic) {
+		Vector<Vector<Gamefield>> copy = new Vector<Vector<Gamefield>>(GAMEBOARD_SIZE);
+		for (List<Gamefield> column : gameLogic.getGameBoard()) {
+			copy.add(new Vector<Gamefield>(column));
+		}
+		return copy;
+	}
 }
@@ -0,0 +1,104 @@
+package org.game.othello.rules;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.game.othello.interfaces.Loggable;
+import org.game.othello.interfaces.OthelloConstants;
+
+/**
+ * Counts the leaf nodes of the move tree up to a fixed depth (perft).
+ * A pass counts as one ply, a finished game before the depth is reached counts as one leaf.
+ * Usage: java org.game.othello.rules.Perft [depth]
+ * @author Oliver Scherf
+ */
+public class Perft implements OthelloConstants, Loggable {
+
+	private Logger logger;
+	private BitBoard board;
+
+	public static void main(String[] args) {
+		int maxDepth = 9;
+		if (args.length > 0) {
+			maxDepth = Integer.parseInt(args[0]);
+		}
+		GameLogic gameLogic = new GameLogic();
+		Perft perft = new Perft(gameLogic.getBitBoard());
+		for (int depth = 1; depth <= maxDepth; ++depth) {
+			long start = System.nanoTime();
+			long nodes = perft.perft(depth);
+			long nanos = Math.max(1, System.nanoTime() - start);
+			System.out.println(String.format("perft(%2d) = %,15d  %10.3f s  %,15d nodes/s", depth, nodes, nanos / 1e9,
+					(long) (nodes * 1e9 / nanos)));
+		}
+	}
+
+	/**
+	 * Instantiates a new Perft, working on a copy of the board.
+	 * @param board the root position and the side to move.
+	 */
+	public Perft(BitBoard board) {
+		this.initializeLogging();
+		this.board = new BitBoard(board);
+	}
+
+	/**
+	 * @param depth the number of plies to search.
+	 * @return the number of leaf nodes.
+	 */
+	public long perft(int depth) {
+		long nodes = this.perft(depth, false);
+		this.log(FINE, "perft(" + depth + ") = " + nodes);
+		return nodes;
+	}
+
+	/**
+	 * @param depth the remaining plies.
+	 * @param passed true, if the previous ply was a pass.
+	 * @return the number of leaf nodes below the current position.
+	 */
+	private long perft(int depth, boolean passed) {
+		if (depth == 0) {
+			return 1;
+		}
+		long moves = this.board.getLegalMoves(this.board.getSideToMove());
+		if (moves == 0) {
+			if (passed) {
+				// Both players have to pass, the game is over.
+				return 1;
+			}
+			this.board.makePass();
+			long nodes = this.perft(depth - 1, true);
+			this.board.unmakeMove();
+			return nodes;
+		}
+		if (depth == 1) {
+			return Long.bitCount(moves);
+		}
+		long nodes = 0;
+		while (moves != 0) {
+			int square = Long.numberOfTrailingZeros(moves);
+			moves &= moves - 1;
+			this.board.makeMove(square);
+			nodes += this.perft(depth - 1, false);
+			this.board.unmakeMove();
+		}
+		return nodes;
+	}
+
+	@Override
+	public void initializeLogging() {
+		this.logger = Logger.getLogger("Log.Perft");
+		this.logger.setLevel(null);
+	}
+
+	@Override
+	public void log(Level level, String msg) {
+		this.logger.log(level, msg);
+	}
+
+	@Override
+	public void err(String msg, Exception e) {
+		this.logger.log(ERROR, msg, e);
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.game.othello.rules;
+
+import java.util.Random;
+
+import org.game.othello.interfaces.OthelloConstants;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the move generator against the known perft counts of Othello and against a plain
+ * square by square implementation of the rules.
+ * @author Oliver Scherf
+ */
+public class PerftTest implements OthelloConstants {
+
+	private static final long[] KNOWN_PERFT_COUNTS = { 1, 4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288 };
+
+	private Perft perft;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		perft = new Perft(new GameLogic().getBitBoard());
+	}
+
+	/**
+	 * Test method for {@link org.game.othello.rules.Perft#perft(int)}.
+	 */
+	@Test
+	public void testPerft() {
+		for (int depth = 1; depth < KNOWN_PERFT_COUNTS.length; ++depth) {
+			Assert.assertEquals("perft(" + depth + ")", KNOWN_PERFT_COUNTS[depth], perft.perft(depth));
+		}
+	}
+
+	/**
+	 * Plays random games and compares legal moves and flips with the reference rules at every ply.
+	 */
+	@Test
+	public void testMoveGeneratorMatchesReferenceRules() {
+		Random random = new Random(4711);
+		for (int game = 0; game < 200; ++game) {
+			BitBoard board = new BitBoard();
+			board.setStartingPosition();
+			while (!board.isGameOver()) {
+				int player = board.getSideToMove();
+				long moves = board.getLegalMoves(player);
+				for (int square = 0; square < BitBoard.SQUARE_COUNT; ++square) {
+					long expectedFlips = this.referenceFlips(board, player, square);
+					Assert.assertEquals(expectedFlips, board.getFlips(player, square));
+					Assert.assertEquals(expectedFlips != 0, (moves & (1L << square)) != 0);
+				}
+				if (moves == 0) {
+					board.makePass();
+					continue;
+				}
+				int choice = random.nextInt(Long.bitCount(moves));
+				for (int i = 0; i < choice; ++i) {
+					moves &= moves - 1;
+				}
+				board.makeMove(Long.numberOfTrailingZeros(moves));
+			}
+		}
+	}
+
+	/**
+	 * Walks from (x, y) into every direction, the same way the gamerules are explained.
+	 * @return the flipped squares, 0 if the move is not legal.
+	 */
+	private long referenceFlips(BitBoard board, int player, int square) {
+		int x = square % GAMEBOARD_SIZE;
+		int y = square / GAMEBOARD_SIZE;
+		if (board.getOwner(square) != PLAYER_NOBODY) {
+			return 0;
+		}
+		long flipped = 0;
+		for (int dx = -1; dx <= 1; ++dx) {
+			for (int dy = -1; dy <= 1; ++dy) {
+				if (dx == 0 && dy == 0) {
+					continue;
+				}
+				long line = 0;
+				int cx = x + dx;
+				int cy = y + dy;
+				while (cx >= 0 && cx < GAMEBOARD_SIZE && cy >= 0 && cy < GAMEBOARD_SIZE
+						&& board.getOwner(BitBoard.square(cx, cy)) == BitBoard.opponentOf(player)) {
+					line |= BitBoard.bit(cx, cy);
+					cx += dx;
+					cy += dy;
+				}
+				if (cx >= 0 && cx < GAMEBOARD_SIZE && cy >= 0 && cy < GAMEBOARD_SIZE
+						&& board.getOwner(BitBoard.square(cx, cy)) == player) {
+					flipped |= line;
+				}
+			}
+		}
+		return flipped;
+	}
+}